@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+
+import utils.testrail.TestRailConfigException;
+
+
+/*
+ * The get*ByName lookups over a section of caseCnt cases, the name asked for is the last case so
+ * a scan walks the whole list.
+ *
+ * 	scan		getTestCasesByName, the list is fetched and filtered on every call
+ * 	coldLookup	getTestCaseIdByName with the entity cache emptied first, one list call plus the index build
+ * 	warmLookup	getTestCaseIdByName served from the entity cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByNameBenchmark {
+	@Param({"100", "1000"})
+	public int caseCnt;
+
+	private StubFixture fixture;
+	private String caseName;
+
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		fixture = new StubFixture(caseCnt, 250, TimeUnit.HOURS.toMillis(1));
+		caseName = StubFixture.caseName(caseCnt - 1);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		fixture.close();
+	}
+
+	@Benchmark
+	public JsonArray scan() throws IOException {
+		return fixture.testRailServices.getTestCasesByName(fixture.projectId, fixture.suiteId, fixture.sectionId, caseName, true);
+	}
+
+	@Benchmark
+	public Integer coldLookup() throws IOException, TestRailConfigException {
+		fixture.testRailServices.getEntityCache().invalidateAll();
+		return fixture.testRailServices.getTestCaseIdByName(fixture.projectId, fixture.suiteId, fixture.sectionId, caseName, true);
+	}
+
+	@Benchmark
+	public Integer warmLookup() throws IOException, TestRailConfigException {
+		return fixture.testRailServices.getTestCaseIdByName(fixture.projectId, fixture.suiteId, fixture.sectionId, caseName, true);
+	}
+
+	@Benchmark
+	public Integer projectLookup() throws IOException, TestRailConfigException {
+		return fixture.testRailServices.getProjectIdByName(StubFixture.PROJECT_NAME, true);
+	}
+}
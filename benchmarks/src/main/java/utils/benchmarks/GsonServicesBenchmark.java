@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import utils.gson.GsonServices;
+
+
+/*
+ * GsonServices.prettyPrint() of an add_results_for_cases payload holding resultCnt results, from
+ * a JsonObject and from its compact string
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GsonServicesBenchmark {
+	@Param({"10", "1000"})
+	public int resultCnt;
+
+	private JsonObject container;
+	private String json;
+
+
+	@Setup(Level.Trial)
+	public void setup() {
+		JsonArray resultsArray = new JsonArray();
+		for (int i = 0; i < resultCnt; i++) {
+			JsonObject jsonObject = new JsonObject();
+			jsonObject.addProperty("case_id", i + 1);
+			jsonObject.addProperty("status_id", 1);
+			jsonObject.addProperty("comment", "assertion " + i + " held");
+			jsonObject.addProperty("defects", (String) null);
+			jsonObject.addProperty("elapsed", "30s");
+			jsonObject.addProperty("version", "1.2.3");
+			resultsArray.add(jsonObject);
+		}
+		container = new JsonObject();
+		container.add("results", resultsArray);
+		json = container.toString();
+	}
+
+	@Benchmark
+	public String prettyPrintJsonObject() {
+		return GsonServices.build().prettyPrint(container);
+	}
+
+	@Benchmark
+	public String prettyPrintString() {
+		return GsonServices.build().prettyPrint(json);
+	}
+}
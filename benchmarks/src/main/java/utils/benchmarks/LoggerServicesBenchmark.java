@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.logger.LoggerServices;
+
+
+/*
+ * LoggerServices.bannerWrap() as the listener calls it, a one line banner per test, and with a
+ * header over a multi line body
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggerServicesBenchmark {
+	private LoggerServices loggerServices;
+	private String body;
+
+
+	@Setup(Level.Trial)
+	public void setup() {
+		loggerServices = LoggerServices.build();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			sb.append("step ").append(i).append(" completed in ").append(i * 7).append("ms\n");
+		}
+		body = sb.toString();
+	}
+
+	@Benchmark
+	public String bannerWrap() {
+		return loggerServices.bannerWrap("Test Started: utils.testrail.BasicTest.basicTest");
+	}
+
+	@Benchmark
+	public String bannerWrapHeader() {
+		return loggerServices.bannerWrap("Results", body);
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import utils.testrail.Results;
+import utils.testrail.TEST_STATUS;
+import utils.testrail.TestRailListener;
+
+
+/*
+ * Serializing resultCnt buffered Results: one by one with toJson() and toResultForCase(), and as
+ * the whole add_results_for_cases payload.
+ *
+ * generateResultsArray() runs the listener's unpublished branch, which pretty prints the payload
+ * and writes buffer2.json to the working directory, so it includes that file write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultsBenchmark {
+	@Param({"10", "1000"})
+	public int resultCnt;
+
+	private List<Results> resultsList;
+	private TestRailListener testRailListener;
+
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		LogManager.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+		resultsList = new ArrayList<>(resultCnt);
+		for (int i = 0; i < resultCnt; i++) {
+			resultsList.add(Results.builder(null, StubFixture.PROJECT_NAME)
+					.testCaseName(StubFixture.caseName(i))
+					.testCaseId(i + 1)
+					.testStatus(i % 10 == 0 ? TEST_STATUS.FAILED : TEST_STATUS.PASSED)
+					.comment("assertion " + i + " held")
+					.version("1.2.3")
+					.elapsed("30s")
+					.defects(i % 10 == 0 ? "BUG-" + i : null)
+					.build(false));
+		}
+		testRailListener = new TestRailListener();
+		//publish is only ever set from the suite's @TestTrackerProject in onStart()
+		Field publish = TestRailListener.class.getDeclaredField("publish");
+		publish.setAccessible(true);
+		publish.set(testRailListener, Boolean.FALSE);
+	}
+
+	@Benchmark
+	public void toJson(Blackhole blackhole) throws Exception {
+		for (Results results : resultsList) {
+			blackhole.consume(results.toJson());
+		}
+	}
+
+	@Benchmark
+	public String toResultForCase() {
+		JsonArray resultsArray = new JsonArray();
+		for (Results results : resultsList) {
+			resultsArray.add(results.toResultForCase());
+		}
+		JsonObject container = new JsonObject();
+		container.add("results", resultsArray);
+		return container.toString();
+	}
+
+	@Benchmark
+	public String generateResultsArray() throws Exception {
+		return testRailListener.generateResultsArray(resultsList);
+	}
+}
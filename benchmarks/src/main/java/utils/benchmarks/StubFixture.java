@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import utils.testrail.TestRailServices;
+import utils.testrail.stub.TestRailStubException;
+import utils.testrail.stub.TestRailStubFixture;
+
+
+/*
+ * A TestRailStubFixture seeded with one project, suite, section and caseCnt cases plus a run over
+ * them, and a TestRailServices pointed at it. Client logging is turned down to WARN so console
+ * output does not end up in the numbers.
+ */
+class StubFixture implements Closeable {
+	static final String PROJECT_NAME = "benchProj";
+	private static final String CASE_PREFIX = "benchCase";
+	final TestRailStubFixture stub;
+	final TestRailServices testRailServices;
+	final int projectId;
+	final int suiteId;
+	final int sectionId;
+	final int runId;
+	final int caseCnt;
+
+
+	StubFixture(int caseCnt, int pageSize, long cacheTtl) throws IOException, TestRailStubException {
+		LogManager.getRootLogger().setLevel(Level.WARN);
+		this.caseCnt = caseCnt;
+		stub = TestRailStubFixture.builder().pageSize(pageSize)
+				.project(PROJECT_NAME).suite("benchSuite").section("benchSection").cases(CASE_PREFIX, caseCnt).run("benchRun")
+				.build();
+		projectId = stub.getProjectId();
+		suiteId = stub.getSuiteId();
+		sectionId = stub.getSectionId();
+		runId = stub.getRunId();
+		testRailServices = TestRailServices.builder(stub.getUrl()).userName(stub.getUserName()).passWord(stub.getPassWord())
+				.cacheTtl(cacheTtl)
+				.build();
+	}
+
+	//i is 0 based, the stub fixture numbers its cases from 1
+	static String caseName(int i) {
+		return CASE_PREFIX + (i + 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		testRailServices.close();
+		stub.close();
+	}
+}
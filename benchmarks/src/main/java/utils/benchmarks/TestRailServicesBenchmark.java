@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import utils.testrail.TEST_STATUS;
+
+
+/*
+ * Request execution through TestRailServices against the in memory stub: a single object get,
+ * a paged list of caseCnt cases and an add_results_for_cases post. The stub answers without
+ * latency, so these measure the client side of a call (transport, interceptors, parsing).
+ *
+ * 	java -jar benchmarks/target/benchmarks.jar TestRailServicesBenchmark -t 4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestRailServicesBenchmark {
+	@Param({"250"})
+	public int caseCnt;
+
+	@Param({"100"})
+	public int pageSize;
+
+	private StubFixture fixture;
+	private String resultsJson;
+
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		fixture = new StubFixture(caseCnt, pageSize, 0);
+		JsonArray resultsArray = new JsonArray();
+		for (int i = 1; i <= Math.min(caseCnt, 25); i++) {
+			JsonObject jsonObject = new JsonObject();
+			jsonObject.addProperty("case_id", i);
+			jsonObject.addProperty("status_id", TEST_STATUS.PASSED.getValue());
+			jsonObject.addProperty("comment", "benchmark");
+			resultsArray.add(jsonObject);
+		}
+		JsonObject container = new JsonObject();
+		container.add("results", resultsArray);
+		resultsJson = container.toString();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		fixture.close();
+	}
+
+	@Benchmark
+	public JsonObject getProject() throws IOException {
+		return fixture.testRailServices.getProject(fixture.projectId, true);
+	}
+
+	@Benchmark
+	public JsonArray getTestCases() throws IOException {
+		return fixture.testRailServices.getTestCases(fixture.projectId, fixture.suiteId, fixture.sectionId);
+	}
+
+	@Benchmark
+	public JsonArray addResultsForCases() throws IOException {
+		return fixture.testRailServices.addResultsForCases(fixture.runId, resultsJson);
+	}
+}
@@ -50,6 +50,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import utils.regex.PatternCache;
+
 
 
 public class FileServices {
@@ -558,23 +560,18 @@ public class FileServices {
 
 	    Path path = Paths.get(fileName);
 	    lineList = Files.readAllLines(path, charset);
+	    //one Pattern and one Matcher for the whole file, reset per line
+	    Matcher matcher = getPattern(regEx, caseInSensitve, dotAll, multiLine).matcher("");
 	    ListIterator<String> lineIterator = lineList.listIterator();
 	    while(lineIterator.hasNext()) {
-	        if(matches(lineIterator.next(), regEx, caseInSensitve, dotAll, multiLine)) {
+	        line = lineIterator.next();
+	        if(matcher.reset(line).find()) {
 	            matchList.add(line);
 	        }
 	    }      
 	    return matchList;
 	}
 	
-	//Returns boolean indicating if regex pattern match exists in input String
-    private boolean matches(String input, String regEx, boolean caseSensitve, boolean dotAll, boolean multiLine) {
-    	Pattern pattern = getPattern(regEx, caseSensitve, dotAll, multiLine);
-    	Matcher matcher = pattern.matcher(input);
-    	
-    	return matcher.find();
-    }
-    
 	private Pattern getPattern(String regEx, boolean caseSensitve, boolean dotAll, boolean multiLine){
 		int options = 0;
         
@@ -612,7 +609,7 @@ public class FileServices {
         }
         LOGGER.trace("regex: {}", regEx);
 
-		return Pattern.compile(regEx, options);
+		return PatternCache.getInstance().compile(regEx, options);
 	}
     
 
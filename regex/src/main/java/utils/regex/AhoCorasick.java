@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+
+/*
+ * Aho-Corasick automaton over a set of literals, used by MultiPatternMatcher as a prefilter.
+ *
+ * Each literal carries the id of the pattern that requires it. Matching is case insensitive
+ * (chars are folded with Character.toLowerCase) which can only add candidates, never lose one.
+ * Chars that occur in no literal share one column, so the goto table stays small and a scan
+ * costs one array lookup per input char.
+ */
+final class AhoCorasick {
+	private static final int ROOT = 0;
+	private final char[] asciiColumns = new char[128];
+	private final Map<Character, Integer> otherColumns = new HashMap<>();
+	private final int[][] next;
+	private final int[][] outputs;
+
+
+	/*
+	 * literals.get(i) is required by pattern ids.get(i), literals must not be empty
+	 */
+	AhoCorasick(List<String> literals, List<Integer> ids) {
+		int columnCnt = 1;
+		for (String literal : literals) {
+			for (char c : literal.toCharArray()) {
+				char folded = Character.toLowerCase(c);
+				if (column(folded) == 0) {
+					if (folded < 128) {
+						asciiColumns[folded] = (char) columnCnt++;
+					} else {
+						otherColumns.put(folded, columnCnt++);
+					}
+				}
+			}
+		}
+
+		//trie
+		List<int[]> trie = new ArrayList<>();
+		List<BitSet> trieOutputs = new ArrayList<>();
+		trie.add(new int[columnCnt]);
+		trieOutputs.add(new BitSet());
+		for (int i = 0; i < literals.size(); i++) {
+			int state = ROOT;
+			for (char c : literals.get(i).toCharArray()) {
+				int column = column(Character.toLowerCase(c));
+				if (trie.get(state)[column] == 0) {
+					trie.get(state)[column] = trie.size();
+					trie.add(new int[columnCnt]);
+					trieOutputs.add(new BitSet());
+				}
+				state = trie.get(state)[column];
+			}
+			trieOutputs.get(state).set(ids.get(i));
+		}
+
+		//breadth first, turn the trie into a goto table and merge outputs along failure links
+		int[] fail = new int[trie.size()];
+		Queue<Integer> queue = new ArrayDeque<>();
+		for (int column = 1; column < columnCnt; column++) {
+			int child = trie.get(ROOT)[column];
+			if (child != 0) {
+				fail[child] = ROOT;
+				queue.add(child);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+			trieOutputs.get(state).or(trieOutputs.get(fail[state]));
+			for (int column = 1; column < columnCnt; column++) {
+				int child = trie.get(state)[column];
+				if (child != 0) {
+					fail[child] = trie.get(fail[state])[column];
+					queue.add(child);
+				} else {
+					trie.get(state)[column] = trie.get(fail[state])[column];
+				}
+			}
+		}
+
+		next = trie.toArray(new int[trie.size()][]);
+		outputs = new int[trie.size()][];
+		for (int state = 0; state < outputs.length; state++) {
+			outputs[state] = trieOutputs.get(state).stream().toArray();
+		}
+	}
+
+	private int column(char folded) {
+		if (folded < 128) {
+			return asciiColumns[folded];
+		}
+		Integer column = otherColumns.get(folded);
+		return column == null ? 0 : column;
+	}
+
+	int start() {
+		return ROOT;
+	}
+
+	int step(int state, char c) {
+		return next[state][column(Character.toLowerCase(c))];
+	}
+
+	/*
+	 * ids of the patterns whose literal ends at this state, empty for most states
+	 */
+	int[] outputs(int state) {
+		return outputs[state];
+	}
+
+	int stateCnt() {
+		return next.length;
+	}
+
+	@Override
+	public String toString() {
+		return "AhoCorasick[states=" + next.length + ", columns=" + next[ROOT].length + "]";
+	}
+}
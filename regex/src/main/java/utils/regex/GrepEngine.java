@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Recursive grep over a directory tree.
+ *
+ * The tree is walked once with a FileVisitor and every regular file becomes a task on a
+ * work-stealing ForkJoinPool, so a few large logs and many small ones keep all workers busy.
+ * Each file is read exactly once, line by line, with one Matcher per file. Matches are handed to
+ * the consumer as they are found: lines of one file arrive in order, but files are scanned in
+ * parallel so the consumer is called from several threads and must be thread safe. Files of
+ * mapThreshold bytes or more go through a MappedLineScanner and their matches carry byte offsets.
+ *
+ * 	GrepSummary summary = GrepEngine.builder(pattern).build().grep(Paths.get("logs"), match -> queue.add(match));
+ */
+public class GrepEngine {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	public static final long MAP_THRESHOLD_DEFAULT = 64L * 1024 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private final Pattern pattern;
+	private final int parallelism;
+	private final Charset charset;
+	private final boolean followLinks;
+	private final Predicate<Path> fileFilter;
+	private final MappedLineScanner mappedLineScanner;
+	private final long mapThreshold;
+
+
+	public static Builder builder(Pattern pattern){
+		return new Builder(pattern);
+	}
+
+
+	public static class Builder {
+		private Pattern pattern;
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+		private Charset charset = StandardCharsets.UTF_8;
+		private boolean followLinks = false;
+		private Predicate<Path> fileFilter = path -> true;
+		private long mapThreshold = MAP_THRESHOLD_DEFAULT;
+
+
+		private Builder(Pattern pattern) {
+			this.pattern = pattern;
+		}
+
+		public Builder parallelism(Integer parallelism) {
+			if (parallelism != null) {
+				this.parallelism = parallelism;
+			}
+			return this;
+		}
+
+		/*
+		 * bytes that do not decode are replaced, a binary file does not stop the walk
+		 */
+		public Builder charset(Charset charset) {
+			if (charset != null) {
+				this.charset = charset;
+			}
+			return this;
+		}
+
+		public Builder followLinks(Boolean followLinks) {
+			if (followLinks != null) {
+				this.followLinks = followLinks;
+			}
+			return this;
+		}
+
+		/*
+		 * only regular files accepted by fileFilter are scanned
+		 */
+		public Builder fileFilter(Predicate<Path> fileFilter) {
+			if (fileFilter != null) {
+				this.fileFilter = fileFilter;
+			}
+			return this;
+		}
+
+		/*
+		 * files at least this large are memory mapped window by window, Long.MAX_VALUE turns it off.
+		 * Ignored for charsets MappedLineScanner does not support.
+		 */
+		public Builder mapThreshold(Long mapThreshold) {
+			if (mapThreshold != null) {
+				this.mapThreshold = mapThreshold;
+			}
+			return this;
+		}
+
+		public GrepEngine build() {
+			return new GrepEngine(this);
+		}
+	}
+
+	private GrepEngine(Builder builder) {
+		if (builder.pattern == null) {
+			throw new IllegalArgumentException("pattern must not be null");
+		}
+		if (builder.parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be > 0: " + builder.parallelism);
+		}
+		this.pattern = builder.pattern;
+		this.parallelism = builder.parallelism;
+		this.charset = builder.charset;
+		this.followLinks = builder.followLinks;
+		this.fileFilter = builder.fileFilter;
+		this.mapThreshold = builder.mapThreshold;
+		this.mappedLineScanner = MappedLineScanner.isSupported(builder.charset)
+				? MappedLineScanner.builder(builder.pattern).charset(builder.charset).build() : null;
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/*
+	 * Greps every file under root, or root itself if it is a file, and blocks until all are done.
+	 * A file that cannot be read is logged and reported in the summary, a RuntimeException thrown
+	 * by the consumer ends the call.
+	 */
+	public GrepSummary grep(Path root, Consumer<GrepMatch> consumer) throws IOException {
+		long start = System.currentTimeMillis();
+		Map<Path, IOException> failures = new ConcurrentHashMap<>();
+		List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			Files.walkFileTree(root, followLinks ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : Collections.<FileVisitOption>emptySet(),
+					Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile() && fileFilter.test(file)) {
+						tasks.add(pool.submit(() -> grepQuietly(file, consumer, failures)));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					failed(file, e, failures);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+
+			long matchCnt = 0;
+			for (ForkJoinTask<Long> task : tasks) {
+				matchCnt += task.join();
+			}
+			GrepSummary summary = new GrepSummary(tasks.size(), matchCnt, System.currentTimeMillis() - start, failures);
+			LOGGER.debug("{} {}", root, summary);
+			return summary;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * Greps one file on the calling thread and returns the number of matching lines
+	 */
+	public long grepFile(Path file, Consumer<GrepMatch> consumer) throws IOException {
+		if (mappedLineScanner != null && Files.size(file) >= mapThreshold) {
+			return mappedLineScanner.scan(file, consumer);
+		}
+		long matchCnt = 0;
+		long lineNumber = 0;
+		String line = null;
+		Matcher matcher = pattern.matcher("");
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file),
+				charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE)),
+				BUFFER_SIZE)) {
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (matcher.reset(line).find()) {
+					matchCnt++;
+					consumer.accept(new GrepMatch(file, lineNumber, line));
+				}
+			}
+		}
+		return matchCnt;
+	}
+
+	private long grepQuietly(Path file, Consumer<GrepMatch> consumer, Map<Path, IOException> failures) {
+		try {
+			return grepFile(file, consumer);
+		} catch (IOException e) {
+			failed(file, e, failures);
+			return 0;
+		}
+	}
+
+	private static void failed(Path file, IOException e, Map<Path, IOException> failures) {
+		LOGGER.warn("grep skipped {}: {}", file, e.toString());
+		failures.put(file, e);
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.nio.file.Path;
+
+
+/*
+ * One matching line found by GrepEngine, lineNumber is 1 based. byteOffset is where the line
+ * starts in the file, -1 when the file was read through a Reader and offsets were not tracked.
+ */
+public class GrepMatch {
+	private final Path path;
+	private final long lineNumber;
+	private final long byteOffset;
+	private final String line;
+
+
+	public GrepMatch(Path path, long lineNumber, String line) {
+		this(path, lineNumber, -1, line);
+	}
+
+	public GrepMatch(Path path, long lineNumber, long byteOffset, String line) {
+		this.path = path;
+		this.lineNumber = lineNumber;
+		this.byteOffset = byteOffset;
+		this.line = line;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	public long getByteOffset() {
+		return byteOffset;
+	}
+
+	public String getLine() {
+		return line;
+	}
+
+	@Override
+	public String toString() {
+		return path + ":" + lineNumber + ":" + line;
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+
+/*
+ * What one GrepEngine.grep() call did. Files that could not be read are listed in getFailures(),
+ * the walk carries on past them.
+ */
+public class GrepSummary {
+	private final long fileCnt;
+	private final long matchCnt;
+	private final long elapsedMs;
+	private final Map<Path, IOException> failures;
+
+
+	GrepSummary(long fileCnt, long matchCnt, long elapsedMs, Map<Path, IOException> failures) {
+		this.fileCnt = fileCnt;
+		this.matchCnt = matchCnt;
+		this.elapsedMs = elapsedMs;
+		this.failures = Collections.unmodifiableMap(failures);
+	}
+
+	public long getFileCnt() {
+		return fileCnt;
+	}
+
+	public long getMatchCnt() {
+		return matchCnt;
+	}
+
+	public long getElapsedMs() {
+		return elapsedMs;
+	}
+
+	public Map<Path, IOException> getFailures() {
+		return failures;
+	}
+
+	public boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "grep: " + matchCnt + " matches in " + fileCnt + " files, " + failures.size() + " failed, " + elapsedMs + "ms";
+	}
+}
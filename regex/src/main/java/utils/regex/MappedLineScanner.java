@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/*
+ * Line oriented regex scan of files of any size through memory mapped windows.
+ *
+ * A single mapping is limited to 2 GB, so the file is mapped windowSize bytes at a time. A line
+ * cut by the end of a window is not scanned there, the next window starts at that line instead,
+ * so consecutive windows overlap by at most one partial line. Line boundaries are found on the
+ * raw bytes and only candidate lines are decoded; when the pattern is a plain literal (or a
+ * literal every match contains is given) lines without those bytes are never decoded at all.
+ * Each match reports the line's byte offset and line number.
+ *
+ * The charset must encode '\n' as the single byte 0x0A (UTF-8, ISO-8859-*, ASCII, ...). A line
+ * longer than the window is scanned in window sized pieces that all carry the same line number.
+ *
+ * 	long hits = MappedLineScanner.builder(pattern).build().scan(Paths.get("output.log"), match -> ...);
+ */
+public class MappedLineScanner {
+	public static final long WINDOW_SIZE_DEFAULT = 64L * 1024 * 1024;
+	private static final long WINDOW_SIZE_MIN = 64L * 1024;
+	private static final byte NL = '\n';
+	private static final byte CR = '\r';
+	private static final String REGEX_META_CHARS = "\\[](){}.*+?^$|";
+	private final Pattern pattern;
+	private final long windowSize;
+	private final Charset charset;
+	private final byte[] literal;
+
+
+	public static Builder builder(Pattern pattern){
+		return new Builder(pattern);
+	}
+
+
+	public static class Builder {
+		private Pattern pattern;
+		private long windowSize = WINDOW_SIZE_DEFAULT;
+		private Charset charset = StandardCharsets.UTF_8;
+		private String literal;
+
+
+		private Builder(Pattern pattern) {
+			this.pattern = pattern;
+		}
+
+		public Builder windowSize(Long windowSize) {
+			if (windowSize != null) {
+				this.windowSize = windowSize;
+			}
+			return this;
+		}
+
+		public Builder charset(Charset charset) {
+			if (charset != null) {
+				this.charset = charset;
+			}
+			return this;
+		}
+
+		/*
+		 * a string every matching line contains, used to skip lines without decoding them.
+		 * Derived from the pattern when it is a case sensitive literal.
+		 */
+		public Builder literal(String literal) {
+			this.literal = literal;
+			return this;
+		}
+
+		public MappedLineScanner build() {
+			return new MappedLineScanner(this);
+		}
+	}
+
+	private MappedLineScanner(Builder builder) {
+		if (builder.pattern == null) {
+			throw new IllegalArgumentException("pattern must not be null");
+		}
+		if (builder.windowSize < WINDOW_SIZE_MIN || builder.windowSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("windowSize must be between " + WINDOW_SIZE_MIN + " and " + Integer.MAX_VALUE + ": " + builder.windowSize);
+		}
+		if (!isSupported(builder.charset)) {
+			throw new IllegalArgumentException("newlines are not single bytes in " + builder.charset);
+		}
+		this.pattern = builder.pattern;
+		this.windowSize = builder.windowSize;
+		this.charset = builder.charset;
+		String literal = builder.literal != null ? builder.literal : literalOf(builder.pattern);
+		this.literal = literal == null || literal.isEmpty() || literal.indexOf('\n') >= 0 ? null : literal.getBytes(charset);
+	}
+
+	/*
+	 * true if lines can be split on 0x0A without decoding
+	 */
+	public static boolean isSupported(Charset charset) {
+		return charset.canEncode() && Arrays.equals("\n".getBytes(charset), new byte[] {NL});
+	}
+
+	/*
+	 * the pattern text if it can only match itself, null otherwise
+	 */
+	private static String literalOf(Pattern pattern) {
+		int flags = pattern.flags();
+		if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+			return null;
+		}
+		String regEx = pattern.pattern();
+		if ((flags & Pattern.LITERAL) != 0) {
+			return regEx;
+		}
+		for (int i = 0; i < regEx.length(); i++) {
+			if (REGEX_META_CHARS.indexOf(regEx.charAt(i)) >= 0) {
+				return null;
+			}
+		}
+		return regEx;
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	public long getWindowSize() {
+		return windowSize;
+	}
+
+	/*
+	 * Scans the file on the calling thread and returns the number of matching lines
+	 */
+	public long scan(Path file, Consumer<GrepMatch> consumer) throws IOException {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		Matcher matcher = pattern.matcher("");
+		long matchCnt = 0;
+		long lineNumber = 1;
+		long windowStart = 0;
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = fc.size();
+			while (windowStart < size) {
+				long windowEnd = Math.min(size, windowStart + windowSize);
+				boolean lastWindow = windowEnd == size;
+				MappedByteBuffer window = fc.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+				int limit = window.limit();
+				//pos is always the start of a line (or of the next piece of an over long line)
+				int pos = 0;
+				while (pos < limit) {
+					int lineStart = pos;
+					if (literal != null) {
+						int hit = indexOf(window, literal, pos, limit);
+						if (hit < 0) {
+							//nothing left to decode here, carry the trailing partial line over
+							int next = lastIndexOf(window, NL, limit - 1, pos) + 1;
+							next = lastWindow || (next == 0 && pos == 0) ? limit : Math.max(next, pos);
+							lineNumber += count(window, NL, pos, next);
+							pos = next;
+							break;
+						}
+						lineStart = lastIndexOf(window, NL, hit - 1, pos) + 1;
+						if (lineStart < pos) {
+							lineStart = pos;
+						}
+					}
+					int nl = indexOf(window, NL, lineStart, limit);
+					if (nl < 0 && !lastWindow && lineStart > 0) {
+						//cut by the window, rescan it from the start of the next one
+						lineNumber += count(window, NL, pos, lineStart);
+						pos = lineStart;
+						break;
+					}
+					int lineEnd = nl < 0 ? limit : nl;
+					lineNumber += count(window, NL, pos, lineStart);
+
+					CharSequence line = decode(window, lineStart, lineEnd, decoder);
+					if (matcher.reset(line).find()) {
+						matchCnt++;
+						consumer.accept(new GrepMatch(file, lineNumber, windowStart + lineStart, line.toString()));
+					}
+					if (nl < 0) {
+						pos = limit;
+					} else {
+						pos = nl + 1;
+						lineNumber++;
+					}
+				}
+				windowStart += pos;
+			}
+		}
+		return matchCnt;
+	}
+
+	private CharSequence decode(ByteBuffer window, int start, int end, CharsetDecoder decoder) throws CharacterCodingException {
+		if (end > start && window.get(end - 1) == CR) {
+			end--;
+		}
+		ByteBuffer lineBuffer = window.duplicate();
+		lineBuffer.limit(end).position(start);
+		CharBuffer charBuffer = decoder.reset().decode(lineBuffer);
+		return charBuffer;
+	}
+
+	private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * scans backwards from from down to downTo
+	 */
+	private static int lastIndexOf(ByteBuffer buffer, byte b, int from, int downTo) {
+		for (int i = from; i >= downTo; i--) {
+			if (buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(ByteBuffer buffer, byte[] bytes, int from, int to) {
+		byte first = bytes[0];
+		int last = to - bytes.length;
+		for (int i = from; i <= last; i++) {
+			if (buffer.get(i) != first) {
+				continue;
+			}
+			int j = 1;
+			while (j < bytes.length && buffer.get(i + j) == bytes[j]) {
+				j++;
+			}
+			if (j == bytes.length) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static long count(ByteBuffer buffer, byte b, int from, int to) {
+		long cnt = 0;
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == b) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/*
+ * Runs a named set of patterns over the input in one pass.
+ *
+ * Every pattern is reduced to a literal each of its matches must contain (taken from the regex
+ * when it has one, or given when it is added) and all literals go into one Aho-Corasick
+ * automaton. The input is walked once through the automaton; at the end of each line only the
+ * patterns whose literal was seen on it, plus those without a literal, run their full regex on
+ * that line. Matches come out as TaggedRegExMatch events in line order, and within a line in the
+ * order the patterns were added.
+ *
+ * A pattern is matched against each line, its terminator included, as if MULTILINE were set: ^
+ * and $ match at the line's ends and . stops at the newline. A pattern added with
+ * spanLines=true (REGEX_EXCEPTION, a message followed by its "at ..." lines) must match from the
+ * start of a line but may run on over the following ones; its literal, if any, must be on the
+ * first line and is never taken from the regex. Lines end at '\n'.
+ *
+ * add(name, regEx) and add(name, pattern) check whether the pattern could run past a newline
+ * (\s, [^...], \W and the like anywhere but as its last atom, DOTALL, \A or \z). Such a pattern,
+ * ROUNDUP_PARSER_REGEX for one, skips the prefilter and is found over the whole input as
+ * Matcher.find() would; its matches still come out at the line they start on.
+ *
+ * 	MultiPatternMatcher matcher = MultiPatternMatcher.builder()
+ * 			.add("logcat", RegExServices.LOGCAT_INDETERMINATE_ERRORS)
+ * 			.add("iops", RegExServices.IOPS_REGEX)
+ * 			.add("roundup", RegExServices.ROUNDUP_PARSER_REGEX)
+ * 			.add("exception", Pattern.compile(RegExServices.REGEX_EXCEPTION), true)
+ * 			.build();
+ * 	matcher.scan(log, match -> triage(match.getName(), match));
+ */
+public class MultiPatternMatcher {
+	private final String[] names;
+	private final Pattern[] patterns;
+	private final boolean[] spanLines;
+	private final boolean[] wholeInput;
+	private final String[] literals;
+	private final AhoCorasick automaton;
+
+
+	public static Builder builder(){
+		return new Builder();
+	}
+
+
+	public static class Builder {
+		private Map<String, Entry> entries = new LinkedHashMap<>();
+
+
+		private Builder() {
+		}
+
+		public Builder add(String name, String regEx) {
+			return add(name, PatternCache.getInstance().compile(regEx));
+		}
+
+		public Builder add(String name, Pattern pattern) {
+			if (pattern != null && mayCrossLines(pattern)) {
+				return add(name, new Entry(pattern, false, true));
+			}
+			return add(name, pattern, false);
+		}
+
+		/*
+		 * literals: strings every match contains (on its first line), any one of them is enough;
+		 * none to take one from the regex, if it has one
+		 */
+		public Builder add(String name, Pattern pattern, boolean spanLines, String... literals) {
+			if (name == null || pattern == null) {
+				throw new IllegalArgumentException("name and pattern must not be null");
+			}
+			return add(name, new Entry(pattern, spanLines, false, literals));
+		}
+
+		private Builder add(String name, Entry entry) {
+			if (name == null) {
+				throw new IllegalArgumentException("name and pattern must not be null");
+			}
+			if (entries.containsKey(name)) {
+				throw new IllegalArgumentException("duplicate pattern name: " + name);
+			}
+			entries.put(name, entry);
+			return this;
+		}
+
+		public MultiPatternMatcher build() {
+			return new MultiPatternMatcher(this);
+		}
+	}
+
+	private static class Entry {
+		private final Pattern pattern;
+		private final boolean spanLines;
+		private final boolean wholeInput;
+		private final String literal;
+
+		private Entry(Pattern pattern, boolean spanLines, boolean wholeInput, String... literals) {
+			this.pattern = pattern;
+			this.spanLines = spanLines;
+			this.wholeInput = wholeInput;
+			this.literal = literals != null && literals.length > 0 ? longest(literals)
+					: spanLines || wholeInput ? null : requiredLiteral(pattern);
+		}
+	}
+
+	private MultiPatternMatcher(Builder builder) {
+		int size = builder.entries.size();
+		names = new String[size];
+		patterns = new Pattern[size];
+		spanLines = new boolean[size];
+		wholeInput = new boolean[size];
+		literals = new String[size];
+		List<String> automatonLiterals = new ArrayList<>();
+		List<Integer> automatonIds = new ArrayList<>();
+		int id = 0;
+		for (Map.Entry<String, Entry> mapEntry : builder.entries.entrySet()) {
+			Entry entry = mapEntry.getValue();
+			names[id] = mapEntry.getKey();
+			patterns[id] = entry.pattern;
+			spanLines[id] = entry.spanLines;
+			wholeInput[id] = entry.wholeInput;
+			literals[id] = entry.literal;
+			if (entry.literal != null) {
+				automatonLiterals.add(entry.literal);
+				automatonIds.add(id);
+			}
+			id++;
+		}
+		automaton = automatonLiterals.isEmpty() ? null : new AhoCorasick(automatonLiterals, automatonIds);
+	}
+
+	public List<String> getNames() {
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+
+	/*
+	 * the prefilter literal of the named pattern, null if it runs on every line
+	 */
+	public String getLiteral(String name) {
+		int id = Arrays.asList(names).indexOf(name);
+		if (id < 0) {
+			throw new IllegalArgumentException("unknown pattern name: " + name);
+		}
+		return literals[id];
+	}
+
+	public List<TaggedRegExMatch> scan(CharSequence input) {
+		List<TaggedRegExMatch> matchList = new ArrayList<>();
+		scan(input, matchList::add);
+		return matchList;
+	}
+
+	/*
+	 * Walks input once and returns the number of matches handed to consumer
+	 */
+	public long scan(CharSequence input, Consumer<TaggedRegExMatch> consumer) {
+		Matcher[] matchers = new Matcher[patterns.length];
+		for (int id = 0; id < patterns.length; id++) {
+			matchers[id] = patterns[id].matcher(input).useTransparentBounds(true);
+		}
+		//candidateLine[id] == lineNumber when the literal of id was seen on the current line
+		long[] candidateLine = new long[patterns.length];
+		//a spanLines match is not looked for again on the lines it covers, as find() would not
+		int[] coveredUntil = new int[patterns.length];
+		//a wholeInput pattern is always one find() ahead, found[id] is false once it has no more matches
+		boolean[] found = new boolean[patterns.length];
+		for (int id = 0; id < patterns.length; id++) {
+			found[id] = wholeInput[id] && matchers[id].find();
+		}
+		long matchCnt = 0;
+		long lineNumber = 1;
+		int lineStart = 0;
+		int state = automaton == null ? 0 : automaton.start();
+		int length = input.length();
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			if (c == '\n') {
+				matchCnt += matchLine(input, matchers, candidateLine, coveredUntil, found, lineNumber, lineStart, i + 1, consumer);
+				lineStart = i + 1;
+				lineNumber++;
+				state = automaton == null ? 0 : automaton.start();
+			} else if (automaton != null) {
+				state = automaton.step(state, c);
+				for (int id : automaton.outputs(state)) {
+					candidateLine[id] = lineNumber;
+				}
+			}
+		}
+		if (lineStart < length) {
+			matchCnt += matchLine(input, matchers, candidateLine, coveredUntil, found, lineNumber, lineStart, length, consumer);
+		}
+		//an empty match at the very end, after the last '\n', as find() reports it
+		for (int id = 0; id < matchers.length; id++) {
+			while (found[id]) {
+				matchCnt++;
+				consumer.accept(new TaggedRegExMatch(names[id], lineNumber, matchers[id]));
+				found[id] = matchers[id].find();
+			}
+		}
+		return matchCnt;
+	}
+
+	private long matchLine(CharSequence input, Matcher[] matchers, long[] candidateLine, int[] coveredUntil, boolean[] found,
+			long lineNumber, int lineStart, int lineEnd, Consumer<TaggedRegExMatch> consumer) {
+		long matchCnt = 0;
+		for (int id = 0; id < matchers.length; id++) {
+			if (literals[id] != null && candidateLine[id] != lineNumber) {
+				continue;
+			}
+			Matcher matcher = matchers[id];
+			if (wholeInput[id]) {
+				while (found[id] && matcher.start() < lineEnd) {
+					matchCnt++;
+					consumer.accept(new TaggedRegExMatch(names[id], lineNumber, matcher));
+					found[id] = matcher.find();
+				}
+			} else if (spanLines[id]) {
+				if (lineStart < coveredUntil[id]) {
+					continue;
+				}
+				matcher.region(lineStart, input.length());
+				if (matcher.lookingAt()) {
+					coveredUntil[id] = matcher.end();
+					matchCnt++;
+					consumer.accept(new TaggedRegExMatch(names[id], lineNumber, matcher));
+				}
+			} else {
+				matcher.region(lineStart, lineEnd);
+				while (matcher.find()) {
+					matchCnt++;
+					consumer.accept(new TaggedRegExMatch(names[id], lineNumber, matcher));
+				}
+			}
+		}
+		return matchCnt;
+	}
+
+	/*
+	 * Whether a match of pattern could run on past a newline, so matching it line by line might
+	 * miss or cut short a match. Conservative: any atom that can match '\n' counts, unless it is
+	 * the pattern's last atom and matched at most once (IOPS_REGEX's \s, the (\n)? ending
+	 * LOGCAT_INDETERMINATE_ERRORS), as do DOTALL, COMMENTS and the input anchors \A, \z, \Z and \G,
+	 * which would match at every line's ends.
+	 */
+	static boolean mayCrossLines(Pattern pattern) {
+		int flags = pattern.flags();
+		String regEx = pattern.pattern();
+		if ((flags & (Pattern.DOTALL | Pattern.COMMENTS)) != 0) {
+			return true;
+		}
+		if ((flags & Pattern.LITERAL) != 0) {
+			int newline = regEx.indexOf('\n');
+			return newline >= 0 && newline < regEx.length() - 1;
+		}
+		int i = 0;
+		while (i < regEx.length()) {
+			char c = regEx.charAt(i);
+			int atomEnd;
+			boolean newline = false;
+			if (regEx.startsWith("(?", i) && i + 2 < regEx.length() && "idmsuxU".indexOf(regEx.charAt(i + 2)) >= 0
+					&& (setsFlag(regEx, i + 2, 's') || setsFlag(regEx, i + 2, 'x'))) {
+				return true;
+			} else if (c == '[' && i + 1 < regEx.length() && regEx.charAt(i + 1) == '^') {
+				newline = true;
+				atomEnd = skipClass(regEx, i);
+			} else if (c == '\\') {
+				if (i + 1 >= regEx.length()) {
+					return true;
+				}
+				char escaped = regEx.charAt(i + 1);
+				if ("AzZG".indexOf(escaped) >= 0) {
+					return true;
+				}
+				if (escaped == 'Q') {
+					int end = regEx.indexOf("\\E", i + 2);
+					atomEnd = end < 0 ? regEx.length() : end + 2;
+					newline = regEx.substring(i + 2, end < 0 ? regEx.length() : end).indexOf('\n') >= 0;
+				} else {
+					newline = "nsWDHvRXpPxu0cN".indexOf(escaped) >= 0;
+					atomEnd = Character.isLetterOrDigit(escaped) ? skipEscape(regEx, i) : i + 2;
+				}
+			} else {
+				newline = c == '\n';
+				atomEnd = i + 1;
+			}
+			if (newline && !lastAtom(regEx, atomEnd)) {
+				return true;
+			}
+			//a negated class is walked char by char too, a \s or [^...] inside one counts the same
+			i = c == '[' ? i + 1 : atomEnd;
+		}
+		return false;
+	}
+
+	/*
+	 * only closing groups and ? follow from: the atom ending there matches at most once and is the
+	 * last thing any match takes
+	 */
+	private static boolean lastAtom(String regEx, int from) {
+		for (int i = from; i < regEx.length(); i++) {
+			char c = regEx.charAt(i);
+			if (c != ')' && c != '?') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String longest(String... literals) {
+		String longest = null;
+		for (String literal : literals) {
+			if (literal == null || literal.isEmpty() || literal.indexOf('\n') >= 0) {
+				throw new IllegalArgumentException("literals must be non empty single line strings: " + Arrays.toString(literals));
+			}
+			if (longest == null || literal.length() > longest.length()) {
+				longest = literal;
+			}
+		}
+		return longest;
+	}
+
+	/*
+	 * The longest run of plain chars every match of pattern must contain, null if there is none.
+	 * Conservative: anything under a group, class, top level alternation or optional quantifier
+	 * ends the run, so the literal is always really required. Nothing is taken from text that
+	 * matches case insensitively, regex case folding goes further than the automaton's
+	 * toLowerCase (with UNICODE_CASE an s also matches the long s).
+	 */
+	static String requiredLiteral(Pattern pattern) {
+		int flags = pattern.flags();
+		String regEx = pattern.pattern();
+		if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ | Pattern.CASE_INSENSITIVE)) != 0) {
+			return null;
+		}
+		if ((flags & Pattern.LITERAL) != 0) {
+			return regEx.isEmpty() || regEx.indexOf('\n') >= 0 ? null : regEx;
+		}
+		String best = "";
+		StringBuilder run = new StringBuilder();
+		int i = 0;
+		while (i < regEx.length()) {
+			char c = regEx.charAt(i);
+			int atomEnd;
+			boolean literal = false;
+			char literalChar = c;
+			if (c == '|' || c == ')') {
+				return null;
+			} else if (c == '(') {
+				if (regEx.startsWith("(?", i) && setsFlag(regEx, i + 2, 'x')) {
+					return null;
+				}
+				if (regEx.startsWith("(?", i) && setsFlag(regEx, i + 2, 'i')) {
+					//(?i) turns it on for the rest of the regex, only the run before it counts
+					break;
+				}
+				atomEnd = skipGroup(regEx, i);
+			} else if (c == '[') {
+				atomEnd = skipClass(regEx, i);
+			} else if (c == '\\') {
+				if (i + 1 >= regEx.length()) {
+					return null;
+				}
+				char escaped = regEx.charAt(i + 1);
+				if (Character.isLetterOrDigit(escaped)) {
+					if (escaped == 'Q') {
+						int end = regEx.indexOf("\\E", i + 2);
+						atomEnd = end < 0 ? regEx.length() : end + 2;
+					} else {
+						atomEnd = skipEscape(regEx, i);
+					}
+				} else {
+					literal = true;
+					literalChar = escaped;
+					atomEnd = i + 2;
+				}
+			} else if (c == '.' || c == '^' || c == '$' || c == '\n' || c == '\r') {
+				atomEnd = i + 1;
+			} else {
+				literal = true;
+				atomEnd = i + 1;
+			}
+
+			//quantifier
+			int min = 1;
+			boolean quantified = false;
+			int end = atomEnd;
+			if (end < regEx.length()) {
+				char q = regEx.charAt(end);
+				if (q == '*' || q == '?') {
+					min = 0;
+					quantified = true;
+					end++;
+				} else if (q == '+') {
+					quantified = true;
+					end++;
+				} else if (q == '{') {
+					int close = regEx.indexOf('}', end);
+					String bounds = regEx.substring(end + 1, close);
+					int comma = bounds.indexOf(',');
+					min = Integer.parseInt((comma < 0 ? bounds : bounds.substring(0, comma)).trim());
+					quantified = true;
+					end = close + 1;
+				}
+				if (quantified && end < regEx.length() && (regEx.charAt(end) == '?' || regEx.charAt(end) == '+')) {
+					end++;
+				}
+			}
+
+			if (literal && min > 0) {
+				run.append(literalChar);
+			}
+			if (!literal || quantified) {
+				if (run.length() > best.length()) {
+					best = run.toString();
+				}
+				run.setLength(0);
+			}
+			i = end;
+		}
+		if (run.length() > best.length()) {
+			best = run.toString();
+		}
+		return best.isEmpty() ? null : best;
+	}
+
+	private static boolean setsFlag(String regEx, int from, char flag) {
+		for (int i = from; i < regEx.length(); i++) {
+			char c = regEx.charAt(i);
+			if (c == ')' || c == ':' || c == '-') {
+				return false;
+			}
+			if (c == flag) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * index after the ')' closing the group opened at start
+	 */
+	private static int skipGroup(String regEx, int start) {
+		int depth = 0;
+		int i = start;
+		while (i < regEx.length()) {
+			char c = regEx.charAt(i);
+			if (c == '\\') {
+				i += 2;
+				continue;
+			}
+			if (c == '[') {
+				i = skipClass(regEx, i);
+				continue;
+			}
+			if (c == '(') {
+				depth++;
+			} else if (c == ')' && --depth == 0) {
+				return i + 1;
+			}
+			i++;
+		}
+		return regEx.length();
+	}
+
+	/*
+	 * index after the ']' closing the class opened at start, classes nest in java.util.regex
+	 */
+	private static int skipClass(String regEx, int start) {
+		int depth = 0;
+		int i = start;
+		while (i < regEx.length()) {
+			char c = regEx.charAt(i);
+			if (c == '\\') {
+				i += 2;
+				continue;
+			}
+			if (c == '[') {
+				depth++;
+				//a ']' right after '[' or '[^' is a literal
+				if (i + 1 < regEx.length() && regEx.charAt(i + 1) == '^') {
+					i++;
+				}
+				if (i + 1 < regEx.length() && regEx.charAt(i + 1) == ']') {
+					i++;
+				}
+			} else if (c == ']' && --depth == 0) {
+				return i + 1;
+			}
+			i++;
+		}
+		return regEx.length();
+	}
+
+	/*
+	 * index after a letter or digit escape and its arguments: \d, \p{Lu}, \x{1F600}, \0101, \cA, \k<name>
+	 */
+	private static int skipEscape(String regEx, int start) {
+		char escaped = regEx.charAt(start + 1);
+		int i = start + 2;
+		switch (escaped) {
+		case 'p':
+		case 'P':
+		case 'x':
+		case 'N':
+			if (i < regEx.length() && regEx.charAt(i) == '{') {
+				return regEx.indexOf('}', i) + 1;
+			}
+			return escaped == 'x' ? i + 2 : i + 1;
+		case 'u':
+			return i + 4;
+		case 'c':
+			return i + 1;
+		case 'k':
+			return regEx.indexOf('>', i) + 1;
+		case '0':
+			while (i < regEx.length() && i < start + 5 && regEx.charAt(i) >= '0' && regEx.charAt(i) <= '7') {
+				i++;
+			}
+			return i;
+		default:
+			while (Character.isDigit(escaped) && i < regEx.length() && Character.isDigit(regEx.charAt(i))) {
+				i++;
+			}
+			return i;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("MultiPatternMatcher[");
+		for (int id = 0; id < names.length; id++) {
+			sb.append(id == 0 ? "" : ", ").append(names[id]).append('=').append(literals[id] == null ? "*" : "\"" + literals[id] + "\"");
+		}
+		return sb.append(']').toString();
+	}
+}
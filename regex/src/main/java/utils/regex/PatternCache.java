@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+
+/*
+ * Bounded cache of compiled Patterns keyed by (regex, flags).
+ *
+ * Lookups are lock free; each entry carries the tick of its last use and, once the cache grows
+ * past maxSize, the least recently used entries are evicted under a lock that only misses take.
+ * A Pattern is immutable and safe to share, a Matcher is not, so callers still create their own.
+ * A regex that does not compile throws PatternSyntaxException and is not cached.
+ *
+ * 	Pattern pattern = PatternCache.getInstance().compile(regEx, Pattern.CASE_INSENSITIVE);
+ */
+public final class PatternCache {
+	public static final int DEFAULT_MAX_SIZE = 256;
+	private static final PatternCache INSTANCE = new PatternCache(DEFAULT_MAX_SIZE);
+	private final int maxSize;
+	private final Map<Key, Entry> cache = new ConcurrentHashMap<>();
+	private final AtomicLong clock = new AtomicLong();
+	private final LongAdder hitCnt = new LongAdder();
+	private final LongAdder missCnt = new LongAdder();
+	private final LongAdder evictionCnt = new LongAdder();
+	private final Object evictLock = new Object();
+
+
+	/*
+	 * the cache shared by RegExServices and FileServices
+	 */
+	public static PatternCache getInstance() {
+		return INSTANCE;
+	}
+
+	public PatternCache(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+		}
+		this.maxSize = maxSize;
+	}
+
+	public Pattern compile(String regEx) {
+		return compile(regEx, 0);
+	}
+
+	public Pattern compile(String regEx, int flags) {
+		Key key = new Key(regEx, flags);
+		Entry entry = cache.get(key);
+		if (entry != null) {
+			hitCnt.increment();
+			entry.lastUsed = clock.incrementAndGet();
+			return entry.pattern;
+		}
+		missCnt.increment();
+		//compiled outside any lock, two threads missing on the same key both compile and one wins
+		Entry compiled = new Entry(Pattern.compile(regEx, flags), clock.incrementAndGet());
+		entry = cache.putIfAbsent(key, compiled);
+		if (entry == null) {
+			entry = compiled;
+			if (cache.size() > maxSize) {
+				evict();
+			}
+		}
+		return entry.pattern;
+	}
+
+	private void evict() {
+		synchronized (evictLock) {
+			while (cache.size() > maxSize) {
+				Key oldestKey = null;
+				long oldest = Long.MAX_VALUE;
+				for (Map.Entry<Key, Entry> mapEntry : cache.entrySet()) {
+					long lastUsed = mapEntry.getValue().lastUsed;
+					if (lastUsed < oldest) {
+						oldest = lastUsed;
+						oldestKey = mapEntry.getKey();
+					}
+				}
+				if (oldestKey == null || cache.remove(oldestKey) == null) {
+					return;
+				}
+				evictionCnt.increment();
+			}
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public long getHitCnt() {
+		return hitCnt.sum();
+	}
+
+	public long getMissCnt() {
+		return missCnt.sum();
+	}
+
+	public long getEvictionCnt() {
+		return evictionCnt.sum();
+	}
+
+	public void clear() {
+		cache.clear();
+	}
+
+	public void resetCnts() {
+		hitCnt.reset();
+		missCnt.reset();
+		evictionCnt.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "PatternCache[size=" + size() + "/" + maxSize + ", hits=" + getHitCnt() + ", misses=" + getMissCnt()
+				+ ", evictions=" + getEvictionCnt() + "]";
+	}
+
+
+	private static final class Key {
+		private final String regEx;
+		private final int flags;
+		private final int hash;
+
+		private Key(String regEx, int flags) {
+			this.regEx = regEx;
+			this.flags = flags;
+			this.hash = 31 * regEx.hashCode() + flags;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return flags == other.flags && regEx.equals(other.regEx);
+		}
+	}
+
+	private static final class Entry {
+		private final Pattern pattern;
+		private volatile long lastUsed;
+
+		private Entry(Pattern pattern, long lastUsed) {
+			this.pattern = pattern;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
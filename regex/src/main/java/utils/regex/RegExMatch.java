@@ -48,7 +48,7 @@ public class RegExMatch {
 		
 		response+= "\nstart: " + start;
 		response+= "\nend: " + end;
-		for(int i=0; i<= matchList.size(); i++) {
+		for(int i=0; i< matchList.size(); i++) {
 			response+= "\nmatch " + i + ": " + matchList.get(i);
 		}
 		
@@ -21,22 +21,23 @@ package utils.regex;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.io.PrintStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -448,6 +449,10 @@ public class RegExServices implements Serializable, Cloneable{
 	
 	private static final Pattern subnetMaskPattern = Pattern.compile(SUBNET_MASK_REGEX);
 	
+	private static final Pattern splitPattern = Pattern.compile("[,\\s]+");
+	
+	private static final Pattern quotedArgsPattern = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+	
 	
 	private static final Pattern ipPattern = Pattern.compile("\\b(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
             "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
@@ -738,8 +743,8 @@ public class RegExServices implements Serializable, Cloneable{
 
 		responseBuffer = new StringBuffer();
 		tempBuffer = new StringBuffer();
-		beginPattern = Pattern.compile(startRegEx);
-		endPattern = Pattern.compile(endRegEx);
+		beginPattern = PatternCache.getInstance().compile(startRegEx);
+		endPattern = PatternCache.getInstance().compile(endRegEx);
 		lines = data.split(NEWLINE);
 		
 		for(int i=0; i<lines.length; i++) {
@@ -810,7 +815,7 @@ public class RegExServices implements Serializable, Cloneable{
 	}
 	
 	public boolean test(String matcStr, String regEx){
-		return matcStr.matches(regEx);
+		return PatternCache.getInstance().compile(regEx).matcher(matcStr).matches();
 	}
 	
 	
@@ -852,75 +857,51 @@ public class RegExServices implements Serializable, Cloneable{
 	
 	//Recursive Grep
 	//returns an ArrayList of hits in the following format:
-	//path:complete line where hit occurred
+	//path<END_PATH>line number:complete line where hit occurred
+	//sorted by path and line number, see GrepEngine to stream hits as they are found
 	public List<String> grepDir(String folder, String regEx, boolean caseSensitve, boolean dotAll, boolean multiLine) throws Exception{
-		Pattern pattern = getPattern(regEx, caseSensitve, dotAll, multiLine);
-		return grepDir(folder, pattern, new ArrayList<>());
+		//a missing folder has no hits, only the streaming overload treats it as an error
+		if (!Files.isDirectory(Paths.get(folder))) {
+			return Collections.emptyList();
+		}
+		List<GrepMatch> matchList = Collections.synchronizedList(new ArrayList<>());
+		grepDir(folder, regEx, caseSensitve, dotAll, multiLine, matchList::add);
+		matchList.sort(Comparator.comparing(GrepMatch::getPath).thenComparingLong(GrepMatch::getLineNumber));
+		List<String> hitList = new ArrayList<>(matchList.size());
+		for (GrepMatch match : matchList) {
+			hitList.add(toHit(match));
+		}
+		return hitList;
 	}
 
-	//returns an ArrayList of hits in the following format:
-	//filepath:complete line where hit occurred
-	private List<String> grepDir(String folder, Pattern pattern, ArrayList<String> arrayList) throws Exception{
-		File file = new File(folder);
-		if (file.exists() && file.isDirectory()) {
-			File[] files = file.listFiles();
-			if(files != null){
-				for (int i = 0; i < files.length; i++) {
-					if (files[i].isFile()) {
-						grepFile(files[i], pattern, arrayList);
-					} else if (file.isDirectory()) {
-						grepDir(files[i].getPath(), pattern, arrayList);
-					}
-				}
-			}
+	//Parallel recursive grep, consumer is called from the GrepEngine workers and must be thread safe
+	public GrepSummary grepDir(String folder, String regEx, boolean caseSensitve, boolean dotAll, boolean multiLine, Consumer<GrepMatch> consumer) throws IOException{
+		Path root = Paths.get(folder);
+		if (!Files.isDirectory(root)) {
+			throw new FileNotFoundException("not a directory: " + folder);
 		}
-		
-		return arrayList;
+		return GrepEngine.builder(getPattern(regEx, caseSensitve, dotAll, multiLine))
+				.charset(Charset.defaultCharset())
+				.build()
+				.grep(root, consumer);
 	}
 	
 	public int grepFile(File f, String regEx, boolean caseSensitve, boolean dotAll, boolean multiLine, ArrayList<String> arrayList) throws Exception{
 		return grepFile(f, getPattern(regEx, caseSensitve, dotAll, multiLine), arrayList);
 	}
 	
-	// TODO replace this with next method
-	// this method deals with lines, while the next deals with hit locations
-	// Converts the contents of a file into a CharSequence
-    // suitable for use by the regex package.
+	//adds path<END_PATH>line number:line for each matching line, the file is read once
 	public int grepFile(File f, Pattern pattern, List<String> arrayList) throws IOException{
-        FileInputStream fis = null;
-        FileChannel fc = null;
-        Matcher matcher = null; 
-		LineNumberReader lineReader = null;
-		String line = null;
-    
-		try{
-			fis = new FileInputStream(f.getPath());
-	        fc = fis.getChannel();
-	        // Create a read-only CharBuffer on the file
-	        ByteBuffer bbuf = fc.map(FileChannel.MapMode.READ_ONLY, 0, (int)fc.size());
-	        CharBuffer cbuf = Charset.forName("8859_1").newDecoder().decode(bbuf);
-	        //Create matcher on file
-	        matcher = pattern.matcher(cbuf);
-	        //we reopen the file and read it line by line to 
-			//get the line number for each match
-	        lineReader = new LineNumberReader(new FileReader(f));
-	    
-	        while ((line = lineReader.readLine()) != null) {
-				matcher.reset(line); // reset the input
-				if (matcher.find()) {
-					int start = matcher.start();
-					int end = matcher.end();
-					arrayList.add(convertToForwardSlash(f.getPath()) + "<END_PATH>" + lineReader.getLineNumber()
-							+ ":" + line);
-				}
-			}
-		} finally {
-			ApacheCommonsIOServices.closeQuietly(fis);
-			ApacheCommonsIOServices.closeQuietly(lineReader);
-		}
-		
+		GrepEngine.builder(pattern)
+				.charset(Charset.defaultCharset())
+				.build()
+				.grepFile(f.toPath(), match -> arrayList.add(toHit(match)));
 		return arrayList.size();
     }
+
+	private String toHit(GrepMatch match) {
+		return convertToForwardSlash(match.getPath().toString()) + "<END_PATH>" + match.getLineNumber() + ":" + match.getLine();
+	}
 	
 	public String convertToForwardSlash(String backSlasStr) {
 		// Strings with backslashes come in like this:
@@ -939,54 +920,26 @@ public class RegExServices implements Serializable, Cloneable{
      * @throws IOException DOCUMENT ME!
      */
 	/*
-		 Memory-mapped files allow you to create and modify files that are too big to bring into memory. 
-		 With a memory-mapped file, you can pretend that the entire file is in memory and that you can access 
-		 it by simply treating it as a very large array. This approach greatly simplifies the code you write 
-		 in order to modify the file. The file appears to be accessible all at once because only portions of 
-		 it are brought into memory, and other parts are swapped out. This way a very large file (up to 2 GB) 
-		 can easily be modified. Note that the file-mapping facilities of the underlying operating system are 
-		 used to maximize performance. 
+		 Streams the file through a StreamingReplacer in bounded chunks, writes the result to a temp file
+		 in the same directory and moves it over the original with ATOMIC_MOVE, so memory stays flat
+		 whatever the file size and a crash never leaves a half written file.
+		 replaceStr replaces each match, replacement is not used and only kept for existing callers.
 	 */
-	
-	//note: never got this to work...memory mapped errors
     public void replaceAllMemoryMap(String filePath, String replaceStr, String regEx, String replacement, boolean caseSensitve, boolean dotAll, boolean multiLine)
 		throws IOException {
-    	File file = null;
-    	FileInputStream fis = null;
-    	FileChannel fc = null;
-    	FileOutputStream fos = null;
-    	PrintStream ps = null;
-    	Pattern pattern = null;
-    	
-    	try{
-	    	file = new File(filePath);
-	    	
-	    	pattern = getPattern(regEx, caseSensitve, dotAll, multiLine);
-	
-	        // Open the file and then get a channel from the stream
-	        fis = new FileInputStream(file);
-	        fc = fis.getChannel();
-	
-	        // Get the file's size and then map it into memory
-	        int sz = (int)fc.size();
-	        MappedByteBuffer bb = fc.map(FileChannel.MapMode.READ_WRITE, 0, sz);
-	        // Decode the file into a char buffer
-	        // Charset and decoder for ISO-8859-15
-	        Charset charset = Charset.forName("ISO-8859-15");
-	        CharsetDecoder decoder = charset.newDecoder();
-	        CharBuffer cb = decoder.decode(bb);
-	
-	        Matcher matcher = pattern.matcher(cb);
-	        String outString = matcher.replaceAll(replaceStr);
-	        fos = new FileOutputStream(file.getAbsolutePath());
-	        ps = new PrintStream(fos);
-	        ps.print(outString);
-    	}finally{
-    		ApacheCommonsIOServices.closeQuietly(ps);
-    		ApacheCommonsIOServices.closeQuietly(fos);
-    		ApacheCommonsIOServices.closeQuietly(fc);
-    		ApacheCommonsIOServices.closeQuietly(fis);
-    	}
+    	streamReplaceAllInFile(filePath, regEx, replaceStr, caseSensitve, dotAll, multiLine, Charset.forName("ISO-8859-15"));
+    }
+
+    //streaming counterpart of replaceAllInFile, returns the number of replacements and leaves the file untouched if there were none
+    public long streamReplaceAllInFile(String filePath, String regEx, String replacement, boolean caseSensitve, boolean dotAll, boolean multiLine) throws IOException {
+    	return streamReplaceAllInFile(filePath, regEx, replacement, caseSensitve, dotAll, multiLine, StandardCharsets.UTF_8);
+    }
+
+    public long streamReplaceAllInFile(String filePath, String regEx, String replacement, boolean caseSensitve, boolean dotAll, boolean multiLine, Charset charset) throws IOException {
+    	return StreamingReplacer.builder(getPattern(regEx, caseSensitve, dotAll, multiLine), replacement)
+    			.charset(charset)
+    			.build()
+    			.replace(Paths.get(filePath));
     }
  
     public List<File> listFiles(String directory, boolean recursive, String... extensions){
@@ -1017,10 +970,8 @@ public class RegExServices implements Serializable, Cloneable{
 	 * "\\s+" splist on white space(s)
 	 */
 	public String[] split(String str) throws IOException {
-        // Create a pattern to match breaks
-        Pattern p = Pattern.compile("[,\\s]+");
-        // Split input with the pattern
-        return p.split(str);
+        // Split input on commas and/or whitespace
+        return splitPattern.split(str);
 	}
 
 	public String regExTester(String input, String regEx, boolean caseSensitve, boolean dotAll, boolean multiLine) throws IOException {
@@ -1168,6 +1119,17 @@ public class RegExServices implements Serializable, Cloneable{
 		return findAllRegExMatch(ApacheCommonsIOServices.build().readFileToString(filePath), regEx, caseSensitve, dotAll, multiLine);
 	}
 	
+	//one pass over input for every named regex (e.g. LOGCAT_INDETERMINATE_ERRORS, IOPS_REGEX, ROUNDUP_*), see MultiPatternMatcher
+	//matches come back tagged with their name, in line order, each regex finds what findAllRegExMatch(input, regEx, true, false, true) does
+	//patterns that can run on over several lines (REGEX_EXCEPTION, ROUNDUP_*) are matched over the whole input and skip the prefilter
+	public List<TaggedRegExMatch> findAllTagged(String input, Map<String, String> namedRegEx) {
+		MultiPatternMatcher.Builder builder = MultiPatternMatcher.builder();
+		for (Map.Entry<String, String> entry : namedRegEx.entrySet()) {
+			builder.add(entry.getKey(), getPattern(entry.getValue(), true, false, true));
+		}
+		return builder.build().scan(input);
+	}
+	
 	public String insertStringInFile(String filePath, String insertStr, String regEx, int group, boolean before, boolean after, boolean caseSensitve, boolean dotAll, boolean multiLine) throws IOException {
 		ApacheCommonsIOServices apacheCommonsIOServices = ApacheCommonsIOServices.build();
 		String fileContents = apacheCommonsIOServices.readFileToString(filePath);
@@ -1329,7 +1291,7 @@ public class RegExServices implements Serializable, Cloneable{
 	}
     
     public String replaceAllGroups(String inputStr, String regEx, String replacement, int group) {
-	    Pattern pattern = Pattern.compile(regEx);
+	    Pattern pattern = PatternCache.getInstance().compile(regEx);
 	    Matcher matcher = pattern.matcher(inputStr);
 	    StringBuffer sb = new StringBuffer();
 	    while (matcher.find()) {
@@ -1475,9 +1437,7 @@ public class RegExServices implements Serializable, Cloneable{
     public String[] splitQuotedArgs(String str){
     	List<String> list = new ArrayList<>();
     	
-    	String regex = "\"([^\"]*)\"|(\\S+)";
-
-        Matcher m = Pattern.compile(regex).matcher(str);
+        Matcher m = quotedArgsPattern.matcher(str);
         while (m.find()) {
             if (m.group(1) != null) {
             	list.add( m.group(1) );
@@ -1526,7 +1486,7 @@ public class RegExServices implements Serializable, Cloneable{
         }
         LOGGER.trace("regex: {}", regEx);
 
-		return Pattern.compile(regEx, options);
+		return PatternCache.getInstance().compile(regEx, options);
 	}
     
  
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Regex replace over a file in bounded memory.
+ *
+ * The input is read chunkSize chars at a time. A match is only taken once it starts at least
+ * maxMatchLength chars before the end of what has been read, so a match that spans a chunk
+ * boundary is found whole in the next round; the unresolved tail is carried over together with
+ * up to maxMatchLength chars of already written text, which keeps lookbehind and \b working
+ * across the boundary. Memory is about chunkSize + 2 * maxMatchLength chars whatever the file
+ * size. Replacements use Matcher.appendReplacement syntax ($1, \$).
+ *
+ * replace(Path) writes to a temp file in the same directory, forces it to disk and moves it over
+ * the original with ATOMIC_MOVE, so a crash leaves either the old or the new file, never half of
+ * one. Input that does not decode in the charset fails the call and leaves the file untouched.
+ *
+ * Matches longer than maxMatchLength can be cut at a chunk boundary and ^ without MULTILINE
+ * only matches at the start of the file.
+ *
+ * 	long cnt = StreamingReplacer.builder(pattern, "$1-redacted").build().replace(Paths.get("rolling.log"));
+ */
+public class StreamingReplacer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	public static final int CHUNK_SIZE_DEFAULT = 1024 * 1024;
+	public static final int MAX_MATCH_LENGTH_DEFAULT = 64 * 1024;
+	private final Pattern pattern;
+	private final String replacement;
+	private final int chunkSize;
+	private final int maxMatchLength;
+	private final Charset charset;
+
+
+	public static Builder builder(Pattern pattern, String replacement){
+		return new Builder(pattern, replacement);
+	}
+
+
+	public static class Builder {
+		private Pattern pattern;
+		private String replacement;
+		private int chunkSize = CHUNK_SIZE_DEFAULT;
+		private int maxMatchLength = MAX_MATCH_LENGTH_DEFAULT;
+		private Charset charset = StandardCharsets.UTF_8;
+
+
+		private Builder(Pattern pattern, String replacement) {
+			this.pattern = pattern;
+			this.replacement = replacement;
+		}
+
+		public Builder chunkSize(Integer chunkSize) {
+			if (chunkSize != null) {
+				this.chunkSize = chunkSize;
+			}
+			return this;
+		}
+
+		/*
+		 * the longest match, in chars, that is guaranteed to be found across a chunk boundary
+		 */
+		public Builder maxMatchLength(Integer maxMatchLength) {
+			if (maxMatchLength != null) {
+				this.maxMatchLength = maxMatchLength;
+			}
+			return this;
+		}
+
+		public Builder charset(Charset charset) {
+			if (charset != null) {
+				this.charset = charset;
+			}
+			return this;
+		}
+
+		public StreamingReplacer build() {
+			return new StreamingReplacer(this);
+		}
+	}
+
+	private StreamingReplacer(Builder builder) {
+		if (builder.pattern == null || builder.replacement == null) {
+			throw new IllegalArgumentException("pattern and replacement must not be null");
+		}
+		if (builder.chunkSize < 1 || builder.maxMatchLength < 1) {
+			throw new IllegalArgumentException("chunkSize and maxMatchLength must be > 0: " + builder.chunkSize + ", " + builder.maxMatchLength);
+		}
+		this.pattern = builder.pattern;
+		this.replacement = builder.replacement;
+		this.chunkSize = builder.chunkSize;
+		this.maxMatchLength = builder.maxMatchLength;
+		this.charset = builder.charset;
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	public String getReplacement() {
+		return replacement;
+	}
+
+	/*
+	 * Replaces every match in file and returns the number of replacements. The file is only
+	 * rewritten if something matched.
+	 */
+	public long replace(Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(dir, file.getFileName() + ".", ".tmp");
+		boolean moved = false;
+		try {
+			long cnt;
+			try (Reader reader = new InputStreamReader(Files.newInputStream(file), charset.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPORT)
+						.onUnmappableCharacter(CodingErrorAction.REPORT));
+					FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), charset.newEncoder()));
+				cnt = replace(reader, writer);
+				writer.flush();
+				channel.force(true);
+			}
+			if (cnt > 0) {
+				copyPermissions(file, temp);
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+				moved = true;
+			}
+			LOGGER.debug("{}: {} replacements of {}", file, cnt, pattern);
+			return cnt;
+		} finally {
+			if (!moved) {
+				Files.deleteIfExists(temp);
+			}
+		}
+	}
+
+	/*
+	 * Streams reader to writer replacing every match, returns the number of replacements.
+	 * Neither is closed.
+	 */
+	public long replace(Reader reader, Writer writer) throws IOException {
+		char[] buf = new char[chunkSize + 2 * maxMatchLength];
+		StringBuffer out = new StringBuffer();
+		Matcher matcher = pattern.matcher("");
+		long cnt = 0;
+		//buf[0, start) is context that was already written, buf[start, len) is pending
+		int start = 0;
+		int len = 0;
+		boolean eof = false;
+		while (!eof) {
+			int read = 0;
+			while (len < buf.length && (read = reader.read(buf, len, buf.length - len)) > 0) {
+				len += read;
+			}
+			eof = read < 0;
+			int safeLimit = eof ? len : len - maxMatchLength;
+
+			matcher.reset(CharBuffer.wrap(buf, 0, len));
+			matcher.region(start, len).useTransparentBounds(true).useAnchoringBounds(false);
+			out.setLength(0);
+			int pos = start;
+			while (matcher.find()) {
+				if (!eof && matcher.start() >= safeLimit) {
+					break;
+				}
+				//appends buf[0, match) on the first call of a round, the context is cut below
+				matcher.appendReplacement(out, replacement);
+				pos = matcher.end();
+				cnt++;
+			}
+			if (out.length() > start) {
+				writer.append(out, start, out.length());
+			}
+			int writeTo = eof ? len : Math.max(pos, safeLimit);
+			writer.write(buf, pos, writeTo - pos);
+
+			int keepFrom = Math.max(0, writeTo - maxMatchLength);
+			System.arraycopy(buf, keepFrom, buf, 0, len - keepFrom);
+			start = writeTo - keepFrom;
+			len -= keepFrom;
+		}
+		writer.flush();
+		return cnt;
+	}
+
+	private static void copyPermissions(Path from, Path to) {
+		try {
+			Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+		} catch (UnsupportedOperationException | IOException e) {
+			LOGGER.trace("permissions not copied to {}: {}", to, e.toString());
+		}
+	}
+}
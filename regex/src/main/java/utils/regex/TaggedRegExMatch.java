@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.regex;
+
+import java.util.regex.Matcher;
+
+
+/*
+ * A RegExMatch found by MultiPatternMatcher, tagged with the name its pattern was added under.
+ * start and end are offsets in the scanned input, lineNumber (1 based) is the line the match
+ * starts on.
+ */
+public class TaggedRegExMatch extends RegExMatch {
+	private final String name;
+	private final long lineNumber;
+
+
+	public TaggedRegExMatch(String name, long lineNumber, Matcher matcher) {
+		super(matcher);
+		this.name = name;
+		this.lineNumber = lineNumber;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public String toString() {
+		return name + ":" + lineNumber + ":" + getMatchList().get(0);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.regex;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/*
+ * MappedLineScanner against BufferedReader.readLine() with the smallest window, so most lines
+ * live next to a window boundary
+ */
+public class MappedLineScannerTest {
+	private static final long WINDOW = 64L * 1024;
+	private static final Pattern[] PATTERNS = {
+			Pattern.compile("ERROR"),									//literal, lines are skipped undecoded
+			Pattern.compile("\\d{3}-x"),								//decoded
+			Pattern.compile("error", Pattern.CASE_INSENSITIVE),
+			Pattern.compile("^$"),
+			Pattern.compile("\u00e9t\u00e9$"),
+	};
+	private static final String[] WORDS = {"ERROR", "error", "Error", "123-x", "9-x", "\u00e9t\u00e9", "ok", " ", "a", "zzzzzzzz"};
+	private Path file = null;
+
+
+	@BeforeMethod()
+	public void beforeMethod() throws IOException {
+		file = Files.createTempFile("scan", ".log");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterMethod() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/*
+	 * what the scanner should report, line offsets counted on the encoded bytes
+	 */
+	private List<String> expected(Pattern pattern) throws IOException {
+		List<String> expected = new ArrayList<>();
+		byte[] bytes = Files.readAllBytes(file);
+		long offset = 0;
+		long lineNumber = 1;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (pattern.matcher(line).find()) {
+					expected.add(lineNumber + "@" + offset + ":" + line);
+				}
+				offset += line.getBytes(StandardCharsets.UTF_8).length;
+				if (offset < bytes.length && bytes[(int) offset] == '\r') {
+					offset++;
+				}
+				offset++;
+				lineNumber++;
+			}
+		}
+		return expected;
+	}
+
+	private List<String> scanned(Pattern pattern) throws IOException {
+		List<String> scanned = new ArrayList<>();
+		MappedLineScanner.builder(pattern).windowSize(WINDOW).build()
+				.scan(file, match -> scanned.add(match.getLineNumber() + "@" + match.getByteOffset() + ":" + match.getLine()));
+		return scanned;
+	}
+
+	private void assertEquivalent(String what) throws IOException {
+		for (Pattern pattern : PATTERNS) {
+			List<String> expected = expected(pattern);
+			assertEquals(scanned(pattern), expected, what + " " + pattern);
+		}
+	}
+
+	@Test
+	public void randomTest() throws IOException {
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			boolean crlf = random.nextBoolean();
+			int size = (int) (WINDOW * (1 + random.nextInt(4)) + random.nextInt(1000));
+			while (out.size() < size) {
+				StringBuilder line = new StringBuilder();
+				//mostly short lines, now and then one of a few KB
+				int words = random.nextInt(10) == 0 ? random.nextInt(500) : random.nextInt(12);
+				for (int i = 0; i < words; i++) {
+					line.append(WORDS[random.nextInt(WORDS.length)]);
+				}
+				out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+				if (crlf || random.nextInt(20) == 0) {
+					out.write('\r');
+				}
+				out.write('\n');
+			}
+			byte[] bytes = out.toByteArray();
+			//half the files lose their final newline
+			int length = random.nextBoolean() ? bytes.length : bytes.length - (bytes[bytes.length - 2] == '\r' ? 2 : 1);
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertEquivalent("round " + round + " crlf " + crlf + " size " + length);
+		}
+	}
+
+	@Test
+	public void windowBoundaryTest() throws IOException {
+		//a matching line, and the literal itself, cut by the end of the first window
+		for (int cut = -6; cut <= 6; cut++) {
+			StringBuilder sb = new StringBuilder();
+			String filler = "filler line without a match\r\n";
+			while (sb.length() + filler.length() < WINDOW + cut - 10) {
+				sb.append(filler);
+			}
+			while (sb.length() < WINDOW + cut - 10) {
+				sb.append('.');
+			}
+			sb.append("\r\n123456789ERROR 123-x \u00e9t\u00e9\r\nlast ERROR without a newline");
+			Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+			assertEquivalent("cut " + cut);
+			assertEquals(scanned(PATTERNS[0]).size(), 2, "cut " + cut);
+		}
+	}
+
+	@Test
+	public void edgeTest() throws IOException {
+		for (String content : new String[] {"", "\n", "\r\n", "ERROR", "ERROR\r\n", "\n\nERROR\n\n", "a\r\nb\r\n\r\nERROR 123-x"}) {
+			Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+			assertEquivalent("[" + content + "]");
+		}
+		assertFalse(MappedLineScanner.isSupported(StandardCharsets.UTF_16));
+	}
+}
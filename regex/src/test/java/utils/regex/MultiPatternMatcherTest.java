@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.regex;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+
+/*
+ * findAllTagged against running every pattern on its own, the prefilter must never drop a match
+ */
+public class MultiPatternMatcherTest {
+	private static final String[] WORDS = {"ERROR", "error", "Error", "warn", "WARNING", "colour", "color", "fail", "failed",
+			"timeout", "time out", "id=42", "id=7", "a.b", "axb", "foo", "bar", "baz", "foobar", "\t", " ", " ", " "};
+
+
+	/*
+	 * name, regex and the prefilter literal it is expected to reduce to
+	 */
+	private static final String[][] PATTERNS = {
+			{"plain", "timeout", "timeout"},
+			{"escaped", "a\\.b", "a.b"},
+			{"classAfter", "id=\\d+", "id="},
+			{"optional", "colou?r", "colo"},
+			{"optionalGroup", "fail(ed)?", "fail"},
+			{"groupAlternation", "(foo|bar)baz", "baz"},
+			{"alternation", "warn|fail", null},
+			{"alternationInGroup", "(ERROR|WARNING)", null},
+			{"caseInsensitive", "(?i)error", null},
+			{"anchored", "^foo", "foo"},
+			{"endAnchored", "bar$", "bar"},
+			{"dot", "f.o", "f"},
+			{"star", "fo*bar", "bar"},
+	};
+	//Pattern.flags() also reports flags set inside the regex, so whether these keep a literal depends
+	//on the JDK, they only have to find the same matches
+	private static final String[][] INLINE_FLAG_PATTERNS = {
+			{"caseInsensitiveGroup", "(?i:time) out"},
+			{"caseInsensitiveLater", "id=(?i)\\d+ ERROR"},
+			{"caseInsensitiveWord", "(?i)fail(ed)?"},
+	};
+
+
+	/*
+	 * the RegExServices constants findAllTagged is meant for, several of them run on over lines
+	 */
+	private static final String[][] CONSTANTS = {
+			{"exception", RegExServices.REGEX_EXCEPTION},
+			{"roundup", RegExServices.ROUNDUP_PARSER_REGEX},
+			{"roundupOld", RegExServices.ROUNDUP_PARSER_REGEX_OLD},
+			{"logcat", RegExServices.LOGCAT_INDETERMINATE_ERRORS},
+			{"logcatContext", RegExServices.BEFORE_AFTER_LINES_LOGCAT_INDETERMINATE_ERRORS},
+			{"lookAhead", RegExServices.POSITIVE_LOOK_AHEAD},
+			{"iops", RegExServices.IOPS_REGEX},
+			{"timestamp", RegExServices.REGEX_TIMESTAMP},
+	};
+	private static final String[] LOG_LINES = {
+			"10:11:12.34 INFO starting",
+			"java.lang.IllegalStateException: boom",
+			"\tat com.example.Foo.bar(Foo.java:10)",
+			"\tat com.example.Foo.main(Foo.java:3)",
+			"Caused by: java.io.IOException: disk",
+			"    at com.example.Disk.read(Disk.java:42)",
+			"01/02/2019 10:11:12,kernel,0,x,INDETERMINATE,y",
+			"01/02/2019 10:11:13,kernel,0,x,NONDETERMINATE,y",
+			"fio: iops=1234 bw=5",
+			"[TEST] simple-test.sh over ridden default describe",
+			"[SUBTEST] it_snapshot_Expected_Failure_subtest20_C74454: [FAIL]",
+			"   [SUBTEST] it io subtest1 C12345:    [PASS]",
+			"[ERROR]",
+			"",
+			"   ",
+			"plain line",
+	};
+
+
+	private static String random(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int lines = random.nextInt(40);
+		for (int i = 0; i < lines; i++) {
+			int words = random.nextInt(8);
+			for (int j = 0; j < words; j++) {
+				sb.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			sb.append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+		}
+		//now and then no final newline
+		if (random.nextBoolean()) {
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+
+	private static String key(String name, long lineNumber, int start, int end) {
+		return name + "@" + lineNumber + ":" + start + "-" + end;
+	}
+
+	/*
+	 * each pattern on its own over the whole input with MULTILINE, sorted the way scan() reports
+	 */
+	private static List<String> expected(String input, Map<String, Pattern> patterns) {
+		List<int[]> hits = new ArrayList<>();
+		List<String> names = new ArrayList<>(patterns.keySet());
+		for (int id = 0; id < names.size(); id++) {
+			Pattern pattern = patterns.get(names.get(id));
+			Matcher matcher = Pattern.compile(pattern.pattern(), pattern.flags() | Pattern.MULTILINE).matcher(input);
+			while (matcher.find()) {
+				int lineNumber = 1;
+				for (int i = 0; i < matcher.start(); i++) {
+					if (input.charAt(i) == '\n') {
+						lineNumber++;
+					}
+				}
+				hits.add(new int[] {lineNumber, id, matcher.start(), matcher.end()});
+			}
+		}
+		hits.sort(Comparator.<int[]>comparingInt(hit -> hit[0]).thenComparingInt(hit -> hit[1]).thenComparingInt(hit -> hit[2]));
+		List<String> expected = new ArrayList<>();
+		for (int[] hit : hits) {
+			expected.add(key(names.get(hit[1]), hit[0], hit[2], hit[3]));
+		}
+		return expected;
+	}
+
+	private static List<String> actual(List<TaggedRegExMatch> matchList) {
+		List<String> actual = new ArrayList<>();
+		for (TaggedRegExMatch match : matchList) {
+			actual.add(key(match.getName(), match.getLineNumber(), match.getStart(), match.getEnd()));
+		}
+		return actual;
+	}
+
+	@Test
+	public void requiredLiteralTest() {
+		for (String[] regEx : PATTERNS) {
+			assertEquals(MultiPatternMatcher.requiredLiteral(Pattern.compile(regEx[1])), regEx[2], regEx[1]);
+		}
+		//flags that make the text of the regex say nothing about the bytes it matches
+		assertNull(MultiPatternMatcher.requiredLiteral(Pattern.compile("error", Pattern.CASE_INSENSITIVE)));
+		assertNull(MultiPatternMatcher.requiredLiteral(Pattern.compile("(?x) e r r o r")));
+		assertNull(MultiPatternMatcher.requiredLiteral(Pattern.compile("(?iu)error")));
+		assertEquals(MultiPatternMatcher.requiredLiteral(Pattern.compile("a.b", Pattern.LITERAL)), "a.b");
+	}
+
+	@Test
+	public void findAllTaggedTest() {
+		Map<String, String> namedRegEx = new LinkedHashMap<>();
+		Map<String, Pattern> patterns = new LinkedHashMap<>();
+		for (String[] regEx : PATTERNS) {
+			namedRegEx.put(regEx[0], regEx[1]);
+			patterns.put(regEx[0], Pattern.compile(regEx[1]));
+		}
+		for (String[] regEx : INLINE_FLAG_PATTERNS) {
+			namedRegEx.put(regEx[0], regEx[1]);
+			patterns.put(regEx[0], Pattern.compile(regEx[1]));
+		}
+		Random random = new Random(3);
+		for (int round = 0; round < 500; round++) {
+			String input = random(random);
+			assertEquals(actual(RegExServices.build().findAllTagged(input, namedRegEx)), expected(input, patterns),
+					"round " + round + " [" + input + "]");
+		}
+	}
+
+	@Test
+	public void mayCrossLinesTest() {
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile(RegExServices.REGEX_EXCEPTION)));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile(RegExServices.ROUNDUP_PARSER_REGEX)));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile(RegExServices.BEFORE_AFTER_LINES_LOGCAT_INDETERMINATE_ERRORS)));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile("foo\\s+bar")));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile("a[^b]c")));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile("a\\Wb")));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile("(?s)a.b")));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile("a.b", Pattern.DOTALL)));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile("\\Afoo")));
+		assertTrue(MultiPatternMatcher.mayCrossLines(Pattern.compile("a\\s*")));
+		//a single newline as the last atom ends the line it is on
+		assertFalse(MultiPatternMatcher.mayCrossLines(Pattern.compile(RegExServices.IOPS_REGEX)));
+		assertFalse(MultiPatternMatcher.mayCrossLines(Pattern.compile(RegExServices.LOGCAT_INDETERMINATE_ERRORS)));
+		assertFalse(MultiPatternMatcher.mayCrossLines(Pattern.compile(RegExServices.REGEX_TIMESTAMP)));
+		assertFalse(MultiPatternMatcher.mayCrossLines(Pattern.compile("a.b")));
+		assertFalse(MultiPatternMatcher.mayCrossLines(Pattern.compile("(?<s>a)\\k<s>")));
+		for (String[] regEx : PATTERNS) {
+			assertFalse(MultiPatternMatcher.mayCrossLines(Pattern.compile(regEx[1])), regEx[1]);
+		}
+	}
+
+	/*
+	 * every constant on its own through findAllRegExMatch, the way findAllTagged promises to match
+	 */
+	private static List<String> expectedRegExMatch(String input) {
+		List<int[]> hits = new ArrayList<>();
+		for (int id = 0; id < CONSTANTS.length; id++) {
+			for (RegExMatch match : RegExServices.build().findAllRegExMatch(input, CONSTANTS[id][1], true, false, true)) {
+				int lineNumber = 1;
+				for (int i = 0; i < match.getStart(); i++) {
+					if (input.charAt(i) == '\n') {
+						lineNumber++;
+					}
+				}
+				hits.add(new int[] {lineNumber, id, match.getStart(), match.getEnd()});
+			}
+		}
+		hits.sort(Comparator.<int[]>comparingInt(hit -> hit[0]).thenComparingInt(hit -> hit[1]).thenComparingInt(hit -> hit[2]));
+		List<String> expected = new ArrayList<>();
+		for (int[] hit : hits) {
+			expected.add(key(CONSTANTS[hit[1]][0], hit[0], hit[2], hit[3]));
+		}
+		return expected;
+	}
+
+	@Test
+	public void findAllTaggedConstantsTest() {
+		Map<String, String> namedRegEx = new LinkedHashMap<>();
+		for (String[] regEx : CONSTANTS) {
+			namedRegEx.put(regEx[0], regEx[1]);
+		}
+		String log = String.join("\n", LOG_LINES) + "\n";
+		List<TaggedRegExMatch> matchList = RegExServices.build().findAllTagged(log, namedRegEx);
+		assertEquals(actual(matchList), expectedRegExMatch(log));
+		//the stack trace is one match over its three lines, its cause another over two
+		List<TaggedRegExMatch> exceptions = new ArrayList<>();
+		for (TaggedRegExMatch match : matchList) {
+			if (match.getName().equals("exception")) {
+				exceptions.add(match);
+			}
+		}
+		assertEquals(exceptions.size(), 2);
+		assertEquals(exceptions.get(0).getLineNumber(), 2L);
+		assertTrue(exceptions.get(0).getMatchList().get(0).endsWith("(Foo.java:3)"), exceptions.get(0).getMatchList().get(0));
+
+		Random random = new Random(7);
+		for (int round = 0; round < 300; round++) {
+			StringBuilder sb = new StringBuilder();
+			int lines = random.nextInt(30);
+			for (int i = 0; i < lines; i++) {
+				sb.append(LOG_LINES[random.nextInt(LOG_LINES.length)]).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+			}
+			if (random.nextBoolean()) {
+				sb.append(LOG_LINES[random.nextInt(LOG_LINES.length)]);
+			}
+			String input = sb.toString();
+			assertEquals(actual(RegExServices.build().findAllTagged(input, namedRegEx)), expectedRegExMatch(input),
+					"round " + round + " [" + input + "]");
+		}
+	}
+
+	@Test
+	public void flagsTest() {
+		Map<String, Pattern> patterns = new LinkedHashMap<>();
+		patterns.put("insensitive", Pattern.compile("error", Pattern.CASE_INSENSITIVE));
+		patterns.put("insensitiveUnicode", Pattern.compile("colou?r", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+		patterns.put("literal", Pattern.compile("a.b", Pattern.LITERAL));
+		patterns.put("comments", Pattern.compile("fail  (ed)?  # the rest is a comment", Pattern.COMMENTS));
+		MultiPatternMatcher.Builder builder = MultiPatternMatcher.builder();
+		for (Map.Entry<String, Pattern> entry : patterns.entrySet()) {
+			builder.add(entry.getKey(), entry.getValue());
+		}
+		MultiPatternMatcher matcher = builder.build();
+		assertNull(matcher.getLiteral("insensitive"));
+		assertNull(matcher.getLiteral("insensitiveUnicode"));
+		assertEquals(matcher.getLiteral("literal"), "a.b");
+		assertNull(matcher.getLiteral("comments"));
+
+		//regex case folding is wider than the automaton's toLowerCase
+		assertEquals(MultiPatternMatcher.builder().add("long s", Pattern.compile("false", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
+				.build().scan("FAL\u017FE\n").size(), 1);
+
+		Random random = new Random(5);
+		for (int round = 0; round < 500; round++) {
+			String input = random(random);
+			assertEquals(actual(matcher.scan(input)), expected(input, patterns), "round " + round + " [" + input + "]");
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.regex;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/*
+ * RegExServices' recursive grep
+ */
+public class RegExServicesTest {
+	private Path dir = null;
+
+
+	@BeforeMethod()
+	public void beforeMethod() throws IOException {
+		dir = Files.createTempDirectory("grep");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterMethod() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	private Path write(String name, String... lines) throws IOException {
+		Path file = dir.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+	private static String hit(Path file, int lineNumber, String line) {
+		return RegExServices.build().convertToForwardSlash(file.toString()) + "<END_PATH>" + lineNumber + ":" + line;
+	}
+
+	@Test
+	public void grepDirTest() throws Exception {
+		List<String> expected = new ArrayList<>();
+		Path a = write("a.txt", "ERROR one", "fine", "error two");
+		expected.add(hit(a, 1, "ERROR one"));
+		expected.add(hit(a, 3, "error two"));
+		//enough files that the parallel workers finish out of order
+		for (int i = 0; i < 30; i++) {
+			String[] lines = new String[12];
+			Arrays.fill(lines, "nothing here");
+			lines[i % 12] = "Error in f" + i;
+			lines[11] = "last error";
+			Path f = write(String.format("f%02d.txt", i), lines);
+			if (i % 12 != 11) {
+				expected.add(hit(f, i % 12 + 1, "Error in f" + i));
+			}
+			expected.add(hit(f, 12, "last error"));
+		}
+		Path c = write("sub/c.txt", "error deep");
+		expected.add(hit(c, 1, "error deep"));
+		write("sub/d.txt", "no hits");
+
+		List<String> hits = RegExServices.build().grepDir(dir.toString(), "error", false, false, false);
+		assertEquals(hits, expected);
+		assertTrue(hits.get(0).startsWith(dir.toString().replace('\\', '/') + "/a.txt<END_PATH>1:"), hits.get(0));
+
+		assertEquals(RegExServices.build().grepDir(dir.toString(), "ERROR", true, false, false),
+				Arrays.asList(hit(a, 1, "ERROR one")));
+	}
+
+	@Test
+	public void grepMissingDirTest() throws Exception {
+		Path file = write("file.txt", "error");
+		assertEquals(RegExServices.build().grepDir(dir.resolve("missing").toString(), "error", false, false, false).size(), 0);
+		assertEquals(RegExServices.build().grepDir(file.toString(), "error", false, false, false).size(), 0);
+		try {
+			RegExServices.build().grepDir(dir.resolve("missing").toString(), "error", false, false, false, match -> {});
+			fail("missing folder not reported");
+		} catch (FileNotFoundException e) {
+			//expected
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.regex;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/*
+ * StreamingReplacer against Matcher.replaceAll() with chunks small enough that most matches meet
+ * a chunk boundary
+ */
+public class StreamingReplacerTest {
+	private static final int MAX_MATCH_LENGTH = 6;
+	//every match is at most MAX_MATCH_LENGTH chars, lookbehind included
+	private static final String[][] PATTERNS = {
+			{"a{1,6}", "<$0>"},
+			{"ab|ba", "_"},
+			{"(a)(b)", "$2$1"},
+			{"\\bab\\b", "[word]"},
+			{"(?<=b)a", "A"},
+			{"(?m)^a", "^"},
+			{"(?m)b$", "\\$"},
+			{"\\s{1,3}", " "},
+			{"x*", "-"},
+	};
+	private Path dir = null;
+
+
+	@BeforeMethod()
+	public void beforeMethod() throws IOException {
+		dir = Files.createTempDirectory("replace");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterMethod() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	private static String random(Random random, int length) {
+		String alphabet = "aab b\n\u00e9";
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	private static long count(Pattern pattern, String input) {
+		Matcher matcher = pattern.matcher(input);
+		long cnt = 0;
+		while (matcher.find()) {
+			cnt++;
+		}
+		return cnt;
+	}
+
+	private static String replace(StreamingReplacer replacer, String input, long[] cnt) throws IOException {
+		StringWriter writer = new StringWriter();
+		cnt[0] = replacer.replace(new StringReader(input), writer);
+		return writer.toString();
+	}
+
+	private List<Path> files() throws IOException {
+		try (Stream<Path> paths = Files.list(dir)) {
+			return paths.collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void randomTest() throws IOException {
+		Random random = new Random(7);
+		long[] cnt = new long[1];
+		for (int round = 0; round < 300; round++) {
+			String input = random(random, random.nextInt(400));
+			int chunkSize = 1 + random.nextInt(20);
+			for (String[] regEx : PATTERNS) {
+				Pattern pattern = Pattern.compile(regEx[0]);
+				StreamingReplacer replacer = StreamingReplacer.builder(pattern, regEx[1])
+						.chunkSize(chunkSize).maxMatchLength(MAX_MATCH_LENGTH).build();
+				String what = "round " + round + " chunkSize " + chunkSize + " " + pattern + " on [" + input + "]";
+				assertEquals(replace(replacer, input, cnt), pattern.matcher(input).replaceAll(regEx[1]), what);
+				assertEquals(cnt[0], count(pattern, input), what);
+			}
+		}
+	}
+
+	@Test
+	public void fileTest() throws IOException {
+		Random random = new Random(11);
+		Path file = dir.resolve("rolling.log");
+		Pattern pattern = Pattern.compile("(a+)b");
+		for (int round = 0; round < 20; round++) {
+			String input = random(random, random.nextInt(20000));
+			Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+			long cnt = StreamingReplacer.builder(pattern, "<$1>").chunkSize(100).maxMatchLength(64).build().replace(file);
+			assertEquals(cnt, count(pattern, input));
+			assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), pattern.matcher(input).replaceAll("<$1>"));
+			//the temp file was moved over the original or removed
+			assertEquals(files(), Arrays.asList(file));
+		}
+	}
+
+	@Test
+	public void maxMatchLengthTest() throws IOException {
+		long[] cnt = new long[1];
+		Pattern pattern = Pattern.compile("a+");
+		for (int run = 1; run <= 40; run++) {
+			char[] as = new char[run];
+			Arrays.fill(as, 'a');
+			String input = "bb" + new String(as) + "bb";
+			String expected = pattern.matcher(input).replaceAll("X");
+			for (int chunkSize = 1; chunkSize <= 10; chunkSize++) {
+				StreamingReplacer replacer = StreamingReplacer.builder(pattern, "X").chunkSize(chunkSize).maxMatchLength(MAX_MATCH_LENGTH).build();
+				String actual = replace(replacer, input, cnt);
+				if (run <= MAX_MATCH_LENGTH) {
+					assertEquals(actual, expected, "run " + run + " chunkSize " + chunkSize);
+					assertEquals(cnt[0], 1);
+				} else if (run > chunkSize + 2 * MAX_MATCH_LENGTH) {
+					//longer than the buffer, the match is cut into pieces
+					assertNotEquals(actual, expected, "run " + run + " chunkSize " + chunkSize);
+					assertTrue(cnt[0] > 1, "run " + run + " chunkSize " + chunkSize);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void noMatchTest() throws IOException {
+		Path file = dir.resolve("untouched.log");
+		byte[] bytes = "nothing to see\r\nhere\r\n".getBytes(StandardCharsets.UTF_8);
+		Files.write(file, bytes);
+		FileTime lastModified = FileTime.fromMillis(1000000000000L);
+		Files.setLastModifiedTime(file, lastModified);
+		Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+
+		assertEquals(StreamingReplacer.builder(Pattern.compile("ERROR"), "WARN").chunkSize(4).maxMatchLength(8).build().replace(file), 0);
+		assertEquals(Files.readAllBytes(file), bytes);
+		assertEquals(Files.getLastModifiedTime(file), lastModified);
+		//not replaced by an identical copy either
+		assertEquals(Files.readAttributes(file, BasicFileAttributes.class).fileKey(), fileKey);
+		assertEquals(files(), Arrays.asList(file));
+	}
+
+	@Test
+	public void malformedInputTest() throws IOException {
+		Path file = dir.resolve("binary.dat");
+		byte[] bytes = {'E', 'R', 'R', 'O', 'R', (byte) 0xC3, (byte) 0x28, 'E', 'R', 'R', 'O', 'R'};
+		Files.write(file, bytes);
+		try {
+			StreamingReplacer.builder(Pattern.compile("ERROR"), "WARN").build().replace(file);
+			fail("malformed input not reported");
+		} catch (IOException e) {
+			//expected, MalformedInputException
+		}
+		assertEquals(Files.readAllBytes(file), bytes);
+		assertEquals(files(), Arrays.asList(file));
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail.stub;
+
+
+/*
+ * an api call TestRail would refuse, answered with statusCode and {"error": message}
+ */
+public class TestRailStubException extends Exception {
+	private static final long serialVersionUID = 1L;
+	private final int statusCode;
+
+
+	public TestRailStubException(int statusCode, String message) {
+		super(message);
+		this.statusCode = statusCode;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+
+package utils.testrail.stub;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/*
+ * A TestRailStubServer seeded with the project -> suite -> section -> cases -> run hierarchy
+ * most tests start from. Each level is only added when it is named, so a test seeds just what it
+ * needs and adds the rest through getStore().
+ *
+ * 	try (TestRailStubFixture fixture = TestRailStubFixture.builder().pageSize(2)
+ * 			.project("apiTestProj").suite("suite1").section("section1").cases("case", 5).run("run1").build()) {
+ * 		TestRailServices testRailServices = TestRailServices.builder(fixture.getUrl())
+ * 				.userName(fixture.getUserName()).passWord(fixture.getPassWord()).build();
+ * 		...
+ * 	}
+ */
+public class TestRailStubFixture implements Closeable {
+	public static final String USER_NAME_DEFAULT = "user";
+	public static final String PASSWORD_DEFAULT = "password";
+	private final TestRailStubServer server;
+	private final String userName;
+	private final String passWord;
+	private final Integer projectId;
+	private final Integer suiteId;
+	private final Integer sectionId;
+	private final Integer runId;
+	private final Map<String, Integer> caseIds = new LinkedHashMap<>();
+
+
+	public static Builder builder(){
+		return new Builder();
+	}
+
+
+	public static class Builder {
+		private Integer pageSize;
+		private Long latencyMs;
+		private String userName = USER_NAME_DEFAULT;
+		private String passWord = PASSWORD_DEFAULT;
+		private String projectName;
+		private String suiteName;
+		private String sectionName;
+		private List<String> caseTitles = new ArrayList<>();
+		private String runName;
+
+
+		private Builder() {
+		}
+
+		public Builder pageSize(Integer pageSize) {
+			this.pageSize = pageSize;
+			return this;
+		}
+
+		/*
+		 * added to every answer, see TestRailStubServer.Builder.latencyMs()
+		 */
+		public Builder latencyMs(Long latencyMs) {
+			this.latencyMs = latencyMs;
+			return this;
+		}
+
+		public Builder userName(String userName) {
+			if (userName != null) {
+				this.userName = userName;
+			}
+			return this;
+		}
+
+		public Builder passWord(String passWord) {
+			if (passWord != null) {
+				this.passWord = passWord;
+			}
+			return this;
+		}
+
+		public Builder project(String projectName) {
+			this.projectName = projectName;
+			return this;
+		}
+
+		/*
+		 * needs a project
+		 */
+		public Builder suite(String suiteName) {
+			this.suiteName = suiteName;
+			return this;
+		}
+
+		/*
+		 * needs a suite
+		 */
+		public Builder section(String sectionName) {
+			this.sectionName = sectionName;
+			return this;
+		}
+
+		/*
+		 * needs a section
+		 */
+		public Builder cases(String... caseTitles) {
+			this.caseTitles.addAll(Arrays.asList(caseTitles));
+			return this;
+		}
+
+		/*
+		 * prefix1 ... prefix<cnt>
+		 */
+		public Builder cases(String prefix, int cnt) {
+			for (int i = 1; i <= cnt; i++) {
+				caseTitles.add(prefix + i);
+			}
+			return this;
+		}
+
+		public Builder cases(Collection<String> caseTitles) {
+			this.caseTitles.addAll(caseTitles);
+			return this;
+		}
+
+		/*
+		 * a run over every case of the suite, needs a suite
+		 */
+		public Builder run(String runName) {
+			this.runName = runName;
+			return this;
+		}
+
+		public TestRailStubFixture build() throws IOException, TestRailStubException {
+			if ((suiteName != null && projectName == null) || (sectionName != null && suiteName == null)
+					|| (!caseTitles.isEmpty() && sectionName == null) || (runName != null && suiteName == null)) {
+				throw new IllegalArgumentException("project: " + projectName + " suite: " + suiteName + " section: " + sectionName
+						+ " cases: " + caseTitles.size() + " run: " + runName);
+			}
+			return new TestRailStubFixture(this);
+		}
+	}
+
+	private TestRailStubFixture(Builder builder) throws IOException, TestRailStubException {
+		this.userName = builder.userName;
+		this.passWord = builder.passWord;
+		this.server = TestRailStubServer.builder().pageSize(builder.pageSize).latencyMs(builder.latencyMs).userName(userName).passWord(passWord).build();
+		try {
+			TestRailStubStore store = server.getStore();
+			projectId = builder.projectName == null ? null : store.addProject(builder.projectName).get("id").getAsInt();
+			suiteId = builder.suiteName == null ? null : store.addSuite(projectId, builder.suiteName).get("id").getAsInt();
+			sectionId = builder.sectionName == null ? null
+					: store.addSection(projectId, suiteId, builder.sectionName).get("id").getAsInt();
+			for (String caseTitle : builder.caseTitles) {
+				caseIds.put(caseTitle, store.addCase(sectionId, caseTitle).get("id").getAsInt());
+			}
+			//after the cases so the run includes them
+			runId = builder.runName == null ? null : store.addRun(projectId, suiteId, builder.runName).get("id").getAsInt();
+		} catch (TestRailStubException | RuntimeException e) {
+			server.close();
+			throw e;
+		}
+	}
+
+	public TestRailStubServer getServer() {
+		return server;
+	}
+
+	public TestRailStubStore getStore() {
+		return server.getStore();
+	}
+
+	/*
+	 * the base url to hand TestRailServices.builder()
+	 */
+	public String getUrl() {
+		return server.getUrl();
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public String getPassWord() {
+		return passWord;
+	}
+
+	public Integer getProjectId() {
+		return projectId;
+	}
+
+	public Integer getSuiteId() {
+		return suiteId;
+	}
+
+	public Integer getSectionId() {
+		return sectionId;
+	}
+
+	public Integer getRunId() {
+		return runId;
+	}
+
+	public Integer getCaseId(String caseTitle) {
+		return caseIds.get(caseTitle);
+	}
+
+	/*
+	 * in the order they were added
+	 */
+	public List<Integer> getCaseIds() {
+		return Collections.unmodifiableList(new ArrayList<>(caseIds.values()));
+	}
+
+	@Override
+	public void close() {
+		server.close();
+	}
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail.stub;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/*
+ * Embeddable stand-in for the TestRail api, for running the testrail module's tests and load
+ * tests without a TestRail instance.
+ *
+ * Serves the index.php?/api/v2/ endpoints TestRailServices calls from a TestRailStubStore on the
+ * loopback interface. Latency, 429 throttling and pagination are configurable so retry, rate
+ * limit and pager code paths can be driven on purpose and throughput measured reproducibly.
+ *
+ * 	try (TestRailStubServer server = TestRailStubServer.builder().pageSize(250).latencyMs(20).build()) {
+ * 		int projectId = server.getStore().addProject("apiTestProj").get("id").getAsInt();
+ * 		TestRailServices testRailServices = TestRailServices.builder(server.getUrl()).userName("user").passWord("password").build();
+ * 		...
+ * 	}
+ *
+ * With pageSize 0 lists come back as bare arrays like older TestRail versions, otherwise as the
+ * {offset, limit, size, _links, <entities>} envelope.
+ */
+public class TestRailStubServer implements Closeable {
+	public static final String API_PATH = "/index.php?/api/v2/";
+	private static final int TOO_MANY_REQUESTS = 429;
+	private final HttpServer httpServer;
+	private final ExecutorService executorService;
+	private final TestRailStubStore store;
+	private final long latencyMs;
+	private final long latencyJitterMs;
+	private final int pageSize;
+	private final int throttleEvery;
+	private final double throttleRate;
+	private final int retryAfter;
+	private final String authorization;
+	private final Random random;
+	private final AtomicInteger throttleNext = new AtomicInteger();
+	private final AtomicLong requestCnt = new AtomicLong();
+	private final AtomicLong throttledCnt = new AtomicLong();
+	private final Map<String, AtomicLong> methodCnts = new ConcurrentHashMap<>();
+
+	static {
+		//read once when the first HttpServer is made, without it Nagle and delayed acks add ~40ms to every response
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	public static Builder builder(){
+		return new Builder();
+	}
+
+
+	public static class Builder {
+		private int port = 0;
+		private int threads = 16;
+		private long latencyMs = 0;
+		private long latencyJitterMs = 0;
+		private int pageSize = 0;
+		private int throttleEvery = 0;
+		private double throttleRate = 0;
+		private int retryAfter = 0;
+		private long seed = 0;
+		private String userName;
+		private String passWord;
+		private TestRailStubStore store;
+
+
+		private Builder() {
+		}
+
+		/*
+		 * 0, the default, picks a free port
+		 */
+		public Builder port(Integer port) {
+			if (port != null) {
+				this.port = port;
+			}
+			return this;
+		}
+
+		/*
+		 * requests served concurrently, latency is spent on these threads
+		 */
+		public Builder threads(Integer threads) {
+			if (threads != null) {
+				this.threads = threads;
+			}
+			return this;
+		}
+
+		/*
+		 * added to every response
+		 */
+		public Builder latencyMs(Long latencyMs) {
+			if (latencyMs != null) {
+				this.latencyMs = latencyMs;
+			}
+			return this;
+		}
+
+		/*
+		 * uniform random extra latency in [0, latencyJitterMs)
+		 */
+		public Builder latencyJitterMs(Long latencyJitterMs) {
+			if (latencyJitterMs != null) {
+				this.latencyJitterMs = latencyJitterMs;
+			}
+			return this;
+		}
+
+		/*
+		 * largest page a list endpoint returns, 0 for unpaged bare arrays
+		 */
+		public Builder pageSize(Integer pageSize) {
+			if (pageSize != null) {
+				this.pageSize = pageSize;
+			}
+			return this;
+		}
+
+		/*
+		 * every nth request is answered 429
+		 */
+		public Builder throttleEvery(Integer throttleEvery) {
+			if (throttleEvery != null) {
+				this.throttleEvery = throttleEvery;
+			}
+			return this;
+		}
+
+		/*
+		 * fraction of requests answered 429, drawn from a Random seeded with seed
+		 */
+		public Builder throttleRate(Double throttleRate) {
+			if (throttleRate != null) {
+				this.throttleRate = throttleRate;
+			}
+			return this;
+		}
+
+		/*
+		 * Retry-After seconds sent with a 429
+		 */
+		public Builder retryAfter(Integer retryAfter) {
+			if (retryAfter != null) {
+				this.retryAfter = retryAfter;
+			}
+			return this;
+		}
+
+		public Builder seed(Long seed) {
+			if (seed != null) {
+				this.seed = seed;
+			}
+			return this;
+		}
+
+		/*
+		 * when set requests without matching basic auth are answered 401
+		 */
+		public Builder userName(String userName) {
+			this.userName = userName;
+			return this;
+		}
+
+		public Builder passWord(String passWord) {
+			this.passWord = passWord;
+			return this;
+		}
+
+		/*
+		 * share or preload state, a new empty store otherwise
+		 */
+		public Builder store(TestRailStubStore store) {
+			this.store = store;
+			return this;
+		}
+
+		/*
+		 * the server is listening when this returns
+		 */
+		public TestRailStubServer build() throws IOException {
+			return new TestRailStubServer(this);
+		}
+	}
+
+	private TestRailStubServer(Builder builder) throws IOException {
+		if (builder.threads < 1 || builder.pageSize < 0 || builder.throttleEvery < 0 || builder.throttleRate < 0 || builder.throttleRate > 1) {
+			throw new IllegalArgumentException("threads: " + builder.threads + " pageSize: " + builder.pageSize
+					+ " throttleEvery: " + builder.throttleEvery + " throttleRate: " + builder.throttleRate);
+		}
+		this.store = builder.store == null ? new TestRailStubStore() : builder.store;
+		this.latencyMs = builder.latencyMs;
+		this.latencyJitterMs = builder.latencyJitterMs;
+		this.pageSize = builder.pageSize;
+		this.throttleEvery = builder.throttleEvery;
+		this.throttleRate = builder.throttleRate;
+		this.retryAfter = builder.retryAfter;
+		this.random = new Random(builder.seed);
+		this.authorization = builder.userName == null ? null : "Basic " + Base64.getEncoder().encodeToString(
+				(builder.userName + ":" + (builder.passWord == null ? "" : builder.passWord)).getBytes(StandardCharsets.UTF_8));
+
+		final AtomicInteger threadCnt = new AtomicInteger();
+		this.executorService = Executors.newFixedThreadPool(builder.threads, runnable -> {
+			Thread thread = new Thread(runnable, "testrail-stub-" + threadCnt.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), 0);
+		httpServer.setExecutor(executorService);
+		httpServer.createContext("/", this::handle);
+		httpServer.start();
+		store.setBaseUrl("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + getPort());
+	}
+
+	/*
+	 * the base url to hand TestRailServices.builder()
+	 */
+	public String getUrl() {
+		return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + getPort() + API_PATH;
+	}
+
+	public int getPort() {
+		return httpServer.getAddress().getPort();
+	}
+
+	public TestRailStubStore getStore() {
+		return store;
+	}
+
+	/*
+	 * the next cnt requests are answered 429 whatever throttleEvery and throttleRate say
+	 */
+	public void throttleNext(int cnt) {
+		throttleNext.set(cnt);
+	}
+
+	/*
+	 * every request received, throttled or not
+	 */
+	public long getRequestCnt() {
+		return requestCnt.get();
+	}
+
+	/*
+	 * requests to method (get_cases, add_results_for_cases, ...) that were served, not throttled
+	 */
+	public long getRequestCnt(String method) {
+		AtomicLong cnt = methodCnts.get(method);
+		return cnt == null ? 0 : cnt.get();
+	}
+
+	public long getThrottledCnt() {
+		return throttledCnt.get();
+	}
+
+	/*
+	 * zeroes the counters, the store is left alone
+	 */
+	public void resetCnts() {
+		requestCnt.set(0);
+		throttledCnt.set(0);
+		methodCnts.clear();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			long cnt = requestCnt.incrementAndGet();
+			sleep();
+			if (authorization != null && !authorization.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+				//challenge so clients that authenticate on demand retry with credentials
+				exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"TestRail\"");
+				respond(exchange, 401, error("Authentication failed: invalid or missing user/password or session cookie."));
+				return;
+			}
+			if (throttled(cnt)) {
+				throttledCnt.incrementAndGet();
+				exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+				respond(exchange, TOO_MANY_REQUESTS, error("API Rate Limit Exceeded"));
+				return;
+			}
+
+			String target = target(exchange);
+			String path = target;
+			Map<String, String> params = new LinkedHashMap<>();
+			int amp = target.indexOf('&');
+			if (amp >= 0) {
+				path = target.substring(0, amp);
+				for (String param : target.substring(amp + 1).split("&")) {
+					int eq = param.indexOf('=');
+					if (eq > 0) {
+						params.put(decode(param.substring(0, eq)), decode(param.substring(eq + 1)));
+					} else if (!param.isEmpty()) {
+						params.put(decode(param), "");
+					}
+				}
+			}
+			String[] segments = path.split("/");
+			String method = segments[0];
+			methodCnts.computeIfAbsent(method, m -> new AtomicLong()).incrementAndGet();
+			List<Integer> ids = new ArrayList<>();
+			for (int i = 1; i < segments.length; i++) {
+				try {
+					ids.add(Integer.valueOf(segments[i]));
+				} catch (NumberFormatException e) {
+					respond(exchange, 400, error("Field :" + segments[i] + " is not a valid ID."));
+					return;
+				}
+			}
+
+			boolean post = "POST".equalsIgnoreCase(exchange.getRequestMethod());
+			boolean write = !method.startsWith("get_");
+			if (post != write) {
+				respond(exchange, 400, error(write ? "This method requires a POST request." : "This method requires a GET request."));
+				return;
+			}
+			JsonObject body = post ? body(exchange) : null;
+
+			JsonElement result = store.call(method, ids, params, body);
+			if (!write && pageSize > 0 && result.isJsonArray()) {
+				result = page(path, params, method.substring("get_".length()), result.getAsJsonArray());
+			}
+			respond(exchange, 200, result);
+		} catch (TestRailStubException e) {
+			respond(exchange, e.getStatusCode(), error(e.getMessage()));
+		} catch (JsonParseException | IllegalStateException e) {
+			respond(exchange, 400, error("Invalid JSON: " + e.getMessage()));
+		} catch (RuntimeException e) {
+			respond(exchange, 500, error(e.toString()));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/*
+	 * get_cases/1&suite_id=2 out of either /index.php?/api/v2/get_cases/1&suite_id=2 or /api/v2/get_cases/1?suite_id=2
+	 */
+	private static String target(HttpExchange exchange) {
+		String path = exchange.getRequestURI().getRawPath();
+		String query = exchange.getRequestURI().getRawQuery();
+		String target;
+		if (path.endsWith("index.php")) {
+			target = query == null ? "" : query;
+		} else {
+			target = query == null ? path : path + "&" + query;
+		}
+		int api = target.indexOf("api/v2/");
+		return api < 0 ? target : target.substring(api + "api/v2/".length());
+	}
+
+	/*
+	 * The envelope newer TestRail versions wrap lists in, pages are at most pageSize long whatever
+	 * limit asks for and _links.next is null on the last one.
+	 */
+	private JsonObject page(String path, Map<String, String> params, String key, JsonArray items) throws TestRailStubException {
+		int offset = Math.max(0, intParam(params, "offset", 0));
+		int limit = Math.min(pageSize, Math.max(1, intParam(params, "limit", pageSize)));
+		JsonArray pageItems = new JsonArray();
+		for (int i = offset; i < Math.min(items.size(), offset + limit); i++) {
+			pageItems.add(items.get(i));
+		}
+
+		StringBuilder filters = new StringBuilder("/api/v2/").append(path);
+		for (Map.Entry<String, String> param : params.entrySet()) {
+			if (!"offset".equals(param.getKey()) && !"limit".equals(param.getKey())) {
+				filters.append('&').append(param.getKey()).append('=').append(param.getValue());
+			}
+		}
+		JsonObject links = new JsonObject();
+		links.addProperty("next", offset + limit < items.size() ? filters + "&limit=" + limit + "&offset=" + (offset + limit) : null);
+		links.addProperty("prev", offset > 0 ? filters + "&limit=" + limit + "&offset=" + Math.max(0, offset - limit) : null);
+
+		JsonObject page = new JsonObject();
+		page.addProperty("offset", offset);
+		page.addProperty("limit", limit);
+		page.addProperty("size", pageItems.size());
+		page.add("_links", links);
+		page.add(key, pageItems);
+		return page;
+	}
+
+	private boolean throttled(long cnt) {
+		if (throttleNext.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+			return true;
+		}
+		if (throttleEvery > 0 && cnt % throttleEvery == 0) {
+			return true;
+		}
+		if (throttleRate > 0) {
+			synchronized (random) {
+				return random.nextDouble() < throttleRate;
+			}
+		}
+		return false;
+	}
+
+	private void sleep() {
+		long delayMs = latencyMs;
+		if (latencyJitterMs > 0) {
+			synchronized (random) {
+				delayMs += (long) (random.nextDouble() * latencyJitterMs);
+			}
+		}
+		if (delayMs <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(delayMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static JsonObject body(HttpExchange exchange) throws IOException {
+		try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+			JsonElement jsonElement = new JsonParser().parse(reader);
+			if (jsonElement.isJsonNull()) {
+				return new JsonObject();
+			}
+			return jsonElement.getAsJsonObject();
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int statusCode, JsonElement body) throws IOException {
+		byte[] bytes = (body.isJsonNull() ? "" : body.toString()).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+		if (bytes.length > 0) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static JsonObject error(String message) {
+		JsonObject jsonObject = new JsonObject();
+		jsonObject.addProperty("error", message);
+		return jsonObject;
+	}
+
+	private static int intParam(Map<String, String> params, String name, int defaultValue) throws TestRailStubException {
+		String value = params.get(name);
+		if (value == null || value.isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new TestRailStubException(400, "Field :" + name + " is not a valid integer.");
+		}
+	}
+
+	private static String decode(String value) throws UnsupportedEncodingException {
+		return URLDecoder.decode(value, "UTF-8");
+	}
+
+	/*
+	 * stops accepting, in flight requests get a second to finish
+	 */
+	@Override
+	public void close() {
+		httpServer.stop(1);
+		executorService.shutdownNow();
+		try {
+			executorService.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,747 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail.stub;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+
+/*
+ * In memory state behind TestRailStubServer.
+ *
+ * Every entity is kept as the JsonObject the real api would return, one table per kind keyed by id
+ * in creation order. call() is the whole api: an endpoint name, its path ids, its query parameters
+ * and the posted body in, the response body out. Bad ids, missing fields and the like fail with
+ * the 400 and error text TestRail uses, so client error handling is exercised as well.
+ *
+ * Tests seed state with the add*() helpers, which go through the same code as the api.
+ */
+public class TestRailStubStore {
+	public static final int PASSED = 1;
+	public static final int UNTESTED = 3;
+	private static final String[] CASE_TYPES = {"Acceptance", "Accessibility", "Automated", "Compatibility", "Destructive",
+			"Functional", "Other", "Performance", "Regression", "Security", "Smoke & Sanity", "Usability"};
+	private static final String[] STATUS_COUNTS = {null, "passed_count", "blocked_count", "untested_count", "retest_count", "failed_count"};
+	private final Map<String, TreeMap<Integer, JsonObject>> tables = new HashMap<>();
+	private final Map<String, Integer> lastIds = new HashMap<>();
+	private String baseUrl = "";
+
+
+	public TestRailStubStore() {
+		reset();
+	}
+
+	/*
+	 * entity urls point back at the server, index.php?/ is appended by the caller
+	 */
+	synchronized void setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	/*
+	 * drops everything but the built in case types, ids start over
+	 */
+	public synchronized void reset() {
+		tables.clear();
+		lastIds.clear();
+		for (String caseType : CASE_TYPES) {
+			JsonObject jsonObject = new JsonObject();
+			jsonObject.addProperty("name", caseType);
+			jsonObject.addProperty("is_default", "Other".equals(caseType));
+			insert("case_type", jsonObject);
+		}
+	}
+
+	/*
+	 * Runs one api method.
+	 *
+	 * method is the endpoint name (get_cases), ids the numeric path segments that follow it
+	 * and params the query string filters. Lists are returned whole, the server pages them.
+	 */
+	public synchronized JsonElement call(String method, List<Integer> ids, Map<String, String> params, JsonObject body)
+			throws TestRailStubException {
+		return dispatch(method, ids, params, body == null ? new JsonObject() : body).deepCopy();
+	}
+
+	private JsonElement dispatch(String method, List<Integer> ids, Map<String, String> params, JsonObject body)
+			throws TestRailStubException {
+		switch (method) {
+		case "get_projects":
+			return list("project", null, null);
+		case "get_project":
+			return find("project", arg(ids, 0, "project_id"));
+		case "add_project":
+			return addProject(body);
+		case "delete_project":
+			deleteProject(find("project", arg(ids, 0, "project_id")));
+			return JsonNull.INSTANCE;
+
+		case "get_suites":
+			return list("suite", "project_id", find("project", arg(ids, 0, "project_id")).get("id").getAsInt());
+		case "get_suite":
+			return find("suite", arg(ids, 0, "suite_id"));
+		case "add_suite":
+			return addSuite(find("project", arg(ids, 0, "project_id")), body);
+		case "delete_suite":
+			deleteSuite(find("suite", arg(ids, 0, "suite_id")));
+			return JsonNull.INSTANCE;
+
+		case "get_sections":
+			return sections(find("project", arg(ids, 0, "project_id")), params);
+		case "get_section":
+			return find("section", arg(ids, 0, "section_id"));
+		case "add_section":
+			return addSection(find("project", arg(ids, 0, "project_id")), body);
+		case "delete_section":
+			deleteSection(find("section", arg(ids, 0, "section_id")));
+			return JsonNull.INSTANCE;
+
+		case "get_cases":
+			return cases(find("project", arg(ids, 0, "project_id")), params);
+		case "get_case":
+			return find("case", arg(ids, 0, "case_id"));
+		case "add_case":
+			return addCase(find("section", arg(ids, 0, "section_id")), body);
+		case "update_case":
+			return updateCase(find("case", arg(ids, 0, "case_id")), body);
+		case "delete_case":
+			deleteCase(find("case", arg(ids, 0, "case_id")));
+			return JsonNull.INSTANCE;
+		case "get_case_types":
+			return list("case_type", null, null);
+
+		case "get_milestones":
+			return list("milestone", "project_id", find("project", arg(ids, 0, "project_id")).get("id").getAsInt());
+		case "get_milestone":
+			return find("milestone", arg(ids, 0, "milestone_id"));
+		case "add_milestone":
+			return addMileStone(find("project", arg(ids, 0, "project_id")), body);
+		case "delete_milestone":
+			remove("milestone", find("milestone", arg(ids, 0, "milestone_id")));
+			return JsonNull.INSTANCE;
+
+		case "get_plans":
+			return list("plan", "project_id", find("project", arg(ids, 0, "project_id")).get("id").getAsInt());
+		case "get_plan":
+			return find("plan", arg(ids, 0, "plan_id"));
+		case "add_plan":
+			return addPlan(find("project", arg(ids, 0, "project_id")), body);
+		case "delete_plan":
+			remove("plan", find("plan", arg(ids, 0, "plan_id")));
+			return JsonNull.INSTANCE;
+
+		case "get_runs":
+			return runs(list("run", "project_id", find("project", arg(ids, 0, "project_id")).get("id").getAsInt()));
+		case "get_run":
+			return counted(find("run", arg(ids, 0, "run_id")));
+		case "add_run":
+			return counted(addRun(find("project", arg(ids, 0, "project_id")), body));
+		case "delete_run":
+			deleteRun(find("run", arg(ids, 0, "run_id")));
+			return JsonNull.INSTANCE;
+
+		case "get_tests":
+			return list("test", "run_id", find("run", arg(ids, 0, "run_id")).get("id").getAsInt());
+		case "get_test":
+			return find("test", arg(ids, 0, "test_id"));
+
+		case "get_users":
+			return list("user", null, null);
+		case "get_user_by_email":
+			return userByEmail(params.get("email"));
+
+		case "add_result_for_case": {
+			JsonObject run = find("run", arg(ids, 0, "run_id"));
+			JsonObject test = testFor(run, arg(ids, 1, "case_id"));
+			validateResult(body);
+			return addResult(test, body);
+		}
+		case "add_results":
+			return addResults(find("run", arg(ids, 0, "run_id")), body, "test_id");
+		case "add_results_for_cases":
+			return addResults(find("run", arg(ids, 0, "run_id")), body, "case_id");
+
+		default:
+			throw new TestRailStubException(400, "Unknown method '" + method + "'");
+		}
+	}
+
+	public synchronized JsonObject addProject(String name) throws TestRailStubException {
+		return addProject(named("name", name)).deepCopy();
+	}
+
+	public synchronized JsonObject addSuite(int projectId, String name) throws TestRailStubException {
+		return addSuite(find("project", projectId), named("name", name)).deepCopy();
+	}
+
+	public synchronized JsonObject addSection(int projectId, int suiteId, String name) throws TestRailStubException {
+		JsonObject body = named("name", name);
+		body.addProperty("suite_id", suiteId);
+		return addSection(find("project", projectId), body).deepCopy();
+	}
+
+	public synchronized JsonObject addCase(int sectionId, String title) throws TestRailStubException {
+		return addCase(find("section", sectionId), named("title", title)).deepCopy();
+	}
+
+	public synchronized JsonObject addMileStone(int projectId, String name) throws TestRailStubException {
+		return addMileStone(find("project", projectId), named("name", name)).deepCopy();
+	}
+
+	public synchronized JsonObject addPlan(int projectId, String name) throws TestRailStubException {
+		return addPlan(find("project", projectId), named("name", name)).deepCopy();
+	}
+
+	/*
+	 * include_all, every case of the suite gets a test
+	 */
+	public synchronized JsonObject addRun(int projectId, int suiteId, String name) throws TestRailStubException {
+		JsonObject body = named("name", name);
+		body.addProperty("suite_id", suiteId);
+		return counted(addRun(find("project", projectId), body)).deepCopy();
+	}
+
+	public synchronized JsonObject addUser(String name, String email) {
+		JsonObject user = named("name", name);
+		user.addProperty("email", email);
+		user.addProperty("is_active", true);
+		return insert("user", user).deepCopy();
+	}
+
+	/*
+	 * null when there is no such entity, kind is the singular api name (project, case, run, ...)
+	 */
+	public synchronized JsonObject get(String kind, int id) {
+		JsonObject jsonObject = table(kind).get(id);
+		return jsonObject == null ? null : jsonObject.deepCopy();
+	}
+
+	public synchronized int count(String kind) {
+		return table(kind).size();
+	}
+
+	private JsonObject addProject(JsonObject body) throws TestRailStubException {
+		JsonObject project = named("name", required(body, "name"));
+		project.add("announcement", optional(body, "announcement"));
+		project.addProperty("show_announcement", body.has("show_announcement") && body.get("show_announcement").getAsBoolean());
+		project.addProperty("is_completed", false);
+		project.add("completed_on", JsonNull.INSTANCE);
+		project.addProperty("suite_mode", body.has("suite_mode") ? body.get("suite_mode").getAsInt() : 1);
+		insert("project", project);
+		project.addProperty("url", baseUrl + "/index.php?/projects/overview/" + project.get("id").getAsInt());
+		return project;
+	}
+
+	private void deleteProject(JsonObject project) {
+		int projectId = project.get("id").getAsInt();
+		for (JsonObject suite : rows("suite", "project_id", projectId)) {
+			deleteSuite(suite);
+		}
+		for (JsonObject run : rows("run", "project_id", projectId)) {
+			deleteRun(run);
+		}
+		for (JsonObject mileStone : rows("milestone", "project_id", projectId)) {
+			remove("milestone", mileStone);
+		}
+		for (JsonObject plan : rows("plan", "project_id", projectId)) {
+			remove("plan", plan);
+		}
+		remove("project", project);
+	}
+
+	private JsonObject addSuite(JsonObject project, JsonObject body) throws TestRailStubException {
+		JsonObject suite = named("name", required(body, "name"));
+		suite.add("description", optional(body, "description"));
+		suite.addProperty("project_id", project.get("id").getAsInt());
+		suite.addProperty("is_master", false);
+		suite.addProperty("is_baseline", false);
+		suite.addProperty("is_completed", false);
+		suite.add("completed_on", JsonNull.INSTANCE);
+		insert("suite", suite);
+		suite.addProperty("url", baseUrl + "/index.php?/suites/view/" + suite.get("id").getAsInt());
+		return suite;
+	}
+
+	private void deleteSuite(JsonObject suite) {
+		int suiteId = suite.get("id").getAsInt();
+		for (JsonObject testCase : rows("case", "suite_id", suiteId)) {
+			deleteCase(testCase);
+		}
+		for (JsonObject section : rows("section", "suite_id", suiteId)) {
+			remove("section", section);
+		}
+		remove("suite", suite);
+	}
+
+	private JsonArray sections(JsonObject project, Map<String, String> params) throws TestRailStubException {
+		Set<Integer> suiteIds = suiteIds(project, params);
+		JsonArray jsonArray = new JsonArray();
+		for (JsonObject section : table("section").values()) {
+			if (suiteIds.contains(section.get("suite_id").getAsInt())) {
+				jsonArray.add(section);
+			}
+		}
+		return jsonArray;
+	}
+
+	private JsonObject addSection(JsonObject project, JsonObject body) throws TestRailStubException {
+		Integer suiteId = optionalId(body, "suite_id");
+		if (suiteId == null) {
+			List<JsonObject> suites = rows("suite", "project_id", project.get("id").getAsInt());
+			if (suites.size() != 1) {
+				throw new TestRailStubException(400, "Field :suite_id is a required field.");
+			}
+			suiteId = suites.get(0).get("id").getAsInt();
+		}
+		JsonObject suite = find("suite", suiteId);
+		if (suite.get("project_id").getAsInt() != project.get("id").getAsInt()) {
+			throw new TestRailStubException(400, "Field :suite_id is not a valid test suite.");
+		}
+		Integer parentId = optionalId(body, "parent_id");
+		int depth = parentId == null ? 0 : find("section", parentId).get("depth").getAsInt() + 1;
+
+		JsonObject section = named("name", required(body, "name"));
+		section.add("description", optional(body, "description"));
+		section.addProperty("suite_id", suiteId);
+		section.add("parent_id", optional(body, "parent_id"));
+		section.addProperty("depth", depth);
+		section.addProperty("display_order", rows("section", "suite_id", suiteId).size() + 1);
+		return insert("section", section);
+	}
+
+	private void deleteSection(JsonObject section) {
+		int sectionId = section.get("id").getAsInt();
+		for (JsonObject child : rows("section", "parent_id", sectionId)) {
+			deleteSection(child);
+		}
+		for (JsonObject testCase : rows("case", "section_id", sectionId)) {
+			deleteCase(testCase);
+		}
+		remove("section", section);
+	}
+
+	private JsonArray cases(JsonObject project, Map<String, String> params) throws TestRailStubException {
+		Set<Integer> suiteIds = suiteIds(project, params);
+		Integer sectionId = param(params, "section_id");
+		JsonArray jsonArray = new JsonArray();
+		for (JsonObject testCase : table("case").values()) {
+			if (suiteIds.contains(testCase.get("suite_id").getAsInt())
+					&& (sectionId == null || sectionId == testCase.get("section_id").getAsInt())) {
+				jsonArray.add(testCase);
+			}
+		}
+		return jsonArray;
+	}
+
+	private JsonObject addCase(JsonObject section, JsonObject body) throws TestRailStubException {
+		JsonObject testCase = named("title", required(body, "title"));
+		testCase.addProperty("section_id", section.get("id").getAsInt());
+		testCase.addProperty("suite_id", section.get("suite_id").getAsInt());
+		testCase.addProperty("template_id", 1);
+		testCase.addProperty("type_id", body.has("type_id") ? find("case_type", body.get("type_id").getAsInt()).get("id").getAsInt() : 7);
+		testCase.addProperty("priority_id", body.has("priority_id") ? body.get("priority_id").getAsInt() : 2);
+		testCase.add("milestone_id", optional(body, "milestone_id"));
+		testCase.add("refs", optional(body, "refs"));
+		testCase.add("estimate", optional(body, "estimate"));
+		testCase.addProperty("created_by", 1);
+		testCase.addProperty("created_on", now());
+		testCase.addProperty("updated_by", 1);
+		testCase.addProperty("updated_on", now());
+		for (Map.Entry<String, JsonElement> entry : body.entrySet()) {
+			if (entry.getKey().startsWith("custom_")) {
+				testCase.add(entry.getKey(), entry.getValue());
+			}
+		}
+		return insert("case", testCase);
+	}
+
+	private JsonObject updateCase(JsonObject testCase, JsonObject body) throws TestRailStubException {
+		if (body.has("type_id")) {
+			find("case_type", body.get("type_id").getAsInt());
+		}
+		for (Map.Entry<String, JsonElement> entry : body.entrySet()) {
+			if (!"id".equals(entry.getKey()) && !"suite_id".equals(entry.getKey())) {
+				testCase.add(entry.getKey(), entry.getValue());
+			}
+		}
+		testCase.addProperty("updated_on", now());
+		return testCase;
+	}
+
+	private void deleteCase(JsonObject testCase) {
+		int caseId = testCase.get("id").getAsInt();
+		for (JsonObject test : rows("test", "case_id", caseId)) {
+			deleteTest(test);
+		}
+		remove("case", testCase);
+	}
+
+	private JsonObject addMileStone(JsonObject project, JsonObject body) throws TestRailStubException {
+		JsonObject mileStone = named("name", required(body, "name"));
+		mileStone.add("description", optional(body, "description"));
+		mileStone.add("due_on", optional(body, "due_on"));
+		mileStone.add("start_on", optional(body, "start_on"));
+		mileStone.add("parent_id", optional(body, "parent_id"));
+		mileStone.addProperty("project_id", project.get("id").getAsInt());
+		mileStone.addProperty("is_completed", false);
+		mileStone.addProperty("is_started", false);
+		mileStone.add("completed_on", JsonNull.INSTANCE);
+		insert("milestone", mileStone);
+		mileStone.addProperty("url", baseUrl + "/index.php?/milestones/view/" + mileStone.get("id").getAsInt());
+		return mileStone;
+	}
+
+	private JsonObject addPlan(JsonObject project, JsonObject body) throws TestRailStubException {
+		JsonObject plan = named("name", required(body, "name"));
+		plan.add("description", optional(body, "description"));
+		plan.add("milestone_id", optional(body, "milestone_id"));
+		plan.addProperty("project_id", project.get("id").getAsInt());
+		plan.addProperty("is_completed", false);
+		plan.add("completed_on", JsonNull.INSTANCE);
+		plan.add("entries", new JsonArray());
+		insert("plan", plan);
+		plan.addProperty("url", baseUrl + "/index.php?/plans/view/" + plan.get("id").getAsInt());
+		return plan;
+	}
+
+	private JsonArray runs(JsonArray runs) {
+		for (JsonElement run : runs) {
+			counted(run.getAsJsonObject());
+		}
+		return runs;
+	}
+
+	/*
+	 * Tests are created for the suite's cases (include_all, the default) or for case_ids, the way
+	 * add_run snapshots the suite at creation time.
+	 */
+	private JsonObject addRun(JsonObject project, JsonObject body) throws TestRailStubException {
+		int projectId = project.get("id").getAsInt();
+		Integer suiteId = optionalId(body, "suite_id");
+		if (suiteId == null) {
+			List<JsonObject> suites = rows("suite", "project_id", projectId);
+			if (suites.size() != 1) {
+				throw new TestRailStubException(400, "Field :suite_id is a required field.");
+			}
+			suiteId = suites.get(0).get("id").getAsInt();
+		}
+		if (find("suite", suiteId).get("project_id").getAsInt() != projectId) {
+			throw new TestRailStubException(400, "Field :suite_id is not a valid test suite.");
+		}
+		Integer mileStoneId = optionalId(body, "milestone_id");
+		if (mileStoneId != null) {
+			find("milestone", mileStoneId);
+		}
+		boolean includeAll = !body.has("include_all") || body.get("include_all").getAsBoolean();
+		List<JsonObject> cases = new ArrayList<>();
+		if (includeAll) {
+			cases.addAll(rows("case", "suite_id", suiteId));
+		} else if (body.has("case_ids") && body.get("case_ids").isJsonArray()) {
+			for (JsonElement caseId : body.getAsJsonArray("case_ids")) {
+				JsonObject testCase = find("case", caseId.getAsInt());
+				if (testCase.get("suite_id").getAsInt() != suiteId) {
+					throw new TestRailStubException(400, "Field :case_ids contains an invalid case: " + caseId);
+				}
+				cases.add(testCase);
+			}
+		}
+
+		JsonObject run = named("name", required(body, "name"));
+		run.add("description", optional(body, "description"));
+		run.addProperty("suite_id", suiteId);
+		run.add("milestone_id", optional(body, "milestone_id"));
+		run.add("assignedto_id", optional(body, "assignedto_id"));
+		run.addProperty("include_all", includeAll);
+		run.addProperty("project_id", projectId);
+		run.add("plan_id", JsonNull.INSTANCE);
+		run.addProperty("is_completed", false);
+		run.add("completed_on", JsonNull.INSTANCE);
+		run.addProperty("created_on", now());
+		insert("run", run);
+		int runId = run.get("id").getAsInt();
+		run.addProperty("url", baseUrl + "/index.php?/runs/view/" + runId);
+
+		for (JsonObject testCase : cases) {
+			JsonObject test = named("title", testCase.get("title").getAsString());
+			test.addProperty("case_id", testCase.get("id").getAsInt());
+			test.addProperty("run_id", runId);
+			test.addProperty("status_id", UNTESTED);
+			test.add("assignedto_id", optional(body, "assignedto_id"));
+			test.add("type_id", testCase.get("type_id"));
+			test.add("priority_id", testCase.get("priority_id"));
+			test.add("refs", testCase.get("refs"));
+			insert("test", test);
+		}
+		return run;
+	}
+
+	private void deleteRun(JsonObject run) {
+		for (JsonObject test : rows("test", "run_id", run.get("id").getAsInt())) {
+			deleteTest(test);
+		}
+		remove("run", run);
+	}
+
+	private void deleteTest(JsonObject test) {
+		for (JsonObject result : rows("result", "test_id", test.get("id").getAsInt())) {
+			remove("result", result);
+		}
+		remove("test", test);
+	}
+
+	/*
+	 * the per status counters are derived from the run's tests whenever a run is read
+	 */
+	private JsonObject counted(JsonObject run) {
+		int[] counts = new int[STATUS_COUNTS.length];
+		for (JsonObject test : rows("test", "run_id", run.get("id").getAsInt())) {
+			int statusId = test.get("status_id").getAsInt();
+			if (statusId > 0 && statusId < counts.length) {
+				counts[statusId]++;
+			}
+		}
+		for (int statusId = 1; statusId < counts.length; statusId++) {
+			run.addProperty(STATUS_COUNTS[statusId], counts[statusId]);
+		}
+		return run;
+	}
+
+	private JsonObject userByEmail(String email) throws TestRailStubException {
+		if (email == null) {
+			throw new TestRailStubException(400, "Field :email is a required field.");
+		}
+		for (JsonObject user : table("user").values()) {
+			if (email.equalsIgnoreCase(user.get("email").getAsString())) {
+				return user;
+			}
+		}
+		throw new TestRailStubException(400, "Field :email is not a valid user.");
+	}
+
+	private JsonObject testFor(JsonObject run, int caseId) throws TestRailStubException {
+		for (JsonObject test : rows("test", "run_id", run.get("id").getAsInt())) {
+			if (test.get("case_id").getAsInt() == caseId) {
+				return test;
+			}
+		}
+		throw new TestRailStubException(400, "No (active) test found for the run/case combination.");
+	}
+
+	/*
+	 * all or nothing, like TestRail one bad entry rejects the whole request
+	 */
+	private JsonArray addResults(JsonObject run, JsonObject body, String key) throws TestRailStubException {
+		if (!body.has("results") || !body.get("results").isJsonArray()) {
+			throw new TestRailStubException(400, "Field :results is a required field.");
+		}
+		List<JsonObject> tests = new ArrayList<>();
+		List<JsonObject> entries = new ArrayList<>();
+		for (JsonElement element : body.getAsJsonArray("results")) {
+			JsonObject entry = element.getAsJsonObject();
+			Integer id = optionalId(entry, key);
+			if (id == null) {
+				throw new TestRailStubException(400, "Field :results." + key + " is a required field.");
+			}
+			JsonObject test;
+			if ("test_id".equals(key)) {
+				test = find("test", id);
+				if (test.get("run_id").getAsInt() != run.get("id").getAsInt()) {
+					throw new TestRailStubException(400, "Field :results.test_id is not part of the run.");
+				}
+			} else {
+				test = testFor(run, id);
+			}
+			validateResult(entry);
+			tests.add(test);
+			entries.add(entry);
+		}
+		JsonArray jsonArray = new JsonArray();
+		for (int i = 0; i < tests.size(); i++) {
+			jsonArray.add(addResult(tests.get(i), entries.get(i)));
+		}
+		return jsonArray;
+	}
+
+	private void validateResult(JsonObject body) throws TestRailStubException {
+		Integer statusId = optionalId(body, "status_id");
+		if (statusId == null) {
+			return;
+		}
+		if (statusId == UNTESTED) {
+			throw new TestRailStubException(400, "Field :status_id uses an invalid status (Untested).");
+		}
+		if (statusId < PASSED || statusId >= STATUS_COUNTS.length) {
+			throw new TestRailStubException(400, "Field :status_id is not a valid status.");
+		}
+	}
+
+	private JsonObject addResult(JsonObject test, JsonObject body) {
+		JsonObject result = new JsonObject();
+		result.addProperty("test_id", test.get("id").getAsInt());
+		result.add("status_id", optional(body, "status_id"));
+		result.add("comment", optional(body, "comment"));
+		result.add("version", optional(body, "version"));
+		result.add("elapsed", optional(body, "elapsed"));
+		result.add("defects", optional(body, "defects"));
+		result.add("assignedto_id", optional(body, "assignedto_id"));
+		result.addProperty("created_by", 1);
+		result.addProperty("created_on", now());
+		for (Map.Entry<String, JsonElement> entry : body.entrySet()) {
+			if (entry.getKey().startsWith("custom_")) {
+				result.add(entry.getKey(), entry.getValue());
+			}
+		}
+		if (!result.get("status_id").isJsonNull()) {
+			test.add("status_id", result.get("status_id"));
+		}
+		if (!result.get("assignedto_id").isJsonNull()) {
+			test.add("assignedto_id", result.get("assignedto_id"));
+		}
+		return insert("result", result);
+	}
+
+	/*
+	 * the project's suites, narrowed to suite_id when given
+	 */
+	private Set<Integer> suiteIds(JsonObject project, Map<String, String> params) throws TestRailStubException {
+		Integer suiteId = param(params, "suite_id");
+		Set<Integer> suiteIds = new HashSet<>();
+		for (JsonObject suite : rows("suite", "project_id", project.get("id").getAsInt())) {
+			suiteIds.add(suite.get("id").getAsInt());
+		}
+		if (suiteId != null) {
+			if (!suiteIds.contains(suiteId)) {
+				throw new TestRailStubException(400, "Field :suite_id is not a valid test suite.");
+			}
+			suiteIds.retainAll(Collections.singleton(suiteId));
+		}
+		return suiteIds;
+	}
+
+	private TreeMap<Integer, JsonObject> table(String kind) {
+		return tables.computeIfAbsent(kind, k -> new TreeMap<>());
+	}
+
+	private JsonObject insert(String kind, JsonObject jsonObject) {
+		int id = lastIds.merge(kind, 1, Integer::sum);
+		jsonObject.addProperty("id", id);
+		table(kind).put(id, jsonObject);
+		return jsonObject;
+	}
+
+	private void remove(String kind, JsonObject jsonObject) {
+		table(kind).remove(jsonObject.get("id").getAsInt());
+	}
+
+	private JsonObject find(String kind, int id) throws TestRailStubException {
+		JsonObject jsonObject = table(kind).get(id);
+		if (jsonObject == null) {
+			throw new TestRailStubException(400, "Field :" + kind + "_id is not a valid or accessible " + kind.replace('_', ' ') + ".");
+		}
+		return jsonObject;
+	}
+
+	private JsonArray list(String kind, String key, Integer value) {
+		JsonArray jsonArray = new JsonArray();
+		for (JsonObject jsonObject : table(kind).values()) {
+			if (key == null || matches(jsonObject, key, value)) {
+				jsonArray.add(jsonObject);
+			}
+		}
+		return jsonArray;
+	}
+
+	/*
+	 * a snapshot, safe to delete from while iterating
+	 */
+	private List<JsonObject> rows(String kind, String key, int value) {
+		List<JsonObject> rows = new ArrayList<>();
+		for (JsonObject jsonObject : table(kind).values()) {
+			if (matches(jsonObject, key, value)) {
+				rows.add(jsonObject);
+			}
+		}
+		return rows;
+	}
+
+	private static boolean matches(JsonObject jsonObject, String key, Integer value) {
+		JsonElement element = jsonObject.get(key);
+		return element != null && !element.isJsonNull() && element.getAsInt() == value;
+	}
+
+	private static int arg(List<Integer> ids, int index, String name) throws TestRailStubException {
+		if (ids.size() <= index) {
+			throw new TestRailStubException(400, "Field :" + name + " is a required field.");
+		}
+		return ids.get(index);
+	}
+
+	private static Integer param(Map<String, String> params, String name) throws TestRailStubException {
+		String value = params.get(name);
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		try {
+			return Integer.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new TestRailStubException(400, "Field :" + name + " is not a valid integer.");
+		}
+	}
+
+	private static String required(JsonObject body, String name) throws TestRailStubException {
+		JsonElement element = body.get(name);
+		if (element == null || element.isJsonNull() || element.getAsString().isEmpty()) {
+			throw new TestRailStubException(400, "Field :" + name + " is a required field.");
+		}
+		return element.getAsString();
+	}
+
+	private static JsonElement optional(JsonObject body, String name) {
+		JsonElement element = body.get(name);
+		return element == null ? JsonNull.INSTANCE : element;
+	}
+
+	private static Integer optionalId(JsonObject body, String name) throws TestRailStubException {
+		JsonElement element = body.get(name);
+		if (element == null || element.isJsonNull()) {
+			return null;
+		}
+		try {
+			return element.getAsInt();
+		} catch (NumberFormatException | UnsupportedOperationException | IllegalStateException e) {
+			throw new TestRailStubException(400, "Field :" + name + " is not a valid integer.");
+		}
+	}
+
+	private static JsonObject named(String key, String name) {
+		JsonObject jsonObject = new JsonObject();
+		jsonObject.addProperty(key, name);
+		return jsonObject;
+	}
+
+	private static long now() {
+		return System.currentTimeMillis() / 1000;
+	}
+}
@@ -63,6 +63,7 @@ public class Results {
     private TEST_STATUS status = null;
     private Boolean failOnError = null;
     private boolean update = false;
+    private volatile Long journalSeq = null;
     
     
     public static Builder builder(TestRailServices testRailServices, String projectName){
@@ -247,7 +248,7 @@ public class Results {
         if(testCaseId==null){
         	testCaseId = testRailServices.getTestCaseIdByName(projectId, suiteId, sectionId, testCaseName, true);
         }
-        if(assignedToId==null){
+        if(assignedToId==null && assignedToName!=null && !assignedToName.equals(TestRailConstants.ASSIGNED_TO_DEFAULT)){
             assignedToId = testRailServices.getUserIdByName(assignedToName, true);
         }
    }
@@ -332,6 +333,17 @@ public class Results {
         return failOnError;
     }
 
+    /*
+     * sequence number in the TestRailJournal, null if not journaled
+     */
+    public Long getJournalSeq() {
+        return journalSeq;
+    }
+
+    void setJournalSeq(Long journalSeq) {
+        this.journalSeq = journalSeq;
+    }
+
 
     /*status_id int The ID of the test status. The built-in system statuses have the following IDs:
     1   Passed
@@ -369,6 +381,31 @@ public class Results {
             return jsonObjectBuilder.build().toString();
     }
     
+    /*
+     * one element of an add_results_for_cases "results" array, update() first if testCaseId was not given
+     */
+    public JsonObject toResultForCase() {
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("case_id", testCaseId);
+        jsonObject.addProperty("status_id", status.getValue());
+        if(comment!=null){
+            jsonObject.addProperty("comment", comment);
+        }
+        if(version!=null){
+            jsonObject.addProperty("version", version);
+        }
+        if(elapsed!=null){
+            jsonObject.addProperty("elapsed", elapsed);
+        }
+        if(defects!=null){
+            jsonObject.addProperty("defects", defects);
+        }
+        if(assignedToId!=null){
+            jsonObject.addProperty("assignedto_id", assignedToId);
+        }
+        return jsonObject;
+    }
+
     public JsonObject addResultForCase() throws IOException, ParseException, TestRailConfigException{
         return  testRailServices.addResultForCase(runId, testCaseId, toJson());
     }
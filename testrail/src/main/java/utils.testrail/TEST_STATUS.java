@@ -30,4 +30,16 @@ public enum TEST_STATUS {
     public int getValue() {
         return value;
     }
+
+    /*
+     * status for a TestRail status_id, null for custom statuses
+     */
+    public static TEST_STATUS fromValue(int value) {
+        for (TEST_STATUS status : values()) {
+            if (status.value == value) {
+                return status;
+            }
+        }
+        return null;
+    }
 }
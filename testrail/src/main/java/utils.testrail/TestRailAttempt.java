@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+
+/*
+ * Timing of one send of a request: how long the server took and how long we then slept before retrying
+ */
+public class TestRailAttempt {
+	private final int attempt;
+	private final int statusCode;
+	private final long elapsedMs;
+	private final long sleptMs;
+
+
+	public TestRailAttempt(int attempt, int statusCode, long elapsedMs, long sleptMs) {
+		this.attempt = attempt;
+		this.statusCode = statusCode;
+		this.elapsedMs = elapsedMs;
+		this.sleptMs = sleptMs;
+	}
+
+	public int getAttempt() {
+		return attempt;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public long getElapsedMs() {
+		return elapsedMs;
+	}
+
+	public long getSleptMs() {
+		return sleptMs;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + attempt + " " + statusCode + " " + elapsedMs + "ms" + (sleptMs > 0 ? " slept " + sleptMs + "ms" : "");
+	}
+}
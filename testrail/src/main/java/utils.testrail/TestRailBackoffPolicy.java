@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.client.utils.DateUtils;
+
+
+/*
+ * Decides how long to wait before re-sending a throttled request.
+ *
+ * The server's Retry-After header (delta seconds or an http date) wins when present, otherwise the
+ * delay grows as baseDelay * 2^attempt capped at maxDelay, with up to jitter * delay randomly taken
+ * off so parallel workers throttled together do not come back together. No retry is scheduled past
+ * maxRetries or past the deadline measured from the first send.
+ */
+public class TestRailBackoffPolicy {
+	public static final long GIVE_UP = -1;
+	private final int maxRetries;
+	private final long baseDelayMs;
+	private final long maxDelayMs;
+	private final long deadlineMs;
+	private final double jitter;
+
+
+	public static Builder builder(){
+		return new Builder();
+	}
+
+
+	public static class Builder {
+		private int maxRetries = TestRailConstants.RETRY_DEFAULT;
+		private long baseDelayMs = TestRailConstants.RETRY_BASE_DELAY_DEFAULT;
+		private long maxDelayMs = TestRailConstants.RETRY_SLEEP_DEFAULT;
+		private long deadlineMs = TestRailConstants.RETRY_DEADLINE_DEFAULT;
+		private double jitter = TestRailConstants.RETRY_JITTER_DEFAULT;
+
+
+		private Builder() {
+		}
+
+		public Builder maxRetries(Integer maxRetries) {
+			if (maxRetries != null) {
+				this.maxRetries = maxRetries;
+			}
+			return this;
+		}
+
+		public Builder baseDelayMs(Long baseDelayMs) {
+			if (baseDelayMs != null) {
+				this.baseDelayMs = baseDelayMs;
+			}
+			return this;
+		}
+
+		public Builder maxDelayMs(Long maxDelayMs) {
+			if (maxDelayMs != null) {
+				this.maxDelayMs = maxDelayMs;
+			}
+			return this;
+		}
+
+		public Builder deadlineMs(Long deadlineMs) {
+			if (deadlineMs != null) {
+				this.deadlineMs = deadlineMs;
+			}
+			return this;
+		}
+
+		/*
+		 * 0 = no jitter, 1 = full jitter (anywhere between 0 and the exponential delay)
+		 */
+		public Builder jitter(Double jitter) {
+			if (jitter != null) {
+				this.jitter = Math.max(0, Math.min(1, jitter));
+			}
+			return this;
+		}
+
+		public TestRailBackoffPolicy build() {
+			return new TestRailBackoffPolicy(this);
+		}
+	}
+
+	private TestRailBackoffPolicy(Builder builder) {
+		this.maxRetries = builder.maxRetries;
+		this.baseDelayMs = builder.baseDelayMs;
+		this.maxDelayMs = Math.max(builder.maxDelayMs, builder.baseDelayMs);
+		this.deadlineMs = builder.deadlineMs;
+		this.jitter = builder.jitter;
+	}
+
+	/*
+	 * attempt is the number of the send that was just throttled, starting at 0
+	 * returns the ms to sleep before the next send or GIVE_UP
+	 */
+	public long nextDelayMs(int attempt, String retryAfter, long elapsedMs) {
+		if (attempt >= maxRetries) {
+			return GIVE_UP;
+		}
+		long remainingMs = deadlineMs - elapsedMs;
+		long delayMs;
+		long retryAfterMs = parseRetryAfter(retryAfter, System.currentTimeMillis());
+		if (retryAfterMs >= 0) {
+			delayMs = retryAfterMs;
+		} else {
+			long exponential = attempt >= 62 ? maxDelayMs : Math.min(maxDelayMs, baseDelayMs << Math.min(attempt, 30));
+			delayMs = exponential - (long) (exponential * jitter * ThreadLocalRandom.current().nextDouble());
+		}
+		//the server said not before, so if that is past the deadline there is no point waiting
+		if (delayMs > remainingMs) {
+			return GIVE_UP;
+		}
+		return delayMs;
+	}
+
+	/*
+	 * Retry-After: 120 or Retry-After: Fri, 31 Dec 1999 23:59:59 GMT, -1 when absent or unreadable
+	 */
+	static long parseRetryAfter(String retryAfter, long nowMs) {
+		if (retryAfter == null || retryAfter.trim().isEmpty()) {
+			return -1;
+		}
+		String value = retryAfter.trim();
+		try {
+			return Math.max(0, Long.parseLong(value) * 1000);
+		} catch (NumberFormatException e) {
+			Date date = DateUtils.parseDate(value);
+			return date == null ? -1 : Math.max(0, date.getTime() - nowMs);
+		}
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public long getBaseDelayMs() {
+		return baseDelayMs;
+	}
+
+	public long getMaxDelayMs() {
+		return maxDelayMs;
+	}
+
+	public long getDeadlineMs() {
+		return deadlineMs;
+	}
+
+	public double getJitter() {
+		return jitter;
+	}
+
+	@Override
+	public String toString() {
+		return "maxRetries=" + maxRetries + " baseDelayMs=" + baseDelayMs + " maxDelayMs=" + maxDelayMs
+				+ " deadlineMs=" + deadlineMs + " jitter=" + jitter;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/*
+ * Outcome of one add_results_for_cases call made by TestRailResultPublisher
+ */
+public class TestRailBatchResult {
+	private final int index;
+	private final List<Results> results;
+	private final IOException error;
+	private final long elapsedMs;
+
+
+	TestRailBatchResult(int index, List<Results> results, IOException error, long elapsedMs) {
+		this.index = index;
+		this.results = Collections.unmodifiableList(new ArrayList<>(results));
+		this.error = error;
+		this.elapsedMs = elapsedMs;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	/*
+	 * what the batch carried, e.g. to publish a failed batch again
+	 */
+	public List<Results> getResults() {
+		return results;
+	}
+
+	public List<Integer> getCaseIds() {
+		List<Integer> caseIds = new ArrayList<>(results.size());
+		for (Results result : results) {
+			caseIds.add(result.getTestCaseId());
+		}
+		return caseIds;
+	}
+
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	/*
+	 * null for a successful batch, the last failure (after retries) otherwise
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	public long getElapsedMs() {
+		return elapsedMs;
+	}
+
+	@Override
+	public String toString() {
+		return "batch " + index + " (" + results.size() + " results, " + elapsedMs + "ms) "
+				+ (error == null ? "ok" : "failed: " + error.getMessage());
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+
+/*
+ * Immutable test case record bound from get_case / get_cases.
+ *
+ * Only the ids and title are kept; custom_* fields, steps and expected results, usually the bulk
+ * of a get_cases page, are skipped on the stream and never materialised. 0 stands in for a null id.
+ */
+public final class TestRailCase {
+	public static final TestRailCodec<TestRailCase> CODEC = TestRailCase::read;
+
+	private final int id;
+	private final int sectionId;
+	private final int suiteId;
+	private final int templateId;
+	private final int typeId;
+	private final int priorityId;
+	private final int milestoneId;
+	private final String title;
+	private final String refs;
+	private final long updatedOn;
+
+
+	private TestRailCase(int id, int sectionId, int suiteId, int templateId, int typeId, int priorityId, int milestoneId,
+			String title, String refs, long updatedOn) {
+		this.id = id;
+		this.sectionId = sectionId;
+		this.suiteId = suiteId;
+		this.templateId = templateId;
+		this.typeId = typeId;
+		this.priorityId = priorityId;
+		this.milestoneId = milestoneId;
+		this.title = title;
+		this.refs = refs;
+		this.updatedOn = updatedOn;
+	}
+
+	public static TestRailCase read(JsonReader reader) throws IOException {
+		int id = 0;
+		int sectionId = 0;
+		int suiteId = 0;
+		int templateId = 0;
+		int typeId = 0;
+		int priorityId = 0;
+		int milestoneId = 0;
+		String title = null;
+		String refs = null;
+		long updatedOn = 0;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = TestRailCodec.nextInt(reader);
+				break;
+			case "section_id":
+				sectionId = TestRailCodec.nextInt(reader);
+				break;
+			case "suite_id":
+				suiteId = TestRailCodec.nextInt(reader);
+				break;
+			case "template_id":
+				templateId = TestRailCodec.nextInt(reader);
+				break;
+			case "type_id":
+				typeId = TestRailCodec.nextInt(reader);
+				break;
+			case "priority_id":
+				priorityId = TestRailCodec.nextInt(reader);
+				break;
+			case "milestone_id":
+				milestoneId = TestRailCodec.nextInt(reader);
+				break;
+			case "title":
+				title = TestRailCodec.nextString(reader);
+				break;
+			case "refs":
+				refs = TestRailCodec.nextString(reader);
+				break;
+			case "updated_on":
+				updatedOn = TestRailCodec.nextLong(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return new TestRailCase(id, sectionId, suiteId, templateId, typeId, priorityId, milestoneId, title, refs, updatedOn);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getSectionId() {
+		return sectionId;
+	}
+
+	public int getSuiteId() {
+		return suiteId;
+	}
+
+	public int getTemplateId() {
+		return templateId;
+	}
+
+	public int getTypeId() {
+		return typeId;
+	}
+
+	public int getPriorityId() {
+		return priorityId;
+	}
+
+	public int getMilestoneId() {
+		return milestoneId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getRefs() {
+		return refs;
+	}
+
+	public long getUpdatedOn() {
+		return updatedOn;
+	}
+
+	@Override
+	public String toString() {
+		return "Case[" + id + " " + title + "]";
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+/*
+ * Binds one value straight off a response stream, no intermediate Gson tree is built.
+ *
+ * Implementations read exactly one json value and leave the reader positioned after it. The static
+ * helpers map TestRail's nulls onto compact defaults: 0 for ids, counts and timestamps, false for
+ * flags, and null for strings (which are otherwise interned, names repeat across thousands of
+ * cases and tests).
+ */
+@FunctionalInterface
+public interface TestRailCodec<T> {
+
+	T read(JsonReader reader) throws IOException;
+
+
+	static int nextInt(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return 0;
+		}
+		return reader.nextInt();
+	}
+
+	static long nextLong(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return 0;
+		}
+		return reader.nextLong();
+	}
+
+	static boolean nextBoolean(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return false;
+		}
+		return reader.nextBoolean();
+	}
+
+	static String nextString(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+		return reader.nextString().intern();
+	}
+}
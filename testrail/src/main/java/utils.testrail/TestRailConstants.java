@@ -23,6 +23,37 @@ public class TestRailConstants {
 	public static final String 	ASSIGNED_TO_DEFAULT = "Not Assigned";
 	public static final Integer RETRY_DEFAULT = 6;
 	public static final Integer RETRY_SLEEP_DEFAULT = 30000;
+	public static final Long 	RETRY_BASE_DELAY_DEFAULT = 1000L;
+	public static final Long 	RETRY_DEADLINE_DEFAULT = 120000L;
+	public static final Double 	RETRY_JITTER_DEFAULT = 0.5;
+	public static final Integer READS_PER_MINUTE_DEFAULT = 0;
+	public static final Integer WRITES_PER_MINUTE_DEFAULT = 0;
+	public static final Integer RATE_LIMIT_BURST_DEFAULT = 5;
+	public static final Long 	CACHE_TTL_MS_DEFAULT = 300000L;
+	public static final Integer CACHE_MAX_SCOPES_DEFAULT = 1024;
+	public static final Boolean PAGE_PREFETCH_DEFAULT = false;
+	public static final Integer PUBLISH_BATCH_SIZE_DEFAULT = 100;
+	public static final Integer PUBLISH_PARALLELISM_DEFAULT = 4;
+	public static final Boolean PUBLISH_STREAMING_DEFAULT = false;
+	public static final Long 	PUBLISH_FLUSH_INTERVAL_DEFAULT = 5000L;
+	public static final Integer PUBLISH_QUEUE_CAPACITY_DEFAULT = 10000;
+	public static final Long 	PUBLISH_SHUTDOWN_TIMEOUT_DEFAULT = 300000L;
+	public static final Long 	JOURNAL_SYNC_INTERVAL_DEFAULT = 1000L;
+	public static final Integer JOURNAL_SYNC_EVERY_DEFAULT = 100;
+	public static final Integer JOURNAL_COMPACT_THRESHOLD_DEFAULT = 10000;
+	public static final Long 	METRICS_INTERVAL_DEFAULT = 60000L;
+	public static final Boolean METRICS_JMX_DEFAULT = true;
+	public static final Integer ASYNC_THREADS_DEFAULT = 16;
+	public static final Integer ASYNC_QUEUE_CAPACITY_DEFAULT = 4096;
+	public static final Long 	ASYNC_SHUTDOWN_TIMEOUT_DEFAULT = 300000L;
+	public static final Integer MAX_TOTAL_CONNECTIONS_DEFAULT = 64;
+	public static final Integer MAX_CONNECTIONS_PER_ROUTE_DEFAULT = 48;
+	public static final Long 	KEEP_ALIVE_MS_DEFAULT = 60000L;
+	public static final Long 	IDLE_EVICT_MS_DEFAULT = 30000L;
+	public static final Integer VALIDATE_AFTER_INACTIVITY_MS_DEFAULT = 2000;
+	public static final Integer CONNECT_TIMEOUT_DEFAULT = 30000;
+	public static final Integer SOCKET_TIMEOUT_DEFAULT = 30000;
+	public static final Integer CONNECTION_REQUEST_TIMEOUT_DEFAULT = 30000;
 	public static final String  CSV_FILE_PATH = "results.csv";
 	public static final String  CSV_FILE_HEADDER = "Project," + "version," + "MileStone," + "Run," + "Suite Name," + "Section Name," + "TestCase Title," + "Focus," + "Assigned To," + "Status," + "Comments";
 	public static final String  VERSION = "Version not assigned";
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/*
+ * Counters and latency histograms for one api endpoint (get_cases, add_results_for_cases, ...),
+ * fed by TestRailMetricsInterceptor. Histograms hold microseconds.
+ */
+public class TestRailEndpointMetrics implements TestRailEndpointMetricsMXBean {
+	private static final int TOO_MANY_REQUESTS = 429;
+	private static final int SERVICE_UNAVAILABLE = 503;
+	private final String endpoint;
+	private final LongAdder callCnt = new LongAdder();
+	private final LongAdder errorCnt = new LongAdder();
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder retryCnt = new LongAdder();
+	private final LongAdder throttledCnt = new LongAdder();
+	private final LongAdder retrySleepMs = new LongAdder();
+	private final TestRailHistogram latency = new TestRailHistogram();
+	private final TestRailHistogram wire = new TestRailHistogram();
+	private final TestRailHistogram poolWait = new TestRailHistogram();
+
+
+	TestRailEndpointMetrics(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/*
+	 * a call that got an answer, any status
+	 */
+	void record(TestRailResponse response, long elapsedNanos, long poolWaitNanos, long requestBytes) {
+		callCnt.increment();
+		if (!response.isSuccessful()) {
+			errorCnt.increment();
+		}
+		bytesIn.add(response.getBytesIn());
+		bytesOut.add(requestBytes * Math.max(1, response.getAttempts().size()));
+		wire.record(TimeUnit.NANOSECONDS.toMicros(response.getElapsedNanos()));
+		recordCommon(response.getAttempts(), elapsedNanos, poolWaitNanos);
+	}
+
+	/*
+	 * a call that threw, attempts are known when it ran out of retries
+	 */
+	void recordFailure(List<TestRailAttempt> attempts, long elapsedNanos, long poolWaitNanos, long requestBytes) {
+		callCnt.increment();
+		errorCnt.increment();
+		bytesOut.add(requestBytes * Math.max(1, attempts.size()));
+		recordCommon(attempts, elapsedNanos, poolWaitNanos);
+	}
+
+	private void recordCommon(List<TestRailAttempt> attempts, long elapsedNanos, long poolWaitNanos) {
+		latency.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+		poolWait.record(TimeUnit.NANOSECONDS.toMicros(poolWaitNanos));
+		if (attempts.size() > 1) {
+			retryCnt.add(attempts.size() - 1);
+		}
+		for (TestRailAttempt attempt : attempts) {
+			if (attempt.getStatusCode() == TOO_MANY_REQUESTS || attempt.getStatusCode() == SERVICE_UNAVAILABLE) {
+				throttledCnt.increment();
+			}
+			retrySleepMs.add(attempt.getSleptMs());
+		}
+	}
+
+	@Override
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	@Override
+	public long getCallCnt() {
+		return callCnt.sum();
+	}
+
+	@Override
+	public long getErrorCnt() {
+		return errorCnt.sum();
+	}
+
+	@Override
+	public long getBytesIn() {
+		return bytesIn.sum();
+	}
+
+	@Override
+	public long getBytesOut() {
+		return bytesOut.sum();
+	}
+
+	@Override
+	public long getRetryCnt() {
+		return retryCnt.sum();
+	}
+
+	/*
+	 * 429 and 503 answers, each one retried or given up on
+	 */
+	@Override
+	public long getThrottledCnt() {
+		return throttledCnt.sum();
+	}
+
+	@Override
+	public long getRetrySleepMs() {
+		return retrySleepMs.sum();
+	}
+
+	public TestRailHistogram getLatency() {
+		return latency;
+	}
+
+	public TestRailHistogram getWire() {
+		return wire;
+	}
+
+	public TestRailHistogram getPoolWait() {
+		return poolWait;
+	}
+
+	@Override
+	public double getLatencyMeanMs() {
+		return latency.getMean() / 1000;
+	}
+
+	@Override
+	public double getLatencyP50Ms() {
+		return ms(latency, 50);
+	}
+
+	@Override
+	public double getLatencyP90Ms() {
+		return ms(latency, 90);
+	}
+
+	@Override
+	public double getLatencyP99Ms() {
+		return ms(latency, 99);
+	}
+
+	@Override
+	public double getLatencyP999Ms() {
+		return ms(latency, 99.9);
+	}
+
+	@Override
+	public double getLatencyMaxMs() {
+		return latency.getMax() / 1000.0;
+	}
+
+	@Override
+	public double getWireP50Ms() {
+		return ms(wire, 50);
+	}
+
+	@Override
+	public double getWireP99Ms() {
+		return ms(wire, 99);
+	}
+
+	@Override
+	public double getPoolWaitP50Ms() {
+		return ms(poolWait, 50);
+	}
+
+	@Override
+	public double getPoolWaitP99Ms() {
+		return ms(poolWait, 99);
+	}
+
+	@Override
+	public double getPoolWaitMaxMs() {
+		return poolWait.getMax() / 1000.0;
+	}
+
+	private static double ms(TestRailHistogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+	@Override
+	public void reset() {
+		callCnt.reset();
+		errorCnt.reset();
+		bytesIn.reset();
+		bytesOut.reset();
+		retryCnt.reset();
+		throttledCnt.reset();
+		retrySleepMs.reset();
+		latency.reset();
+		wire.reset();
+		poolWait.reset();
+	}
+
+	/*
+	 * one line summary for the periodic metrics log
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s calls=%d errors=%d latency p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms"
+				+ " wire p50=%.1fms p99=%.1fms pool p99=%.1fms retries=%d throttled=%d slept=%dms in=%dB out=%dB",
+				endpoint, getCallCnt(), getErrorCnt(), getLatencyP50Ms(), getLatencyP90Ms(), getLatencyP99Ms(),
+				getLatencyMaxMs(), getWireP50Ms(), getWireP99Ms(), getPoolWaitP99Ms(), getRetryCnt(),
+				getThrottledCnt(), getRetrySleepMs(), getBytesIn(), getBytesOut());
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail;
+
+
+/*
+ * JMX view of one endpoint's TestRailEndpointMetrics, times in milliseconds.
+ *
+ * Latency is the whole call as the caller saw it, wire is the final send (TestRail plus the
+ * network), pool wait is the time spent waiting to lease a connection and retry sleep is the
+ * time spent backing off after 429/503 answers. Latency minus the other three is client time.
+ */
+public interface TestRailEndpointMetricsMXBean {
+
+	String getEndpoint();
+
+	long getCallCnt();
+
+	long getErrorCnt();
+
+	long getBytesIn();
+
+	long getBytesOut();
+
+	long getRetryCnt();
+
+	long getThrottledCnt();
+
+	long getRetrySleepMs();
+
+	double getLatencyMeanMs();
+
+	double getLatencyP50Ms();
+
+	double getLatencyP90Ms();
+
+	double getLatencyP99Ms();
+
+	double getLatencyP999Ms();
+
+	double getLatencyMaxMs();
+
+	double getWireP50Ms();
+
+	double getWireP99Ms();
+
+	double getPoolWaitP50Ms();
+
+	double getPoolWaitP99Ms();
+
+	double getPoolWaitMaxMs();
+
+	void reset();
+}
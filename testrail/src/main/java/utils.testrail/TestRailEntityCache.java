@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+
+/*
+ * name -> id maps for one TestRailServices instance, one map per scope, e.g.
+ *
+ * 	projects						get_projects
+ * 	runs/<projectId>				get_runs/<projectId>
+ * 	sections/<projectId>/<suiteId>	get_sections/<projectId>&suite_id=<suiteId>
+ * 	cases/<projectId>/<suiteId>/<sectionId>
+ *
+ * A scope is filled from a single list call the first time any name in it is asked for, later
+ * lookups are map hits until the scope is older than the ttl or gets pushed out as least recently
+ * used once maxScopes is exceeded. Threads asking for a scope that is still loading wait for that
+ * load instead of issuing their own. Our own add_* / update_* / delete_* calls invalidate the
+ * scopes they can change (see invalidate(TestRailRequest)).
+ */
+public class TestRailEntityCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private final long ttlNanos;
+	private final int maxScopes;
+	private final LinkedHashMap<String, Scope> scopes;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+
+	@FunctionalInterface
+	public interface Loader {
+		Map<String, List<Integer>> load() throws IOException;
+	}
+
+
+	private static class Scope {
+		private final CompletableFuture<Map<String, List<Integer>>> ids = new CompletableFuture<>();
+		private final long loadedNanos = System.nanoTime();
+	}
+
+
+	/*
+	 * ttlMs <= 0 turns caching off, every lookup loads
+	 */
+	public TestRailEntityCache(long ttlMs, int maxScopes) {
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+		this.maxScopes = Math.max(1, maxScopes);
+		this.scopes = new LinkedHashMap<String, Scope>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Scope> eldest) {
+				if (size() > TestRailEntityCache.this.maxScopes) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/*
+	 * ids of every entity called name in scope, empty when there is none
+	 */
+	public List<Integer> getIds(String scope, String name, Loader loader) throws IOException {
+		if (ttlNanos <= 0) {
+			misses.incrementAndGet();
+			return lookup(loader.load(), name);
+		}
+		Scope entry;
+		boolean owner = false;
+		synchronized (scopes) {
+			entry = scopes.get(scope);
+			if (entry == null || System.nanoTime() - entry.loadedNanos > ttlNanos) {
+				entry = new Scope();
+				scopes.put(scope, entry);
+				owner = true;
+			}
+		}
+
+		if (owner) {
+			misses.incrementAndGet();
+			try {
+				Map<String, List<Integer>> ids = loader.load();
+				LOGGER.debug("cached {} names for {}", ids.size(), scope);
+				entry.ids.complete(ids);
+			} catch (IOException | RuntimeException e) {
+				remove(scope, entry);
+				entry.ids.completeExceptionally(e);
+				throw e;
+			}
+		} else {
+			hits.incrementAndGet();
+		}
+
+		try {
+			return lookup(entry.ids.get(), name);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted waiting for " + scope, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static List<Integer> lookup(Map<String, List<Integer>> ids, String name) {
+		List<Integer> list = ids.get(name);
+		return list == null ? Collections.<Integer>emptyList() : list;
+	}
+
+	private void remove(String scope, Scope entry) {
+		synchronized (scopes) {
+			if (scopes.get(scope) == entry) {
+				scopes.remove(scope);
+			}
+		}
+	}
+
+	/*
+	 * builds a scope's map from a list call, key is the name (or title) member
+	 */
+	public static Map<String, List<Integer>> index(Iterable<? extends JsonElement> jsonArray, String nameKey) {
+		Map<String, List<Integer>> ids = new HashMap<>();
+		for (JsonElement jsonElement : jsonArray) {
+			JsonObject jsonObject = jsonElement.getAsJsonObject();
+			if (jsonObject.has(nameKey) && !jsonObject.get(nameKey).isJsonNull()) {
+				ids.computeIfAbsent(jsonObject.get(nameKey).getAsString(), key -> new ArrayList<>(1))
+						.add(jsonObject.get("id").getAsInt());
+			}
+		}
+		return ids;
+	}
+
+	public void invalidate(String scope) {
+		synchronized (scopes) {
+			scopes.remove(scope);
+		}
+	}
+
+	/*
+	 * drops every scope starting with prefix, e.g. "cases/" after delete_suite
+	 */
+	public void invalidatePrefix(String prefix) {
+		synchronized (scopes) {
+			Iterator<String> it = scopes.keySet().iterator();
+			while (it.hasNext()) {
+				if (it.next().startsWith(prefix)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (scopes) {
+			scopes.clear();
+		}
+	}
+
+	/*
+	 * drops whatever a successful write may have changed, the path argument is only trusted
+	 * where it is the scope's own key (project id for add_run, add_suite ...)
+	 */
+	public void invalidate(TestRailRequest request) {
+		String path = request.getPath();
+		String arg = path.indexOf('/') < 0 ? "" : path.substring(path.indexOf('/') + 1);
+		switch (request.getEndpoint()) {
+		case "add_project":
+			invalidate("projects");
+			break;
+		case "add_run":
+		case "add_plan":
+			invalidate("runs/" + arg);
+			invalidate("plans/" + arg);
+			break;
+		case "add_milestone":
+			invalidate("milestones/" + arg);
+			break;
+		case "add_suite":
+			invalidate("suites/" + arg);
+			break;
+		case "add_section":
+			invalidatePrefix("sections/" + arg + "/");
+			break;
+		case "add_case":
+		case "update_case":
+		case "delete_case":
+			invalidatePrefix("cases/");
+			invalidatePrefix("tests/");
+			break;
+		case "delete_run":
+			invalidatePrefix("runs/");
+			invalidate("tests/" + arg);
+			break;
+		case "delete_plan":
+			invalidatePrefix("plans/");
+			invalidatePrefix("runs/");
+			invalidatePrefix("tests/");
+			break;
+		case "delete_milestone":
+			invalidatePrefix("milestones/");
+			break;
+		case "delete_section":
+			invalidatePrefix("sections/");
+			invalidatePrefix("cases/");
+			invalidatePrefix("tests/");
+			break;
+		case "delete_suite":
+			invalidatePrefix("suites/");
+			invalidatePrefix("sections/");
+			invalidatePrefix("cases/");
+			invalidatePrefix("tests/");
+			break;
+		case "delete_project":
+			invalidateAll();
+			break;
+		default:
+			//results and other writes do not change names
+			break;
+		}
+	}
+
+	public int size() {
+		synchronized (scopes) {
+			return scopes.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "scopes=" + size() + " hits=" + hits + " misses=" + misses + " evictions=" + evictions;
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+
+
+/*
+ * Single request execution pipeline for TestRailServices.
+ *
+ * Requests pass through the interceptors in the order they were added and then reach the server
+ * over the pooled TestRailTransport. The response entity is parsed exactly once, straight off the
+ * stream (projected requests keep only the fields they asked for, requests with a codec are bound
+ * to typed records), and the connection is released before the response travels back up the chain.
+ */
+public class TestRailExecutor {
+	private final String serverUrl;
+	private final TestRailTransport transport;
+	private final List<TestRailInterceptor> interceptors;
+
+
+	public static Builder builder(String serverUrl, TestRailTransport transport){
+		return new Builder(serverUrl, transport);
+	}
+
+
+	public static class Builder {
+		private String serverUrl;
+		private TestRailTransport transport;
+		private List<TestRailInterceptor> interceptors = new ArrayList<>();
+
+
+		private Builder(String serverUrl, TestRailTransport transport) {
+			this.serverUrl = serverUrl;
+			this.transport = transport;
+		}
+
+		/*
+		 * first added runs outermost
+		 */
+		public Builder interceptor(TestRailInterceptor interceptor) {
+			if (interceptor != null) {
+				interceptors.add(interceptor);
+			}
+			return this;
+		}
+
+		public TestRailExecutor build() {
+			return new TestRailExecutor(this);
+		}
+	}
+
+	private TestRailExecutor(Builder builder) {
+		this.serverUrl = builder.serverUrl;
+		this.transport = builder.transport;
+		this.interceptors = Collections.unmodifiableList(new ArrayList<>(builder.interceptors));
+	}
+
+	public String getServerUrl() {
+		return serverUrl;
+	}
+
+	public List<TestRailInterceptor> getInterceptors() {
+		return interceptors;
+	}
+
+	/*
+	 * Runs the request and returns the parsed body.
+	 *
+	 * A status >= 300 throws HttpResponseException, except a 400 on a request built with
+	 * failOnNotFound(false) which returns JsonNull.
+	 */
+	public JsonElement execute(TestRailRequest request) throws IOException {
+		TestRailResponse response = call(request);
+		return succeeded(request, response) ? response.getBody() : JsonNull.INSTANCE;
+	}
+
+	/*
+	 * Same as execute(request) but the body is bound by codec as it streams in, null where
+	 * execute(request) would return JsonNull.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(TestRailRequest request, TestRailCodec<T> codec) throws IOException {
+		TestRailRequest typedRequest = request.newBuilder().codec(codec).build();
+		TestRailResponse response = call(typedRequest);
+		return succeeded(typedRequest, response) ? (T) response.getEntity() : null;
+	}
+
+	/*
+	 * false for a tolerated 400, throws for any other failure
+	 */
+	private static boolean succeeded(TestRailRequest request, TestRailResponse response) throws HttpResponseException {
+		if (response.isSuccessful()) {
+			return true;
+		}
+		if (response.getStatusCode() == 400 && !request.isFailOnNotFound()) {
+			return false;
+		}
+		throw new HttpResponseException(response.getStatusCode(),
+				response.getStatusCode() + ": " + response.getReasonPhrase() + errorDetail(response));
+	}
+
+	/*
+	 * Runs the request through the interceptors and returns the response whatever its status
+	 */
+	public TestRailResponse call(TestRailRequest request) throws IOException {
+		return new RealChain(0, request).proceed(request);
+	}
+
+	private static String errorDetail(TestRailResponse response) {
+		JsonElement body = response.getBody();
+		if (body.isJsonObject()) {
+			JsonObject jsonObject = body.getAsJsonObject();
+			if (jsonObject.has("error") && !jsonObject.get("error").isJsonNull()) {
+				return " - " + jsonObject.get("error").getAsString();
+			}
+		}
+		return "";
+	}
+
+	private class RealChain implements TestRailInterceptor.Chain {
+		private final int index;
+		private final TestRailRequest request;
+
+		private RealChain(int index, TestRailRequest request) {
+			this.index = index;
+			this.request = request;
+		}
+
+		@Override
+		public TestRailRequest request() {
+			return request;
+		}
+
+		@Override
+		public TestRailResponse proceed(TestRailRequest request) throws IOException {
+			if (index < interceptors.size()) {
+				return interceptors.get(index).intercept(new RealChain(index + 1, request));
+			}
+			return send(request);
+		}
+	}
+
+	/*
+	 * the one place a request goes over the wire
+	 */
+	private TestRailResponse send(TestRailRequest request) throws IOException {
+		String uri = request.toUri(serverUrl);
+		HttpRequestBase httpRequest;
+		if (request.getMethod() == TestRailRequest.Method.POST) {
+			HttpPost httpPost = new HttpPost(uri);
+			httpPost.setEntity(new StringEntity(request.getBody() == null ? "" : request.getBody(), ContentType.APPLICATION_JSON));
+			httpRequest = httpPost;
+		} else {
+			httpRequest = new HttpGet(uri);
+		}
+		httpRequest.setConfig(transport.getRequestConfig());
+		httpRequest.addHeader("Content-Type", "application/json");
+
+		long start = System.nanoTime();
+		long poolWaitStart = TestRailTransport.peekPoolWaitNanos();
+		try (CloseableHttpResponse response = transport.getHttpClient().execute(httpRequest)) {
+			StatusLine statusLine = response.getStatusLine();
+			Map<String, String> headers = new HashMap<>();
+			for (Header header : response.getAllHeaders()) {
+				headers.put(header.getName().toLowerCase(), header.getValue());
+			}
+
+			JsonElement body = JsonNull.INSTANCE;
+			Object entity = null;
+			long bytesIn = 0;
+			HttpEntity httpEntity = response.getEntity();
+			if (httpEntity != null) {
+				CountingInputStream in = new CountingInputStream(httpEntity.getContent());
+				try (Reader reader = new InputStreamReader(in, charset(httpEntity))) {
+					if (request.getCodec() != null && statusLine.getStatusCode() < 300) {
+						entity = decode(request, reader);
+					} else if (request.isProjected() && statusLine.getStatusCode() < 300) {
+						body = project(request, reader);
+					} else {
+						body = new JsonParser().parse(reader);
+					}
+				} catch (JsonParseException e) {
+					if (statusLine.getStatusCode() < 300) {
+						throw new IOException("unparsable response from " + request + ": " + e.getMessage(), e);
+					}
+					//error pages are not always json, the status line carries the failure
+				} finally {
+					EntityUtils.consumeQuietly(httpEntity);
+					bytesIn = in.getByteCount();
+				}
+			}
+
+			//waiting for a pooled connection is the client's time, not the server's
+			long poolWaitNanos = TestRailTransport.peekPoolWaitNanos() - poolWaitStart;
+			return new TestRailResponse(request, statusLine.getStatusCode(), statusLine.getReasonPhrase(), headers,
+					body, entity, bytesIn, System.nanoTime() - start - poolWaitNanos);
+		}
+	}
+
+	/*
+	 * list responses with fields()/where() stream through a JsonReader, see TestRailJsonProjection
+	 */
+	private static JsonElement project(TestRailRequest request, Reader reader) throws IOException {
+		JsonReader jsonReader = new JsonReader(reader);
+		try {
+			jsonReader.peek();
+		} catch (EOFException e) {
+			return JsonNull.INSTANCE;
+		}
+		try {
+			return TestRailJsonProjection.read(jsonReader, request.getFields(), request.getWhereField(), request.getWhereValue());
+		} catch (IllegalStateException | MalformedJsonException e) {
+			throw new JsonParseException(e);
+		}
+	}
+
+	/*
+	 * typed requests are bound by their codec, no Gson tree in between
+	 */
+	private static Object decode(TestRailRequest request, Reader reader) throws IOException {
+		JsonReader jsonReader = new JsonReader(reader);
+		try {
+			jsonReader.peek();
+		} catch (EOFException e) {
+			return null;
+		}
+		try {
+			return request.getCodec().read(jsonReader);
+		} catch (IllegalStateException | NumberFormatException | MalformedJsonException e) {
+			throw new JsonParseException(e);
+		}
+	}
+
+	private static Charset charset(HttpEntity httpEntity) {
+		ContentType contentType = ContentType.get(httpEntity);
+		Charset charset = contentType == null ? null : contentType.getCharset();
+		return charset == null ? StandardCharsets.UTF_8 : charset;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+
+/*
+ * A step in the TestRailExecutor pipeline (retry, rate limiting, metrics, logging ...)
+ *
+ * An interceptor either answers the request itself or calls chain.proceed() one or more times,
+ * e.g. a retry interceptor calls proceed() again after a 429.
+ */
+@FunctionalInterface
+public interface TestRailInterceptor {
+
+	TestRailResponse intercept(Chain chain) throws IOException;
+
+
+	interface Chain {
+
+		TestRailRequest request();
+
+		TestRailResponse proceed(TestRailRequest request) throws IOException;
+	}
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+
+/*
+ * Append-only write-ahead journal of results waiting to be published.
+ *
+ * One json object per line:
+ *
+ * 	{"seq":17,"runId":3,"result":{"testCaseId":1203,"status":"PASSED", ...}}	a result to publish
+ * 	{"ack":[17,18,19]}															results TestRail accepted
+ *
+ * Every line is written to the file channel as it is appended, so a JVM crash loses nothing; the
+ * channel is forced to disk every syncEvery lines or syncIntervalMs, whichever comes first (and on
+ * close), so an OS crash loses at most that window. Opening a journal replays it: entries without
+ * an ack are pending and can be published again. Once compactThreshold acks have accumulated the
+ * file is rewritten with only the pending entries and atomically moved over the old one.
+ */
+public class TestRailJournal implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private final Path path;
+	private final long syncIntervalMs;
+	private final int syncEvery;
+	private final int compactThreshold;
+	private final Map<Long, Entry> pending = new LinkedHashMap<>();
+	private FileChannel channel;
+	private long nextSeq = 1;
+	private int unsyncedCnt = 0;
+	private long lastSyncMs = System.currentTimeMillis();
+	private int ackedSinceCompact = 0;
+
+
+	/*
+	 * a journaled result, seq is unique within the journal
+	 */
+	public static class Entry {
+		private final long seq;
+		private final Integer runId;
+		private final JsonObject result;
+
+		private Entry(long seq, Integer runId, JsonObject result) {
+			this.seq = seq;
+			this.runId = runId;
+			this.result = result;
+		}
+
+		public long getSeq() {
+			return seq;
+		}
+
+		public Integer getRunId() {
+			return runId;
+		}
+
+		public JsonObject getResult() {
+			return result;
+		}
+
+		/*
+		 * the journaled result bound to testRailServices, ready to publish
+		 */
+		public Results toResults(TestRailServices testRailServices) throws TestRailConfigException, IOException {
+			Results results = TestRailJournal.toResults(testRailServices, result);
+			results.setJournalSeq(seq);
+			return results;
+		}
+	}
+
+
+	public static Builder builder(String path){
+		return new Builder(path);
+	}
+
+
+	public static class Builder {
+		private String path;
+		private long syncIntervalMs = TestRailConstants.JOURNAL_SYNC_INTERVAL_DEFAULT;
+		private int syncEvery = TestRailConstants.JOURNAL_SYNC_EVERY_DEFAULT;
+		private int compactThreshold = TestRailConstants.JOURNAL_COMPACT_THRESHOLD_DEFAULT;
+
+
+		private Builder(String path) {
+			this.path = path;
+		}
+
+		public Builder syncIntervalMs(Long syncIntervalMs) {
+			if (syncIntervalMs != null) {
+				this.syncIntervalMs = syncIntervalMs;
+			}
+			return this;
+		}
+
+		public Builder syncEvery(Integer syncEvery) {
+			if (syncEvery != null) {
+				this.syncEvery = syncEvery;
+			}
+			return this;
+		}
+
+		public Builder compactThreshold(Integer compactThreshold) {
+			if (compactThreshold != null) {
+				this.compactThreshold = compactThreshold;
+			}
+			return this;
+		}
+
+		/*
+		 * opens (creating if needed) and replays the journal
+		 */
+		public TestRailJournal build() throws IOException {
+			return new TestRailJournal(this);
+		}
+	}
+
+	private TestRailJournal(Builder builder) throws IOException {
+		this.path = Paths.get(builder.path).toAbsolutePath();
+		this.syncIntervalMs = builder.syncIntervalMs;
+		this.syncEvery = builder.syncEvery;
+		this.compactThreshold = builder.compactThreshold;
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		boolean torn = Files.exists(path) && replay();
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if (torn) {
+			//the next append would otherwise be glued onto the torn line and lost with it
+			compact();
+		}
+		LOGGER.info("journal {}: {} pending, next seq {}", path, pending.size(), nextSeq);
+	}
+
+	/*
+	 * true when an unreadable line was skipped
+	 */
+	private boolean replay() throws IOException {
+		boolean torn = false;
+		int lineCnt = 0;
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineCnt++;
+				if (line.isEmpty()) {
+					continue;
+				}
+				JsonObject jsonObject;
+				try {
+					jsonObject = new JsonParser().parse(line).getAsJsonObject();
+				} catch (JsonParseException | IllegalStateException e) {
+					//a torn last line from a crash mid-write, anything before it is intact
+					LOGGER.warn("journal {} line {} unreadable, skipped: {}", path, lineCnt, e.getMessage());
+					torn = true;
+					continue;
+				}
+				if (jsonObject.has("ack")) {
+					for (JsonElement seq : jsonObject.getAsJsonArray("ack")) {
+						pending.remove(seq.getAsLong());
+					}
+				} else {
+					long seq = jsonObject.get("seq").getAsLong();
+					JsonElement runId = jsonObject.get("runId");
+					pending.put(seq, new Entry(seq, runId == null || runId.isJsonNull() ? null : runId.getAsInt(),
+							jsonObject.getAsJsonObject("result")));
+					nextSeq = Math.max(nextSeq, seq + 1);
+				}
+			}
+		}
+		ackedSinceCompact = lineCnt - pending.size();
+		return torn;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/*
+	 * journals results for runId and stamps it with its sequence number
+	 */
+	public synchronized long append(Integer runId, Results results) throws IOException {
+		long seq = nextSeq++;
+		JsonObject result = toJson(results);
+		JsonObject line = new JsonObject();
+		line.addProperty("seq", seq);
+		line.addProperty("runId", runId);
+		line.add("result", result);
+		write(line);
+		pending.put(seq, new Entry(seq, runId, result));
+		results.setJournalSeq(seq);
+		return seq;
+	}
+
+	/*
+	 * TestRail has these, they will not be replayed
+	 */
+	public synchronized void acknowledge(Collection<Long> seqs) throws IOException {
+		JsonArray ack = new JsonArray();
+		for (Long seq : seqs) {
+			if (seq != null && pending.remove(seq) != null) {
+				ack.add(seq);
+			}
+		}
+		if (ack.size() == 0) {
+			return;
+		}
+		JsonObject line = new JsonObject();
+		line.add("ack", ack);
+		write(line);
+		ackedSinceCompact += ack.size() + 1;
+		if (ackedSinceCompact >= compactThreshold) {
+			compact();
+		}
+	}
+
+	/*
+	 * unacknowledged entries in the order they were appended
+	 */
+	public synchronized List<Entry> pending() {
+		return new ArrayList<>(pending.values());
+	}
+
+	public synchronized int getPendingCnt() {
+		return pending.size();
+	}
+
+	/*
+	 * rewrites the journal with only the pending entries, the old file is replaced atomically
+	 */
+	public synchronized void compact() throws IOException {
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Entry entry : pending.values()) {
+				JsonObject line = new JsonObject();
+				line.addProperty("seq", entry.seq);
+				line.addProperty("runId", entry.runId);
+				line.add("result", entry.result);
+				writeFully(tmpChannel, line);
+			}
+			tmpChannel.force(true);
+		}
+		channel.close();
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		LOGGER.debug("journal {} compacted, {} acked lines dropped, {} pending", path, ackedSinceCompact, pending.size());
+		ackedSinceCompact = 0;
+		unsyncedCnt = 0;
+		lastSyncMs = System.currentTimeMillis();
+	}
+
+	/*
+	 * forces everything written so far to disk
+	 */
+	public synchronized void sync() throws IOException {
+		if (unsyncedCnt > 0) {
+			channel.force(false);
+			unsyncedCnt = 0;
+		}
+		lastSyncMs = System.currentTimeMillis();
+	}
+
+	private void write(JsonObject line) throws IOException {
+		writeFully(channel, line);
+		unsyncedCnt++;
+		if (unsyncedCnt >= syncEvery || System.currentTimeMillis() - lastSyncMs >= syncIntervalMs) {
+			sync();
+		}
+	}
+
+	private static void writeFully(FileChannel fileChannel, JsonObject line) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap((line.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+		while (buffer.hasRemaining()) {
+			fileChannel.write(buffer);
+		}
+	}
+
+	/*
+	 * compacts when nothing is pending any more so a clean run leaves an empty journal behind
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!channel.isOpen()) {
+			return;
+		}
+		if (pending.isEmpty() && ackedSinceCompact > 0) {
+			compact();
+		}
+		sync();
+		channel.close();
+	}
+
+	private static JsonObject toJson(Results results) {
+		JsonObject jsonObject = new JsonObject();
+		jsonObject.addProperty("projectName", results.getProjectName());
+		jsonObject.addProperty("projectId", results.getProjectId());
+		jsonObject.addProperty("mileStoneName", results.getMileStoneName());
+		jsonObject.addProperty("mileStoneId", results.getMileStoneId());
+		jsonObject.addProperty("runName", results.getRunName());
+		jsonObject.addProperty("runId", results.getRunId());
+		jsonObject.addProperty("suiteName", results.getSuiteName());
+		jsonObject.addProperty("suiteId", results.getSuiteId());
+		jsonObject.addProperty("sectionName", results.getSectionName());
+		jsonObject.addProperty("sectionId", results.getSectionId());
+		jsonObject.addProperty("testCaseName", results.getTestCaseName());
+		jsonObject.addProperty("testCaseId", results.getTestCaseId());
+		jsonObject.addProperty("assignedToName", results.getAssignedToName());
+		jsonObject.addProperty("assignedToId", results.getAssignedToId());
+		jsonObject.addProperty("comment", results.getComment());
+		jsonObject.addProperty("version", results.getVersion());
+		jsonObject.addProperty("elapsed", results.getElapsed());
+		jsonObject.addProperty("defects", results.getDefects());
+		jsonObject.addProperty("status", results.getStatus() == null ? null : results.getStatus().name());
+		//unset fields are left out, a journal line is a few hundred bytes
+		jsonObject.entrySet().removeIf(member -> member.getValue().isJsonNull());
+		return jsonObject;
+	}
+
+	static Results toResults(TestRailServices testRailServices, JsonObject jsonObject) throws TestRailConfigException, IOException {
+		String status = string(jsonObject, "status");
+		return Results.builder(testRailServices, string(jsonObject, "projectName"))
+				.projectId(integer(jsonObject, "projectId"))
+				.mileStoneName(string(jsonObject, "mileStoneName"))
+				.mileStoneId(integer(jsonObject, "mileStoneId"))
+				.runName(string(jsonObject, "runName"))
+				.runId(integer(jsonObject, "runId"))
+				.suiteName(string(jsonObject, "suiteName"))
+				.suiteId(integer(jsonObject, "suiteId"))
+				.sectionName(string(jsonObject, "sectionName"))
+				.sectionId(integer(jsonObject, "sectionId"))
+				.testCaseName(string(jsonObject, "testCaseName"))
+				.testCaseId(integer(jsonObject, "testCaseId"))
+				.assignedToName(string(jsonObject, "assignedToName"))
+				.assignedToId(integer(jsonObject, "assignedToId"))
+				.comment(string(jsonObject, "comment"))
+				.version(string(jsonObject, "version"))
+				.elapsed(string(jsonObject, "elapsed"))
+				.defects(string(jsonObject, "defects"))
+				.testStatus(status == null ? null : TEST_STATUS.valueOf(status))
+				.build(false);
+	}
+
+	private static String string(JsonObject jsonObject, String name) {
+		JsonElement jsonElement = jsonObject.get(name);
+		return jsonElement == null || jsonElement.isJsonNull() ? null : jsonElement.getAsString();
+	}
+
+	private static Integer integer(JsonObject jsonObject, String name) {
+		JsonElement jsonElement = jsonObject.get(name);
+		return jsonElement == null || jsonElement.isJsonNull() ? null : jsonElement.getAsInt();
+	}
+}
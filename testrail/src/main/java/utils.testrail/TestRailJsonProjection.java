@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+/*
+ * Streams a list response off a JsonReader keeping only what the caller asked for.
+ *
+ * Works on both a bare array and a paginated envelope (offset, limit, size and _links are kept as
+ * is, the items array is projected). Each element is read member by member: members not in fields
+ * are skipped without being materialised, and an element whose where field does not match is
+ * dropped once read. Only the surviving (small) elements end up in the returned tree.
+ */
+public class TestRailJsonProjection {
+
+	private TestRailJsonProjection() {
+	}
+
+	/*
+	 * empty fields keeps every member of the matching elements
+	 */
+	public static JsonElement read(JsonReader reader, Set<String> fields, String whereField, String whereValue)
+			throws IOException {
+		JsonToken token = reader.peek();
+		if (token == JsonToken.BEGIN_ARRAY) {
+			return readArray(reader, fields, whereField, whereValue);
+		}
+		if (token != JsonToken.BEGIN_OBJECT) {
+			return new JsonParser().parse(reader);
+		}
+
+		JsonObject envelope = new JsonObject();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+				envelope.add(name, readArray(reader, fields, whereField, whereValue));
+			} else {
+				envelope.add(name, new JsonParser().parse(reader));
+			}
+		}
+		reader.endObject();
+		return envelope;
+	}
+
+	private static JsonArray readArray(JsonReader reader, Set<String> fields, String whereField, String whereValue)
+			throws IOException {
+		JsonArray jsonArray = new JsonArray();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				reader.skipValue();
+				continue;
+			}
+			JsonObject element = new JsonObject();
+			boolean matches = whereField == null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				boolean wanted = fields.isEmpty() || fields.contains(name);
+				if (name.equals(whereField)) {
+					JsonElement value = new JsonParser().parse(reader);
+					matches = !value.isJsonNull() && value.isJsonPrimitive() && value.getAsString().equals(whereValue);
+					if (wanted) {
+						element.add(name, value);
+					}
+				} else if (wanted) {
+					element.add(name, new JsonParser().parse(reader));
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			if (matches) {
+				jsonArray.add(element);
+			}
+		}
+		reader.endArray();
+		return jsonArray;
+	}
+}
@@ -19,7 +19,15 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -27,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
 import org.testng.ITestResult;
 
 import com.google.gson.JsonArray;
@@ -42,11 +51,6 @@ public class TestRailListener implements ITestListener{
 	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
 	private TestTrackerProject testTrackerProjectAnnotation = null;
 	private Class<?> testClass = null;
-	private Method testMethod = null;
-	private TestTracker testTrackerAnnotation = null;
-	private String testMethodName = null;
-	private Integer testCaseId = null;
-	private String testCaseName = null;
 	private String projectName = null;
 	private Integer projectId = null;
 	private String version = null;
@@ -61,25 +65,136 @@ public class TestRailListener implements ITestListener{
 	private String category = null;
 	private String assignedToName = null;
 	private Integer assignedToId = null;
-	private String comment = null;
 	private Boolean enable = null;
 	private Boolean publish = null;
-	private boolean exception = false;
 	private Boolean createProject = null;
 	private Boolean createMileStone = null;
 	private Boolean createSuite = null;
 	private Boolean createRun = null;
-	private String steps = null;
-	private String preConditions= null;
-	private String focus = null;
-	private String elapsed = null;
-	private String defects = null;
-	private String[] additionalTests = null;
-	private Boolean isFullyAutomated = null;
-	private JsonObject resultsContainer = null;
-	private JsonArray resultsArray = null;
-	private List<Results> resultsList = new ArrayList();
+	//per method annotation state, built once after onStart so every invocation of a test is a lookup
+	private final Map<Method, TestTrackerDescriptor> descriptors = new ConcurrentHashMap<>();
+	private final Queue<Results> resultsList = new ConcurrentLinkedQueue<>();
+	//names resolved by warmUp(), Results are built with these ids and update() has nothing left to look up
+	private final Map<String, Integer> testCaseIds = new ConcurrentHashMap<>();
+	private final Map<String, Integer> userIds = new ConcurrentHashMap<>();
 	private TestRailServices testRailServices = null;
+	private TestRailStreamingPublisher streamingPublisher = null;
+	private Thread streamingShutdownHook = null;
+	private TestRailJournal journal = null;
+
+
+	/*
+	 * onTestStart is skipped for tests TestNG never ran (failed configuration), build descriptors on demand
+	 */
+	private TestTrackerDescriptor descriptor(ITestResult result) {
+		Method method = result.getMethod().getConstructorOrMethod().getMethod();
+		TestTrackerDescriptor descriptor = descriptors.get(method);
+		if (descriptor == null) {
+			//computeIfAbsent locks the bin even on a hit in Java 8, only go there on a miss
+			descriptor = descriptors.computeIfAbsent(method, this::describe);
+		}
+		return descriptor;
+	}
+
+	private TestTrackerDescriptor describe(Method method) {
+		return new TestTrackerDescriptor(method, testTrackerProjectAnnotation, testClass, category, assignedToName, assignedToId,
+				testCaseIds, userIds);
+	}
+
+	/*
+	 * annotation ints default to 0 for "not set"
+	 */
+	private static Integer id(int annotationId) {
+		return annotationId == 0 ? null : annotationId;
+	}
+
+	/*
+	 * Provisions and resolves everything the suite's annotations name before the first test runs.
+	 * TestRailProvisioner brings the project hierarchy and the suite's test cases into TestRail as far
+	 * as the create flags allow and hands back their ids, the distinct assignees are looked up
+	 * alongside. Each scope costs one list call, so per result work in onFinish is id lookups only.
+	 * A name that does not resolve here stays null and Results.update() reports it as before.
+	 */
+	private void warmUp(ITestContext context) throws IOException {
+		LOGGER.info(LoggerServices.build().bannerWrap("Resolving TestTracker Names"));
+		Set<String> testCaseNames = new LinkedHashSet<>();
+		Set<String> userNames = new LinkedHashSet<>();
+		if (assignedToId == null && !assignedToName.equals(TestRailConstants.ASSIGNED_TO_DEFAULT)) {
+			userNames.add(assignedToName);
+		}
+		for (ITestNGMethod testNGMethod : context.getAllTestMethods()) {
+			Method method = testNGMethod.getConstructorOrMethod().getMethod();
+			TestTracker testTracker = method.getAnnotation(TestTracker.class);
+			if (testTracker == null || !testTracker.publish()) {
+				continue;
+			}
+			if (testTracker.testCaseId() == 0) {
+				testCaseNames.add(testTracker.testCaseName().equals(TestRailConstants.TESTCASE_NAME_DEFAULT)
+						? method.getName() : testTracker.testCaseName());
+			}
+			if (testTracker.assignedToId() == 0 && !testTracker.assignedToName().equals(TestRailConstants.ASSIGNED_TO_DEFAULT)) {
+				userNames.add(testTracker.assignedToName());
+			}
+		}
+
+		try (TestRailServicesAsync async = TestRailServicesAsync.builder(testRailServices).build()) {
+			List<CompletableFuture<?>> lookups = new ArrayList<>();
+			for (String userName : userNames) {
+				lookups.add(quietly(async.getUserIdByName(userName, false), "user " + userName).thenAccept(id -> put(userIds, userName, id)));
+			}
+			try {
+				TestRailProvisioner provisioner = TestRailProvisioner.builder(testRailServices, projectName)
+						.projectId(projectId)
+						.mileStoneName(mileStoneName)
+						.mileStoneId(mileStoneId)
+						.suiteName(suiteName)
+						.suiteId(suiteId)
+						.sectionName(sectionName)
+						.sectionId(sectionId)
+						.runName(runName)
+						.runId(runId)
+						.testCaseNames(testCaseNames)
+						.createProject(createProject)
+						.createMileStone(createMileStone)
+						.createSuite(createSuite)
+						.createSection(testTrackerProjectAnnotation.createSection())
+						.createTestCase(testTrackerProjectAnnotation.createTestCase())
+						.createRun(createRun)
+						.build()
+						.provision();
+				projectId = provisioner.getProjectId();
+				mileStoneId = provisioner.getMileStoneId();
+				suiteId = provisioner.getSuiteId();
+				sectionId = provisioner.getSectionId();
+				runId = provisioner.getRunId();
+				testCaseIds.putAll(provisioner.getTestCaseIds());
+			} catch (IOException | TestRailConfigException e) {
+				LOGGER.error("provisioning {} failed: {}", projectName, e.getMessage());
+			}
+			CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).join();
+			if (assignedToId == null) {
+				assignedToId = userIds.get(assignedToName);
+			}
+		}
+		LOGGER.info("resolved {} of {} test cases, {} of {} users, runId {}", testCaseIds.size(), testCaseNames.size(),
+				userIds.size(), userNames.size(), runId);
+	}
+
+	/*
+	 * a failed lookup is logged and left for Results.update() to report
+	 */
+	private static CompletableFuture<Integer> quietly(CompletableFuture<Integer> lookup, String what) {
+		return lookup.exceptionally(e -> {
+			LOGGER.warn("could not resolve {}: {}", what, e.getMessage());
+			return null;
+		});
+	}
+
+	private static void put(Map<String, Integer> ids, String name, Integer id) {
+		if (id != null) {
+			ids.put(name, id);
+		}
+	}
 	
 	
 	/**
@@ -92,22 +207,22 @@ public class TestRailListener implements ITestListener{
 		try {
 			testRailServices = new TestRailServices("src/main/resources/testrail.properties");
 			//TODO better way?
-			Class<? extends Object> testClass = context.getAllTestMethods()[0].getInstance().getClass();
-			testTrackerProjectAnnotation = testClass.getAnnotation(TestTrackerProject.class);
-			projectId = testTrackerProjectAnnotation.projectId();
+			testClass = context.getAllTestMethods()[0].getInstance().getClass();
+			testTrackerProjectAnnotation = TestTrackerDescriptor.projectAnnotation(testClass);
+			projectId = id(testTrackerProjectAnnotation.projectId());
 			projectName = testTrackerProjectAnnotation.projectName();
-			runId = testTrackerProjectAnnotation.runId();
+			runId = id(testTrackerProjectAnnotation.runId());
 			runName = testTrackerProjectAnnotation.runName();
 			version = testTrackerProjectAnnotation.version();
 			suiteName = testTrackerProjectAnnotation.suiteName();
-			suiteId = testTrackerProjectAnnotation.suiteId();
-			sectionId = testTrackerProjectAnnotation.sectionId();
+			suiteId = id(testTrackerProjectAnnotation.suiteId());
+			sectionId = id(testTrackerProjectAnnotation.sectionId());
 			sectionName = testTrackerProjectAnnotation.sectionName();
-			mileStoneId = testTrackerProjectAnnotation.mileStoneId();
+			mileStoneId = id(testTrackerProjectAnnotation.mileStoneId());
 			mileStoneName = testTrackerProjectAnnotation.mileStoneName();
 			category = testTrackerProjectAnnotation.category();
 			assignedToName = testTrackerProjectAnnotation.assignedToName();
-			assignedToId = testTrackerProjectAnnotation.assignedToId();
+			assignedToId = id(testTrackerProjectAnnotation.assignedToId());
 			enable = testTrackerProjectAnnotation.enabled();
 			publish = testTrackerProjectAnnotation.publish();
 			createProject = testTrackerProjectAnnotation.createProject();;
@@ -118,9 +233,31 @@ public class TestRailListener implements ITestListener{
 			LOGGER.info(LoggerServices.build().bannerWrap("OnStart"));
 			
 			//i need to get runId to post results
-			if(runId==null && publish){
-				runId = testRailServices.getResultsBuilder(projectName).runName(runName).build(false).getRunId();
-				//runId = getTestRailClient().getRunIdByName(projectName, runName, true);
+			if(publish){
+				warmUp(context);
+			}
+			//every invocation of these tests is a map hit from here on
+			for (ITestNGMethod testNGMethod : context.getAllTestMethods()) {
+				descriptors.computeIfAbsent(testNGMethod.getConstructorOrMethod().getMethod(), this::describe);
+			}
+
+			if(publish && testRailServices.getJournalPath() != null) {
+				journal = TestRailJournal.builder(testRailServices.getJournalPath())
+						.syncIntervalMs(testRailServices.getJournalSyncInterval())
+						.build();
+				replayJournal();
+			}
+
+			if(publish && testRailServices.getPublishStreaming()) {
+				LOGGER.info(LoggerServices.build().bannerWrap("Streaming Results"));
+				streamingPublisher = TestRailStreamingPublisher.builder(testRailServices, runId).journal(journal).build();
+				//a killed JVM still drains what was queued
+				streamingShutdownHook = new Thread(() -> {
+					streamingPublisher.close();
+					closeJournal();
+					closeServices();
+				}, "testrail-stream-shutdown");
+				Runtime.getRuntime().addShutdownHook(streamingShutdownHook);
 			}
 	
 			/*if(publish && testTrackerAnnotation.publish()) {
@@ -149,25 +286,8 @@ public class TestRailListener implements ITestListener{
 	  */
 	@Override
 	public void onTestStart(ITestResult result) {
+		TestTrackerDescriptor descriptor = descriptor(result);
 		try {
-			testMethod = result.getMethod().getConstructorOrMethod().getMethod();
-			testMethodName = testMethod.getName();
-			testTrackerAnnotation = testMethod.getAnnotation(TestTracker.class);
-			if (testTrackerAnnotation != null) {
-				testCaseId = testTrackerAnnotation.testCaseId();
-				testCaseName = testTrackerAnnotation.testCaseName();
-				category = testTrackerAnnotation.category();
-				comment = testTrackerAnnotation.comment();
-				assignedToId = testTrackerAnnotation.assignedToId();
-				assignedToName = testTrackerAnnotation.assignedToName();
-				steps = testTrackerAnnotation.steps();
-				preConditions = testTrackerAnnotation.preConditions();
-				focus = testTrackerAnnotation.focus();
-				elapsed = testTrackerAnnotation.elapsed();
-				defects = testTrackerAnnotation.defects();
-				isFullyAutomated = testTrackerAnnotation.isFullyAutomated();
-				additionalTests = testTrackerAnnotation.additionalTests();
-			}
 			
 			/*we need runId
 			testid
@@ -185,34 +305,15 @@ public class TestRailListener implements ITestListener{
 				defects	string	A comma-separated list of defects to link to the test result
 				assignedto_id	int	The ID of a user the test should be assigned to*/
 			
-			new ValidationStateMachine(testTrackerProjectAnnotation, testTrackerAnnotation, testClass).validateAnnotations();
+			if (descriptor.getValidationError() != null) {
+				throw descriptor.getValidationError();
+			}
 			
-			if (testTrackerAnnotation != null) {
-				if (testTrackerProjectAnnotation == null) {
-					throw new Exception("TestTracker Project Annotation not defined on class:{}" + testClass.getName());
-				}
+			if (descriptor.isTracked()) {
 				if (testTrackerProjectAnnotation.enabled()) {
-					if ((testTrackerProjectAnnotation.publish() && testTrackerAnnotation.publish())) {
+					if ((testTrackerProjectAnnotation.publish() && descriptor.isPublish())) {
 
-						
-						if (!testTrackerAnnotation.testCaseName().equals(TestRailConstants.TESTCASE_NAME_DEFAULT)) {
-							testCaseName = testTrackerAnnotation.testCaseName();
-						} else {
-							testCaseName = testMethodName;
-						}
-						if (!testTrackerAnnotation.category().equals(TestRailConstants.CATEGORY_DEFAULT)) {
-							category = testTrackerAnnotation.category();
-						} else {
-							category = testTrackerProjectAnnotation.category();
-						}
-
-						if (testTrackerProjectAnnotation.createMileStone()
-								&& !testRailServices.getMileStoneBuilder(mileStoneName).build(false).isExists()) {
-							testRailServices.getMileStoneBuilder(mileStoneName)
-						    .projectName(projectName)
-						    .build(false).add();
-							//testRailServices.addMileStone(projectName, mileStoneName, true);
-						}
+						//milestone, suite, run, section and cases were provisioned once in onStart, see warmUp()
 						//TODO finish
 						/*if (testTrackerProjectAnnotation.createSuite()
 								&& !getTestRailClient().isSuiteExists(projectName, suiteName)) {
@@ -270,7 +371,6 @@ public class TestRailListener implements ITestListener{
 				LOGGER.info(LoggerServices.build().bannerWrap("TestTrackerProject Annotation disabled"));
 			}
 		} catch (IllegalArgumentException e) {
-			exception = true;
 			throw e;
 		}catch (Exception e) {
 			LOGGER.error("{}\n{}", e.getMessage() == null ? "" : e.getMessage(), ExceptionUtils.getStackTrace(e));
@@ -305,7 +405,7 @@ public class TestRailListener implements ITestListener{
 	@Override
 	public void onTestFailure(ITestResult result){
 		try{
-			if(!exception) {
+			if(!(descriptor(result).getValidationError() instanceof IllegalArgumentException)) {
 				processTestResults(result);
 			}
 		}catch(Exception e){
@@ -323,7 +423,7 @@ public class TestRailListener implements ITestListener{
 	 */
 	@Override
 	public void onTestSkipped(ITestResult result){
-		LOGGER.info("test method " + testMethodName + " skipped");
+		LOGGER.info("test method " + result.getMethod().getMethodName() + " skipped");
 	}
 
 	/**
@@ -336,7 +436,7 @@ public class TestRailListener implements ITestListener{
 	 */
 	@Override
 	public void onTestFailedButWithinSuccessPercentage(ITestResult result){
-		LOGGER.info("test failed but within success % " + testMethodName);
+		LOGGER.info("test failed but within success % " + result.getMethod().getMethodName());
 	}
 
 	/**
@@ -348,14 +448,77 @@ public class TestRailListener implements ITestListener{
 	public void onFinish(ITestContext context){
 		try{
 			LOGGER.info(LoggerServices.build().bannerWrap("OnFinish"));
-			if(testTrackerProjectAnnotation.publish() && testTrackerAnnotation.publish()){
+			if(streamingPublisher != null) {
+				LOGGER.info(LoggerServices.build().bannerWrap("Draining Streamed Results"));
+				streamingPublisher.close();
+				try {
+					Runtime.getRuntime().removeShutdownHook(streamingShutdownHook);
+				} catch (IllegalStateException e) {
+					//already shutting down, the hook's close() is a no-op now
+				}
+				for (Results results : streamingPublisher.getFailedResults()) {
+					LOGGER.error("not published: {} {}", results.getTestCaseName(), results.getTestCaseId());
+				}
+			}else if(testTrackerProjectAnnotation != null && testTrackerProjectAnnotation.publish()){
 				LOGGER.info(LoggerServices.build().bannerWrap("Posting Results"));
-				String resultsArrayJson =  generateResultsArray(resultsList);
-				LOGGER.info("{}",resultsArrayJson);
-				testRailServices.addResults(runId, resultsArrayJson);
+				//chunked add_results_for_cases, a failed batch is reported and the rest still publish
+				try (TestRailResultPublisher publisher = TestRailResultPublisher.builder(testRailServices).journal(journal).build()) {
+					TestRailPublishReport report = publisher.publish(runId, new ArrayList<>(resultsList));
+					for (TestRailBatchResult batch : report.getFailedBatches()) {
+						LOGGER.error("not published: {} case ids {}", batch, batch.getCaseIds());
+					}
+				}
 			}
 		}catch(Exception e){
 			LOGGER.error("{}\n{}", e.getMessage()==null ? "" : e.getMessage(), ExceptionUtils.getStackTrace(e));
+		}finally {
+			closeJournal();
+			//releases the connection pool and runs the final metrics export
+			closeServices();
+		}
+	}
+
+	/*
+	 * results a previous run journaled but never got into TestRail, published before this run adds its own
+	 */
+	private void replayJournal() throws TestRailConfigException, IOException {
+		List<TestRailJournal.Entry> pending = journal.pending();
+		if (pending.isEmpty()) {
+			return;
+		}
+		LOGGER.info(LoggerServices.build().bannerWrap("Replaying " + pending.size() + " Journaled Results"));
+		Map<Integer, List<Results>> byRun = new LinkedHashMap<>();
+		for (TestRailJournal.Entry entry : pending) {
+			byRun.computeIfAbsent(entry.getRunId(), k -> new ArrayList<>()).add(entry.toResults(testRailServices));
+		}
+		try (TestRailResultPublisher publisher = TestRailResultPublisher.builder(testRailServices).journal(journal).build()) {
+			for (Map.Entry<Integer, List<Results>> run : byRun.entrySet()) {
+				TestRailPublishReport report = publisher.publish(run.getKey(), run.getValue());
+				for (TestRailBatchResult batch : report.getFailedBatches()) {
+					LOGGER.error("journaled results still not published: {} case ids {}", batch, batch.getCaseIds());
+				}
+			}
+		}
+		journal.compact();
+	}
+
+	private synchronized void closeServices() {
+		if (testRailServices != null) {
+			try {
+				testRailServices.close();
+			} catch (IOException e) {
+				LOGGER.error("closing TestRail services: {}", e.getMessage());
+			}
+		}
+	}
+
+	private synchronized void closeJournal() {
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				LOGGER.error("closing journal {}: {}", journal.getPath(), e.getMessage());
+			}
 		}
 	}
 	
@@ -365,21 +528,23 @@ public class TestRailListener implements ITestListener{
 	 * 	called by onTestSucecss and onTestFailure
 	 * 
 	 */
-	private void processTestResults(ITestResult result) throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException, ConfigurationException, IOException, ParseException, TestRailConfigException {
-		if(!exception) {
+	private void processTestResults(ITestResult result) throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException, ConfigurationException, IOException, ParseException, TestRailConfigException, InterruptedException {
+		TestTrackerDescriptor descriptor = descriptor(result);
+		if(!(descriptor.getValidationError() instanceof IllegalArgumentException)) {
 			LOGGER.info(LoggerServices.build().bannerWrap("processResults"));
 			String status = result.isSuccess() ? TEST_STATUS.PASSED.name() : TEST_STATUS.FAILED.name();
 			
-			if(testTrackerProjectAnnotation!=null && testTrackerProjectAnnotation.enabled() && testTrackerAnnotation != null){
+			if(testTrackerProjectAnnotation!=null && testTrackerProjectAnnotation.enabled() && descriptor.isTracked()
+					&& descriptor.isPublish()){
 					LOGGER.info(LoggerServices.build().bannerWrap("Buffering Results"));
 					
 					LOGGER.debug("suiteName:{}", suiteName);
 					LOGGER.debug("sectionName:{}", testTrackerProjectAnnotation.sectionName());
 					LOGGER.debug("runName:{}", runName);
 					LOGGER.debug("mileStoneName:{}", testTrackerProjectAnnotation.mileStoneName());
-					LOGGER.debug("elapsed:{}", elapsed);
-					LOGGER.debug("assignedToId:{}", assignedToId);
-					LOGGER.debug("assignedToName:{}", assignedToName);
+					LOGGER.debug("elapsed:{}", descriptor.getElapsed());
+					LOGGER.debug("assignedToId:{}", descriptor.getAssignedToId());
+					LOGGER.debug("assignedToName:{}", descriptor.getAssignedToName());
 				
 					Results results =  Results.builder(testRailServices, projectName)
 							.projectId(projectId)
@@ -392,15 +557,24 @@ public class TestRailListener implements ITestListener{
 							.sectionName(sectionName)
 							.sectionId(sectionId)
 							.version(version)
-							.testCaseName(testCaseName)
-							.testCaseId(testCaseId)
-							.assignedToName(assignedToName)
-							.assignedToId(assignedToId)
+							.testCaseName(descriptor.getTestCaseName())
+							.testCaseId(descriptor.getTestCaseId())
+							.assignedToName(descriptor.getAssignedToName())
+							.assignedToId(descriptor.getAssignedToId())
 							.testStatus(TEST_STATUS.valueOf(status))
-							.comment(comment)
+							.comment(descriptor.getComment())
 							.build(false);
-					LOGGER.debug("results: {}", results);		
-					resultsList.add(results);
+					LOGGER.debug("results: {}", results);
+					if(journal != null) {
+						//on disk before it is handed over, a crash from here on is replayed by the next run
+						journal.append(runId, results);
+					}
+					if(streamingPublisher != null) {
+						//published in the background, blocks only while TestRail is behind
+						streamingPublisher.submit(results);
+					}else {
+						resultsList.add(results);
+					}
 			}
 		}
 	}
@@ -437,7 +611,7 @@ public class TestRailListener implements ITestListener{
 			for(Results results : resultsList) {
 				results.update();
 				JsonObject jsonObject = new JsonObject();
-				jsonObject.addProperty("case_id", results.getTestCaseName());
+				jsonObject.addProperty("case_id", results.getTestCaseId());
 				jsonObject.addProperty("status_id", results.getStatus().getValue());
 				jsonObject.addProperty("comment", results.getComment());
 				jsonObject.addProperty("defects", results.getDefects());
@@ -451,7 +625,7 @@ public class TestRailListener implements ITestListener{
 			LOGGER.info(LoggerServices.build().bannerWrap("Serializing Buffered Results to file"));
 			for(Results results : resultsList) {
 				JsonObject jsonObject = new JsonObject();
-				jsonObject.addProperty("case_id", results.getTestCaseName());
+				jsonObject.addProperty("case_id", results.getTestCaseId());
 				jsonObject.addProperty("status_id", results.getStatus().getValue());
 				jsonObject.addProperty("comment", results.getComment());
 				jsonObject.addProperty("defects", results.getDefects());
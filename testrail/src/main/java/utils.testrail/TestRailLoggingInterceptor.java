@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import utils.logger.LoggerServices;
+
+
+/*
+ * Logs each request uri and the status/elapsed time of its response at debug
+ */
+public class TestRailLoggingInterceptor implements TestRailInterceptor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private final String serverUrl;
+
+
+	public TestRailLoggingInterceptor(String serverUrl) {
+		this.serverUrl = serverUrl;
+	}
+
+	@Override
+	public TestRailResponse intercept(Chain chain) throws IOException {
+		TestRailRequest request = chain.request();
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.getMethod() + " " + request.toUri(serverUrl), '#'));
+		}
+		TestRailResponse response = chain.proceed(request);
+		LOGGER.debug("{}", response);
+		return response;
+	}
+}
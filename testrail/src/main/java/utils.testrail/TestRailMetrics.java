@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Per endpoint metrics registry of a TestRailServices instance.
+ *
+ * TestRailMetricsInterceptor records every call into the TestRailEndpointMetrics of its endpoint.
+ * Each endpoint is registered as an MXBean named
+ *
+ * 	utils.testrail:type=TestRailMetrics,name=<name>,endpoint=<endpoint>
+ *
+ * and every interval the exporters are handed all endpoints, the first of which logs a one line
+ * summary per endpoint that had calls since the last export.
+ */
+public class TestRailMetrics implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private static final AtomicInteger INSTANCE_CNT = new AtomicInteger();
+	private final String name;
+	private final long interval;
+	private final boolean jmx;
+	private final Map<String, TestRailEndpointMetrics> endpoints = new ConcurrentHashMap<>();
+	private final List<TestRailMetricsExporter> exporters = new CopyOnWriteArrayList<>();
+	private final List<ObjectName> objectNames = new CopyOnWriteArrayList<>();
+	private final ScheduledExecutorService reporter;
+	private volatile boolean closed = false;
+
+
+	public static Builder builder(String name){
+		return new Builder(name);
+	}
+
+
+	public static class Builder {
+		private String name;
+		private long interval = TestRailConstants.METRICS_INTERVAL_DEFAULT;
+		private boolean jmx = TestRailConstants.METRICS_JMX_DEFAULT;
+		private List<TestRailMetricsExporter> exporters = new ArrayList<>();
+
+
+		private Builder(String name) {
+			this.name = name;
+		}
+
+		/*
+		 * ms between exports, 0 turns the reporter thread off
+		 */
+		public Builder interval(Long interval) {
+			if (interval != null) {
+				this.interval = interval;
+			}
+			return this;
+		}
+
+		public Builder jmx(Boolean jmx) {
+			if (jmx != null) {
+				this.jmx = jmx;
+			}
+			return this;
+		}
+
+		public Builder exporter(TestRailMetricsExporter exporter) {
+			if (exporter != null) {
+				exporters.add(exporter);
+			}
+			return this;
+		}
+
+		public TestRailMetrics build() {
+			return new TestRailMetrics(this);
+		}
+	}
+
+	private TestRailMetrics(Builder builder) {
+		this.name = builder.name + "-" + INSTANCE_CNT.incrementAndGet();
+		this.interval = builder.interval;
+		this.jmx = builder.jmx;
+		exporters.add(new LogExporter());
+		exporters.addAll(builder.exporters);
+		if (interval > 0) {
+			reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "testrail-metrics-" + name);
+				thread.setDaemon(true);
+				return thread;
+			});
+			reporter.scheduleAtFixedRate(this::export, interval, interval, TimeUnit.MILLISECONDS);
+		} else {
+			reporter = null;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	/*
+	 * created (and registered with JMX) on first use
+	 */
+	public TestRailEndpointMetrics endpoint(String endpoint) {
+		TestRailEndpointMetrics endpointMetrics = endpoints.get(endpoint);
+		if (endpointMetrics == null) {
+			endpointMetrics = endpoints.computeIfAbsent(endpoint, key -> {
+				TestRailEndpointMetrics created = new TestRailEndpointMetrics(key);
+				register(created);
+				return created;
+			});
+		}
+		return endpointMetrics;
+	}
+
+	/*
+	 * sorted by endpoint name
+	 */
+	public Collection<TestRailEndpointMetrics> getEndpoints() {
+		return Collections.unmodifiableCollection(new TreeMap<>(endpoints).values());
+	}
+
+	public void addExporter(TestRailMetricsExporter exporter) {
+		exporters.add(exporter);
+	}
+
+	public void reset() {
+		for (TestRailEndpointMetrics endpointMetrics : endpoints.values()) {
+			endpointMetrics.reset();
+		}
+	}
+
+	/*
+	 * hands the current metrics to every exporter now
+	 */
+	public void export() {
+		Collection<TestRailEndpointMetrics> snapshot = getEndpoints();
+		for (TestRailMetricsExporter exporter : exporters) {
+			try {
+				exporter.export(snapshot);
+			} catch (RuntimeException e) {
+				LOGGER.error("metrics exporter {} failed: {}", exporter, e.toString());
+			}
+		}
+	}
+
+	private void register(TestRailEndpointMetrics endpointMetrics) {
+		if (!jmx || closed) {
+			return;
+		}
+		try {
+			ObjectName objectName = new ObjectName("utils.testrail:type=TestRailMetrics,name=" + ObjectName.quote(name)
+					+ ",endpoint=" + ObjectName.quote(endpointMetrics.getEndpoint()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(endpointMetrics, objectName);
+			objectNames.add(objectName);
+		} catch (JMException e) {
+			//metrics still work without JMX
+			LOGGER.warn("cannot register {} metrics with JMX: {}", endpointMetrics.getEndpoint(), e.toString());
+		}
+	}
+
+	/*
+	 * stops the reporter after a last export and unregisters the MXBeans
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (reporter != null) {
+			reporter.shutdownNow();
+		}
+		export();
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName objectName : objectNames) {
+			try {
+				mBeanServer.unregisterMBean(objectName);
+			} catch (JMException e) {
+				LOGGER.debug("cannot unregister {}: {}", objectName, e.toString());
+			}
+		}
+		objectNames.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "TestRailMetrics " + name + " " + endpoints.keySet();
+	}
+
+	/*
+	 * the periodic summary log, endpoints without new calls since the last export are skipped
+	 */
+	private class LogExporter implements TestRailMetricsExporter {
+		private final Map<String, Long> loggedCnts = new ConcurrentHashMap<>();
+
+		@Override
+		public void export(Collection<TestRailEndpointMetrics> endpoints) {
+			if (!LOGGER.isInfoEnabled()) {
+				return;
+			}
+			StringBuilder sb = new StringBuilder();
+			for (TestRailEndpointMetrics endpointMetrics : endpoints) {
+				long callCnt = endpointMetrics.getCallCnt();
+				Long loggedCnt = loggedCnts.put(endpointMetrics.getEndpoint(), callCnt);
+				if (callCnt > 0 && (loggedCnt == null || loggedCnt != callCnt)) {
+					sb.append("\n\t").append(endpointMetrics);
+				}
+			}
+			if (sb.length() > 0) {
+				LOGGER.info("TestRail metrics {}:{}", name, sb);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "log";
+		}
+	}
+}
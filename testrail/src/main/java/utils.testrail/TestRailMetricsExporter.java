@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail;
+
+import java.util.Collection;
+
+
+/*
+ * Ships TestRailMetrics somewhere (a log, statsd, a csv for a load test report).
+ *
+ * export() is called from the metrics reporter thread every metricsInterval and once more when the
+ * TestRailServices is closed. The metrics are live and cumulative, read what is needed and return;
+ * an exception is logged and the next export still happens.
+ */
+public interface TestRailMetricsExporter {
+
+	void export(Collection<TestRailEndpointMetrics> endpoints);
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+
+/*
+ * Records every call into TestRailMetrics. Runs outermost so latency covers the whole call, rate
+ * limit waits and retries included, and the final response carries the attempts it took.
+ */
+public class TestRailMetricsInterceptor implements TestRailInterceptor {
+	private final TestRailMetrics metrics;
+
+
+	public TestRailMetricsInterceptor(TestRailMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public TestRailMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public TestRailResponse intercept(Chain chain) throws IOException {
+		TestRailRequest request = chain.request();
+		TestRailEndpointMetrics endpointMetrics = metrics.endpoint(request.getEndpoint());
+		long requestBytes = request.getBody() == null ? 0 : request.getBody().getBytes(StandardCharsets.UTF_8).length;
+		//every lease on this thread from here on belongs to this call
+		TestRailTransport.takePoolWaitNanos();
+		long start = System.nanoTime();
+		try {
+			TestRailResponse response = chain.proceed(request);
+			endpointMetrics.record(response, System.nanoTime() - start, TestRailTransport.takePoolWaitNanos(), requestBytes);
+			return response;
+		} catch (IOException | RuntimeException e) {
+			List<TestRailAttempt> attempts = e instanceof TestRailRetryException ? ((TestRailRetryException) e).getAttempts()
+					: Collections.<TestRailAttempt>emptyList();
+			endpointMetrics.recordFailure(attempts, System.nanoTime() - start, TestRailTransport.takePoolWaitNanos(), requestBytes);
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+
+/*
+ * Immutable milestone record bound from get_milestone / get_milestones, due_on is epoch seconds, 0 if unset.
+ */
+public final class TestRailMileStone {
+	public static final TestRailCodec<TestRailMileStone> CODEC = TestRailMileStone::read;
+
+	private final int id;
+	private final int projectId;
+	private final int parentId;
+	private final String name;
+	private final boolean completed;
+	private final long dueOn;
+	private final String url;
+
+
+	private TestRailMileStone(int id, int projectId, int parentId, String name, boolean completed, long dueOn,
+			String url) {
+		this.id = id;
+		this.projectId = projectId;
+		this.parentId = parentId;
+		this.name = name;
+		this.completed = completed;
+		this.dueOn = dueOn;
+		this.url = url;
+	}
+
+	public static TestRailMileStone read(JsonReader reader) throws IOException {
+		int id = 0;
+		int projectId = 0;
+		int parentId = 0;
+		String name = null;
+		boolean completed = false;
+		long dueOn = 0;
+		String url = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = TestRailCodec.nextInt(reader);
+				break;
+			case "project_id":
+				projectId = TestRailCodec.nextInt(reader);
+				break;
+			case "parent_id":
+				parentId = TestRailCodec.nextInt(reader);
+				break;
+			case "name":
+				name = TestRailCodec.nextString(reader);
+				break;
+			case "is_completed":
+				completed = TestRailCodec.nextBoolean(reader);
+				break;
+			case "due_on":
+				dueOn = TestRailCodec.nextLong(reader);
+				break;
+			case "url":
+				url = TestRailCodec.nextString(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return new TestRailMileStone(id, projectId, parentId, name, completed, dueOn, url);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getProjectId() {
+		return projectId;
+	}
+
+	public int getParentId() {
+		return parentId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public long getDueOn() {
+		return dueOn;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	@Override
+	public String toString() {
+		return "MileStone[" + id + " " + name + "]";
+	}
+}
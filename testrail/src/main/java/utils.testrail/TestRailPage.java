@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+/*
+ * One page of a TestRail list endpoint: its items plus what TestRailPager needs to ask for the next.
+ *
+ * A bare array (pre 6.7 servers) is a single page with no next.
+ */
+public class TestRailPage<T> {
+	private final List<T> items;
+	private final int offset;
+	private final int limit;
+	private final int size;
+	private final boolean next;
+
+
+	TestRailPage(List<T> items, int offset, int limit, int size, boolean next) {
+		this.items = Collections.unmodifiableList(items);
+		this.offset = offset;
+		this.limit = limit;
+		this.size = size;
+		this.next = next;
+	}
+
+	/*
+	 * codec for a whole page whose items are bound with itemCodec
+	 */
+	public static <T> TestRailCodec<TestRailPage<T>> codec(TestRailCodec<T> itemCodec) {
+		return reader -> read(reader, itemCodec);
+	}
+
+	private static <T> TestRailPage<T> read(JsonReader reader, TestRailCodec<T> itemCodec) throws IOException {
+		if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+			List<T> items = readItems(reader, itemCodec);
+			return new TestRailPage<>(items, 0, items.size(), items.size(), false);
+		}
+
+		List<T> items = new ArrayList<>();
+		int offset = 0;
+		int limit = -1;
+		int size = -1;
+		boolean next = false;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("offset".equals(name)) {
+				offset = TestRailCodec.nextInt(reader);
+			} else if ("limit".equals(name)) {
+				limit = TestRailCodec.nextInt(reader);
+			} else if ("size".equals(name)) {
+				size = TestRailCodec.nextInt(reader);
+			} else if ("_links".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+				next = readNext(reader);
+			} else if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+				items = readItems(reader, itemCodec);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		size = size < 0 ? items.size() : size;
+		return new TestRailPage<>(items, offset, limit < 0 ? size : limit, size, next);
+	}
+
+	private static <T> List<T> readItems(JsonReader reader, TestRailCodec<T> itemCodec) throws IOException {
+		List<T> items = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			items.add(itemCodec.read(reader));
+		}
+		reader.endArray();
+		return items;
+	}
+
+	private static boolean readNext(JsonReader reader) throws IOException {
+		boolean next = false;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if ("next".equals(reader.nextName()) && reader.peek() != JsonToken.NULL) {
+				next = true;
+			}
+			reader.skipValue();
+		}
+		reader.endObject();
+		return next;
+	}
+
+	/*
+	 * the same page out of an already parsed response, the items array is used as is
+	 */
+	static TestRailPage<JsonObject> of(JsonElement jsonElement) {
+		List<JsonObject> items = new ArrayList<>();
+		if (jsonElement.isJsonArray()) {
+			addObjects(jsonElement.getAsJsonArray(), items);
+			return new TestRailPage<>(items, 0, items.size(), items.size(), false);
+		}
+
+		JsonObject envelope = jsonElement.getAsJsonObject();
+		for (Map.Entry<String, JsonElement> entry : envelope.entrySet()) {
+			if (entry.getValue().isJsonArray()) {
+				addObjects(entry.getValue().getAsJsonArray(), items);
+				break;
+			}
+		}
+		JsonElement links = envelope.get("_links");
+		boolean next = links != null && links.isJsonObject() && links.getAsJsonObject().has("next")
+				&& !links.getAsJsonObject().get("next").isJsonNull();
+		//size is what the server sent, items may have been thinned out by a where() projection
+		int size = envelope.has("size") ? envelope.get("size").getAsInt() : items.size();
+		int offset = envelope.has("offset") ? envelope.get("offset").getAsInt() : 0;
+		int limit = envelope.has("limit") ? envelope.get("limit").getAsInt() : size;
+		return new TestRailPage<>(items, offset, limit, size, next);
+	}
+
+	private static void addObjects(JsonArray jsonArray, List<JsonObject> items) {
+		for (JsonElement jsonElement : jsonArray) {
+			items.add(jsonElement.getAsJsonObject());
+		}
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/*
+	 * number of items the server sent on this page
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public boolean hasNext() {
+		return next && size > 0;
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+
+/*
+ * Iterates a TestRail list endpoint one page at a time.
+ *
+ * TestRail 6.7+ answers get_cases, get_tests, get_runs ... with an envelope
+ *
+ * 	{"offset": 0, "limit": 250, "size": 250, "_links": {"next": "/api/v2/get_cases/1&offset=250", "prev": null}, "cases": [ ... ]}
+ *
+ * older servers with a bare array. Both are handled: the first request goes out as given, further
+ * pages are asked for with offset/limit while _links.next is set. Only the current page (and, with
+ * prefetch, the next one being fetched in the background) is held in memory.
+ *
+ * json() pages yield Gson objects, typed() pages are bound by a TestRailCodec as they stream in.
+ */
+public class TestRailPager<T> implements Iterator<T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private static final AtomicInteger THREAD_CNT = new AtomicInteger();
+	private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "testrail-prefetch-" + THREAD_CNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final TestRailRequest request;
+	private final boolean prefetch;
+	private final PageReader<T> pageReader;
+	private Iterator<T> page;
+	private TestRailRequest nextRequest;
+	private CompletableFuture<TestRailPage<T>> nextPage;
+	private int pageCnt = 0;
+
+
+	/*
+	 * fetches and decodes one page, null when the server had nothing to say
+	 */
+	@FunctionalInterface
+	interface PageReader<T> {
+		TestRailPage<T> read(TestRailRequest request) throws IOException;
+	}
+
+	private TestRailPager(TestRailRequest request, boolean prefetch, PageReader<T> pageReader) {
+		this.request = request;
+		this.prefetch = prefetch;
+		this.pageReader = pageReader;
+		this.nextRequest = request;
+	}
+
+	public static TestRailPager<JsonObject> json(TestRailExecutor executor, TestRailRequest request, boolean prefetch) {
+		return new TestRailPager<>(request, prefetch, current -> {
+			JsonElement jsonElement = executor.execute(current);
+			return jsonElement.isJsonArray() || jsonElement.isJsonObject() ? TestRailPage.of(jsonElement) : null;
+		});
+	}
+
+	public static <T> TestRailPager<T> typed(TestRailExecutor executor, TestRailRequest request, TestRailCodec<T> codec,
+			boolean prefetch) {
+		TestRailCodec<TestRailPage<T>> pageCodec = TestRailPage.codec(codec);
+		return new TestRailPager<>(request, prefetch, current -> executor.execute(current, pageCodec));
+	}
+
+	public static Stream<JsonObject> stream(TestRailExecutor executor, TestRailRequest request, boolean prefetch) {
+		return stream(json(executor, request, prefetch));
+	}
+
+	public static <T> Stream<T> stream(TestRailExecutor executor, TestRailRequest request, TestRailCodec<T> codec,
+			boolean prefetch) {
+		return stream(typed(executor, request, codec, prefetch));
+	}
+
+	private static <T> Stream<T> stream(TestRailPager<T> pager) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pager, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/*
+	 * IOExceptions from fetching a page surface as UncheckedIOException
+	 */
+	@Override
+	public boolean hasNext() {
+		while (page == null || !page.hasNext()) {
+			if (nextRequest == null && nextPage == null) {
+				return false;
+			}
+			try {
+				page = readPage(fetch());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException(request.toString());
+		}
+		return page.next();
+	}
+
+	public int getPageCnt() {
+		return pageCnt;
+	}
+
+	private TestRailPage<T> fetch() throws IOException {
+		if (nextPage != null) {
+			CompletableFuture<TestRailPage<T>> future = nextPage;
+			nextPage = null;
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) e.getCause()).getCause();
+				}
+				throw e;
+			}
+		}
+		TestRailRequest current = nextRequest;
+		nextRequest = null;
+		return pageReader.read(current);
+	}
+
+	/*
+	 * lines up the request for the page after this one
+	 */
+	private Iterator<T> readPage(TestRailPage<T> testRailPage) throws IOException {
+		pageCnt++;
+		if (testRailPage == null) {
+			throw new IOException("JsonNull: " + request);
+		}
+		if (testRailPage.hasNext()) {
+			int offset = testRailPage.getOffset() + testRailPage.getSize();
+			final TestRailRequest following = request.newBuilder().queryParam("limit", testRailPage.getLimit())
+					.queryParam("offset", offset).build();
+			LOGGER.trace("{} page {} next offset {}", request, pageCnt, offset);
+			if (prefetch) {
+				nextPage = CompletableFuture.supplyAsync(() -> {
+					try {
+						return pageReader.read(following);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, PREFETCH_EXECUTOR);
+			} else {
+				nextRequest = following;
+			}
+		}
+		return testRailPage.getItems().iterator();
+	}
+}
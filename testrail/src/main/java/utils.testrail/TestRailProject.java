@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+
+/*
+ * Immutable project record bound from get_project / get_projects.
+ *
+ * suite_mode is kept as TestRail's integer (see SUITE_MODE), completed_on is epoch seconds, 0 if open.
+ */
+public final class TestRailProject {
+	public static final TestRailCodec<TestRailProject> CODEC = TestRailProject::read;
+
+	private final int id;
+	private final String name;
+	private final int suiteMode;
+	private final boolean completed;
+	private final long completedOn;
+	private final String url;
+
+
+	private TestRailProject(int id, String name, int suiteMode, boolean completed, long completedOn, String url) {
+		this.id = id;
+		this.name = name;
+		this.suiteMode = suiteMode;
+		this.completed = completed;
+		this.completedOn = completedOn;
+		this.url = url;
+	}
+
+	public static TestRailProject read(JsonReader reader) throws IOException {
+		int id = 0;
+		String name = null;
+		int suiteMode = 0;
+		boolean completed = false;
+		long completedOn = 0;
+		String url = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = TestRailCodec.nextInt(reader);
+				break;
+			case "name":
+				name = TestRailCodec.nextString(reader);
+				break;
+			case "suite_mode":
+				suiteMode = TestRailCodec.nextInt(reader);
+				break;
+			case "is_completed":
+				completed = TestRailCodec.nextBoolean(reader);
+				break;
+			case "completed_on":
+				completedOn = TestRailCodec.nextLong(reader);
+				break;
+			case "url":
+				url = TestRailCodec.nextString(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return new TestRailProject(id, name, suiteMode, completed, completedOn, url);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getSuiteMode() {
+		return suiteMode;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public long getCompletedOn() {
+		return completedOn;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	@Override
+	public String toString() {
+		return "Project[" + id + " " + name + "]";
+	}
+}
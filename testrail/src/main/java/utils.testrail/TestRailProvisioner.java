@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+
+
+/*
+ * Makes sure the project -> milestone -> suite -> section -> case -> run hierarchy a suite publishes into
+ * exists, creating what is missing where the matching create flag is set.
+ *
+ * Every level is looked up through TestRailServices' entity cache, so the snapshot of TestRail costs one
+ * list call per scope however many tests there are. Only the missing entities are added, each after
+ * the level it depends on. Siblings (milestone and suite, the cases of a section) are looked up and
+ * added concurrently. The cases of a section are all looked up before the first one is added because
+ * an add_case drops the cached case scopes.
+ *
+ * 	TestRailProvisioner provisioner = TestRailProvisioner.builder(testRailServices, "project1")
+ * 			.suiteName("suite1").sectionName("section1").runName("run1")
+ * 			.testCaseNames(names).createSection(true).createTestCase(true).createRun(true)
+ * 			.build().provision();
+ * 	Integer runId = provisioner.getRunId();
+ *
+ * A name left at its TestRailConstants default is not part of the hierarchy, a missing entity without
+ * its create flag is logged and its id stays null.
+ */
+public class TestRailProvisioner {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private final TestRailServices testRailServices;
+	private final String projectName;
+	private final String mileStoneName;
+	private final String suiteName;
+	private final String sectionName;
+	private final String runName;
+	private final Set<String> testCaseNames;
+	private final boolean createProject;
+	private final boolean createMileStone;
+	private final boolean createSuite;
+	private final boolean createSection;
+	private final boolean createTestCase;
+	private final boolean createRun;
+	private volatile Integer projectId;
+	private volatile Integer mileStoneId;
+	private volatile Integer suiteId;
+	private volatile Integer sectionId;
+	private volatile Integer runId;
+	private final Map<String, Integer> testCaseIds = new ConcurrentHashMap<>();
+	private final List<String> created = new CopyOnWriteArrayList<>();
+
+
+	@FunctionalInterface
+	private interface Add {
+		CompletableFuture<JsonObject> add();
+	}
+
+
+	public static Builder builder(TestRailServices testRailServices, String projectName){
+		return new Builder(testRailServices, projectName);
+	}
+
+
+	public static class Builder {
+		private TestRailServices testRailServices;
+		private String projectName;
+		private Integer projectId;
+		private String mileStoneName;
+		private Integer mileStoneId;
+		private String suiteName;
+		private Integer suiteId;
+		private String sectionName;
+		private Integer sectionId;
+		private String runName;
+		private Integer runId;
+		private Set<String> testCaseNames = new LinkedHashSet<>();
+		private boolean createProject = false;
+		private boolean createMileStone = false;
+		private boolean createSuite = false;
+		private boolean createSection = false;
+		private boolean createTestCase = false;
+		private boolean createRun = false;
+
+
+		private Builder(TestRailServices testRailServices, String projectName) {
+			this.testRailServices = testRailServices;
+			this.projectName = projectName;
+		}
+
+		/*
+		 * a known id skips that level's lookup
+		 */
+		public Builder projectId(Integer projectId) {
+			this.projectId = projectId;
+			return this;
+		}
+
+		public Builder mileStoneName(String mileStoneName) {
+			this.mileStoneName = mileStoneName;
+			return this;
+		}
+
+		public Builder mileStoneId(Integer mileStoneId) {
+			this.mileStoneId = mileStoneId;
+			return this;
+		}
+
+		public Builder suiteName(String suiteName) {
+			this.suiteName = suiteName;
+			return this;
+		}
+
+		public Builder suiteId(Integer suiteId) {
+			this.suiteId = suiteId;
+			return this;
+		}
+
+		public Builder sectionName(String sectionName) {
+			this.sectionName = sectionName;
+			return this;
+		}
+
+		public Builder sectionId(Integer sectionId) {
+			this.sectionId = sectionId;
+			return this;
+		}
+
+		public Builder runName(String runName) {
+			this.runName = runName;
+			return this;
+		}
+
+		public Builder runId(Integer runId) {
+			this.runId = runId;
+			return this;
+		}
+
+		/*
+		 * case titles expected in the section, duplicates are looked up once
+		 */
+		public Builder testCaseNames(Collection<String> testCaseNames) {
+			if (testCaseNames != null) {
+				this.testCaseNames.addAll(testCaseNames);
+			}
+			return this;
+		}
+
+		public Builder createProject(Boolean createProject) {
+			if (createProject != null) {
+				this.createProject = createProject;
+			}
+			return this;
+		}
+
+		public Builder createMileStone(Boolean createMileStone) {
+			if (createMileStone != null) {
+				this.createMileStone = createMileStone;
+			}
+			return this;
+		}
+
+		public Builder createSuite(Boolean createSuite) {
+			if (createSuite != null) {
+				this.createSuite = createSuite;
+			}
+			return this;
+		}
+
+		public Builder createSection(Boolean createSection) {
+			if (createSection != null) {
+				this.createSection = createSection;
+			}
+			return this;
+		}
+
+		public Builder createTestCase(Boolean createTestCase) {
+			if (createTestCase != null) {
+				this.createTestCase = createTestCase;
+			}
+			return this;
+		}
+
+		public Builder createRun(Boolean createRun) {
+			if (createRun != null) {
+				this.createRun = createRun;
+			}
+			return this;
+		}
+
+		public TestRailProvisioner build() {
+			return new TestRailProvisioner(this);
+		}
+	}
+
+	private TestRailProvisioner(Builder builder) {
+		this.testRailServices = builder.testRailServices;
+		this.projectName = builder.projectName;
+		this.projectId = builder.projectId;
+		this.mileStoneName = isSet(builder.mileStoneName, TestRailConstants.MILESTONE_NAME_DEFAULT) ? builder.mileStoneName : null;
+		this.mileStoneId = builder.mileStoneId;
+		this.suiteName = isSet(builder.suiteName, TestRailConstants.SUITE_NAME_DEFAULT) ? builder.suiteName : null;
+		this.suiteId = builder.suiteId;
+		this.sectionName = isSet(builder.sectionName, TestRailConstants.SECTION_NAME_DEFAULT) ? builder.sectionName : null;
+		this.sectionId = builder.sectionId;
+		this.runName = isSet(builder.runName, TestRailConstants.RUN_NAME_DEFAULT) ? builder.runName : null;
+		this.runId = builder.runId;
+		this.testCaseNames = Collections.unmodifiableSet(new LinkedHashSet<>(builder.testCaseNames));
+		this.createProject = builder.createProject;
+		this.createMileStone = builder.createMileStone;
+		this.createSuite = builder.createSuite;
+		this.createSection = builder.createSection;
+		this.createTestCase = builder.createTestCase;
+		this.createRun = builder.createRun;
+	}
+
+	private static boolean isSet(String name, String defaultName) {
+		return name != null && !name.equals(defaultName);
+	}
+
+	/*
+	 * resolves every level, adds what is missing and allowed, blocks until the hierarchy is done
+	 */
+	public TestRailProvisioner provision() throws IOException, TestRailConfigException {
+		if (projectId == null) {
+			projectId = testRailServices.getProjectIdByName(projectName, false);
+			if (projectId == null && createProject) {
+				projectId = added("project", projectName, testRailServices.addProject(json("name", projectName).toString()));
+			}
+			if (projectId == null) {
+				LOGGER.warn("project {} not found and createProject is off, nothing provisioned", projectName);
+				return this;
+			}
+		}
+
+		try (TestRailServicesAsync async = TestRailServicesAsync.builder(testRailServices).build()) {
+			CompletableFuture<Integer> mileStone = mileStoneId != null || mileStoneName == null
+					? CompletableFuture.completedFuture(mileStoneId)
+					: resolveOrAdd("milestone", mileStoneName, createMileStone,
+							async.getMileStoneIdByName(projectId, mileStoneName, false),
+							() -> async.addMileStone(projectId, json("name", mileStoneName).toString()));
+			CompletableFuture<Integer> suite = suiteId != null || suiteName == null
+					? CompletableFuture.completedFuture(suiteId)
+					: resolveOrAdd("suite", suiteName, createSuite,
+							async.getSuiteIdByName(projectId, suiteName, false),
+							() -> async.addSuite(projectId, json("name", suiteName).toString()));
+			CompletableFuture<Integer> section = sectionId != null || sectionName == null
+					? CompletableFuture.completedFuture(sectionId)
+					: suite.thenCompose(id -> resolveOrAdd("section", sectionName, createSection,
+							async.getSectionIdByName(projectId, id, sectionName, false),
+							() -> {
+								JsonObject body = json("name", sectionName);
+								body.addProperty("suite_id", id);
+								return async.addSection(projectId, body.toString());
+							}));
+			CompletableFuture<Void> testCases = section.thenCompose(id -> testCases(async, suite.join(), id, mileStone));
+			CompletableFuture<Integer> run = runId != null || runName == null
+					? CompletableFuture.completedFuture(runId)
+					//after the cases so a new include_all run picks them up
+					: CompletableFuture.allOf(mileStone, testCases).thenCompose(v -> resolveOrAdd("run", runName, createRun,
+							async.getRunIdByName(projectId, runName, false),
+							() -> {
+								JsonObject body = json("name", runName);
+								body.addProperty("suite_id", suite.join());
+								body.addProperty("milestone_id", mileStone.join());
+								body.addProperty("include_all", true);
+								return async.addRun(projectId, body.toString());
+							}));
+
+			CompletableFuture.allOf(mileStone, suite, section, testCases, run).join();
+			mileStoneId = mileStone.join();
+			suiteId = suite.join();
+			sectionId = section.join();
+			runId = run.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof TestRailConfigException) {
+				throw (TestRailConfigException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		LOGGER.info("{}", this);
+		return this;
+	}
+
+	/*
+	 * every title is looked up first, the missing ones are then added side by side once the
+	 * milestone they are added under is known
+	 */
+	private CompletableFuture<Void> testCases(TestRailServicesAsync async, Integer suiteId, Integer sectionId,
+			CompletableFuture<Integer> mileStone) {
+		Map<String, CompletableFuture<Integer>> lookups = new LinkedHashMap<>();
+		for (String testCaseName : testCaseNames) {
+			lookups.put(testCaseName, async.getTestCaseIdByName(projectId, suiteId, sectionId, testCaseName, false));
+		}
+		List<CompletableFuture<?>> before = new ArrayList<>(lookups.values());
+		before.add(mileStone);
+		return CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0])).thenCompose(v -> {
+			List<CompletableFuture<?>> adds = new ArrayList<>();
+			for (Map.Entry<String, CompletableFuture<Integer>> lookup : lookups.entrySet()) {
+				String testCaseName = lookup.getKey();
+				//a case needs a section to live in
+				boolean create = createTestCase && sectionId != null;
+				adds.add(resolveOrAdd("test case", testCaseName, create, lookup.getValue(),
+						() -> {
+							JsonObject body = json("title", testCaseName);
+							body.addProperty("milestone_id", mileStone.join());
+							return async.addTestCase(sectionId, body.toString());
+						})
+						.thenAccept(id -> {
+							if (id != null) {
+								testCaseIds.put(testCaseName, id);
+							}
+						}));
+			}
+			return CompletableFuture.allOf(adds.toArray(new CompletableFuture<?>[0]));
+		});
+	}
+
+	/*
+	 * add_* bodies are built with Gson, the entity builders' toJson() needs a javax.json provider at runtime
+	 */
+	private static JsonObject json(String nameKey, String name) {
+		JsonObject jsonObject = new JsonObject();
+		jsonObject.addProperty(nameKey, name);
+		return jsonObject;
+	}
+
+	private CompletableFuture<Integer> resolveOrAdd(String kind, String name, boolean create, CompletableFuture<Integer> lookup, Add add) {
+		return lookup.thenCompose(id -> {
+			if (id != null) {
+				return CompletableFuture.completedFuture(id);
+			}
+			if (!create) {
+				LOGGER.warn("{} {} not found in project {} and is not to be created", kind, name, projectName);
+				return CompletableFuture.completedFuture(null);
+			}
+			return add.add().thenApply(jsonObject -> added(kind, name, jsonObject));
+		});
+	}
+
+	private Integer added(String kind, String name, JsonObject jsonObject) {
+		Integer id = jsonObject.get("id").getAsInt();
+		created.add(kind + " " + name + " (" + id + ")");
+		LOGGER.info("added {} {}: {}", kind, name, id);
+		return id;
+	}
+
+	public Integer getProjectId() {
+		return projectId;
+	}
+
+	public Integer getMileStoneId() {
+		return mileStoneId;
+	}
+
+	public Integer getSuiteId() {
+		return suiteId;
+	}
+
+	public Integer getSectionId() {
+		return sectionId;
+	}
+
+	public Integer getRunId() {
+		return runId;
+	}
+
+	/*
+	 * title -> id for every case that exists now, missing titles are absent
+	 */
+	public Map<String, Integer> getTestCaseIds() {
+		return Collections.unmodifiableMap(testCaseIds);
+	}
+
+	/*
+	 * what provision() added, e.g. "section smoke (12)"
+	 */
+	public List<String> getCreated() {
+		return Collections.unmodifiableList(created);
+	}
+
+	@Override
+	public String toString() {
+		return "project " + projectName + " (" + projectId + "), milestone " + mileStoneId + ", suite " + suiteId + ", section "
+				+ sectionId + ", run " + runId + ", " + testCaseIds.size() + " of " + testCaseNames.size() + " test cases, added "
+				+ created;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/*
+ * Per batch outcome of a TestRailResultPublisher.publish() call.
+ *
+ * Results whose case id could not be resolved never made it into a batch and are listed separately.
+ */
+public class TestRailPublishReport {
+	private final Integer runId;
+	private final List<TestRailBatchResult> batches;
+	private final List<Results> unresolved;
+
+
+	TestRailPublishReport(Integer runId, List<TestRailBatchResult> batches, List<Results> unresolved) {
+		this.runId = runId;
+		this.batches = Collections.unmodifiableList(new ArrayList<>(batches));
+		this.unresolved = Collections.unmodifiableList(new ArrayList<>(unresolved));
+	}
+
+	public Integer getRunId() {
+		return runId;
+	}
+
+	public List<TestRailBatchResult> getBatches() {
+		return batches;
+	}
+
+	public List<TestRailBatchResult> getFailedBatches() {
+		List<TestRailBatchResult> failed = new ArrayList<>();
+		for (TestRailBatchResult batch : batches) {
+			if (!batch.isSuccessful()) {
+				failed.add(batch);
+			}
+		}
+		return failed;
+	}
+
+	public List<Results> getUnresolved() {
+		return unresolved;
+	}
+
+	/*
+	 * every result that did not reach TestRail, unresolved ones first
+	 */
+	public List<Results> getFailedResults() {
+		List<Results> failed = new ArrayList<>(unresolved);
+		for (TestRailBatchResult batch : getFailedBatches()) {
+			failed.addAll(batch.getResults());
+		}
+		return failed;
+	}
+
+	public int getPublishedCnt() {
+		int cnt = 0;
+		for (TestRailBatchResult batch : batches) {
+			if (batch.isSuccessful()) {
+				cnt += batch.getResults().size();
+			}
+		}
+		return cnt;
+	}
+
+	public int getFailedCnt() {
+		return getFailedResults().size();
+	}
+
+	public boolean isSuccessful() {
+		return getFailedCnt() == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "run " + runId + ": " + getPublishedCnt() + " published, " + getFailedCnt() + " failed ("
+				+ getFailedBatches().size() + " of " + batches.size() + " batches failed, " + unresolved.size() + " unresolved)";
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+
+/*
+ * Waits for a read or write token from the shared TestRailRateLimiter before every send,
+ * including each retry of a throttled request
+ */
+public class TestRailRateLimitInterceptor implements TestRailInterceptor {
+	private final TestRailRateLimiter rateLimiter;
+
+
+	public TestRailRateLimitInterceptor(TestRailRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	public TestRailRateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	@Override
+	public TestRailResponse intercept(Chain chain) throws IOException {
+		rateLimiter.acquire(chain.request().isWrite());
+		return chain.proceed(chain.request());
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * JVM wide client side throttle, one per TestRail account (server url + user) no matter how many
+ * TestRailServices instances talk to it.
+ *
+ * Reads (get_*) and writes (add_*, update_*, delete_*) draw from separate token buckets refilled
+ * smoothly at requestsPerMinute / 60 per second. A caller that finds its bucket empty reserves the
+ * next token and sleeps until it is due, so waiting callers are released one at a time at the
+ * configured rate rather than all at once. A rate of 0 disables that bucket.
+ */
+public class TestRailRateLimiter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private static final ConcurrentMap<String, TestRailRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+	private final String account;
+	private final TokenBucket readBucket;
+	private final TokenBucket writeBucket;
+
+
+	/*
+	 * the limiter for this account, created with these rates by whichever instance asks first
+	 */
+	public static TestRailRateLimiter forAccount(String serverUrl, String userName, int readsPerMinute,
+			int writesPerMinute, int burst) {
+		String account = userName + "@" + serverUrl;
+		TestRailRateLimiter limiter = LIMITERS.computeIfAbsent(account,
+				key -> new TestRailRateLimiter(key, readsPerMinute, writesPerMinute, burst));
+		if (limiter.readBucket.perMinute != readsPerMinute || limiter.writeBucket.perMinute != writesPerMinute) {
+			LOGGER.warn("rate limiter for {} already running at reads={}/min writes={}/min, ignoring reads={}/min writes={}/min",
+					account, limiter.readBucket.perMinute, limiter.writeBucket.perMinute, readsPerMinute, writesPerMinute);
+		}
+		return limiter;
+	}
+
+	/*
+	 * drops every shared limiter, the next forAccount() starts with full buckets
+	 */
+	public static void reset() {
+		LIMITERS.clear();
+	}
+
+	private TestRailRateLimiter(String account, int readsPerMinute, int writesPerMinute, int burst) {
+		this.account = account;
+		this.readBucket = new TokenBucket(readsPerMinute, burst);
+		this.writeBucket = new TokenBucket(writesPerMinute, burst);
+		LOGGER.info("rate limiter for {}: reads={}/min writes={}/min burst={}", account, readsPerMinute, writesPerMinute, burst);
+	}
+
+	/*
+	 * blocks until the request may be sent, returns the ms spent waiting
+	 */
+	public long acquire(boolean write) throws InterruptedIOException {
+		long waitNanos = (write ? writeBucket : readBucket).reserve(System.nanoTime());
+		if (waitNanos > 0) {
+			LOGGER.trace("{} {} throttled {}ms", account, write ? "write" : "read", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted waiting for rate limit " + account);
+			}
+		}
+		return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+	}
+
+	public String getAccount() {
+		return account;
+	}
+
+	public int getReadsPerMinute() {
+		return readBucket.perMinute;
+	}
+
+	public int getWritesPerMinute() {
+		return writeBucket.perMinute;
+	}
+
+
+	private static class TokenBucket {
+		private final int perMinute;
+		private final double capacity;
+		private final double tokensPerNano;
+		private double tokens;
+		private long lastNanos;
+
+		private TokenBucket(int perMinute, int burst) {
+			this.perMinute = perMinute;
+			this.capacity = Math.max(1, burst);
+			this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+			this.tokens = capacity;
+			this.lastNanos = System.nanoTime();
+		}
+
+		/*
+		 * takes a token, possibly one not yet refilled, and returns how long until it is due
+		 */
+		private synchronized long reserve(long nowNanos) {
+			if (perMinute <= 0) {
+				return 0;
+			}
+			tokens = Math.min(capacity, tokens + (nowNanos - lastNanos) * tokensPerNano);
+			lastNanos = nowNanos;
+			tokens -= 1;
+			return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+		}
+	}
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import utils.logger.LoggerServices;
+
+
+/*
+ * Publishes results that were written to disk instead of TestRail, so CI nodes without TestRail
+ * access can dump their results and one gateway host uploads them later.
+ *
+ * 	java utils.testrail.TestRailReplay --run 42 --project MyProject buffer.json testrail-journal.ndjson
+ *
+ * Two kinds of file are understood:
+ * 	journal	a TestRailJournal, its pending entries are published and acknowledged in place
+ * 	buffer	buffer.json/buffer2.json as written by TestRailListener.generateResultsArray(). case_id is an id
+ * 			or a case title, titles are resolved against --project/--suite. The first pass copies the
+ * 			buffer into a checkpoint journal next to it and publishing acknowledges entries there, a rerun
+ * 			picks up from the checkpoint instead of the buffer. Titles that do not resolve and status_ids
+ * 			that are missing or not a TEST_STATUS are reported and left out of the checkpoint.
+ *
+ * Names resolve through TestRailServices' entity cache on a single thread before anything is posted,
+ * one list call per scope, then TestRailResultPublisher posts add_results_for_cases batches in parallel.
+ */
+public class TestRailReplay {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	public static final String CHECKPOINT_SUFFIX = ".checkpoint.ndjson";
+	private static final String USAGE = "usage: TestRailReplay [options] <buffer.json|journal.ndjson>...\n"
+			+ "  --config <path>          testrail.properties (default src/main/resources/testrail.properties)\n"
+			+ "  --run <id|name>          run for buffer files and for journal entries without one\n"
+			+ "  --project <name>         project case titles and run names are looked up in\n"
+			+ "  --suite <id|name>        suite case titles are looked up in\n"
+			+ "  --checkpoint-dir <dir>   where buffer checkpoints are kept (default: next to the buffer)\n"
+			+ "  --batch-size <n>         results per add_results_for_cases call\n"
+			+ "  --parallelism <n>        batches in flight";
+	private final TestRailServices testRailServices;
+	private final String projectName;
+	private final String suite;
+	private final String run;
+	private final Path checkpointDir;
+	private final Integer batchSize;
+	private final Integer parallelism;
+	private Integer projectId = null;
+	private Integer suiteId = null;
+	private Integer runId = null;
+	private boolean suiteResolved = false;
+
+
+	public static Builder builder(TestRailServices testRailServices){
+		return new Builder(testRailServices);
+	}
+
+
+	public static class Builder {
+		private TestRailServices testRailServices;
+		private String projectName;
+		private String suite;
+		private String run;
+		private Path checkpointDir;
+		private Integer batchSize;
+		private Integer parallelism;
+
+
+		private Builder(TestRailServices testRailServices) {
+			this.testRailServices = testRailServices;
+		}
+
+		public Builder projectName(String projectName) {
+			this.projectName = projectName;
+			return this;
+		}
+
+		/*
+		 * suite id or name
+		 */
+		public Builder suite(String suite) {
+			this.suite = suite;
+			return this;
+		}
+
+		/*
+		 * run id or name, a name needs projectName
+		 */
+		public Builder run(String run) {
+			this.run = run;
+			return this;
+		}
+
+		public Builder checkpointDir(Path checkpointDir) {
+			this.checkpointDir = checkpointDir;
+			return this;
+		}
+
+		public Builder batchSize(Integer batchSize) {
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		public Builder parallelism(Integer parallelism) {
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		public TestRailReplay build() {
+			return new TestRailReplay(this);
+		}
+	}
+
+	private TestRailReplay(Builder builder) {
+		this.testRailServices = builder.testRailServices;
+		this.projectName = builder.projectName;
+		this.suite = builder.suite;
+		this.run = builder.run;
+		this.checkpointDir = builder.checkpointDir;
+		this.batchSize = builder.batchSize;
+		this.parallelism = builder.parallelism;
+	}
+
+	public static void main(String[] args) {
+		System.exit(run(args));
+	}
+
+	/*
+	 * exit status: 0 everything published, 1 results left unpublished, 2 bad arguments
+	 */
+	public static int run(String[] args) {
+		String config = "src/main/resources/testrail.properties";
+		Map<String, String> options = new LinkedHashMap<>();
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--help") || args[i].equals("-h")) {
+				System.out.println(USAGE);
+				return 0;
+			}
+			if (args[i].startsWith("--")) {
+				if (i + 1 == args.length) {
+					System.err.println(args[i] + " needs a value\n" + USAGE);
+					return 2;
+				}
+				options.put(args[i], args[++i]);
+			} else {
+				files.add(Paths.get(args[i]));
+			}
+		}
+		if (files.isEmpty()) {
+			System.err.println(USAGE);
+			return 2;
+		}
+		if (options.containsKey("--config")) {
+			config = options.remove("--config");
+		}
+		//closed on the way out so the pool is released and the final metrics export runs
+		try (TestRailServices testRailServices = new TestRailServices(config)) {
+			TestRailReplay replay = builder(testRailServices)
+					.run(options.remove("--run"))
+					.projectName(options.remove("--project"))
+					.suite(options.remove("--suite"))
+					.checkpointDir(options.containsKey("--checkpoint-dir") ? Paths.get(options.remove("--checkpoint-dir")) : null)
+					.batchSize(options.containsKey("--batch-size") ? Integer.valueOf(options.remove("--batch-size")) : null)
+					.parallelism(options.containsKey("--parallelism") ? Integer.valueOf(options.remove("--parallelism")) : null)
+					.build();
+			if (!options.isEmpty()) {
+				System.err.println("unknown options " + options.keySet() + "\n" + USAGE);
+				return 2;
+			}
+			return replay.replay(files) == 0 ? 0 : 1;
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage() + "\n" + USAGE);
+			return 2;
+		} catch (Exception e) {
+			LOGGER.error("{}\n{}", e.getMessage()==null ? "" : e.getMessage(), ExceptionUtils.getStackTrace(e));
+			return 1;
+		}
+	}
+
+	/*
+	 * replays each file in turn and returns how many results are still not in TestRail
+	 */
+	public int replay(List<Path> files) throws IOException, TestRailConfigException {
+		int notPublished = 0;
+		for (Path file : files) {
+			notPublished += replay(file);
+		}
+		LOGGER.info("replayed {} files, {} results not published", files.size(), notPublished);
+		return notPublished;
+	}
+
+	public int replay(Path file) throws IOException, TestRailConfigException {
+		if (!Files.isRegularFile(file)) {
+			throw new IOException("no such file: " + file);
+		}
+		if (isJournal(file)) {
+			LOGGER.info(LoggerServices.build().bannerWrap("Replaying Journal " + file));
+			return publish(TestRailJournal.builder(file.toString()).build());
+		}
+		Path checkpoint = checkpoint(file);
+		int unresolved = 0;
+		if (Files.exists(checkpoint)) {
+			LOGGER.info(LoggerServices.build().bannerWrap("Resuming " + file + " from " + checkpoint));
+		} else {
+			LOGGER.info(LoggerServices.build().bannerWrap("Replaying Buffer " + file));
+			unresolved = importBuffer(file, checkpoint);
+		}
+		return unresolved + publish(TestRailJournal.builder(checkpoint.toString()).build());
+	}
+
+	public Path checkpoint(Path buffer) {
+		Path dir = checkpointDir != null ? checkpointDir : buffer.toAbsolutePath().getParent();
+		return dir.resolve(buffer.getFileName() + CHECKPOINT_SUFFIX);
+	}
+
+	/*
+	 * publishes what the journal still has pending, returns what is pending afterwards
+	 */
+	private int publish(TestRailJournal journal) throws IOException, TestRailConfigException {
+		try {
+			List<TestRailJournal.Entry> pending = journal.pending();
+			if (pending.isEmpty()) {
+				LOGGER.info("{}: nothing pending", journal.getPath());
+				return 0;
+			}
+			Map<Integer, List<Results>> byRun = new LinkedHashMap<>();
+			for (TestRailJournal.Entry entry : pending) {
+				Integer entryRunId = entry.getRunId() != null ? entry.getRunId() : runId();
+				byRun.computeIfAbsent(entryRunId, k -> new ArrayList<>()).add(entry.toResults(testRailServices));
+			}
+			try (TestRailResultPublisher publisher = TestRailResultPublisher.builder(testRailServices)
+					.batchSize(batchSize).parallelism(parallelism).journal(journal).build()) {
+				for (Map.Entry<Integer, List<Results>> entry : byRun.entrySet()) {
+					TestRailPublishReport report = publisher.publish(entry.getKey(), entry.getValue());
+					LOGGER.info("{}: {}", journal.getPath(), report);
+					for (TestRailBatchResult batch : report.getFailedBatches()) {
+						LOGGER.error("not published: {} case ids {}", batch, batch.getCaseIds());
+					}
+					for (Results results : report.getUnresolved()) {
+						LOGGER.error("not published, unresolved: {} {}", results.getTestCaseName(), results.getTestCaseId());
+					}
+				}
+			}
+			return journal.getPendingCnt();
+		} finally {
+			journal.close();
+		}
+	}
+
+	/*
+	 * Copies a buffer file into a checkpoint journal, resolving case titles on the way. The journal
+	 * is built under a temporary name and moved into place whole, an interrupted import starts over.
+	 * Returns the number of results left out because their case or status could not be resolved.
+	 */
+	private int importBuffer(Path buffer, Path checkpoint) throws IOException, TestRailConfigException {
+		JsonArray resultsArray;
+		try (BufferedReader reader = Files.newBufferedReader(buffer, StandardCharsets.UTF_8)) {
+			resultsArray = new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("results");
+		} catch (JsonParseException | IllegalStateException | ClassCastException e) {
+			throw new IOException("not a buffer file: " + buffer + ": " + e.getMessage(), e);
+		}
+		if (resultsArray == null) {
+			throw new IOException("not a buffer file, no results: " + buffer);
+		}
+		Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".import");
+		Files.deleteIfExists(tmp);
+		int unresolved = 0;
+		try (TestRailJournal journal = TestRailJournal.builder(tmp.toString()).build()) {
+			for (JsonElement jsonElement : resultsArray) {
+				JsonObject jsonObject = jsonElement.getAsJsonObject();
+				JsonElement caseElement = jsonObject.get("case_id");
+				String caseName = null;
+				Integer caseId = null;
+				if (caseElement != null && !caseElement.isJsonNull()) {
+					String value = caseElement.getAsString();
+					if (value.matches("[Cc]?\\d+")) {
+						caseId = Integer.valueOf(value.replaceFirst("^[Cc]", ""));
+					} else {
+						caseName = value;
+						caseId = caseIdByName(value);
+					}
+				}
+				if (caseId == null) {
+					LOGGER.error("{}: case {} not found, left out", buffer, caseName);
+					unresolved++;
+					continue;
+				}
+				TEST_STATUS status = status(jsonObject.get("status_id"));
+				if (status == null) {
+					//checkpointed it would fail its batch on every rerun
+					LOGGER.error("{}: case {} status_id {} is not a TEST_STATUS, left out", buffer, caseId, jsonObject.get("status_id"));
+					unresolved++;
+					continue;
+				}
+				Results results = Results.builder(testRailServices, projectName)
+						.projectId(projectId)
+						.suiteId(suiteId)
+						.runId(runId())
+						.testCaseName(caseName)
+						.testCaseId(caseId)
+						.testStatus(status)
+						.comment(string(jsonObject, "comment"))
+						.defects(string(jsonObject, "defects"))
+						.elapsed(string(jsonObject, "elapsed"))
+						.version(string(jsonObject, "version"))
+						.build(false);
+				journal.append(runId(), results);
+			}
+		}
+		Files.move(tmp, checkpoint, StandardCopyOption.ATOMIC_MOVE);
+		LOGGER.info("{}: {} results checkpointed to {}, {} unresolved", buffer, resultsArray.size() - unresolved, checkpoint, unresolved);
+		return unresolved;
+	}
+
+	private static TEST_STATUS status(JsonElement statusElement) {
+		if (statusElement == null || statusElement.isJsonNull()) {
+			return null;
+		}
+		try {
+			return TEST_STATUS.fromValue(statusElement.getAsInt());
+		} catch (NumberFormatException | UnsupportedOperationException | IllegalStateException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * the first title of a project/suite loads that scope's whole case index, the rest are cache hits
+	 */
+	private Integer caseIdByName(String caseName) throws IOException, TestRailConfigException {
+		if (projectName == null) {
+			throw new IllegalArgumentException("--project is needed to resolve case title " + caseName);
+		}
+		if (projectId == null) {
+			projectId = testRailServices.getProjectIdByName(projectName, true);
+		}
+		if (!suiteResolved) {
+			suiteId = suite == null ? null
+					: suite.matches("\\d+") ? Integer.valueOf(suite) : testRailServices.getSuiteIdByName(projectId, suite, true);
+			suiteResolved = true;
+		}
+		try {
+			return testRailServices.getTestCaseIdByName(projectId, suiteId, null, caseName, false);
+		} catch (TestRailConfigException e) {
+			//not unique, publishing to either would be a guess
+			LOGGER.error("{}", e.getMessage());
+			return null;
+		}
+	}
+
+	private Integer runId() throws IOException, TestRailConfigException {
+		if (runId == null) {
+			if (run == null) {
+				throw new IllegalArgumentException("--run is needed for buffer files and journal entries without a run");
+			}
+			if (run.matches("\\d+")) {
+				runId = Integer.valueOf(run);
+			} else if (projectName == null) {
+				throw new IllegalArgumentException("--project is needed to resolve run " + run);
+			} else {
+				runId = testRailServices.getRunIdByName(projectName, run, true);
+			}
+		}
+		return runId;
+	}
+
+	/*
+	 * journal lines are complete json objects carrying seq or ack, a buffer starts with a pretty printed "{"
+	 */
+	private static boolean isJournal(Path file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				try {
+					JsonElement jsonElement = new JsonParser().parse(line);
+					return jsonElement.isJsonObject()
+							&& (jsonElement.getAsJsonObject().has("seq") || jsonElement.getAsJsonObject().has("ack"));
+				} catch (JsonParseException e) {
+					return false;
+				}
+			}
+		}
+		//an empty file has nothing to publish either way
+		return true;
+	}
+
+	private static String string(JsonObject jsonObject, String name) {
+		JsonElement jsonElement = jsonObject.get(name);
+		return jsonElement == null || jsonElement.isJsonNull() ? null : jsonElement.getAsString();
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/*
+ * Immutable description of one TestRail api call, e.g. GET get_cases/2?suite_id=3
+ *
+ * endpoint is the api method name (get_cases) and is what rate limiting and metrics key on,
+ * path is endpoint plus the path arguments (get_cases/2).
+ */
+public class TestRailRequest {
+	public enum Method {
+		GET, POST
+	}
+
+	private final Method method;
+	private final String path;
+	private final String endpoint;
+	private final Map<String, Object> queryParams;
+	private final String body;
+	private final boolean failOnNotFound;
+	private final Set<String> fields;
+	private final String whereField;
+	private final String whereValue;
+	private final TestRailCodec<?> codec;
+
+
+	public static Builder get(String path) {
+		return new Builder(Method.GET, path);
+	}
+
+	public static Builder post(String path) {
+		return new Builder(Method.POST, path);
+	}
+
+
+	public static class Builder {
+		private Method method;
+		private String path;
+		private Map<String, Object> queryParams = new LinkedHashMap<>();
+		private String body;
+		private boolean failOnNotFound = true;
+		private Set<String> fields = new LinkedHashSet<>();
+		private String whereField;
+		private String whereValue;
+		private TestRailCodec<?> codec;
+
+
+		private Builder(Method method, String path) {
+			this.method = method;
+			this.path = path;
+		}
+
+		/*
+		 * null values are skipped so optional filters (suite_id, section_id) can be passed through as is
+		 */
+		public Builder queryParam(String name, Object value) {
+			if (value != null) {
+				queryParams.put(name, value);
+			}
+			return this;
+		}
+
+		public Builder body(String body) {
+			this.body = body;
+			return this;
+		}
+
+		/*
+		 * when false a 400 (TestRail's "not found / no access" status) yields a null body instead of an exception
+		 */
+		public Builder failOnNotFound(boolean failOnNotFound) {
+			this.failOnNotFound = failOnNotFound;
+			return this;
+		}
+
+		/*
+		 * list endpoints only: keep just these members of each element, the rest is skipped while
+		 * the response streams in and never becomes part of the tree
+		 */
+		public Builder fields(String... fields) {
+			this.fields.addAll(Arrays.asList(fields));
+			return this;
+		}
+
+		/*
+		 * list endpoints only: keep just the elements whose field equals value
+		 */
+		public Builder where(String field, String value) {
+			this.whereField = field;
+			this.whereValue = value;
+			return this;
+		}
+
+		/*
+		 * bind the body with codec instead of parsing it into a Gson tree, see TestRailExecutor.execute(request, codec)
+		 */
+		public Builder codec(TestRailCodec<?> codec) {
+			this.codec = codec;
+			return this;
+		}
+
+		public TestRailRequest build() {
+			return new TestRailRequest(this);
+		}
+	}
+
+	/*
+	 * builder pre-loaded with this request, e.g. to ask for the next page
+	 */
+	public Builder newBuilder() {
+		Builder builder = new Builder(method, path);
+		builder.queryParams.putAll(queryParams);
+		builder.body = body;
+		builder.failOnNotFound = failOnNotFound;
+		builder.fields.addAll(fields);
+		builder.whereField = whereField;
+		builder.whereValue = whereValue;
+		builder.codec = codec;
+		return builder;
+	}
+
+	private TestRailRequest(Builder builder) {
+		this.method = builder.method;
+		this.path = builder.path;
+		this.queryParams = Collections.unmodifiableMap(new LinkedHashMap<>(builder.queryParams));
+		this.body = builder.body;
+		this.failOnNotFound = builder.failOnNotFound;
+		this.fields = Collections.unmodifiableSet(new LinkedHashSet<>(builder.fields));
+		this.whereField = builder.whereField;
+		this.whereValue = builder.whereValue;
+		this.codec = builder.codec;
+		int slash = path.indexOf('/');
+		this.endpoint = slash < 0 ? path : path.substring(0, slash);
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public Map<String, Object> getQueryParams() {
+		return queryParams;
+	}
+
+	public String getBody() {
+		return body;
+	}
+
+	public boolean isFailOnNotFound() {
+		return failOnNotFound;
+	}
+
+	public Set<String> getFields() {
+		return fields;
+	}
+
+	public String getWhereField() {
+		return whereField;
+	}
+
+	public String getWhereValue() {
+		return whereValue;
+	}
+
+	public TestRailCodec<?> getCodec() {
+		return codec;
+	}
+
+	/*
+	 * true when the response should be read through TestRailJsonProjection
+	 */
+	public boolean isProjected() {
+		return !fields.isEmpty() || whereField != null;
+	}
+
+	/*
+	 * add_*, update_*, delete_*, close_* all mutate server state and are sent as POST
+	 */
+	public boolean isWrite() {
+		return method == Method.POST;
+	}
+
+	/*
+	 * Builds the request uri by hand rather than with UriBuilder, UriBuilder percent encodes the '?' in
+	 * the standard https://host/index.php?/api/v2 base url. When the base url already carries a '?'
+	 * query parameters are appended with '&' the way TestRail expects.
+	 */
+	public String toUri(String serverUrl) {
+		StringBuilder sb = new StringBuilder(serverUrl.length() + path.length() + 32);
+		sb.append(serverUrl);
+		if (serverUrl.endsWith("/")) {
+			sb.append(path.startsWith("/") ? path.substring(1) : path);
+		} else {
+			sb.append(path.startsWith("/") ? "" : "/").append(path);
+		}
+		char separator = serverUrl.indexOf('?') >= 0 ? '&' : '?';
+		for (Map.Entry<String, Object> entry : queryParams.entrySet()) {
+			sb.append(separator).append(encode(entry.getKey())).append('=').append(encode(String.valueOf(entry.getValue())));
+			separator = '&';
+		}
+		return sb.toString();
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return method + " " + path + (queryParams.isEmpty() ? "" : " " + queryParams)
+				+ (whereField == null ? "" : " where " + whereField + "=" + whereValue);
+	}
+}
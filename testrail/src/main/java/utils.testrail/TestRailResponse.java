@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+
+
+/*
+ * Result of one TestRail api call. The entity has already been read, parsed once and released,
+ * so a response can be passed between interceptors and threads freely.
+ */
+public class TestRailResponse {
+	private final TestRailRequest request;
+	private final int statusCode;
+	private final String reasonPhrase;
+	private final Map<String, String> headers;
+	private final JsonElement body;
+	private final Object entity;
+	private final long bytesIn;
+	private final long elapsedNanos;
+	private final List<TestRailAttempt> attempts;
+
+
+	/*
+	 * headers are keyed by lower case name, entity is set instead of body when the request carried a codec
+	 */
+	TestRailResponse(TestRailRequest request, int statusCode, String reasonPhrase, Map<String, String> headers,
+			JsonElement body, Object entity, long bytesIn, long elapsedNanos) {
+		this(request, statusCode, reasonPhrase, headers, body, entity, bytesIn, elapsedNanos, Collections.<TestRailAttempt>emptyList());
+	}
+
+	private TestRailResponse(TestRailRequest request, int statusCode, String reasonPhrase, Map<String, String> headers,
+			JsonElement body, Object entity, long bytesIn, long elapsedNanos, List<TestRailAttempt> attempts) {
+		this.request = request;
+		this.statusCode = statusCode;
+		this.reasonPhrase = reasonPhrase;
+		this.headers = Collections.unmodifiableMap(headers);
+		this.body = body == null ? JsonNull.INSTANCE : body;
+		this.entity = entity;
+		this.bytesIn = bytesIn;
+		this.elapsedNanos = elapsedNanos;
+		this.attempts = attempts;
+	}
+
+	/*
+	 * copy of this response carrying the timings of every send it took to get it
+	 */
+	public TestRailResponse withAttempts(List<TestRailAttempt> attempts) {
+		return new TestRailResponse(request, statusCode, reasonPhrase, headers, body, entity, bytesIn, elapsedNanos,
+				Collections.unmodifiableList(new ArrayList<>(attempts)));
+	}
+
+	public TestRailRequest getRequest() {
+		return request;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public String getReasonPhrase() {
+		return reasonPhrase;
+	}
+
+	public boolean isSuccessful() {
+		return statusCode < 300;
+	}
+
+	public String getHeader(String name) {
+		return headers.get(name.toLowerCase());
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/*
+	 * JsonNull for an empty entity (delete_* calls) or an error status
+	 */
+	public JsonElement getBody() {
+		return body;
+	}
+
+	/*
+	 * what the request's codec bound the body to, null without a codec, for an empty entity or an error status
+	 */
+	public Object getEntity() {
+		return entity;
+	}
+
+	public long getBytesIn() {
+		return bytesIn;
+	}
+
+	/*
+	 * from sending the request to reading the last byte of the entity, not counting any wait for a
+	 * pooled connection
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/*
+	 * empty unless the request went through a TestRailRetryInterceptor
+	 */
+	public List<TestRailAttempt> getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public String toString() {
+		return statusCode + " " + reasonPhrase + " " + request + " (" + elapsedNanos / 1000000 + "ms, " + bytesIn + " bytes)";
+	}
+}
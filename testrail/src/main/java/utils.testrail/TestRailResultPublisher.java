@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+
+/*
+ * Publishes buffered Results to a run with add_results_for_cases.
+ *
+ * Results are resolved to case ids, split into batches of batchSize and posted with at most
+ * parallelism calls in flight. Each batch succeeds or fails on its own (after the executor's
+ * retries), so one rejected or timed out chunk does not lose the rest of the run; the
+ * TestRailPublishReport says which results did not make it.
+ *
+ * 	try (TestRailResultPublisher publisher = TestRailResultPublisher.builder(testRailServices).build()) {
+ * 		TestRailPublishReport report = publisher.publish(runId, resultsList);
+ * 	}
+ */
+public class TestRailResultPublisher implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private final TestRailServices testRailServices;
+	private final int batchSize;
+	private final int parallelism;
+	private final TestRailJournal journal;
+	private final ThreadPoolExecutor executorService;
+
+
+	public static Builder builder(TestRailServices testRailServices){
+		return new Builder(testRailServices);
+	}
+
+
+	public static class Builder {
+		private TestRailServices testRailServices;
+		private int batchSize;
+		private int parallelism;
+		private TestRailJournal journal;
+
+
+		private Builder(TestRailServices testRailServices) {
+			this.testRailServices = testRailServices;
+			this.batchSize = testRailServices.getPublishBatchSize();
+			this.parallelism = testRailServices.getPublishParallelism();
+		}
+
+		public Builder batchSize(Integer batchSize) {
+			if (batchSize != null) {
+				this.batchSize = batchSize;
+			}
+			return this;
+		}
+
+		public Builder parallelism(Integer parallelism) {
+			if (parallelism != null) {
+				this.parallelism = parallelism;
+			}
+			return this;
+		}
+
+		/*
+		 * journaled results (Results.getJournalSeq() set) are acknowledged once their batch is accepted
+		 */
+		public Builder journal(TestRailJournal journal) {
+			this.journal = journal;
+			return this;
+		}
+
+		public TestRailResultPublisher build() {
+			return new TestRailResultPublisher(this);
+		}
+	}
+
+	private TestRailResultPublisher(Builder builder) {
+		if (builder.batchSize < 1 || builder.parallelism < 1) {
+			throw new IllegalArgumentException("batchSize and parallelism must be > 0: " + builder.batchSize + ", " + builder.parallelism);
+		}
+		this.testRailServices = builder.testRailServices;
+		this.batchSize = builder.batchSize;
+		this.parallelism = builder.parallelism;
+		this.journal = builder.journal;
+		final AtomicInteger threadCnt = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "testrail-publish-" + threadCnt.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		executorService = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), threadFactory);
+		executorService.allowCoreThreadTimeOut(true);
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/*
+	 * blocks until every batch has been answered
+	 */
+	public TestRailPublishReport publish(Integer runId, List<Results> resultsList) {
+		List<Results> resolved = new ArrayList<>(resultsList.size());
+		List<Results> unresolved = new ArrayList<>();
+		for (Results results : resultsList) {
+			try {
+				if (results.getTestCaseId() == null) {
+					results.update();
+				}
+				resolved.add(results);
+			} catch (TestRailConfigException | IOException e) {
+				LOGGER.error("cannot resolve case id for {}: {}", results.getTestCaseName(), e.getMessage());
+				unresolved.add(results);
+			}
+		}
+
+		List<CompletableFuture<TestRailBatchResult>> futures = new ArrayList<>();
+		for (int from = 0, index = 0; from < resolved.size(); from += batchSize, index++) {
+			final List<Results> batch = resolved.subList(from, Math.min(from + batchSize, resolved.size()));
+			final int batchIndex = index;
+			futures.add(CompletableFuture.supplyAsync(() -> postBatch(runId, batchIndex, batch), executorService));
+		}
+
+		List<TestRailBatchResult> batches = new ArrayList<>(futures.size());
+		for (CompletableFuture<TestRailBatchResult> future : futures) {
+			batches.add(future.join());
+		}
+		TestRailPublishReport report = new TestRailPublishReport(runId, batches, unresolved);
+		if (report.isSuccessful()) {
+			LOGGER.info("{}", report);
+		} else {
+			LOGGER.error("{}", report);
+		}
+		return report;
+	}
+
+	/*
+	 * never throws, a failure is recorded in the returned batch result
+	 */
+	private TestRailBatchResult postBatch(Integer runId, int index, List<Results> batch) {
+		long start = System.currentTimeMillis();
+		try {
+			JsonArray resultsArray = new JsonArray();
+			for (Results results : batch) {
+				resultsArray.add(results.toResultForCase());
+			}
+			JsonObject container = new JsonObject();
+			container.add("results", resultsArray);
+
+			testRailServices.addResultsForCases(runId, container.toString());
+			acknowledge(batch);
+			TestRailBatchResult batchResult = new TestRailBatchResult(index, batch, null, System.currentTimeMillis() - start);
+			LOGGER.debug("run {} {}", runId, batchResult);
+			return batchResult;
+		} catch (IOException e) {
+			return failed(runId, index, batch, e, start);
+		} catch (RuntimeException e) {
+			return failed(runId, index, batch, new IOException(e.toString(), e), start);
+		}
+	}
+
+	private void acknowledge(List<Results> batch) {
+		if (journal == null) {
+			return;
+		}
+		List<Long> seqs = new ArrayList<>(batch.size());
+		for (Results results : batch) {
+			seqs.add(results.getJournalSeq());
+		}
+		try {
+			journal.acknowledge(seqs);
+		} catch (IOException e) {
+			//published but still pending in the journal, a replay would post these again
+			LOGGER.error("journal {} ack failed for {}: {}", journal.getPath(), seqs, e.getMessage());
+		}
+	}
+
+	private static TestRailBatchResult failed(Integer runId, int index, List<Results> batch, IOException e, long start) {
+		TestRailBatchResult batchResult = new TestRailBatchResult(index, batch, e, System.currentTimeMillis() - start);
+		LOGGER.error("run {} {} case ids {}", runId, batchResult, batchResult.getCaseIds());
+		return batchResult;
+	}
+
+	/*
+	 * publish() calls already made have completed, this only releases the worker threads
+	 */
+	@Override
+	public void close() {
+		executorService.shutdown();
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+
+/*
+ * Thrown when a throttled request runs out of retries or past its deadline
+ */
+public class TestRailRetryException extends IOException {
+	private static final long serialVersionUID = 1L;
+	private final List<TestRailAttempt> attempts;
+
+
+	public TestRailRetryException(String msg, List<TestRailAttempt> attempts) {
+		super(msg + " " + attempts);
+		this.attempts = Collections.unmodifiableList(attempts);
+	}
+
+	public List<TestRailAttempt> getAttempts() {
+		return attempts;
+	}
+}
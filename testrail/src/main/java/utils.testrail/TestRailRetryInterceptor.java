@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Re-sends a request the server answered with 429 Too Many Requests (or 503 Service Unavailable),
+ * waiting as long as the TestRailBackoffPolicy says. Every send is timed and the timings ride back
+ * on the response, or on the TestRailRetryException when the policy gives up.
+ */
+public class TestRailRetryInterceptor implements TestRailInterceptor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	public static final int TOO_MANY_REQUESTS = 429;
+	public static final int SERVICE_UNAVAILABLE = 503;
+	private final TestRailBackoffPolicy backoffPolicy;
+
+
+	public TestRailRetryInterceptor(TestRailBackoffPolicy backoffPolicy) {
+		this.backoffPolicy = backoffPolicy;
+	}
+
+	public TestRailBackoffPolicy getBackoffPolicy() {
+		return backoffPolicy;
+	}
+
+	@Override
+	public TestRailResponse intercept(Chain chain) throws IOException {
+		TestRailRequest request = chain.request();
+		List<TestRailAttempt> attempts = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int attempt = 0;; attempt++) {
+			TestRailResponse response = chain.proceed(request);
+			int statusCode = response.getStatusCode();
+			long elapsedMs = TimeUnit.NANOSECONDS.toMillis(response.getElapsedNanos());
+
+			if (statusCode != TOO_MANY_REQUESTS && statusCode != SERVICE_UNAVAILABLE) {
+				attempts.add(new TestRailAttempt(attempt, statusCode, elapsedMs, 0));
+				if (attempt > 0) {
+					LOGGER.info("{} completed after {} attempts in {}ms {}", request, attempts.size(),
+							TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), attempts);
+				}
+				return response.withAttempts(attempts);
+			}
+
+			long delayMs = backoffPolicy.nextDelayMs(attempt, response.getHeader("Retry-After"),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			if (delayMs == TestRailBackoffPolicy.GIVE_UP) {
+				attempts.add(new TestRailAttempt(attempt, statusCode, elapsedMs, 0));
+				throw new TestRailRetryException("timeout after: " + attempts.size() + " attempts in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms " + request, attempts);
+			}
+			attempts.add(new TestRailAttempt(attempt, statusCode, elapsedMs, delayMs));
+			LOGGER.debug("server busy ({})...sleeping: {}ms {}", statusCode, delayMs, request);
+			try {
+				Thread.sleep(delayMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted waiting to retry " + request);
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+
+/*
+ * Immutable test run record bound from get_run / get_runs.
+ *
+ * Ids of things a run does not belong to (plan, milestone) are 0. The status counters are the
+ * server's roll-up at the time of the call, custom status counts are skipped.
+ */
+public final class TestRailRun {
+	public static final TestRailCodec<TestRailRun> CODEC = TestRailRun::read;
+
+	private final int id;
+	private final int projectId;
+	private final int suiteId;
+	private final int planId;
+	private final int milestoneId;
+	private final String name;
+	private final boolean completed;
+	private final int passedCount;
+	private final int blockedCount;
+	private final int untestedCount;
+	private final int retestCount;
+	private final int failedCount;
+	private final long createdOn;
+	private final String url;
+
+
+	private TestRailRun(int id, int projectId, int suiteId, int planId, int milestoneId, String name, boolean completed,
+			int passedCount, int blockedCount, int untestedCount, int retestCount, int failedCount, long createdOn, String url) {
+		this.id = id;
+		this.projectId = projectId;
+		this.suiteId = suiteId;
+		this.planId = planId;
+		this.milestoneId = milestoneId;
+		this.name = name;
+		this.completed = completed;
+		this.passedCount = passedCount;
+		this.blockedCount = blockedCount;
+		this.untestedCount = untestedCount;
+		this.retestCount = retestCount;
+		this.failedCount = failedCount;
+		this.createdOn = createdOn;
+		this.url = url;
+	}
+
+	public static TestRailRun read(JsonReader reader) throws IOException {
+		int id = 0;
+		int projectId = 0;
+		int suiteId = 0;
+		int planId = 0;
+		int milestoneId = 0;
+		String name = null;
+		boolean completed = false;
+		int passedCount = 0;
+		int blockedCount = 0;
+		int untestedCount = 0;
+		int retestCount = 0;
+		int failedCount = 0;
+		long createdOn = 0;
+		String url = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = TestRailCodec.nextInt(reader);
+				break;
+			case "project_id":
+				projectId = TestRailCodec.nextInt(reader);
+				break;
+			case "suite_id":
+				suiteId = TestRailCodec.nextInt(reader);
+				break;
+			case "plan_id":
+				planId = TestRailCodec.nextInt(reader);
+				break;
+			case "milestone_id":
+				milestoneId = TestRailCodec.nextInt(reader);
+				break;
+			case "name":
+				name = TestRailCodec.nextString(reader);
+				break;
+			case "is_completed":
+				completed = TestRailCodec.nextBoolean(reader);
+				break;
+			case "passed_count":
+				passedCount = TestRailCodec.nextInt(reader);
+				break;
+			case "blocked_count":
+				blockedCount = TestRailCodec.nextInt(reader);
+				break;
+			case "untested_count":
+				untestedCount = TestRailCodec.nextInt(reader);
+				break;
+			case "retest_count":
+				retestCount = TestRailCodec.nextInt(reader);
+				break;
+			case "failed_count":
+				failedCount = TestRailCodec.nextInt(reader);
+				break;
+			case "created_on":
+				createdOn = TestRailCodec.nextLong(reader);
+				break;
+			case "url":
+				url = TestRailCodec.nextString(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return new TestRailRun(id, projectId, suiteId, planId, milestoneId, name, completed, passedCount, blockedCount, untestedCount, retestCount, failedCount, createdOn, url);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getProjectId() {
+		return projectId;
+	}
+
+	public int getSuiteId() {
+		return suiteId;
+	}
+
+	public int getPlanId() {
+		return planId;
+	}
+
+	public int getMilestoneId() {
+		return milestoneId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public int getPassedCount() {
+		return passedCount;
+	}
+
+	public int getBlockedCount() {
+		return blockedCount;
+	}
+
+	public int getUntestedCount() {
+		return untestedCount;
+	}
+
+	public int getRetestCount() {
+		return retestCount;
+	}
+
+	public int getFailedCount() {
+		return failedCount;
+	}
+
+	public long getCreatedOn() {
+		return createdOn;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	@Override
+	public String toString() {
+		return "Run[" + id + " " + name + "]";
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+
+/*
+ * Immutable section record bound from get_section / get_sections, parentId is 0 for a top level section.
+ */
+public final class TestRailSection {
+	public static final TestRailCodec<TestRailSection> CODEC = TestRailSection::read;
+
+	private final int id;
+	private final int suiteId;
+	private final int parentId;
+	private final int depth;
+	private final int displayOrder;
+	private final String name;
+
+
+	private TestRailSection(int id, int suiteId, int parentId, int depth, int displayOrder, String name) {
+		this.id = id;
+		this.suiteId = suiteId;
+		this.parentId = parentId;
+		this.depth = depth;
+		this.displayOrder = displayOrder;
+		this.name = name;
+	}
+
+	public static TestRailSection read(JsonReader reader) throws IOException {
+		int id = 0;
+		int suiteId = 0;
+		int parentId = 0;
+		int depth = 0;
+		int displayOrder = 0;
+		String name = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = TestRailCodec.nextInt(reader);
+				break;
+			case "suite_id":
+				suiteId = TestRailCodec.nextInt(reader);
+				break;
+			case "parent_id":
+				parentId = TestRailCodec.nextInt(reader);
+				break;
+			case "depth":
+				depth = TestRailCodec.nextInt(reader);
+				break;
+			case "display_order":
+				displayOrder = TestRailCodec.nextInt(reader);
+				break;
+			case "name":
+				name = TestRailCodec.nextString(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return new TestRailSection(id, suiteId, parentId, depth, displayOrder, name);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getSuiteId() {
+		return suiteId;
+	}
+
+	public int getParentId() {
+		return parentId;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getDisplayOrder() {
+		return displayOrder;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return "Section[" + id + " " + name + "]";
+	}
+}
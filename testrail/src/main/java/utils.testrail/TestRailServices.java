@@ -12,13 +12,14 @@
 
 package utils.testrail;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.net.URI;
+import java.io.UncheckedIOException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -26,32 +27,19 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.json.Json;
 import javax.json.JsonBuilderFactory;
 import javax.json.JsonObjectBuilder;
-import javax.ws.rs.core.UriBuilder;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang.exception.ExceptionUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.StatusLine;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpResponseException;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.pool.PoolStats;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.slf4j.Logger;
@@ -59,9 +47,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 import apache.commons.config.ApacheCommonsConfigServices;
 import utils.file.FileServices;
@@ -73,19 +59,37 @@ import utils.logger.LoggerServices;
 
 
 
-public class TestRailServices {
+public class TestRailServices implements Closeable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
 	private String serverUrl;
 	private String userName;
 	private String passWord;
 	private Integer retryCnt = TestRailConstants.RETRY_DEFAULT;
 	private Integer retrySleepInterval = TestRailConstants.RETRY_SLEEP_DEFAULT;
+	private TestRailBackoffPolicy backoffPolicy = null;
+	private Integer readsPerMinute = TestRailConstants.READS_PER_MINUTE_DEFAULT;
+	private Integer writesPerMinute = TestRailConstants.WRITES_PER_MINUTE_DEFAULT;
+	private Integer rateLimitBurst = TestRailConstants.RATE_LIMIT_BURST_DEFAULT;
+	private Long cacheTtl = TestRailConstants.CACHE_TTL_MS_DEFAULT;
+	private Integer cacheMaxScopes = TestRailConstants.CACHE_MAX_SCOPES_DEFAULT;
+	private TestRailEntityCache entityCache = null;
+	private Boolean pagePrefetch = TestRailConstants.PAGE_PREFETCH_DEFAULT;
+	private Integer publishBatchSize = TestRailConstants.PUBLISH_BATCH_SIZE_DEFAULT;
+	private Integer publishParallelism = TestRailConstants.PUBLISH_PARALLELISM_DEFAULT;
+	private Boolean publishStreaming = TestRailConstants.PUBLISH_STREAMING_DEFAULT;
+	private Long publishFlushInterval = TestRailConstants.PUBLISH_FLUSH_INTERVAL_DEFAULT;
+	private Integer publishQueueCapacity = TestRailConstants.PUBLISH_QUEUE_CAPACITY_DEFAULT;
+	private String journalPath = null;
+	private Long journalSyncInterval = TestRailConstants.JOURNAL_SYNC_INTERVAL_DEFAULT;
+	private Long metricsInterval = TestRailConstants.METRICS_INTERVAL_DEFAULT;
+	private Boolean metricsJmx = TestRailConstants.METRICS_JMX_DEFAULT;
+	private TestRailMetrics metrics = null;
 	
 	
 	
 	private Configuration config = null;
-	private CloseableHttpClient httpClient = null;
-	private RequestConfig requestConfig = null;
+	private TestRailTransport transport = null;
+	private TestRailExecutor executor = null;
 
 	
 	public static Builder builder(String serverUrl){
@@ -99,6 +103,33 @@ public class TestRailServices {
 		private String passWord;
 		private Integer retryCnt;
 		private Integer retrySleepInterval;
+		private Long retryBaseDelay;
+		private Long retryDeadline;
+		private Double retryJitter;
+		private Integer readsPerMinute;
+		private Integer writesPerMinute;
+		private Integer rateLimitBurst;
+		private Long cacheTtl;
+		private Integer cacheMaxScopes;
+		private Boolean pagePrefetch;
+		private Integer publishBatchSize;
+		private Integer publishParallelism;
+		private Boolean publishStreaming;
+		private Long publishFlushInterval;
+		private Integer publishQueueCapacity;
+		private String journalPath;
+		private Long journalSyncInterval;
+		private Long metricsInterval;
+		private Boolean metricsJmx;
+		private List<TestRailMetricsExporter> metricsExporters = new ArrayList<>();
+		private Integer maxTotalConnections;
+		private Integer maxConnectionsPerRoute;
+		private Long keepAliveMs;
+		private Long idleEvictMs;
+		private Integer connectTimeout;
+		private Integer socketTimeout;
+		private Integer connectionRequestTimeout;
+		private List<TestRailInterceptor> interceptors = new ArrayList<>();
 
 		
 		private Builder(String serverUrl) {
@@ -120,11 +151,191 @@ public class TestRailServices {
 			return this;
 		}
 
+		/*
+		 * upper bound on a single backoff sleep, a server Retry-After may exceed it
+		 */
 		public Builder retrySleepInterval(Integer retrySleepInterval) {
 			this.retrySleepInterval = retrySleepInterval;
 			return this;
 		}
 
+		public Builder retryBaseDelay(Long retryBaseDelay) {
+			this.retryBaseDelay = retryBaseDelay;
+			return this;
+		}
+
+		/*
+		 * total time a request may spend being retried, measured from its first send
+		 */
+		public Builder retryDeadline(Long retryDeadline) {
+			this.retryDeadline = retryDeadline;
+			return this;
+		}
+
+		public Builder retryJitter(Double retryJitter) {
+			this.retryJitter = retryJitter;
+			return this;
+		}
+
+		/*
+		 * get_* budget shared by every instance using this server and user, 0 = unlimited
+		 */
+		public Builder readsPerMinute(Integer readsPerMinute) {
+			this.readsPerMinute = readsPerMinute;
+			return this;
+		}
+
+		/*
+		 * add_*, update_*, delete_* budget shared by every instance using this server and user, 0 = unlimited
+		 */
+		public Builder writesPerMinute(Integer writesPerMinute) {
+			this.writesPerMinute = writesPerMinute;
+			return this;
+		}
+
+		public Builder rateLimitBurst(Integer rateLimitBurst) {
+			this.rateLimitBurst = rateLimitBurst;
+			return this;
+		}
+
+		/*
+		 * how long a name -> id scope is trusted, 0 turns the cache off
+		 */
+		public Builder cacheTtl(Long cacheTtl) {
+			this.cacheTtl = cacheTtl;
+			return this;
+		}
+
+		public Builder cacheMaxScopes(Integer cacheMaxScopes) {
+			this.cacheMaxScopes = cacheMaxScopes;
+			return this;
+		}
+
+		/*
+		 * stream* methods fetch the next page in the background while the current one is consumed
+		 */
+		public Builder pagePrefetch(Boolean pagePrefetch) {
+			this.pagePrefetch = pagePrefetch;
+			return this;
+		}
+
+		/*
+		 * results per add_results_for_cases call made by TestRailResultPublisher
+		 */
+		public Builder publishBatchSize(Integer publishBatchSize) {
+			this.publishBatchSize = publishBatchSize;
+			return this;
+		}
+
+		/*
+		 * add_results_for_cases calls TestRailResultPublisher keeps in flight
+		 */
+		public Builder publishParallelism(Integer publishParallelism) {
+			this.publishParallelism = publishParallelism;
+			return this;
+		}
+
+		/*
+		 * TestRailListener publishes while tests run through a TestRailStreamingPublisher instead of at onFinish
+		 */
+		public Builder publishStreaming(Boolean publishStreaming) {
+			this.publishStreaming = publishStreaming;
+			return this;
+		}
+
+		/*
+		 * longest a streamed result waits before it is published, even if the batch is not full
+		 */
+		public Builder publishFlushInterval(Long publishFlushInterval) {
+			this.publishFlushInterval = publishFlushInterval;
+			return this;
+		}
+
+		public Builder publishQueueCapacity(Integer publishQueueCapacity) {
+			this.publishQueueCapacity = publishQueueCapacity;
+			return this;
+		}
+
+		/*
+		 * TestRailListener journals every result here until TestRail has it, null turns journaling off
+		 */
+		public Builder journalPath(String journalPath) {
+			this.journalPath = journalPath;
+			return this;
+		}
+
+		/*
+		 * longest the journal goes without an fsync while results are coming in
+		 */
+		public Builder journalSyncInterval(Long journalSyncInterval) {
+			this.journalSyncInterval = journalSyncInterval;
+			return this;
+		}
+
+		/*
+		 * ms between metrics exports (the summary log and any exporters), 0 only exports on close()
+		 */
+		public Builder metricsInterval(Long metricsInterval) {
+			this.metricsInterval = metricsInterval;
+			return this;
+		}
+
+		/*
+		 * registers per endpoint MXBeans under utils.testrail:type=TestRailMetrics
+		 */
+		public Builder metricsJmx(Boolean metricsJmx) {
+			this.metricsJmx = metricsJmx;
+			return this;
+		}
+
+		public Builder metricsExporter(TestRailMetricsExporter metricsExporter) {
+			this.metricsExporters.add(metricsExporter);
+			return this;
+		}
+
+		public Builder maxTotalConnections(Integer maxTotalConnections) {
+			this.maxTotalConnections = maxTotalConnections;
+			return this;
+		}
+
+		public Builder maxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+			this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+			return this;
+		}
+
+		public Builder keepAliveMs(Long keepAliveMs) {
+			this.keepAliveMs = keepAliveMs;
+			return this;
+		}
+
+		public Builder idleEvictMs(Long idleEvictMs) {
+			this.idleEvictMs = idleEvictMs;
+			return this;
+		}
+
+		public Builder connectTimeout(Integer connectTimeout) {
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		public Builder socketTimeout(Integer socketTimeout) {
+			this.socketTimeout = socketTimeout;
+			return this;
+		}
+
+		public Builder connectionRequestTimeout(Integer connectionRequestTimeout) {
+			this.connectionRequestTimeout = connectionRequestTimeout;
+			return this;
+		}
+
+		/*
+		 * adds a step to the request pipeline inside the metrics step and ahead of the built in logging and retry steps
+		 */
+		public Builder interceptor(TestRailInterceptor interceptor) {
+			this.interceptors.add(interceptor);
+			return this;
+		}
+
 		public TestRailServices build() {
 			return new TestRailServices(this);
 		}
@@ -134,17 +345,77 @@ public class TestRailServices {
 		this.serverUrl = builder.serverUrl;
 		this.userName = builder.userName;
 		this.passWord = builder.passWord;
-		this.retryCnt = builder.retryCnt;
-		this.retrySleepInterval = builder.retrySleepInterval;
-
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		provider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(userName, passWord));
-
-		httpClient = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
+		if (builder.retryCnt != null) {
+			this.retryCnt = builder.retryCnt;
+		}
+		if (builder.retrySleepInterval != null) {
+			this.retrySleepInterval = builder.retrySleepInterval;
+		}
+		this.backoffPolicy = TestRailBackoffPolicy.builder()
+				.maxRetries(retryCnt)
+				.maxDelayMs(retrySleepInterval.longValue())
+				.baseDelayMs(builder.retryBaseDelay)
+				.deadlineMs(builder.retryDeadline)
+				.jitter(builder.retryJitter)
+				.build();
+		if (builder.readsPerMinute != null) {
+			this.readsPerMinute = builder.readsPerMinute;
+		}
+		if (builder.writesPerMinute != null) {
+			this.writesPerMinute = builder.writesPerMinute;
+		}
+		if (builder.rateLimitBurst != null) {
+			this.rateLimitBurst = builder.rateLimitBurst;
+		}
+		if (builder.cacheTtl != null) {
+			this.cacheTtl = builder.cacheTtl;
+		}
+		if (builder.cacheMaxScopes != null) {
+			this.cacheMaxScopes = builder.cacheMaxScopes;
+		}
+		if (builder.pagePrefetch != null) {
+			this.pagePrefetch = builder.pagePrefetch;
+		}
+		if (builder.publishBatchSize != null) {
+			this.publishBatchSize = builder.publishBatchSize;
+		}
+		if (builder.publishParallelism != null) {
+			this.publishParallelism = builder.publishParallelism;
+		}
+		if (builder.publishStreaming != null) {
+			this.publishStreaming = builder.publishStreaming;
+		}
+		if (builder.publishFlushInterval != null) {
+			this.publishFlushInterval = builder.publishFlushInterval;
+		}
+		if (builder.publishQueueCapacity != null) {
+			this.publishQueueCapacity = builder.publishQueueCapacity;
+		}
+		this.journalPath = builder.journalPath;
+		if (builder.journalSyncInterval != null) {
+			this.journalSyncInterval = builder.journalSyncInterval;
+		}
+		if (builder.metricsInterval != null) {
+			this.metricsInterval = builder.metricsInterval;
+		}
+		if (builder.metricsJmx != null) {
+			this.metricsJmx = builder.metricsJmx;
+		}
+		TestRailMetrics.Builder metricsBuilder = TestRailMetrics.builder("testrail").interval(metricsInterval).jmx(metricsJmx);
+		for (TestRailMetricsExporter metricsExporter : builder.metricsExporters) {
+			metricsBuilder.exporter(metricsExporter);
+		}
+		this.metrics = metricsBuilder.build();
 
-		//TODO bring in from builder
-		requestConfig = RequestConfig.custom().setConnectTimeout(30000).setConnectionRequestTimeout(30000)
-				.setSocketTimeout(30000).build();
+		setTransport(TestRailTransport.builder(userName, passWord)
+				.maxTotalConnections(builder.maxTotalConnections)
+				.maxConnectionsPerRoute(builder.maxConnectionsPerRoute)
+				.keepAliveMs(builder.keepAliveMs)
+				.idleEvictMs(builder.idleEvictMs)
+				.connectTimeout(builder.connectTimeout)
+				.socketTimeout(builder.socketTimeout)
+				.connectionRequestTimeout(builder.connectionRequestTimeout)
+				.build(), builder.interceptors);
 	}
 
 	public TestRailServices(String propertyFilePath) throws KeyManagementException,
@@ -168,18 +439,146 @@ public class TestRailServices {
 
 		retryCnt = Integer.valueOf(config.getString("retryCnt"));
 		retrySleepInterval = Integer.valueOf(config.getString("retrySleepInterval"));
+		backoffPolicy = TestRailBackoffPolicy.builder()
+				.maxRetries(retryCnt)
+				.maxDelayMs(retrySleepInterval.longValue())
+				.baseDelayMs(config.getLong("retryBaseDelay", null))
+				.deadlineMs(config.getLong("retryDeadline", null))
+				.jitter(config.getDouble("retryJitter", null))
+				.build();
+		LOGGER.info("backoff: {}", backoffPolicy);
+		readsPerMinute = config.getInteger("readsPerMinute", readsPerMinute);
+		writesPerMinute = config.getInteger("writesPerMinute", writesPerMinute);
+		rateLimitBurst = config.getInteger("rateLimitBurst", rateLimitBurst);
+		cacheTtl = config.getLong("cacheTtl", cacheTtl);
+		cacheMaxScopes = config.getInteger("cacheMaxScopes", cacheMaxScopes);
+		pagePrefetch = config.getBoolean("pagePrefetch", pagePrefetch);
+		publishBatchSize = config.getInteger("publishBatchSize", publishBatchSize);
+		publishParallelism = config.getInteger("publishParallelism", publishParallelism);
+		publishStreaming = config.getBoolean("publishStreaming", publishStreaming);
+		publishFlushInterval = config.getLong("publishFlushInterval", publishFlushInterval);
+		publishQueueCapacity = config.getInteger("publishQueueCapacity", publishQueueCapacity);
+		journalPath = config.getString("journalPath", journalPath);
+		journalSyncInterval = config.getLong("journalSyncInterval", journalSyncInterval);
+		metricsInterval = config.getLong("metricsInterval", metricsInterval);
+		metricsJmx = config.getBoolean("metricsJmx", metricsJmx);
+		metrics = TestRailMetrics.builder("testrail").interval(metricsInterval).jmx(metricsJmx).build();
 
 
 		this.serverUrl = config.getString("url");
 		this.userName = config.getString("user");
 		this.passWord = config.getString("password");
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		provider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(userName, passWord));
 
-		httpClient = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
-		//TODO bring in from properties file
-		requestConfig = RequestConfig.custom().setConnectTimeout(30000).setConnectionRequestTimeout(30000)
-				.setSocketTimeout(30000).build();
+		setTransport(TestRailTransport.builder(userName, passWord)
+				.maxTotalConnections(config.getInteger("maxTotalConnections", null))
+				.maxConnectionsPerRoute(config.getInteger("maxConnectionsPerRoute", null))
+				.keepAliveMs(config.getLong("keepAliveMs", null))
+				.idleEvictMs(config.getLong("idleEvictMs", null))
+				.connectTimeout(config.getInteger("connectTimeout", null))
+				.socketTimeout(config.getInteger("socketTimeout", null))
+				.connectionRequestTimeout(config.getInteger("connectionRequestTimeout", null))
+				.build(), new ArrayList<TestRailInterceptor>());
+	}
+
+	private void setTransport(TestRailTransport transport, List<TestRailInterceptor> interceptors) {
+		this.transport = transport;
+		this.entityCache = new TestRailEntityCache(cacheTtl, cacheMaxScopes);
+		TestRailExecutor.Builder executorBuilder = TestRailExecutor.builder(serverUrl, transport)
+				.interceptor(new TestRailMetricsInterceptor(metrics));
+		for (TestRailInterceptor interceptor : interceptors) {
+			executorBuilder.interceptor(interceptor);
+		}
+		this.executor = executorBuilder
+				.interceptor(new TestRailLoggingInterceptor(serverUrl))
+				.interceptor(new TestRailRetryInterceptor(backoffPolicy))
+				.interceptor(rateLimitInterceptor())
+				.build();
+	}
+
+	/*
+	 * null when neither budget is set
+	 */
+	private TestRailRateLimitInterceptor rateLimitInterceptor() {
+		if (readsPerMinute <= 0 && writesPerMinute <= 0) {
+			return null;
+		}
+		return new TestRailRateLimitInterceptor(
+				TestRailRateLimiter.forAccount(serverUrl, userName, readsPerMinute, writesPerMinute, rateLimitBurst));
+	}
+
+	public TestRailBackoffPolicy getBackoffPolicy() {
+		return backoffPolicy;
+	}
+
+	public TestRailEntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	public Integer getPublishBatchSize() {
+		return publishBatchSize;
+	}
+
+	public Integer getPublishParallelism() {
+		return publishParallelism;
+	}
+
+	public Boolean getPublishStreaming() {
+		return publishStreaming;
+	}
+
+	public Long getPublishFlushInterval() {
+		return publishFlushInterval;
+	}
+
+	public Integer getPublishQueueCapacity() {
+		return publishQueueCapacity;
+	}
+
+	public String getJournalPath() {
+		return journalPath;
+	}
+
+	public Long getJournalSyncInterval() {
+		return journalSyncInterval;
+	}
+
+	public Long getMetricsInterval() {
+		return metricsInterval;
+	}
+
+	public Boolean getMetricsJmx() {
+		return metricsJmx;
+	}
+
+	/*
+	 * per endpoint counts, latency percentiles, bytes, retries and pool wait of every call made so far
+	 */
+	public TestRailMetrics getMetrics() {
+		return metrics;
+	}
+
+	public TestRailExecutor getExecutor() {
+		return executor;
+	}
+
+	public TestRailTransport getTransport() {
+		return transport;
+	}
+
+	/*
+	 * leased/pending/available/max connections, use to size maxTotalConnections and maxConnectionsPerRoute under load
+	 */
+	public PoolStats getPoolStats() {
+		return transport.getPoolStats();
+	}
+
+	/*
+	 * releases pooled connections and stops the idle connection evictor, the metrics are exported
+	 * one last time
+	 */
+	public void close() throws IOException {
+		metrics.close();
+		transport.close();
 	}
 
 	//TODO remove
@@ -302,137 +701,119 @@ public class TestRailServices {
 	 * 
 	 */
 
-	public JsonArray getProjects() throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_projects").build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
+	private JsonElement execute(TestRailRequest request) throws IOException {
+		JsonElement jsonElement = executor.execute(request);
+		if (request.isWrite()) {
+			entityCache.invalidate(request);
+		}
+		return jsonElement;
+	}
 
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (Exception e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
+	/*
+	 * name -> id through the entity cache, one list call per scope until it expires or we change it
+	 */
+	private Integer resolveId(String kind, String scope, String name, boolean bFailOnNotFound,
+			TestRailEntityCache.Loader loader) throws IOException, TestRailConfigException {
+		List<Integer> ids = entityCache.getIds(scope, name, loader);
+		if (ids.isEmpty()) {
+			if (bFailOnNotFound) {
+				throw new TestRailConfigException(kind + " not found: " + name + " in " + scope);
 			}
+			return null;
 		}
-		return jsonArray;
+		if (ids.size() > 1) {
+			throw new TestRailConfigException(kind + " not unique: " + name + " in " + scope + " " + ids);
+		}
+		return ids.get(0);
 	}
 
-	public JsonObject getProject(Integer projectId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_project/" + projectId).build();
+	/*
+	 * one list call projected down to id and name, the rest of each element is never parsed
+	 */
+	private Map<String, List<Integer>> loadIndex(TestRailRequest.Builder builder, String nameKey) throws IOException {
+		return TestRailEntityCache.index(getArray(builder.fields("id", nameKey).build()), nameKey);
+	}
 
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
+	/*
+	 * list endpoints, an empty or null body is an error
+	 */
+	private JsonArray getArray(TestRailRequest request) throws IOException {
+		if (!request.isWrite()) {
+			//collects every page of a paginated list
+			JsonArray jsonArray = new JsonArray();
+			try {
+				TestRailPager.json(executor, request, false).forEachRemaining(jsonArray::add);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return jsonArray;
+		}
+		JsonElement jsonElement = execute(request);
+		if (jsonElement.isJsonNull()) {
+			throw new IOException("JsonNull: " + request);
+		}
+		return jsonElement.getAsJsonArray();
+	}
 
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
+	/*
+	 * lazily paged, fetch failures surface as UncheckedIOException from the stream
+	 */
+	private Stream<JsonObject> stream(TestRailRequest request) {
+		return TestRailPager.stream(executor, request, pagePrefetch);
+	}
 
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
+	/*
+	 * typed list endpoints, every page is bound by codec as it streams in
+	 */
+	private <T> List<T> getList(TestRailRequest request, TestRailCodec<T> codec) throws IOException {
+		List<T> list = new ArrayList<>();
+		try {
+			TestRailPager.typed(executor, request, codec, false).forEachRemaining(list::add);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return list;
+	}
 
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
+	private <T> Stream<T> stream(TestRailRequest request, TestRailCodec<T> codec) {
+		return TestRailPager.stream(executor, request, codec, pagePrefetch);
+	}
 
-				HttpEntity httpEntity = response.getEntity();
+	/*
+	 * typed single object endpoints, null when not found
+	 */
+	private <T> T getRecord(TestRailRequest request, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		T record = executor.execute(request, codec);
+		if (record == null && bFailOnNotFound) {
+			throw new IOException("JsonNull: " + request);
+		}
+		return record;
+	}
 
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				//TODO make sure consistant pattern
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
+	/*
+	 * single object endpoints, null when not found (or for delete_* which return an empty body)
+	 */
+	private JsonObject getObject(TestRailRequest request, boolean bFailOnNotFound) throws IOException {
+		JsonElement jsonElement = execute(request);
+		if (jsonElement.isJsonNull()) {
+			if (bFailOnNotFound) {
+				throw new IOException("JsonNull: " + request);
 			}
+			return null;
 		}
+		return jsonElement.getAsJsonObject();
+	}
 
-		return jsonObject;
+	public JsonArray getProjects() throws IOException {
+		return getArray(TestRailRequest.get("get_projects").build());
+	}
+
+	public JsonObject getProject(Integer projectId, boolean bFailOnNotFound) throws IOException {
+		return getObject(TestRailRequest.get("get_project/" + projectId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
 	}
 
 	public JsonArray getProjects(String projectName) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-		JsonArray projectArray = getProjects();
-
-		for (JsonElement jsonElement : projectArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), projectName);
-			if (jsonObject.get("name").getAsString().equals(projectName)) {
-				LOGGER.debug("adding project: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_projects").where("name", projectName).build());
 	}
 
 	public JsonObject getProjectByName(String projectName, boolean bFailOnNotFound)
@@ -451,64 +832,12 @@ public class TestRailServices {
 
 	public Integer getProjectIdByName(String projectName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getProjectByName(projectName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("Project", "projects", projectName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_projects"), "name"));
 	}
 
 	public JsonObject deleteProject(Integer projectId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("delete_project" + projectId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() == 400 && bFailOnNotFound) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				} else if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = jsonElement.getAsJsonObject();
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("delete_project/" + projectId).failOnNotFound(bFailOnNotFound).build(), false);
 	}
 
 	public Boolean isProjectExists(Integer projectId) throws IOException, TestRailConfigException {
@@ -520,312 +849,27 @@ public class TestRailServices {
 	}
 
 	public JsonObject addProject(String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_project").build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = jsonElement.getAsJsonObject();
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("add_project").body(json).build(), true);
 	}
 
 	public JsonObject addPlan(Integer projectId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
+		return getObject(TestRailRequest.post("add_plan/" + projectId).body(json).build(), true);
+	}
 
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_plan/" + projectId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
+	public JsonObject addRun(Integer projectId, String json) throws IOException {
+		return getObject(TestRailRequest.post("add_run/" + projectId).body(json).build(), true);
+	}
 
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
+	public JsonObject addMileStone(Integer projectId, String json) throws IOException {
+		return getObject(TestRailRequest.post("add_milestone/" + projectId).body(json).build(), true);
+	}
 
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+	public JsonObject addSuite(Integer projectId, String json) throws IOException {
+		return getObject(TestRailRequest.post("add_suite/" + projectId).body(json).build(), true);
+	}
 
-		return jsonObject;
-	}
-
-	public JsonObject addRun(Integer projectId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_run/" + projectId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
-	}
-
-	public JsonObject addMileStone(Integer projectId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_milestone/" + projectId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
-	}
-
-	public JsonObject addSuite(Integer projectId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_suite/" + projectId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
-	}
-
-	public JsonObject addSection(Integer projectId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_section/" + projectId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+	public JsonObject addSection(Integer projectId, String json) throws IOException {
+		return getObject(TestRailRequest.post("add_section/" + projectId).body(json).build(), true);
 	}
 
 	/*
@@ -838,107 +882,12 @@ public class TestRailServices {
 	     refs    string  A comma-separated list of references/requirements
 	*/
 	public JsonObject addTestCase(Integer sectionId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_case/" + sectionId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("add_case/" + sectionId).body(json).build(), true);
 	}
 
 	public JsonObject addResultForCase(Integer runId, Integer testCaseId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
 		LOGGER.info(LoggerServices.build().bannerWrap("addResultForCase: " + json));
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_result_for_case/" + runId + "/" + testCaseId)
-						.build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("add_result_for_case/" + runId + "/" + testCaseId).body(json).build(), true);
 	}
 
 	/*
@@ -976,990 +925,117 @@ public class TestRailServices {
 		Please note that all referenced tests must belong to the same test run.
 	 * 
 	 */
-	public JsonObject addResults(Integer runId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		LOGGER.debug(LoggerServices.build().bannerWrap("POSTING RESULTS  TO TESTRAIL",
-				GsonServices.build().prettyPrint(json), '#'));
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_results/" + runId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
+	public JsonArray addResults(Integer runId, String json) throws IOException {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug(LoggerServices.build().bannerWrap("POSTING RESULTS  TO TESTRAIL",
+					GsonServices.build().prettyPrint(json), '#'));
 		}
+		return getArray(TestRailRequest.post("add_results/" + runId).body(json).build());
+	}
 
-		return jsonObject;
+	/*
+		Adds one or more new test results, comments or assigns one or more tests (using the case IDs).
+		Ideal for test automation to bulk-add multiple test results for case IDs in one step.
+		This method expects an array of test results (via the 'results' field), each one must
+		specify the case_id. See TestRailResultPublisher for chunked, parallel publishing.
+	 */
+	public JsonArray addResultsForCases(Integer runId, String json) throws IOException {
+		return getArray(TestRailRequest.post("add_results_for_cases/" + runId).body(json).build());
 	}
 
 	public JsonObject deleteMileStone(Integer mileStoneId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("delete_milestone/" + mileStoneId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() == 400 && bFailOnNotFound) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				} else if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("delete_milestone/" + mileStoneId).failOnNotFound(bFailOnNotFound).build(), false);
 	}
 
 	public JsonObject deletePlan(Integer planId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("delete_plan" + planId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() == 400 && bFailOnNotFound) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				} else if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("delete_plan/" + planId).failOnNotFound(bFailOnNotFound).build(), false);
 	}
 
 	public JsonObject deleteRun(Integer runId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("delete_run/" + runId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() == 400 && bFailOnNotFound) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				} else if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("delete_run/" + runId).failOnNotFound(bFailOnNotFound).build(), false);
 	}
 
 	public JsonObject deleteSection(Integer sectionId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("delete_section/" + sectionId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() == 400 && bFailOnNotFound) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				} else if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("delete_section/" + sectionId).failOnNotFound(bFailOnNotFound).build(), false);
 	}
 
 	public JsonObject deleteSuite(Integer suiteId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("delete_suite/" + suiteId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() == 400 && bFailOnNotFound) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				} else if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("delete_suite/" + suiteId).failOnNotFound(bFailOnNotFound).build(), false);
 	}
 
 	/*200	Success, the project was deleted
 	400	Invalid or unknown project
 	403	No permissions to delete projects (requires admin rights)*/
 	public JsonObject deleteTestCase(Integer testCaseId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("delete_case/" + testCaseId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() == 400 && bFailOnNotFound) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				} else if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("delete_case/" + testCaseId).failOnNotFound(bFailOnNotFound).build(), false);
 	}
 
 	//TODO do for all
 	//TODO check for multiple returns in methods
 	public JsonObject getTestCase(Integer testCaseId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_case/" + testCaseId).build();
-
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.get("get_case/" + testCaseId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
 	}
 
 	public JsonObject getSuite(Integer suiteId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_suite/" + suiteId).build();
-
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+		return getObject(TestRailRequest.get("get_suite/" + suiteId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
+	}
 
-		return jsonObject;
+	public Stream<JsonObject> streamRuns(Integer projectId) {
+		return stream(TestRailRequest.get("get_runs/" + projectId).build());
 	}
 
 	public JsonArray getRuns(Integer projectId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_runs/" + projectId).build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+		return getArray(TestRailRequest.get("get_runs/" + projectId).build());
+	}
 
-		return jsonArray;
+	public Stream<JsonObject> streamMileStones(Integer projectId) {
+		return stream(TestRailRequest.get("get_milestones/" + projectId).build());
 	}
 
 	public JsonArray getMileStones(Integer projectId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_milestones/" + projectId).build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_milestones/" + projectId).build());
 	}
 
 	public JsonArray getSuites(Integer suiteId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_suites/" + suiteId).build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+		return getArray(TestRailRequest.get("get_suites/" + suiteId).build());
+	}
 
-		return jsonArray;
+	public Stream<JsonObject> streamSections(Integer projectId, Integer suiteId) {
+		return stream(TestRailRequest.get("get_sections/" + projectId).queryParam("suite_id", suiteId).build());
 	}
 
 	public JsonArray getSections(Integer projectId, Integer suiteId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				UriBuilder uriBuilder = UriBuilder.fromPath(serverUrl).path("get_sections/" + projectId);
-
-				if (suiteId != null) {
-					uriBuilder.queryParam("suite_id", suiteId);
-				}
-				URI request = uriBuilder.build();
-				LOGGER.info("{}", request);
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+		return getArray(TestRailRequest.get("get_sections/" + projectId).queryParam("suite_id", suiteId).build());
+	}
 
-		return jsonArray;
+	public Stream<JsonObject> streamTestCases(Integer projectId, Integer suiteId, Integer sectionId) {
+		return stream(TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId)
+				.queryParam("section_id", sectionId).build());
 	}
 
 	public JsonArray getTestCases(Integer projectId, Integer suiteId, Integer sectionId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				UriBuilder uriBuilder = UriBuilder.fromPath(serverUrl).path("get_cases/" + projectId);
-
-				if (suiteId != null) {
-					uriBuilder.queryParam("suite_id", suiteId);
-				}
-				if (sectionId != null) {
-					uriBuilder.queryParam("section_id", sectionId);
-				}
-				URI request = uriBuilder.build();
-				LOGGER.info("{}", request);
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+		return getArray(TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId)
+				.queryParam("section_id", sectionId).build());
+	}
 
-		return jsonArray;
+	public Stream<JsonObject> streamTests(Integer runId) {
+		return stream(TestRailRequest.get("get_tests/" + runId).build());
 	}
 
 	public JsonArray getTests(Integer runId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_tests/" + runId).build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+		return getArray(TestRailRequest.get("get_tests/" + runId).build());
+	}
 
-		return jsonArray;
+	public Stream<JsonObject> streamPlans(Integer projectId) {
+		return stream(TestRailRequest.get("get_plans/" + projectId).build());
 	}
 
 	public JsonArray getPlans(Integer projectId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_plans/" + projectId).build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_plans/" + projectId).build());
 	}
 
 	public JsonArray getTestCaseTypes() throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				UriBuilder uriBuilder = UriBuilder.fromPath(serverUrl).path("get_case_types");
-
-				URI request = uriBuilder.build();
-				LOGGER.info("{}", request);
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_case_types").build());
 	}
 
 	public JsonObject getUserByName(String userName, boolean bFailOnNotFound)
@@ -1968,233 +1044,45 @@ public class TestRailServices {
 
 		if (bFailOnNotFound && jsonArray.size() == 0) {
 			throw new TestRailConfigException("User not found: " + userName);
-		}
-
-		if (jsonArray.size() > 1) {
-			throw new TestRailConfigException("User not unique: " + userName);
-		}
-
-		return jsonArray.size() == 0 ? null : (JsonObject) jsonArray.get(0);
-	}
-
-	public JsonArray getUsersByName(String userName) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray userArray = getUsers();
-
-		for (JsonElement jsonElement : userArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), userName);
-			if (jsonObject.get("name").getAsString().equals(userName)) {
-				//TODO checl log msg test on all
-				LOGGER.debug("adding user: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
-	}
-
-	public JsonArray getUsersByEmail(String userEmail) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray userArray = getUsers();
-
-		for (JsonElement jsonElement : userArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("email"), userName);
-			if (jsonObject.get("name").getAsString().equals(userName)) {
-				//TODO checl log msg test on all
-				LOGGER.debug("adding user: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
-	}
-
-	public Integer getUserIdByEmail(String userEmail, boolean bFailOnNotFound)
-			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getUserByEmail(userEmail, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
-	}
-
-	public JsonObject getUserByEmail(String userEmail, boolean bFailOnNotFound)
-			throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_user_by_email").queryParam("email", userEmail)
-						.build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-		return jsonObject;
-	}
-
-	public JsonArray getUsers() throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_users").build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-		return jsonArray;
-	}
-
-	public JsonObject getPlan(Integer planId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_plan/" + planId).build();
+		}
 
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
+		if (jsonArray.size() > 1) {
+			throw new TestRailConfigException("User not unique: " + userName);
+		}
 
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
+		return jsonArray.size() == 0 ? null : (JsonObject) jsonArray.get(0);
+	}
 
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
+	public JsonArray getUsersByName(String userName) throws IOException {
+		return getArray(TestRailRequest.get("get_users").where("name", userName).build());
+	}
+
+	public JsonArray getUsersByEmail(String userEmail) throws IOException {
+		return getArray(TestRailRequest.get("get_users").where("email", userEmail).build());
+	}
 
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
+	public Integer getUserIdByEmail(String userEmail, boolean bFailOnNotFound)
+			throws TestRailConfigException, IOException {
+		JsonObject jsonObject = getUserByEmail(userEmail, bFailOnNotFound);
+		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+	}
 
-				HttpEntity httpEntity = response.getEntity();
+	public JsonObject getUserByEmail(String userEmail, boolean bFailOnNotFound)
+			throws IOException {
+		return getObject(TestRailRequest.get("get_user_by_email").queryParam("email", userEmail)
+				.failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
+	}
 
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
+	public Stream<JsonObject> streamUsers() {
+		return stream(TestRailRequest.get("get_users").build());
+	}
 
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+	public JsonArray getUsers() throws IOException {
+		return getArray(TestRailRequest.get("get_users").build());
+	}
 
-		return jsonObject;
+	public JsonObject getPlan(Integer planId, boolean bFailOnNotFound) throws IOException {
+		return getObject(TestRailRequest.get("get_plan/" + planId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
 	}
 
 	//TODO goes away when convert to builder model
@@ -2208,26 +1096,13 @@ public class TestRailServices {
 	}
 
 	public JsonArray getRunsByName(Integer projectId, String runName) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray runArray = getRuns(projectId);
-
-		for (JsonElement jsonElement : runArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), runName);
-			if (jsonObject.get("name").getAsString().equals(runName)) {
-				LOGGER.debug("adding run: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_runs/" + projectId).where("name", runName).build());
 	}
 
 	public Integer getRunIdByName(Integer projectId, String runName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getRunByName(projectId, runName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("Run", "runs/" + projectId, runName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_runs/" + projectId), "name"));
 	}
 
 	public Integer getRunIdByName(String projectName, String runName, boolean bFailOnNotFound)
@@ -2270,20 +1145,7 @@ public class TestRailServices {
 	}
 
 	public JsonArray getSuitesByName(Integer projectId, String suiteName) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray suiteArray = getSuites(projectId);
-
-		for (JsonElement jsonElement : suiteArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), suiteName);
-			if (jsonObject.get("name").getAsString().equals(suiteName)) {
-				LOGGER.debug("adding project: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_suites/" + projectId).where("name", suiteName).build());
 	}
 
 	public JsonObject getSuiteByName(Integer projectId, String suiteName, boolean bFailOnNotFound)
@@ -2303,8 +1165,8 @@ public class TestRailServices {
 
 	public Integer getSuiteIdByName(Integer projectId, String suiteName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getSuiteByName(projectId, suiteName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("Suite", "suites/" + projectId, suiteName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_suites/" + projectId), "name"));
 	}
 
 	public Boolean isSuiteExists(Integer projectId, String suiteName) throws IOException, TestRailConfigException {
@@ -2369,75 +1231,17 @@ public class TestRailServices {
 
 	public Integer getMileStoneIdByName(Integer projectId, String mileStoneName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getMileStoneByName(projectId, mileStoneName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("MileStone", "milestones/" + projectId, mileStoneName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_milestones/" + projectId), "name"));
 	}
 
 	public Integer getMileStoneIdByName(String projectName, String mileStoneName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getMileStoneByName(getProjectIdByName(projectName, true), mileStoneName,
-				bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return getMileStoneIdByName(getProjectIdByName(projectName, true), mileStoneName, bFailOnNotFound);
 	}
 
 	public JsonObject getSection(Integer sectionId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_section/" + sectionId).build();
-
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.get("get_section/" + sectionId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
 	}
 
 	public JsonObject getPlanByName(Integer projectId, String planName, boolean bFailOnNotFound)
@@ -2445,11 +1249,11 @@ public class TestRailServices {
 		JsonArray jsonArray = getPlansByName(projectId, planName);
 
 		if (bFailOnNotFound && jsonArray.size() == 0) {
-			throw new TestRailConfigException("Suite not found: " + planName);
+			throw new TestRailConfigException("Plan not found: " + planName);
 		}
 
 		if (jsonArray.size() > 1) {
-			throw new TestRailConfigException("Suite not unique: " + planName);
+			throw new TestRailConfigException("Plan not unique: " + planName);
 		}
 
 		return jsonArray.size() == 0 ? null : (JsonObject) jsonArray.get(0);
@@ -2457,182 +1261,30 @@ public class TestRailServices {
 
 	public Integer getPlanIdByName(Integer projectId, String planName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getPlanByName(projectId, planName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("Plan", "plans/" + projectId, planName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_plans/" + projectId), "name"));
 	}
 
 	public JsonArray getPlansByName(Integer projectId, String planName) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray planArray = getPlans(projectId);
-
-		for (JsonElement jsonElement : planArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), planName);
-			if (jsonObject.get("name").getAsString().equals(planName)) {
-				LOGGER.debug("adding plan: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_plans/" + projectId).where("name", planName).build());
 	}
 
 	public JsonObject getMileStone(Integer mileStoneId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_milestone/" + mileStoneId).build();
-
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.get("get_milestone/" + mileStoneId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
 	}
 
 	public JsonArray getMileStonesByName(Integer projectId, String mileStoneName) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray mileStoneArray = getMileStones(projectId);
-
-		for (JsonElement jsonElement : mileStoneArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), mileStoneName);
-			if (jsonObject.get("name").getAsString().equals(mileStoneName)) {
-				LOGGER.debug("adding project: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_milestones/" + projectId).where("name", mileStoneName).build());
 	}
 
 	public JsonObject getRun(Integer runId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_run/" + runId).build();
-
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.get("get_run/" + runId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
 	}
 
 	public JsonArray getTestCasesByName(Integer projectId, Integer suiteId, Integer sectionId, String testCaseName,
 			boolean bFailOnNotFound) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray testCaseArray = getTestCases(projectId, suiteId, sectionId);
-
-		for (JsonElement jsonElement : testCaseArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), testCaseName);
-			if (jsonObject.get("name").getAsString().equals(testCaseName)) {
-				LOGGER.debug("adding project: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId)
+				.queryParam("section_id", sectionId).where("title", testCaseName).build());
 	}
 
 	public JsonObject getTestCaseByName(Integer projectId, Integer suiteId, Integer sectionId, String testCaseName,
@@ -2652,8 +1304,9 @@ public class TestRailServices {
 
 	public Integer getTestCaseIdByName(Integer projectId, Integer suiteId, Integer sectionId, String testCaseName,
 			boolean bFailOnNotFound) throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getTestCaseByName(projectId, suiteId, sectionId, testCaseName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("TestCase", "cases/" + projectId + "/" + suiteId + "/" + sectionId, testCaseName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId)
+						.queryParam("section_id", sectionId), "title"));
 	}
 
 	/*
@@ -2667,78 +1320,12 @@ public class TestRailServices {
 		Please also see TestRail's getting started guide for more details about the differences between test cases and tests.
 	*/
 	private JsonObject postTestResults(Integer runId, Integer testCaseId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("add_result_for_case/" + runId + "/" + testCaseId)
-						.build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				//TODO consistancy on all like other approach
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("add_result_for_case/" + runId + "/" + testCaseId).body(json).build(), true);
 	}
 
 	private JsonArray getSectionsByName(Integer projectId, Integer suiteId, String sectionName) throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray sectionArray = getSections(projectId, suiteId);
-
-		for (JsonElement jsonElement : sectionArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), sectionName);
-			if (jsonObject.get("name").getAsString().equals(sectionName)) {
-				LOGGER.debug("adding project: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_sections/" + projectId).queryParam("suite_id", suiteId)
+				.where("name", sectionName).build());
 	}
 
 	public JsonObject getSectionByName(Integer projectId, Integer suiteId, String sectionName, boolean bFailOnNotFound)
@@ -2758,8 +1345,8 @@ public class TestRailServices {
 
 	public Integer getSectionIdByName(Integer projectId, Integer suiteId, String sectionName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getSectionByName(projectId, suiteId, sectionName, true);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("Section", "sections/" + projectId + "/" + suiteId, sectionName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_sections/" + projectId).queryParam("suite_id", suiteId), "name"));
 	}
 
 	public Boolean isTestCaseExists(Integer projectId, Integer suiteId, Integer sectionId, String testCaseName)
@@ -2773,63 +1360,7 @@ public class TestRailServices {
 	}
 
 	public JsonObject getTest(Integer testId, boolean bFailOnNotFound) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_test/" + testId).build();
-
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (bFailOnNotFound && jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = (JsonObject) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.get("get_test/" + testId).failOnNotFound(bFailOnNotFound).build(), bFailOnNotFound);
 	}
 
 	public Boolean isMileStoneExists(Integer projectId, String mileStoneName)
@@ -2852,108 +1383,25 @@ public class TestRailServices {
 	}
 
 	public JsonObject updateTestCase(Integer testCaseId, String json) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonObject jsonObject = null;
-		int retry = retryCnt;
-
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("update_case/" + testCaseId).build();
-				HttpPost httpPost = new HttpPost(request);
-				httpPost.setConfig(requestConfig);
-				httpPost.addHeader("Content-Type", "application/json");
-				httpPost.setEntity(new StringEntity(json));
-				response = httpClient.execute(httpPost);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
-
-				HttpEntity httpEntity = response.getEntity();
-
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
-
-				jsonObject = jsonElement.getAsJsonObject();
-
-				break;
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
-
-		return jsonObject;
+		return getObject(TestRailRequest.post("update_case/" + testCaseId).body(json).build(), true);
 	}
 
 	public Integer getTestCaseTypeIdByName(String testCaseTypeName, boolean bFailOnNotFound)
 			throws IOException, TestRailConfigException {
-		List<Integer> testCaseIdList = new ArrayList<Integer>();
-		JsonArray testCaseTypeArray = getTestCaseTypes();
-		LOGGER.trace("TestCaseType: {}", testCaseTypeArray);
-
-		for (JsonElement jsonElement : testCaseTypeArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), testCaseTypeName);
-			if (jsonObject.get("name").getAsString().equals(testCaseTypeName)) {
-				LOGGER.debug("adding project: {}", jsonObject.get("name"));
-				testCaseIdList.add(jsonObject.get("id").getAsInt());
-			}
-		}
-
-		if (bFailOnNotFound && testCaseIdList.size() == 0) {
-			throw new TestRailConfigException("TestCaseId: " + testCaseTypeName + "\n" + testCaseTypeArray);
-		}
-
-		if (testCaseIdList.size() > 1) {
-			throw new TestRailConfigException("TestCaseId name not unique: " + testCaseTypeName);
-		}
-
-		return testCaseIdList.get(0);
+		return resolveId("TestCaseType", "case_types", testCaseTypeName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_case_types"), "name"));
 	}
 
 	public Integer getUserIdByName(String userName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getUserByName(userName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("User", "users", userName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_users"), "name"));
 	}
 
 	//TODO move these into Test builder
 	public JsonArray getTestsByName(Integer runId, String testName, boolean bFailOnNotFound)
 			throws IOException {
-		JsonArray jsonArray = new JsonArray();
-
-		JsonArray testCaseArray = getTests(runId);
-
-		for (JsonElement jsonElement : testCaseArray) {
-			JsonObject jsonObject = jsonElement.getAsJsonObject();
-			LOGGER.trace("comparing: {} to: {}", jsonObject.get("name"), testName);
-			if (jsonObject.get("name").getAsString().equals(testName)) {
-				LOGGER.debug("adding project: {}", jsonObject.get("name"));
-				jsonArray.add(jsonObject);
-			}
-		}
-
-		return jsonArray;
+		return getArray(TestRailRequest.get("get_tests/" + runId).where("title", testName).build());
 	}
 
 	public JsonObject getTestByName(Integer runId, String testName, boolean bFailOnNotFound)
@@ -2973,67 +1421,105 @@ public class TestRailServices {
 
 	public Integer getTestIdByName(Integer runId, String testName, boolean bFailOnNotFound)
 			throws TestRailConfigException, IOException {
-		JsonObject jsonObject = getTestByName(runId, testName, bFailOnNotFound);
-		return jsonObject == null ? null : jsonObject.get("id").getAsInt();
+		return resolveId("Test", "tests/" + runId, testName, bFailOnNotFound,
+				() -> loadIndex(TestRailRequest.get("get_tests/" + runId), "title"));
 	}
 
+	/*
+	 * get_test returns a single test, kept for callers expecting an array
+	 */
 	public JsonArray getTest(Integer testId) throws IOException {
-		CloseableHttpResponse response = null;
-		JsonArray jsonArray = null;
-		int retry = retryCnt;
-		while (retry >= 0) {
-			try {
-				URI request = UriBuilder.fromPath(serverUrl).path("get_test/" + testId).build();
-				LOGGER.debug(LoggerServices.build().bannerWrap("Rest URI", request.toString(), '#'));
-
-				HttpGet httpGet = new HttpGet(request);
-				httpGet.setConfig(requestConfig);
-				httpGet.addHeader("Content-Type", "application/json");
-				response = httpClient.execute(httpGet);
-
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 300) {
-					throw new HttpResponseException(statusLine.getStatusCode(),
-							statusLine.getStatusCode() + ": " + statusLine.getReasonPhrase());
-				}
+		JsonArray jsonArray = new JsonArray();
+		jsonArray.add(getObject(TestRailRequest.get("get_test/" + testId).build(), true));
+		return jsonArray;
+	}
 
-				// Get HttpResponse Status
-				LOGGER.debug("{}", response.getProtocolVersion()); // HTTP/1.1
-				LOGGER.debug("{}", response.getStatusLine().getStatusCode()); // 200
-				LOGGER.debug("{}", response.getStatusLine().getReasonPhrase()); // OK
-				LOGGER.debug("{}", response.getStatusLine().toString()); // HTTP/1.1 200 OK
+	/*
+	 *
+	 *  Typed Methods, e.g. getTestCases(projectId, suiteId, null, TestRailCase.CODEC)
+	 *
+	 *  Same calls as above but each element is bound by the codec straight off the response stream
+	 *  into a compact record, no Gson tree is held for large get_cases / get_tests results.
+	 *
+	 */
 
-				HttpEntity httpEntity = response.getEntity();
+	public <T> List<T> getProjects(TestRailCodec<T> codec) throws IOException {
+		return getList(TestRailRequest.get("get_projects").build(), codec);
+	}
 
-				JsonElement jsonElement = new JsonParser().parse(EntityUtils.toString(httpEntity));
-				if (jsonElement instanceof JsonNull) {
-					throw new IOException("JsonNull");
-				}
+	public <T> T getProject(Integer projectId, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		return getRecord(TestRailRequest.get("get_project/" + projectId).failOnNotFound(bFailOnNotFound).build(), codec, bFailOnNotFound);
+	}
 
-				jsonArray = (JsonArray) new JsonParser().parse(EntityUtils.toString(httpEntity));
-			} catch (IOException e) {
-				if (e.getMessage().contains("HTTP 429")) {
-					if (retry == 0) {
-						throw new IOException("timeout after: " + retry + 1 + " attempts");
-					} else {
-						LOGGER.debug("server busy...sleeping: " + retrySleepInterval + "ms");
-						try {
-							Thread.sleep(retrySleepInterval);
-						} catch (InterruptedException ex) {
-						}
-					}
-				} else {
-					throw e;
-				}
-			} finally {
-				if (response != null) {
-					response.close();
-				}
-				retry--;
-			}
-		}
+	public <T> List<T> getRuns(Integer projectId, TestRailCodec<T> codec) throws IOException {
+		return getList(TestRailRequest.get("get_runs/" + projectId).build(), codec);
+	}
 
-		return jsonArray;
+	public <T> Stream<T> streamRuns(Integer projectId, TestRailCodec<T> codec) {
+		return stream(TestRailRequest.get("get_runs/" + projectId).build(), codec);
+	}
+
+	public <T> T getRun(Integer runId, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		return getRecord(TestRailRequest.get("get_run/" + runId).failOnNotFound(bFailOnNotFound).build(), codec, bFailOnNotFound);
+	}
+
+	public <T> List<T> getSuites(Integer projectId, TestRailCodec<T> codec) throws IOException {
+		return getList(TestRailRequest.get("get_suites/" + projectId).build(), codec);
+	}
+
+	public <T> T getSuite(Integer suiteId, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		return getRecord(TestRailRequest.get("get_suite/" + suiteId).failOnNotFound(bFailOnNotFound).build(), codec, bFailOnNotFound);
+	}
+
+	public <T> List<T> getSections(Integer projectId, Integer suiteId, TestRailCodec<T> codec) throws IOException {
+		return getList(TestRailRequest.get("get_sections/" + projectId).queryParam("suite_id", suiteId).build(), codec);
+	}
+
+	public <T> Stream<T> streamSections(Integer projectId, Integer suiteId, TestRailCodec<T> codec) {
+		return stream(TestRailRequest.get("get_sections/" + projectId).queryParam("suite_id", suiteId).build(), codec);
+	}
+
+	public <T> T getSection(Integer sectionId, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		return getRecord(TestRailRequest.get("get_section/" + sectionId).failOnNotFound(bFailOnNotFound).build(), codec, bFailOnNotFound);
+	}
+
+	public <T> List<T> getTestCases(Integer projectId, Integer suiteId, Integer sectionId, TestRailCodec<T> codec)
+			throws IOException {
+		return getList(TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId)
+				.queryParam("section_id", sectionId).build(), codec);
+	}
+
+	public <T> Stream<T> streamTestCases(Integer projectId, Integer suiteId, Integer sectionId, TestRailCodec<T> codec) {
+		return stream(TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId)
+				.queryParam("section_id", sectionId).build(), codec);
+	}
+
+	public <T> T getTestCase(Integer testCaseId, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		return getRecord(TestRailRequest.get("get_case/" + testCaseId).failOnNotFound(bFailOnNotFound).build(), codec, bFailOnNotFound);
+	}
+
+	public <T> List<T> getMileStones(Integer projectId, TestRailCodec<T> codec) throws IOException {
+		return getList(TestRailRequest.get("get_milestones/" + projectId).build(), codec);
+	}
+
+	public <T> Stream<T> streamMileStones(Integer projectId, TestRailCodec<T> codec) {
+		return stream(TestRailRequest.get("get_milestones/" + projectId).build(), codec);
+	}
+
+	public <T> T getMileStone(Integer mileStoneId, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		return getRecord(TestRailRequest.get("get_milestone/" + mileStoneId).failOnNotFound(bFailOnNotFound).build(), codec, bFailOnNotFound);
+	}
+
+	public <T> List<T> getTests(Integer runId, TestRailCodec<T> codec) throws IOException {
+		return getList(TestRailRequest.get("get_tests/" + runId).build(), codec);
+	}
+
+	public <T> Stream<T> streamTests(Integer runId, TestRailCodec<T> codec) {
+		return stream(TestRailRequest.get("get_tests/" + runId).build(), codec);
+	}
+
+	public <T> T getTest(Integer testId, TestRailCodec<T> codec, boolean bFailOnNotFound) throws IOException {
+		return getRecord(TestRailRequest.get("get_test/" + testId).failOnNotFound(bFailOnNotFound).build(), codec, bFailOnNotFound);
 	}
 
 	public Project.Builder getProjectBuilder(String projectName) {
@@ -3068,15 +1554,5 @@ public class TestRailServices {
 		return Results.builder(this, projectName);
 	}
 
-	public static void main(String[] args) {
-		try {
-			URI request = UriBuilder.fromPath("http://10.7.3.11/testrail").path("get_cases/2").queryParam("suite_id", 3)
-					.build();
-			LOGGER.info("{}", request);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-	}
-
 
 }
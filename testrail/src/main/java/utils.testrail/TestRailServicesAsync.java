@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+
+/*
+ * CompletableFuture flavour of the TestRailServices core endpoints.
+ *
+ * Calls run on a bounded pool of daemon threads and go through the wrapped instance's executor,
+ * so pooling, retry/backoff and the shared rate limiter apply exactly as for synchronous calls.
+ * When every worker is busy and the queue is full the submitting thread runs the call itself,
+ * which throttles producers instead of dropping work. After close() calls are not run, their
+ * futures complete exceptionally with a RejectedExecutionException.
+ *
+ * 	CompletableFuture<Integer> suiteId = async.getSuiteIdByName(projectId, "suite1", true);
+ * 	CompletableFuture<Integer> runId = async.getRunIdByName(projectId, "run1", true);
+ * 	CompletableFuture.allOf(suiteId, runId).join();
+ */
+public class TestRailServicesAsync implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private final TestRailServices testRailServices;
+	private final ThreadPoolExecutor executorService;
+
+
+	public static Builder builder(TestRailServices testRailServices){
+		return new Builder(testRailServices);
+	}
+
+
+	public static class Builder {
+		private TestRailServices testRailServices;
+		private int threads = TestRailConstants.ASYNC_THREADS_DEFAULT;
+		private int queueCapacity = TestRailConstants.ASYNC_QUEUE_CAPACITY_DEFAULT;
+
+
+		private Builder(TestRailServices testRailServices) {
+			this.testRailServices = testRailServices;
+		}
+
+		/*
+		 * more threads than the transport's maxConnectionsPerRoute only adds threads waiting on the pool
+		 */
+		public Builder threads(Integer threads) {
+			if (threads != null) {
+				this.threads = threads;
+			}
+			return this;
+		}
+
+		public Builder queueCapacity(Integer queueCapacity) {
+			if (queueCapacity != null) {
+				this.queueCapacity = queueCapacity;
+			}
+			return this;
+		}
+
+		public TestRailServicesAsync build() {
+			return new TestRailServicesAsync(this);
+		}
+	}
+
+	private TestRailServicesAsync(Builder builder) {
+		this.testRailServices = builder.testRailServices;
+		final AtomicInteger threadCnt = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "testrail-async-" + threadCnt.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		executorService = new ThreadPoolExecutor(builder.threads, builder.threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(builder.queueCapacity), threadFactory,
+				(runnable, executor) -> {
+					//CallerRunsPolicy silently drops the call once shut down, which would leave its future pending
+					if (executor.isShutdown()) {
+						throw new RejectedExecutionException("TestRailServicesAsync is closed");
+					}
+					runnable.run();
+				});
+		executorService.allowCoreThreadTimeOut(true);
+	}
+
+	public TestRailServices getServices() {
+		return testRailServices;
+	}
+
+	/*
+	 * calls queued but not yet started
+	 */
+	public int getQueueSize() {
+		return executorService.getQueue().size();
+	}
+
+	public int getActiveCount() {
+		return executorService.getActiveCount();
+	}
+
+
+	@FunctionalInterface
+	private interface Call<T> {
+		T call() throws Exception;
+	}
+
+	private <T> CompletableFuture<T> supply(Call<T> call) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executorService.execute(() -> {
+				if (future.isCancelled()) {
+					return;
+				}
+				try {
+					future.complete(call.call());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/*
+	 * 
+	 *  Core Methods
+	 * 
+	 */
+
+	public CompletableFuture<JsonArray> getProjects() {
+		return supply(() -> testRailServices.getProjects());
+	}
+
+	public CompletableFuture<JsonObject> getProject(Integer projectId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getProject(projectId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addProject(String json) {
+		return supply(() -> testRailServices.addProject(json));
+	}
+
+	public CompletableFuture<JsonObject> deleteProject(Integer projectId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.deleteProject(projectId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getPlans(Integer projectId) {
+		return supply(() -> testRailServices.getPlans(projectId));
+	}
+
+	public CompletableFuture<JsonObject> getPlan(Integer planId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getPlan(planId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addPlan(Integer projectId, String json) {
+		return supply(() -> testRailServices.addPlan(projectId, json));
+	}
+
+	public CompletableFuture<JsonObject> deletePlan(Integer planId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.deletePlan(planId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getRuns(Integer projectId) {
+		return supply(() -> testRailServices.getRuns(projectId));
+	}
+
+	public CompletableFuture<JsonObject> getRun(Integer runId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getRun(runId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addRun(Integer projectId, String json) {
+		return supply(() -> testRailServices.addRun(projectId, json));
+	}
+
+	public CompletableFuture<JsonObject> deleteRun(Integer runId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.deleteRun(runId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getMileStones(Integer projectId) {
+		return supply(() -> testRailServices.getMileStones(projectId));
+	}
+
+	public CompletableFuture<JsonObject> getMileStone(Integer mileStoneId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getMileStone(mileStoneId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addMileStone(Integer projectId, String json) {
+		return supply(() -> testRailServices.addMileStone(projectId, json));
+	}
+
+	public CompletableFuture<JsonObject> deleteMileStone(Integer mileStoneId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.deleteMileStone(mileStoneId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getSuites(Integer projectId) {
+		return supply(() -> testRailServices.getSuites(projectId));
+	}
+
+	public CompletableFuture<JsonObject> getSuite(Integer suiteId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getSuite(suiteId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addSuite(Integer projectId, String json) {
+		return supply(() -> testRailServices.addSuite(projectId, json));
+	}
+
+	public CompletableFuture<JsonObject> deleteSuite(Integer suiteId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.deleteSuite(suiteId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getSections(Integer projectId, Integer suiteId) {
+		return supply(() -> testRailServices.getSections(projectId, suiteId));
+	}
+
+	public CompletableFuture<JsonObject> getSection(Integer sectionId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getSection(sectionId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addSection(Integer projectId, String json) {
+		return supply(() -> testRailServices.addSection(projectId, json));
+	}
+
+	public CompletableFuture<JsonObject> deleteSection(Integer sectionId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.deleteSection(sectionId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getTestCases(Integer projectId, Integer suiteId, Integer sectionId) {
+		return supply(() -> testRailServices.getTestCases(projectId, suiteId, sectionId));
+	}
+
+	public CompletableFuture<JsonObject> getTestCase(Integer testCaseId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getTestCase(testCaseId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addTestCase(Integer sectionId, String json) {
+		return supply(() -> testRailServices.addTestCase(sectionId, json));
+	}
+
+	public CompletableFuture<JsonObject> updateTestCase(Integer testCaseId, String json) {
+		return supply(() -> testRailServices.updateTestCase(testCaseId, json));
+	}
+
+	public CompletableFuture<JsonObject> deleteTestCase(Integer testCaseId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.deleteTestCase(testCaseId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getTestCaseTypes() {
+		return supply(() -> testRailServices.getTestCaseTypes());
+	}
+
+	public CompletableFuture<JsonArray> getTests(Integer runId) {
+		return supply(() -> testRailServices.getTests(runId));
+	}
+
+	public CompletableFuture<JsonObject> getTest(Integer testId, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getTest(testId, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonArray> getUsers() {
+		return supply(() -> testRailServices.getUsers());
+	}
+
+	public CompletableFuture<JsonObject> getUserByEmail(String userEmail, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getUserByEmail(userEmail, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> addResultForCase(Integer runId, Integer testCaseId, String json) {
+		return supply(() -> testRailServices.addResultForCase(runId, testCaseId, json));
+	}
+
+	public CompletableFuture<JsonArray> addResults(Integer runId, String json) {
+		return supply(() -> testRailServices.addResults(runId, json));
+	}
+
+	public CompletableFuture<JsonArray> addResultsForCases(Integer runId, String json) {
+		return supply(() -> testRailServices.addResultsForCases(runId, json));
+	}
+
+	/*
+	 * 
+	 *  Name to id lookups
+	 * 
+	 */
+
+	public CompletableFuture<Integer> getProjectIdByName(String projectName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getProjectIdByName(projectName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getMileStoneIdByName(Integer projectId, String mileStoneName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getMileStoneIdByName(projectId, mileStoneName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getPlanIdByName(Integer projectId, String planName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getPlanIdByName(projectId, planName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getRunIdByName(Integer projectId, String runName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getRunIdByName(projectId, runName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<JsonObject> getRunByName(Integer projectId, String runName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getRunByName(projectId, runName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getSuiteIdByName(Integer projectId, String suiteName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getSuiteIdByName(projectId, suiteName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getSectionIdByName(Integer projectId, Integer suiteId, String sectionName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getSectionIdByName(projectId, suiteId, sectionName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getTestCaseIdByName(Integer projectId, Integer suiteId, Integer sectionId, String testCaseName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getTestCaseIdByName(projectId, suiteId, sectionId, testCaseName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getTestIdByName(Integer runId, String testName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getTestIdByName(runId, testName, bFailOnNotFound));
+	}
+
+	public CompletableFuture<Integer> getUserIdByName(String userName, boolean bFailOnNotFound) {
+		return supply(() -> testRailServices.getUserIdByName(userName, bFailOnNotFound));
+	}
+
+	/*
+	 * waits for queued calls to finish, does not close the wrapped TestRailServices
+	 */
+	@Override
+	public void close() throws IOException {
+		executorService.shutdown();
+		try {
+			if (!executorService.awaitTermination(TestRailConstants.ASYNC_SHUTDOWN_TIMEOUT_DEFAULT, TimeUnit.MILLISECONDS)) {
+				LOGGER.warn("{} TestRail calls still running after {}ms, abandoning", executorService.getActiveCount(),
+						TestRailConstants.ASYNC_SHUTDOWN_TIMEOUT_DEFAULT);
+				executorService.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executorService.shutdownNow();
+		}
+	}
+}
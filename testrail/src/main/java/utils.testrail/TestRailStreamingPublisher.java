@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Publishes results while the suite is still running.
+ *
+ * submit() puts a result on a bounded queue and returns; a background thread drains the queue
+ * into TestRailResultPublisher whenever flushSize results are waiting or flushIntervalMs has passed
+ * since the last flush. When TestRail falls behind the queue fills up and submit() blocks, which
+ * slows the tests down instead of growing the heap. close() stops taking results and drains what
+ * is left (bounded by shutdownTimeoutMs), results still queued after that are reported through
+ * getFailedResults(). It is safe to call from a shutdown hook.
+ */
+public class TestRailStreamingPublisher implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	private static final long CLOSE_POLL_MS = 100;
+	private final TestRailResultPublisher resultPublisher;
+	private final Integer runId;
+	private final int flushSize;
+	private final long flushIntervalMs;
+	private final long shutdownTimeoutMs;
+	private final BlockingQueue<Results> queue;
+	private final Thread drainer;
+	private final AtomicInteger publishedCnt = new AtomicInteger();
+	private final List<Results> failedResults = Collections.synchronizedList(new ArrayList<Results>());
+	private volatile boolean closed = false;
+
+
+	public static Builder builder(TestRailServices testRailServices, Integer runId){
+		return new Builder(testRailServices, runId);
+	}
+
+
+	public static class Builder {
+		private TestRailServices testRailServices;
+		private Integer runId;
+		private int flushSize;
+		private long flushIntervalMs;
+		private int queueCapacity;
+		private long shutdownTimeoutMs = TestRailConstants.PUBLISH_SHUTDOWN_TIMEOUT_DEFAULT;
+		private TestRailJournal journal;
+
+
+		private Builder(TestRailServices testRailServices, Integer runId) {
+			this.testRailServices = testRailServices;
+			this.runId = runId;
+			this.flushSize = testRailServices.getPublishBatchSize();
+			this.flushIntervalMs = testRailServices.getPublishFlushInterval();
+			this.queueCapacity = testRailServices.getPublishQueueCapacity();
+		}
+
+		public Builder flushSize(Integer flushSize) {
+			if (flushSize != null) {
+				this.flushSize = flushSize;
+			}
+			return this;
+		}
+
+		public Builder flushIntervalMs(Long flushIntervalMs) {
+			if (flushIntervalMs != null) {
+				this.flushIntervalMs = flushIntervalMs;
+			}
+			return this;
+		}
+
+		/*
+		 * results waiting to be published before submit() blocks
+		 */
+		public Builder queueCapacity(Integer queueCapacity) {
+			if (queueCapacity != null) {
+				this.queueCapacity = queueCapacity;
+			}
+			return this;
+		}
+
+		public Builder shutdownTimeoutMs(Long shutdownTimeoutMs) {
+			if (shutdownTimeoutMs != null) {
+				this.shutdownTimeoutMs = shutdownTimeoutMs;
+			}
+			return this;
+		}
+
+		/*
+		 * acknowledge journaled results as they are published
+		 */
+		public Builder journal(TestRailJournal journal) {
+			this.journal = journal;
+			return this;
+		}
+
+		public TestRailStreamingPublisher build() {
+			return new TestRailStreamingPublisher(this);
+		}
+	}
+
+	private TestRailStreamingPublisher(Builder builder) {
+		this.runId = builder.runId;
+		this.flushSize = builder.flushSize;
+		this.flushIntervalMs = builder.flushIntervalMs;
+		this.shutdownTimeoutMs = builder.shutdownTimeoutMs;
+		this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+		this.resultPublisher = TestRailResultPublisher.builder(builder.testRailServices).batchSize(flushSize)
+				.journal(builder.journal).build();
+		this.drainer = new Thread(this::drain, "testrail-stream-publisher-" + runId);
+		this.drainer.setDaemon(true);
+		this.drainer.start();
+		LOGGER.debug("streaming results to run {}: flushSize={} flushIntervalMs={} queueCapacity={}", runId, flushSize,
+				flushIntervalMs, builder.queueCapacity);
+	}
+
+	/*
+	 * blocks while the queue is full, throws IllegalStateException once close() has been called
+	 */
+	public void submit(Results results) throws InterruptedException {
+		while (!closed) {
+			if (queue.offer(results, CLOSE_POLL_MS, TimeUnit.MILLISECONDS)) {
+				//close() may have come in between, if the drainer has not taken it the result is not accepted
+				if (closed && queue.remove(results)) {
+					break;
+				}
+				return;
+			}
+		}
+		throw new IllegalStateException("streaming publisher for run " + runId + " is closed");
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public int getPublishedCnt() {
+		return publishedCnt.get();
+	}
+
+	/*
+	 * results that could not be resolved or whose batch was rejected
+	 */
+	public List<Results> getFailedResults() {
+		synchronized (failedResults) {
+			return new ArrayList<>(failedResults);
+		}
+	}
+
+	private void drain() {
+		//when TestRail is behind take several batches at once, the result publisher posts them in parallel
+		int maxDrain = flushSize * resultPublisher.getParallelism();
+		List<Results> pending = new ArrayList<>();
+		long flushAt = System.currentTimeMillis() + flushIntervalMs;
+		while (true) {
+			try {
+				long wait = Math.min(flushAt - System.currentTimeMillis(), CLOSE_POLL_MS);
+				Results results = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+				if (results != null) {
+					pending.add(results);
+					queue.drainTo(pending, maxDrain - pending.size());
+				}
+			} catch (InterruptedException e) {
+				//close() timed out, whatever is left is reported as failed
+				queue.drainTo(pending);
+				failedResults.addAll(pending);
+				return;
+			}
+
+			boolean done = closed && queue.isEmpty();
+			if (pending.size() >= flushSize || System.currentTimeMillis() >= flushAt || done) {
+				flush(pending);
+				pending = new ArrayList<>();
+				flushAt = System.currentTimeMillis() + flushIntervalMs;
+			}
+			if (done) {
+				return;
+			}
+		}
+	}
+
+	private void flush(List<Results> pending) {
+		if (pending.isEmpty()) {
+			return;
+		}
+		try {
+			TestRailPublishReport report = resultPublisher.publish(runId, pending);
+			publishedCnt.addAndGet(report.getPublishedCnt());
+			failedResults.addAll(report.getFailedResults());
+		} catch (RuntimeException e) {
+			LOGGER.error("run {}: {} results not published: {}", runId, pending.size(), e.toString());
+			failedResults.addAll(pending);
+		}
+	}
+
+	/*
+	 * stops accepting results and waits for the queue to drain
+	 */
+	@Override
+	public void close() {
+		if (closed && !drainer.isAlive()) {
+			return;
+		}
+		closed = true;
+		try {
+			drainer.join(shutdownTimeoutMs);
+			if (drainer.isAlive()) {
+				LOGGER.error("run {}: gave up draining after {}ms, {} results still queued", runId, shutdownTimeoutMs, queue.size());
+				drainer.interrupt();
+				drainer.join(CLOSE_POLL_MS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			//anything the drainer did not get to is reported rather than lost
+			List<Results> leftOver = new ArrayList<>();
+			queue.drainTo(leftOver);
+			failedResults.addAll(leftOver);
+			resultPublisher.close();
+		}
+		LOGGER.info("run {}: {} results published, {} failed", runId, publishedCnt.get(), failedResults.size());
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+
+/*
+ * Immutable test suite record bound from get_suite / get_suites.
+ */
+public final class TestRailSuite {
+	public static final TestRailCodec<TestRailSuite> CODEC = TestRailSuite::read;
+
+	private final int id;
+	private final int projectId;
+	private final String name;
+	private final boolean completed;
+	private final String url;
+
+
+	private TestRailSuite(int id, int projectId, String name, boolean completed, String url) {
+		this.id = id;
+		this.projectId = projectId;
+		this.name = name;
+		this.completed = completed;
+		this.url = url;
+	}
+
+	public static TestRailSuite read(JsonReader reader) throws IOException {
+		int id = 0;
+		int projectId = 0;
+		String name = null;
+		boolean completed = false;
+		String url = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = TestRailCodec.nextInt(reader);
+				break;
+			case "project_id":
+				projectId = TestRailCodec.nextInt(reader);
+				break;
+			case "name":
+				name = TestRailCodec.nextString(reader);
+				break;
+			case "is_completed":
+				completed = TestRailCodec.nextBoolean(reader);
+				break;
+			case "url":
+				url = TestRailCodec.nextString(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return new TestRailSuite(id, projectId, name, completed, url);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getProjectId() {
+		return projectId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	@Override
+	public String toString() {
+		return "Suite[" + id + " " + name + "]";
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+
+/*
+ * Immutable test record (a case instantiated in a run) bound from get_test / get_tests.
+ *
+ * statusId is TestRail's status id (see TEST_STATUS), assignedToId is 0 when unassigned.
+ */
+public final class TestRailTest {
+	public static final TestRailCodec<TestRailTest> CODEC = TestRailTest::read;
+
+	private final int id;
+	private final int caseId;
+	private final int runId;
+	private final int statusId;
+	private final int assignedToId;
+	private final int priorityId;
+	private final String title;
+
+
+	private TestRailTest(int id, int caseId, int runId, int statusId, int assignedToId, int priorityId, String title) {
+		this.id = id;
+		this.caseId = caseId;
+		this.runId = runId;
+		this.statusId = statusId;
+		this.assignedToId = assignedToId;
+		this.priorityId = priorityId;
+		this.title = title;
+	}
+
+	public static TestRailTest read(JsonReader reader) throws IOException {
+		int id = 0;
+		int caseId = 0;
+		int runId = 0;
+		int statusId = 0;
+		int assignedToId = 0;
+		int priorityId = 0;
+		String title = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = TestRailCodec.nextInt(reader);
+				break;
+			case "case_id":
+				caseId = TestRailCodec.nextInt(reader);
+				break;
+			case "run_id":
+				runId = TestRailCodec.nextInt(reader);
+				break;
+			case "status_id":
+				statusId = TestRailCodec.nextInt(reader);
+				break;
+			case "assignedto_id":
+				assignedToId = TestRailCodec.nextInt(reader);
+				break;
+			case "priority_id":
+				priorityId = TestRailCodec.nextInt(reader);
+				break;
+			case "title":
+				title = TestRailCodec.nextString(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return new TestRailTest(id, caseId, runId, statusId, assignedToId, priorityId, title);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getCaseId() {
+		return caseId;
+	}
+
+	public int getRunId() {
+		return runId;
+	}
+
+	public int getStatusId() {
+		return statusId;
+	}
+
+	public int getAssignedToId() {
+		return assignedToId;
+	}
+
+	public int getPriorityId() {
+		return priorityId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public String toString() {
+		return "Test[" + id + " " + title + "]";
+	}
+}
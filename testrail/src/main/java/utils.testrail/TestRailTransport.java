@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Pooled, keep-alive http transport shared by every request a TestRailServices instance makes.
+ *
+ * Connections are leased from a PoolingHttpClientConnectionManager so parallel workers reuse
+ * established (TLS) connections instead of queueing behind the HttpClient default of 2 per route.
+ * Idle and expired connections are evicted by a background thread owned by the client.
+ */
+public class TestRailTransport implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(new Throwable().getStackTrace()[0].getClassName());
+	//leases happen on the thread that executes the request, so the wait is handed back per thread
+	private static final ThreadLocal<long[]> POOL_WAIT_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpClient;
+	private final RequestConfig requestConfig;
+	private final int maxTotalConnections;
+	private final int maxConnectionsPerRoute;
+	private final long keepAliveMs;
+	private final long idleEvictMs;
+
+
+	public static Builder builder(String userName, String passWord){
+		return new Builder(userName, passWord);
+	}
+
+
+	public static class Builder {
+		private String userName;
+		private String passWord;
+		private Integer maxTotalConnections = TestRailConstants.MAX_TOTAL_CONNECTIONS_DEFAULT;
+		private Integer maxConnectionsPerRoute = TestRailConstants.MAX_CONNECTIONS_PER_ROUTE_DEFAULT;
+		private Long keepAliveMs = TestRailConstants.KEEP_ALIVE_MS_DEFAULT;
+		private Long idleEvictMs = TestRailConstants.IDLE_EVICT_MS_DEFAULT;
+		private Integer connectTimeout = TestRailConstants.CONNECT_TIMEOUT_DEFAULT;
+		private Integer socketTimeout = TestRailConstants.SOCKET_TIMEOUT_DEFAULT;
+		private Integer connectionRequestTimeout = TestRailConstants.CONNECTION_REQUEST_TIMEOUT_DEFAULT;
+
+
+		private Builder(String userName, String passWord) {
+			this.userName = userName;
+			this.passWord = passWord;
+		}
+
+		public Builder maxTotalConnections(Integer maxTotalConnections) {
+			if (maxTotalConnections != null) {
+				this.maxTotalConnections = maxTotalConnections;
+			}
+			return this;
+		}
+
+		public Builder maxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+			if (maxConnectionsPerRoute != null) {
+				this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+			}
+			return this;
+		}
+
+		public Builder keepAliveMs(Long keepAliveMs) {
+			if (keepAliveMs != null) {
+				this.keepAliveMs = keepAliveMs;
+			}
+			return this;
+		}
+
+		public Builder idleEvictMs(Long idleEvictMs) {
+			if (idleEvictMs != null) {
+				this.idleEvictMs = idleEvictMs;
+			}
+			return this;
+		}
+
+		public Builder connectTimeout(Integer connectTimeout) {
+			if (connectTimeout != null) {
+				this.connectTimeout = connectTimeout;
+			}
+			return this;
+		}
+
+		public Builder socketTimeout(Integer socketTimeout) {
+			if (socketTimeout != null) {
+				this.socketTimeout = socketTimeout;
+			}
+			return this;
+		}
+
+		public Builder connectionRequestTimeout(Integer connectionRequestTimeout) {
+			if (connectionRequestTimeout != null) {
+				this.connectionRequestTimeout = connectionRequestTimeout;
+			}
+			return this;
+		}
+
+		public TestRailTransport build() {
+			return new TestRailTransport(this);
+		}
+	}
+
+	private TestRailTransport(Builder builder) {
+		this.maxTotalConnections = builder.maxTotalConnections;
+		this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+		this.keepAliveMs = builder.keepAliveMs;
+		this.idleEvictMs = builder.idleEvictMs;
+
+		//no time to live: a busy connection is kept for as long as the keep-alive strategy and idle eviction allow,
+		//a ttl would force a fresh TLS handshake on it every keepAliveMs
+		connectionManager = new PoolingHttpClientConnectionManager() {
+			@Override
+			public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+				return timed(super.requestConnection(route, state));
+			}
+		};
+		connectionManager.setMaxTotal(maxTotalConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		//re-validate a pooled connection only if it sat idle, avoids a stale check on every lease
+		connectionManager.setValidateAfterInactivity(TestRailConstants.VALIDATE_AFTER_INACTIVITY_MS_DEFAULT);
+
+		CredentialsProvider provider = new BasicCredentialsProvider();
+		provider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(builder.userName, builder.passWord));
+
+		requestConfig = RequestConfig.custom().setConnectTimeout(builder.connectTimeout)
+				.setConnectionRequestTimeout(builder.connectionRequestTimeout)
+				.setSocketTimeout(builder.socketTimeout).build();
+
+		httpClient = HttpClientBuilder.create()
+				.setDefaultCredentialsProvider(provider)
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(keepAliveStrategy(keepAliveMs))
+				.evictExpiredConnections()
+				.evictIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS)
+				.build();
+
+		LOGGER.debug("TestRail transport: maxTotal={} maxPerRoute={} keepAliveMs={} idleEvictMs={} connectTimeout={} socketTimeout={} connectionRequestTimeout={}",
+				maxTotalConnections, maxConnectionsPerRoute, keepAliveMs, idleEvictMs, builder.connectTimeout,
+				builder.socketTimeout, builder.connectionRequestTimeout);
+	}
+
+	/*
+	 * adds the time spent blocked on a lease to the calling thread's pool wait
+	 */
+	private static ConnectionRequest timed(final ConnectionRequest connectionRequest) {
+		return new ConnectionRequest() {
+			@Override
+			public HttpClientConnection get(long timeout, TimeUnit tunit)
+					throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+				long start = System.nanoTime();
+				try {
+					return connectionRequest.get(timeout, tunit);
+				} finally {
+					POOL_WAIT_NANOS.get()[0] += System.nanoTime() - start;
+				}
+			}
+
+			@Override
+			public boolean cancel() {
+				return connectionRequest.cancel();
+			}
+		};
+	}
+
+	/*
+	 * nanos this thread has waited for pooled connections since the last take
+	 */
+	static long peekPoolWaitNanos() {
+		return POOL_WAIT_NANOS.get()[0];
+	}
+
+	/*
+	 * nanos this thread waited for pooled connections since the last call, and starts over
+	 */
+	static long takePoolWaitNanos() {
+		long[] poolWaitNanos = POOL_WAIT_NANOS.get();
+		long nanos = poolWaitNanos[0];
+		poolWaitNanos[0] = 0;
+		return nanos;
+	}
+
+	/*
+	 * honor the server's Keep-Alive: timeout=n header, never hold a connection longer than keepAliveMs
+	 */
+	private static ConnectionKeepAliveStrategy keepAliveStrategy(final long keepAliveMs) {
+		return (HttpResponse response, HttpContext context) -> {
+			HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+			while (it.hasNext()) {
+				HeaderElement he = it.nextElement();
+				if (he.getValue() != null && he.getName().equalsIgnoreCase("timeout")) {
+					try {
+						return Math.min(Long.parseLong(he.getValue()) * 1000, keepAliveMs);
+					} catch (NumberFormatException ignore) {
+						//fall through to default
+					}
+				}
+			}
+			return keepAliveMs;
+		};
+	}
+
+	public CloseableHttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public RequestConfig getRequestConfig() {
+		return requestConfig;
+	}
+
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public long getKeepAliveMs() {
+		return keepAliveMs;
+	}
+
+	public long getIdleEvictMs() {
+		return idleEvictMs;
+	}
+
+	/*
+	 * leased, pending (waiting for a connection), available and max across all routes
+	 */
+	public PoolStats getPoolStats() {
+		return connectionManager.getTotalStats();
+	}
+
+	@Override
+	public void close() throws IOException {
+		LOGGER.debug("closing TestRail transport {}", getPoolStats());
+		httpClient.close();
+	}
+}
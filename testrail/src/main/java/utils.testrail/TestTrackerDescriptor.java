@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+package utils.testrail;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+
+/*
+ * What a @TestTracker method publishes, read off its annotations and validated once.
+ *
+ * TestRailListener keeps one per Method so every invocation of a test (data providers, invocationCount)
+ * is a map lookup: no reflection, no copying of annotation attributes, no ValidationStateMachine.
+ * The listener's suite level defaults (category, assignee) and the ids its warm up resolved are
+ * folded in when the descriptor is built.
+ */
+public final class TestTrackerDescriptor {
+	//Class.getAnnotation walks the class's annotation map on every call
+	private static final ClassValue<TestTrackerProject> PROJECT_ANNOTATIONS = new ClassValue<TestTrackerProject>() {
+		@Override
+		protected TestTrackerProject computeValue(Class<?> type) {
+			return type.getAnnotation(TestTrackerProject.class);
+		}
+	};
+	private final Method method;
+	private final boolean tracked;
+	private final boolean publish;
+	private final Integer testCaseId;
+	private final String testCaseName;
+	private final String category;
+	private final String comment;
+	private final String assignedToName;
+	private final Integer assignedToId;
+	private final String steps;
+	private final String preConditions;
+	private final String focus;
+	private final String elapsed;
+	private final String defects;
+	private final String[] additionalTests;
+	private final boolean fullyAutomated;
+	private final Exception validationError;
+
+
+	/*
+	 * null when the class carries no @TestTrackerProject
+	 */
+	public static TestTrackerProject projectAnnotation(Class<?> testClass) {
+		return PROJECT_ANNOTATIONS.get(testClass);
+	}
+
+	TestTrackerDescriptor(Method method, TestTrackerProject testTrackerProjectAnnotation, Class<?> testClass, String category,
+			String assignedToName, Integer assignedToId, Map<String, Integer> testCaseIds, Map<String, Integer> userIds) {
+		TestTracker testTrackerAnnotation = method.getAnnotation(TestTracker.class);
+		this.method = method;
+		this.tracked = testTrackerAnnotation != null;
+		String testCaseName = method.getName();
+		Integer testCaseId = null;
+		if (testTrackerAnnotation != null) {
+			this.publish = testTrackerAnnotation.publish();
+			//0 is the annotation's "not set", leave those to be resolved by name
+			testCaseId = testTrackerAnnotation.testCaseId() == 0 ? null : testTrackerAnnotation.testCaseId();
+			if (!testTrackerAnnotation.testCaseName().equals(TestRailConstants.TESTCASE_NAME_DEFAULT)) {
+				testCaseName = testTrackerAnnotation.testCaseName();
+			}
+			if (!testTrackerAnnotation.category().equals(TestRailConstants.CATEGORY_DEFAULT)) {
+				category = testTrackerAnnotation.category();
+			}
+			if (testTrackerAnnotation.assignedToId() != 0) {
+				assignedToId = testTrackerAnnotation.assignedToId();
+			}
+			if (!testTrackerAnnotation.assignedToName().equals(TestRailConstants.ASSIGNED_TO_DEFAULT)) {
+				assignedToName = testTrackerAnnotation.assignedToName();
+				if (testTrackerAnnotation.assignedToId() == 0) {
+					//the test's own assignee, not the project's id
+					assignedToId = null;
+				}
+			}
+			this.comment = testTrackerAnnotation.comment();
+			this.steps = testTrackerAnnotation.steps();
+			this.preConditions = testTrackerAnnotation.preConditions();
+			this.focus = testTrackerAnnotation.focus();
+			this.elapsed = testTrackerAnnotation.elapsed();
+			this.defects = testTrackerAnnotation.defects();
+			this.fullyAutomated = testTrackerAnnotation.isFullyAutomated();
+			this.additionalTests = testTrackerAnnotation.additionalTests();
+			this.validationError = validate(testTrackerProjectAnnotation, testTrackerAnnotation, testClass);
+		} else {
+			this.publish = false;
+			this.comment = null;
+			this.steps = null;
+			this.preConditions = null;
+			this.focus = null;
+			this.elapsed = null;
+			this.defects = null;
+			this.fullyAutomated = false;
+			this.additionalTests = new String[0];
+			this.validationError = null;
+		}
+		if (testCaseId == null) {
+			testCaseId = testCaseIds.get(testCaseName);
+		}
+		if (assignedToId == null && assignedToName != null) {
+			assignedToId = userIds.get(assignedToName);
+		}
+		this.testCaseName = testCaseName;
+		this.testCaseId = testCaseId;
+		this.category = category;
+		this.assignedToName = assignedToName;
+		this.assignedToId = assignedToId;
+	}
+
+	private static Exception validate(TestTrackerProject testTrackerProjectAnnotation, TestTracker testTrackerAnnotation, Class<?> testClass) {
+		if (testTrackerProjectAnnotation == null) {
+			return new Exception("TestTracker Project Annotation not defined on class: " + testClass.getName());
+		}
+		try {
+			new ValidationStateMachine(testTrackerProjectAnnotation, testTrackerAnnotation, testClass).validateAnnotations();
+			return null;
+		} catch (Exception e) {
+			return e;
+		}
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	/*
+	 * the method carries @TestTracker
+	 */
+	public boolean isTracked() {
+		return tracked;
+	}
+
+	public boolean isPublish() {
+		return publish;
+	}
+
+	public Integer getTestCaseId() {
+		return testCaseId;
+	}
+
+	public String getTestCaseName() {
+		return testCaseName;
+	}
+
+	public String getCategory() {
+		return category;
+	}
+
+	public String getComment() {
+		return comment;
+	}
+
+	public String getAssignedToName() {
+		return assignedToName;
+	}
+
+	public Integer getAssignedToId() {
+		return assignedToId;
+	}
+
+	public String getSteps() {
+		return steps;
+	}
+
+	public String getPreConditions() {
+		return preConditions;
+	}
+
+	public String getFocus() {
+		return focus;
+	}
+
+	public String getElapsed() {
+		return elapsed;
+	}
+
+	public String getDefects() {
+		return defects;
+	}
+
+	public String[] getAdditionalTests() {
+		return additionalTests.clone();
+	}
+
+	public boolean isFullyAutomated() {
+		return fullyAutomated;
+	}
+
+	/*
+	 * what ValidationStateMachine rejected the annotations with, null when they are valid
+	 */
+	public Exception getValidationError() {
+		return validationError;
+	}
+
+	@Override
+	public String toString() {
+		return method.getDeclaringClass().getSimpleName() + "." + method.getName() + " -> " + testCaseName
+				+ (testCaseId == null ? "" : " (" + testCaseId + ")");
+	}
+}
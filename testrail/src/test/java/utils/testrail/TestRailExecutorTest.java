@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+
+package utils.testrail;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.client.HttpResponseException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+
+import utils.testrail.stub.TestRailStubFixture;
+import utils.testrail.stub.TestRailStubServer;
+
+
+/*
+ * TestRailExecutor, TestRailRequest and TestRailPager against the in memory TestRailStubServer, plus a
+ * bare HttpServer for the error pages TestRail's web server answers with instead of json
+ */
+public class TestRailExecutorTest {
+	private static final String HTML = "<html><body><h1>502 Bad Gateway</h1></body></html>";
+	private TestRailStubFixture fixture = null;
+	private TestRailStubServer server = null;
+	private HttpServer htmlServer = null;
+	private TestRailTransport transport = null;
+	private TestRailExecutor executor = null;
+	private int projectId;
+	private int suiteId;
+	private List<Integer> caseIds = null;
+
+
+	@BeforeClass()
+	public void beforeClass() throws Exception {
+		fixture = TestRailStubFixture.builder().pageSize(2)
+				.project("executorProj").suite("suite1").section("section1").cases("case", 5)
+				.build();
+		server = fixture.getServer();
+		projectId = fixture.getProjectId();
+		suiteId = fixture.getSuiteId();
+		caseIds = fixture.getCaseIds();
+
+		htmlServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		htmlServer.createContext("/", exchange -> {
+			byte[] bytes = HTML.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+			exchange.sendResponseHeaders(exchange.getRequestURI().toString().contains("ok") ? 200 : 502, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		});
+		htmlServer.start();
+
+		transport = TestRailTransport.builder(fixture.getUserName(), fixture.getPassWord()).build();
+		executor = TestRailExecutor.builder(server.getUrl(), transport).build();
+	}
+
+	@BeforeMethod()
+	public void beforeMethod() {
+		server.resetCnts();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void afterClass() throws Exception {
+		transport.close();
+		htmlServer.stop(0);
+		fixture.close();
+	}
+
+	@Test
+	public void toUriTest() {
+		TestRailRequest request = TestRailRequest.get("get_cases/1").queryParam("suite_id", 2)
+				.queryParam("section_id", null).queryParam("filter", "a b&c").build();
+		assertEquals(request.toUri("https://host/index.php?/api/v2/"),
+				"https://host/index.php?/api/v2/get_cases/1&suite_id=2&filter=a+b%26c");
+		assertEquals(request.toUri("https://host/index.php?/api/v2"),
+				"https://host/index.php?/api/v2/get_cases/1&suite_id=2&filter=a+b%26c");
+		assertEquals(request.toUri("https://host/api/v2/"), "https://host/api/v2/get_cases/1?suite_id=2&filter=a+b%26c");
+		assertEquals(TestRailRequest.get("/get_projects").build().toUri("https://host/index.php?/api/v2/"),
+				"https://host/index.php?/api/v2/get_projects");
+	}
+
+	@Test
+	public void plainBaseUrlTest() throws Exception {
+		String plainUrl = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + "/api/v2/";
+		TestRailExecutor plainExecutor = TestRailExecutor.builder(plainUrl, transport).build();
+		List<Integer> ids = new ArrayList<>();
+		TestRailPager.json(plainExecutor, TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId).build(), false)
+				.forEachRemaining(jsonObject -> ids.add(jsonObject.get("id").getAsInt()));
+		assertEquals(ids, caseIds);
+	}
+
+	@Test
+	public void toleratedNotFoundTest() throws Exception {
+		JsonElement jsonElement = executor.execute(TestRailRequest.get("get_project/99999").failOnNotFound(false).build());
+		assertTrue(jsonElement.isJsonNull());
+		assertEquals(executor.execute(TestRailRequest.get("get_project/99999").failOnNotFound(false).build(), TestRailProject.CODEC), null);
+		try {
+			executor.execute(TestRailRequest.get("get_project/99999").build());
+			fail("400 not thrown");
+		} catch (HttpResponseException e) {
+			assertEquals(e.getStatusCode(), 400);
+			//TestRail's error member is carried into the message
+			assertTrue(e.getMessage().contains(" - "), e.getMessage());
+		}
+	}
+
+	@Test
+	public void notToleratedTest() throws Exception {
+		//failOnNotFound(false) only covers 400, a 401 still throws
+		TestRailTransport anonymous = TestRailTransport.builder(fixture.getUserName(), "wrong").build();
+		try {
+			TestRailExecutor.builder(server.getUrl(), anonymous).build()
+					.execute(TestRailRequest.get("get_projects").failOnNotFound(false).build());
+			fail("401 not thrown");
+		} catch (HttpResponseException e) {
+			assertEquals(e.getStatusCode(), 401);
+		} finally {
+			anonymous.close();
+		}
+	}
+
+	@Test
+	public void htmlErrorPageTest() throws Exception {
+		String htmlUrl = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + htmlServer.getAddress().getPort()
+				+ "/index.php?/api/v2/";
+		TestRailExecutor htmlExecutor = TestRailExecutor.builder(htmlUrl, transport).build();
+		TestRailResponse response = htmlExecutor.call(TestRailRequest.get("get_projects").build());
+		assertEquals(response.getStatusCode(), 502);
+		assertTrue(response.getBody().isJsonNull());
+		try {
+			htmlExecutor.execute(TestRailRequest.get("get_projects").failOnNotFound(false).build());
+			fail("502 not thrown");
+		} catch (HttpResponseException e) {
+			assertEquals(e.getStatusCode(), 502);
+		}
+		//a 200 that is not json is a broken response, not an empty one
+		try {
+			htmlExecutor.execute(TestRailRequest.get("get_projects").queryParam("ok", 1).build());
+			fail("unparsable 200 not thrown");
+		} catch (HttpResponseException e) {
+			fail("unparsable 200 reported as a status: " + e.getMessage());
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("unparsable response"), e.getMessage());
+		}
+	}
+
+	@Test
+	public void pagerTest() throws Exception {
+		TestRailRequest request = TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId).build();
+		for (boolean prefetch : new boolean[] {false, true}) {
+			server.resetCnts();
+			TestRailPager<JsonObject> pager = TestRailPager.json(executor, request, prefetch);
+			List<Integer> ids = new ArrayList<>();
+			pager.forEachRemaining(jsonObject -> ids.add(jsonObject.get("id").getAsInt()));
+			assertEquals(ids, caseIds, "prefetch " + prefetch);
+			assertEquals(pager.getPageCnt(), 3, "prefetch " + prefetch);
+			assertEquals(server.getRequestCnt("get_cases"), 3, "prefetch " + prefetch);
+		}
+
+		List<Integer> ids = new ArrayList<>();
+		TestRailPager.typed(executor, request, TestRailCase.CODEC, true).forEachRemaining(testRailCase -> ids.add(testRailCase.getId()));
+		assertEquals(ids, caseIds);
+	}
+
+	@Test
+	public void prefetchTest() throws Exception {
+		TestRailRequest request = TestRailRequest.get("get_cases/" + projectId).queryParam("suite_id", suiteId).build();
+		TestRailPager<JsonObject> pager = TestRailPager.json(executor, request, false);
+		pager.next();
+		assertEquals(server.getRequestCnt("get_cases"), 1);
+
+		//with prefetch the second page is asked for while the first is still being read
+		server.resetCnts();
+		pager = TestRailPager.json(executor, request, true);
+		pager.next();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (server.getRequestCnt("get_cases") < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(server.getRequestCnt("get_cases"), 2);
+		assertEquals(pager.getPageCnt(), 1);
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+
+package utils.testrail;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+
+/*
+ * TestRailJournal replay, torn line recovery and compaction, no TestRail instance needed
+ */
+public class TestRailJournalTest {
+	private Path dir = null;
+	private Path path = null;
+
+
+	@BeforeMethod()
+	public void beforeMethod() throws IOException {
+		dir = Files.createTempDirectory("journal");
+		path = dir.resolve("results.journal");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterMethod() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	private TestRailJournal open(Integer compactThreshold) throws IOException {
+		return TestRailJournal.builder(path.toString()).syncEvery(1).compactThreshold(compactThreshold).build();
+	}
+
+	private static Results results(int testCaseId) throws Exception {
+		return Results.builder(null, "journalProj").projectId(1).runId(3).suiteId(1).sectionId(2)
+				.testCaseId(testCaseId).testStatus(TEST_STATUS.PASSED).comment("case " + testCaseId)
+				.build(false);
+	}
+
+	private static List<Long> seqs(TestRailJournal journal) {
+		List<Long> seqs = new ArrayList<>();
+		for (TestRailJournal.Entry entry : journal.pending()) {
+			seqs.add(entry.getSeq());
+		}
+		return seqs;
+	}
+
+	private List<String> lines() throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			if (!line.isEmpty()) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+	@Test
+	public void replayTest() throws Exception {
+		try (TestRailJournal journal = open(null)) {
+			for (int i = 1; i <= 5; i++) {
+				assertEquals(journal.append(3, results(100 + i)), i);
+			}
+			journal.acknowledge(Arrays.asList(1L, 2L));
+		}
+
+		try (TestRailJournal journal = open(null)) {
+			assertEquals(seqs(journal), Arrays.asList(3L, 4L, 5L));
+			TestRailJournal.Entry entry = journal.pending().get(0);
+			assertEquals(entry.getRunId(), Integer.valueOf(3));
+			Results results = entry.toResults(null);
+			assertEquals(results.getTestCaseId(), Integer.valueOf(103));
+			assertEquals(results.getStatus(), TEST_STATUS.PASSED);
+			assertEquals(results.getComment(), "case 103");
+			assertEquals(results.getJournalSeq(), Long.valueOf(3));
+
+			//the acked newest entry is still in the file, its seq is not handed out again
+			journal.acknowledge(Arrays.asList(5L));
+		}
+
+		try (TestRailJournal journal = open(null)) {
+			assertEquals(seqs(journal), Arrays.asList(3L, 4L));
+			assertEquals(journal.append(3, results(106)), 6);
+			assertEquals(seqs(journal), Arrays.asList(3L, 4L, 6L));
+		}
+	}
+
+	@Test
+	public void tornLineTest() throws Exception {
+		try (TestRailJournal journal = open(null)) {
+			for (int i = 1; i <= 3; i++) {
+				journal.append(3, results(100 + i));
+			}
+		}
+		//a crash mid-write leaves half of the last line behind
+		long size = Files.size(path);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(size - 20);
+		}
+
+		try (TestRailJournal journal = open(null)) {
+			assertEquals(seqs(journal), Arrays.asList(1L, 2L));
+			//the torn line was compacted away so the next append starts on a line of its own
+			assertEquals(lines().size(), 2);
+			assertEquals(journal.append(3, results(104)), 3);
+		}
+
+		List<String> lines = lines();
+		assertEquals(lines.size(), 3);
+		for (String line : lines) {
+			new JsonParser().parse(line).getAsJsonObject();
+		}
+		try (TestRailJournal journal = open(null)) {
+			assertEquals(seqs(journal), Arrays.asList(1L, 2L, 3L));
+			assertEquals(journal.pending().get(2).getResult().get("testCaseId").getAsInt(), 104);
+		}
+	}
+
+	@Test
+	public void compactTest() throws Exception {
+		try (TestRailJournal journal = open(4)) {
+			for (int i = 1; i <= 4; i++) {
+				journal.append(3, results(100 + i));
+			}
+			//each ack counts its entry plus the ack line itself
+			journal.acknowledge(Arrays.asList(1L));
+			assertEquals(lines().size(), 5);
+			journal.acknowledge(Arrays.asList(2L));
+
+			List<String> lines = lines();
+			assertEquals(lines.size(), 2);
+			for (String line : lines) {
+				JsonObject jsonObject = new JsonParser().parse(line).getAsJsonObject();
+				assertFalse(jsonObject.has("ack"), line);
+			}
+			assertFalse(Files.exists(dir.resolve(path.getFileName() + ".tmp")));
+
+			//appends after a compaction go to the new file
+			assertEquals(journal.append(3, results(105)), 5);
+		}
+
+		try (TestRailJournal journal = open(4)) {
+			assertEquals(seqs(journal), Arrays.asList(3L, 4L, 5L));
+			assertEquals(journal.append(3, results(106)), 6);
+			journal.acknowledge(Arrays.asList(3L, 4L, 5L, 6L));
+			assertEquals(journal.getPendingCnt(), 0);
+		}
+		//nothing pending, a clean close leaves an empty journal
+		assertTrue(lines().isEmpty());
+		try (TestRailJournal journal = open(4)) {
+			assertTrue(journal.pending().isEmpty());
+		}
+	}
+}
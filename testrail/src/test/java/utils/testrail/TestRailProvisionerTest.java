@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+
+package utils.testrail;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+import java.util.Arrays;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import utils.testrail.stub.TestRailStubFixture;
+import utils.testrail.stub.TestRailStubServer;
+
+
+/*
+ * TestRailProvisioner against the in memory TestRailStubServer, only the missing levels are added
+ */
+public class TestRailProvisionerTest {
+	private TestRailStubFixture fixture = null;
+	private TestRailStubServer server = null;
+	private TestRailServices testRailServices = null;
+	private int suiteId;
+	private int sectionId;
+	private int existingCaseId;
+
+
+	@BeforeClass()
+	public void beforeClass() throws Exception {
+		//no milestone and no run, provision() adds those
+		fixture = TestRailStubFixture.builder().pageSize(2)
+				.project("provisionProj").suite("suite1").section("section1").cases("case", 2)
+				.build();
+		server = fixture.getServer();
+		suiteId = fixture.getSuiteId();
+		sectionId = fixture.getSectionId();
+		existingCaseId = fixture.getCaseId("case1");
+
+		testRailServices = TestRailServices.builder(fixture.getUrl()).userName(fixture.getUserName()).passWord(fixture.getPassWord())
+				.retryCnt(3)
+				.build();
+	}
+
+	@BeforeMethod()
+	public void beforeMethod() {
+		server.resetCnts();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void afterClass() throws Exception {
+		testRailServices.close();
+		fixture.close();
+	}
+
+	@Test
+	public void provisionMissingTest() throws Exception {
+		TestRailProvisioner provisioner = TestRailProvisioner.builder(testRailServices, "provisionProj")
+				.mileStoneName("release1").suiteName("suite1").sectionName("section1").runName("run1")
+				.testCaseNames(Arrays.asList("case1", "case2", "case3", "case4"))
+				.createMileStone(true).createSuite(true).createSection(true).createTestCase(true).createRun(true)
+				.build()
+				.provision();
+
+		assertEquals(server.getRequestCnt("add_project"), 0);
+		assertEquals(server.getRequestCnt("add_suite"), 0);
+		assertEquals(server.getRequestCnt("add_section"), 0);
+		assertEquals(server.getRequestCnt("add_milestone"), 1);
+		assertEquals(server.getRequestCnt("add_case"), 2);
+		assertEquals(server.getRequestCnt("add_run"), 1);
+		assertEquals(provisioner.getCreated().size(), 4);
+
+		assertEquals(provisioner.getSuiteId(), Integer.valueOf(suiteId));
+		assertEquals(provisioner.getSectionId(), Integer.valueOf(sectionId));
+		assertEquals(provisioner.getTestCaseIds().size(), 4);
+		assertEquals(provisioner.getTestCaseIds().get("case1"), Integer.valueOf(existingCaseId));
+		assertNotNull(provisioner.getMileStoneId());
+		assertNotNull(provisioner.getRunId());
+		for (String testCaseName : Arrays.asList("case3", "case4")) {
+			Integer id = provisioner.getTestCaseIds().get(testCaseName);
+			assertEquals(server.getStore().get("case", id).get("milestone_id").getAsInt(), provisioner.getMileStoneId().intValue());
+		}
+
+		//a second pass finds everything and adds nothing
+		server.resetCnts();
+		TestRailProvisioner.builder(testRailServices, "provisionProj")
+				.mileStoneName("release1").suiteName("suite1").sectionName("section1").runName("run1")
+				.testCaseNames(Arrays.asList("case1", "case2", "case3", "case4"))
+				.createMileStone(true).createSuite(true).createSection(true).createTestCase(true).createRun(true)
+				.build()
+				.provision();
+		for (String method : Arrays.asList("add_milestone", "add_suite", "add_section", "add_case", "add_run")) {
+			assertEquals(server.getRequestCnt(method), 0, method);
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+
+package utils.testrail;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import utils.gson.GsonServices;
+import utils.testrail.stub.TestRailStubFixture;
+import utils.testrail.stub.TestRailStubServer;
+
+
+/*
+ * TestRailReplay against the in memory TestRailStubServer: buffer import, checkpoint resume,
+ * journal replay and the command line exit codes
+ */
+public class TestRailReplayTest {
+	private TestRailStubFixture fixture = null;
+	private TestRailStubServer server = null;
+	private TestRailServices testRailServices = null;
+	private int projectId;
+	private int runId;
+	private int[] caseIds = null;
+	private Path dir = null;
+
+
+	@BeforeClass()
+	public void beforeClass() throws Exception {
+		fixture = TestRailStubFixture.builder().pageSize(2)
+				.project("replayProj").suite("suite1").section("section1").cases("case", 4).run("run1")
+				.build();
+		server = fixture.getServer();
+		projectId = fixture.getProjectId();
+		runId = fixture.getRunId();
+		caseIds = fixture.getCaseIds().stream().mapToInt(Integer::intValue).toArray();
+
+		testRailServices = TestRailServices.builder(fixture.getUrl()).userName(fixture.getUserName()).passWord(fixture.getPassWord())
+				.retryCnt(3)
+				.build();
+	}
+
+	@BeforeMethod()
+	public void beforeMethod() throws IOException {
+		server.resetCnts();
+		testRailServices.getEntityCache().invalidateAll();
+		dir = Files.createTempDirectory("replay");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterMethod() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void afterClass() throws Exception {
+		testRailServices.close();
+		fixture.close();
+	}
+
+	/*
+	 * a buffer.json the way TestRailListener.generateResultsArray() writes it
+	 */
+	private Path buffer(String name, Object... caseIdOrTitles) throws IOException {
+		JsonObject objContainer = new JsonObject();
+		JsonArray resultsArray = new JsonArray();
+		objContainer.add("results", resultsArray);
+		for (Object caseIdOrTitle : caseIdOrTitles) {
+			JsonObject jsonObject = new JsonObject();
+			if (caseIdOrTitle instanceof Integer) {
+				jsonObject.addProperty("case_id", (Integer) caseIdOrTitle);
+			} else {
+				jsonObject.addProperty("case_id", (String) caseIdOrTitle);
+			}
+			jsonObject.addProperty("status_id", TEST_STATUS.PASSED.getValue());
+			jsonObject.addProperty("comment", "replayed " + caseIdOrTitle);
+			resultsArray.add(jsonObject);
+		}
+		Path buffer = dir.resolve(name);
+		Files.write(buffer, GsonServices.build().prettyPrint(objContainer).getBytes(StandardCharsets.UTF_8));
+		return buffer;
+	}
+
+	private Results results(Integer resultRunId, int testCaseId) throws Exception {
+		return Results.builder(testRailServices, "replayProj").projectId(projectId).runId(resultRunId)
+				.testCaseId(testCaseId).testStatus(TEST_STATUS.FAILED).comment("journaled " + testCaseId)
+				.build(false);
+	}
+
+	private Path properties() throws IOException {
+		Path properties = dir.resolve("testrail.properties");
+		Files.write(properties, Arrays.asList(
+				"url = " + server.getUrl(),
+				"user = " + fixture.getUserName(),
+				"password = " + fixture.getPassWord(),
+				"retryCnt = 2",
+				"retrySleepInterval = 100",
+				"metricsJmx = false"), StandardCharsets.UTF_8);
+		return properties;
+	}
+
+	private int pendingCnt(Path journal) throws IOException {
+		try (TestRailJournal testRailJournal = TestRailJournal.builder(journal.toString()).build()) {
+			return testRailJournal.getPendingCnt();
+		}
+	}
+
+	@Test
+	public void bufferImportTest() throws Exception {
+		int resultCnt = server.getStore().count("result");
+		Path buffer = buffer("buffer.json", caseIds[0], "C" + caseIds[1], "case3", "case4", "no such case");
+		TestRailReplay replay = TestRailReplay.builder(testRailServices).projectName("replayProj").suite("suite1")
+				.run("run1").batchSize(2).build();
+
+		//the unresolvable title is the one result not published
+		assertEquals(replay.replay(buffer), 1);
+		assertEquals(server.getStore().count("result"), resultCnt + 4);
+		//both titles resolve from one load of the project's case index, 4 cases are 2 pages
+		assertEquals(server.getRequestCnt("get_cases"), 2);
+		assertEquals(server.getRequestCnt("add_results_for_cases"), 2);
+
+		Path checkpoint = replay.checkpoint(buffer);
+		assertEquals(checkpoint, dir.resolve("buffer.json" + TestRailReplay.CHECKPOINT_SUFFIX));
+		assertTrue(Files.exists(checkpoint));
+		assertFalse(Files.exists(dir.resolve(checkpoint.getFileName() + ".import")));
+		assertEquals(pendingCnt(checkpoint), 0);
+	}
+
+	@Test
+	public void badStatusTest() throws Exception {
+		Path buffer = buffer("buffer5.json", caseIds[0], caseIds[1], caseIds[2], caseIds[3]);
+		JsonObject objContainer = new JsonParser().parse(new String(Files.readAllBytes(buffer), StandardCharsets.UTF_8)).getAsJsonObject();
+		JsonArray resultsArray = objContainer.getAsJsonArray("results");
+		//a custom status TEST_STATUS does not know and a result without one
+		resultsArray.get(1).getAsJsonObject().addProperty("status_id", 99);
+		resultsArray.get(2).getAsJsonObject().remove("status_id");
+		Files.write(buffer, GsonServices.build().prettyPrint(objContainer).getBytes(StandardCharsets.UTF_8));
+
+		int resultCnt = server.getStore().count("result");
+		TestRailReplay replay = TestRailReplay.builder(testRailServices).run(String.valueOf(runId)).batchSize(2).build();
+		assertEquals(replay.replay(buffer), 2);
+		//the bad entries are not checkpointed, so they cannot sink the batch they would have landed in
+		assertEquals(server.getStore().count("result"), resultCnt + 2);
+		Path checkpoint = replay.checkpoint(buffer);
+		assertEquals(pendingCnt(checkpoint), 0);
+
+		server.resetCnts();
+		assertEquals(replay.replay(buffer), 0);
+		assertEquals(server.getRequestCnt("add_results_for_cases"), 0);
+	}
+
+	@Test
+	public void resumeTest() throws Exception {
+		Path buffer = buffer("buffer2.json", caseIds[0], caseIds[1], caseIds[2]);
+		TestRailReplay replay = TestRailReplay.builder(testRailServices).run(String.valueOf(runId)).build();
+
+		//an earlier run got as far as publishing the first result
+		Path checkpoint = replay.checkpoint(buffer);
+		try (TestRailJournal journal = TestRailJournal.builder(checkpoint.toString()).build()) {
+			long first = journal.append(runId, results(runId, caseIds[0]));
+			journal.append(runId, results(runId, caseIds[1]));
+			journal.acknowledge(Collections.singletonList(first));
+		}
+
+		int resultCnt = server.getStore().count("result");
+		assertEquals(replay.replay(buffer), 0);
+		//the checkpoint is what is replayed, not the buffer
+		assertEquals(server.getStore().count("result"), resultCnt + 1);
+		assertEquals(pendingCnt(checkpoint), 0);
+
+		server.resetCnts();
+		assertEquals(replay.replay(buffer), 0);
+		assertEquals(server.getRequestCnt("add_results_for_cases"), 0);
+	}
+
+	@Test
+	public void journalTest() throws Exception {
+		Path journalPath = dir.resolve("testrail-journal.ndjson");
+		try (TestRailJournal journal = TestRailJournal.builder(journalPath.toString()).build()) {
+			journal.append(runId, results(runId, caseIds[0]));
+			journal.append(runId, results(runId, caseIds[1]));
+			//entries without a run go to --run
+			journal.append(null, results(null, caseIds[2]));
+		}
+
+		int resultCnt = server.getStore().count("result");
+		TestRailReplay replay = TestRailReplay.builder(testRailServices).run(String.valueOf(runId)).build();
+		assertEquals(replay.replay(Collections.singletonList(journalPath)), 0);
+		assertEquals(server.getStore().count("result"), resultCnt + 3);
+		assertEquals(pendingCnt(journalPath), 0);
+		//a journal is acknowledged in place, no checkpoint
+		assertFalse(Files.exists(replay.checkpoint(journalPath)));
+	}
+
+	@Test
+	public void exitCodeTest() throws Exception {
+		String config = properties().toString();
+		Path buffer = buffer("buffer3.json", caseIds[0], "case2");
+		Path unresolved = buffer("buffer4.json", "no such case");
+
+		assertEquals(TestRailReplay.run(new String[] {}), 2);
+		assertEquals(TestRailReplay.run(new String[] {buffer.toString(), "--run"}), 2);
+		assertEquals(TestRailReplay.run(new String[] {"--config", config, "--colour", "red", buffer.toString()}), 2);
+		//a title without --project
+		assertEquals(TestRailReplay.run(new String[] {"--config", config, "--run", String.valueOf(runId), buffer.toString()}), 2);
+
+		assertEquals(TestRailReplay.run(new String[] {"--config", config, "--run", "run1", "--project", "replayProj",
+				buffer.toString()}), 0);
+		assertEquals(TestRailReplay.run(new String[] {"--config", config, "--run", "run1", "--project", "replayProj",
+				unresolved.toString()}), 1);
+		assertEquals(TestRailReplay.run(new String[] {"--config", config, "--run", "run1", "--project", "replayProj",
+				dir.resolve("missing.json").toString()}), 1);
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+package utils.testrail;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import utils.testrail.stub.TestRailStubFixture;
+import utils.testrail.stub.TestRailStubServer;
+
+
+/*
+ * TestRailResultPublisher against the TestRailStubServer, one rejected batch must not cost the others
+ */
+public class TestRailResultPublisherTest {
+	private static final int NO_SUCH_CASE = 99999;
+	private TestRailStubFixture fixture = null;
+	private TestRailStubServer server = null;
+	private TestRailServices testRailServices = null;
+	private int projectId;
+	private int runId;
+	private List<Integer> caseIds = null;
+	private Path dir = null;
+
+
+	@BeforeClass()
+	public void beforeClass() throws Exception {
+		fixture = TestRailStubFixture.builder()
+				.project("publishProj").suite("suite1").section("section1").cases("case", 4).run("run1")
+				.build();
+		server = fixture.getServer();
+		projectId = fixture.getProjectId();
+		runId = fixture.getRunId();
+		caseIds = fixture.getCaseIds();
+
+		testRailServices = TestRailServices.builder(fixture.getUrl()).userName(fixture.getUserName()).passWord(fixture.getPassWord())
+				.retryCnt(3)
+				.build();
+	}
+
+	@BeforeMethod()
+	public void beforeMethod() throws IOException {
+		server.resetCnts();
+		dir = Files.createTempDirectory("publish");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterMethod() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void afterClass() throws Exception {
+		testRailServices.close();
+		fixture.close();
+	}
+
+	/*
+	 * batches of 2: [case1, case2] [NO_SUCH_CASE, case3] [case4]
+	 */
+	private List<Results> resultsWithBadCase() throws Exception {
+		List<Integer> testCaseIds = Arrays.asList(caseIds.get(0), caseIds.get(1), NO_SUCH_CASE, caseIds.get(2), caseIds.get(3));
+		List<Results> resultsList = new ArrayList<>();
+		for (Integer testCaseId : testCaseIds) {
+			resultsList.add(Results.builder(testRailServices, "publishProj").projectId(projectId).runId(runId)
+					.testCaseId(testCaseId).testStatus(TEST_STATUS.PASSED).comment("published " + testCaseId)
+					.build(false));
+		}
+		return resultsList;
+	}
+
+	@Test
+	public void rejectedBatchTest() throws Exception {
+		int resultCnt = server.getStore().count("result");
+		//the first call is throttled and retried, that batch still counts as published
+		server.throttleNext(1);
+		TestRailPublishReport report;
+		try (TestRailResultPublisher publisher = TestRailResultPublisher.builder(testRailServices).batchSize(2).build()) {
+			report = publisher.publish(runId, resultsWithBadCase());
+		}
+
+		assertFalse(report.isSuccessful());
+		assertEquals(report.getBatches().size(), 3);
+		assertEquals(report.getFailedBatches().size(), 1);
+		TestRailBatchResult failed = report.getFailedBatches().get(0);
+		assertEquals(failed.getIndex(), 1);
+		assertEquals(failed.getCaseIds(), Arrays.asList(NO_SUCH_CASE, caseIds.get(2)));
+		assertTrue(failed.getError() != null);
+		assertEquals(report.getPublishedCnt(), 3);
+		assertEquals(report.getFailedCnt(), 2);
+		assertTrue(report.getUnresolved().isEmpty());
+
+		//the stub takes a batch whole or not at all
+		assertEquals(server.getStore().count("result"), resultCnt + 3);
+		//the throttled answer is counted apart from the three calls that got through
+		assertEquals(server.getThrottledCnt(), 1);
+		assertEquals(server.getRequestCnt("add_results_for_cases"), 3);
+	}
+
+	@Test
+	public void journalAckTest() throws Exception {
+		Path journalPath = dir.resolve("testrail-journal.ndjson");
+		List<Results> resultsList = resultsWithBadCase();
+		try (TestRailJournal journal = TestRailJournal.builder(journalPath.toString()).build()) {
+			for (Results results : resultsList) {
+				journal.append(runId, results);
+			}
+			try (TestRailResultPublisher publisher = TestRailResultPublisher.builder(testRailServices).batchSize(2)
+					.journal(journal).build()) {
+				assertFalse(publisher.publish(runId, resultsList).isSuccessful());
+			}
+
+			//only the rejected batch is still pending
+			List<Long> pending = journal.pending().stream().map(TestRailJournal.Entry::getSeq).collect(Collectors.toList());
+			assertEquals(pending, Arrays.asList(resultsList.get(2).getJournalSeq(), resultsList.get(3).getJournalSeq()));
+		}
+
+		//and stays pending across a reopen
+		try (TestRailJournal journal = TestRailJournal.builder(journalPath.toString()).build()) {
+			assertEquals(journal.getPendingCnt(), 2);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+package utils.testrail;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import utils.testrail.stub.TestRailStubFixture;
+import utils.testrail.stub.TestRailStubServer;
+
+
+/*
+ * TestRailStreamingPublisher against the TestRailStubServer
+ */
+public class TestRailStreamingPublisherTest {
+	private TestRailStubFixture fixture = null;
+	private TestRailStubServer server = null;
+	private TestRailServices testRailServices = null;
+	private int runId;
+
+
+	@BeforeClass()
+	public void beforeClass() throws Exception {
+		fixture = TestRailStubFixture.builder().pageSize(250)
+				.project("streamProj").suite("suite1").section("section1").cases("case", 10).run("run1")
+				.build();
+		server = fixture.getServer();
+		runId = fixture.getRunId();
+		testRailServices = services(fixture);
+	}
+
+	@BeforeMethod()
+	public void beforeMethod() {
+		server.resetCnts();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void afterClass() throws Exception {
+		testRailServices.close();
+		fixture.close();
+	}
+
+	private static TestRailServices services(TestRailStubFixture fixture) throws Exception {
+		return TestRailServices.builder(fixture.getUrl()).userName(fixture.getUserName()).passWord(fixture.getPassWord())
+				.retryCnt(3)
+				.build();
+	}
+
+	private static List<Results> results(TestRailStubFixture fixture, TestRailServices services, int cnt) throws Exception {
+		List<Results> resultsList = new ArrayList<>();
+		for (int i = 0; i < cnt; i++) {
+			resultsList.add(Results.builder(services, "streamProj").projectId(fixture.getProjectId()).runId(fixture.getRunId())
+					.testCaseId(fixture.getCaseIds().get(i)).testStatus(TEST_STATUS.PASSED).comment("streamed " + i)
+					.build(false));
+		}
+		return resultsList;
+	}
+
+	private static void awaitPublished(TestRailStreamingPublisher publisher, int cnt) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (publisher.getPublishedCnt() < cnt && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+	}
+
+	@Test
+	public void closeDrainsTest() throws Exception {
+		int resultCnt = server.getStore().count("result");
+		//neither flush trigger fires on its own, close() has to publish everything
+		TestRailStreamingPublisher publisher = TestRailStreamingPublisher.builder(testRailServices, runId)
+				.flushSize(100).flushIntervalMs(60000L).build();
+		for (Results results : results(fixture, testRailServices, 7)) {
+			publisher.submit(results);
+		}
+		assertEquals(server.getRequestCnt("add_results_for_cases"), 0);
+		publisher.close();
+
+		assertEquals(publisher.getPublishedCnt(), 7);
+		assertTrue(publisher.getFailedResults().isEmpty());
+		assertEquals(publisher.getQueueSize(), 0);
+		assertEquals(server.getStore().count("result"), resultCnt + 7);
+		assertEquals(server.getRequestCnt("add_results_for_cases"), 1);
+	}
+
+	@Test
+	public void sizeFlushTest() throws Exception {
+		try (TestRailStreamingPublisher publisher = TestRailStreamingPublisher.builder(testRailServices, runId)
+				.flushSize(2).flushIntervalMs(60000L).build()) {
+			List<Results> resultsList = results(fixture, testRailServices, 4);
+			publisher.submit(resultsList.get(0));
+			Thread.sleep(300);
+			//one short of flushSize and nowhere near the interval
+			assertEquals(publisher.getPublishedCnt(), 0);
+			for (Results results : resultsList.subList(1, 4)) {
+				publisher.submit(results);
+			}
+			awaitPublished(publisher, 4);
+			assertEquals(publisher.getPublishedCnt(), 4);
+		}
+	}
+
+	@Test
+	public void timeFlushTest() throws Exception {
+		try (TestRailStreamingPublisher publisher = TestRailStreamingPublisher.builder(testRailServices, runId)
+				.flushSize(100).flushIntervalMs(200L).build()) {
+			for (Results results : results(fixture, testRailServices, 3)) {
+				publisher.submit(results);
+			}
+			//well short of flushSize, the interval publishes them without close()
+			awaitPublished(publisher, 3);
+			assertEquals(publisher.getPublishedCnt(), 3);
+		}
+	}
+
+	@Test
+	public void submitAfterCloseTest() throws Exception {
+		TestRailStreamingPublisher publisher = TestRailStreamingPublisher.builder(testRailServices, runId).build();
+		publisher.close();
+		try {
+			publisher.submit(results(fixture, testRailServices, 1).get(0));
+			fail("submit after close() accepted");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("closed"), e.getMessage());
+		}
+		assertEquals(publisher.getQueueSize(), 0);
+		assertEquals(server.getRequestCnt("add_results_for_cases"), 0);
+	}
+
+	@Test
+	public void closeTimeoutTest() throws Exception {
+		//every answer takes 300ms, close() gives up long before the queue is drained
+		try (TestRailStubFixture slowFixture = TestRailStubFixture.builder().latencyMs(300L)
+				.project("streamProj").suite("suite1").section("section1").cases("case", 10).run("run1")
+				.build();
+				TestRailServices slowServices = services(slowFixture)) {
+			TestRailStreamingPublisher publisher = TestRailStreamingPublisher.builder(slowServices, slowFixture.getRunId())
+					.flushSize(1).shutdownTimeoutMs(50L).build();
+			List<Results> resultsList = results(slowFixture, slowServices, 10);
+			for (Results results : resultsList) {
+				publisher.submit(results);
+			}
+			publisher.close();
+
+			//what the drainer had not taken is reported by the time close() returns
+			assertEquals(publisher.getQueueSize(), 0);
+			assertTrue(publisher.getFailedResults().size() >= 10 - 4, String.valueOf(publisher.getFailedResults().size()));
+
+			//the batches that were in flight finish one way or the other, nothing is lost
+			long deadline = System.currentTimeMillis() + 5000;
+			while (publisher.getPublishedCnt() + publisher.getFailedResults().size() < resultsList.size()
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertEquals(publisher.getPublishedCnt() + publisher.getFailedResults().size(), resultsList.size());
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2002 by Michael Pitoniak (pitoniakm@msn.com)
+ * All rights are reserved.
+ * Reproduction and/or redistribution in whole or in part is expressly
+ * prohibited without the written consent of the copyright owner.
+ *
+ * This Software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ */
+
+
+package utils.testrail;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpResponseException;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.gson.JsonObject;
+
+import utils.testrail.stub.TestRailStubFixture;
+import utils.testrail.stub.TestRailStubServer;
+
+
+/*
+ * TestRailServices against the in memory TestRailStubServer, runs without a TestRail instance
+ */
+public class TestRailStubServerTest {
+	private TestRailStubFixture fixture = null;
+	private TestRailStubServer server = null;
+	private TestRailServices testRailServices = null;
+	private int projectId;
+	private int suiteId;
+	private int sectionId;
+	private int runId;
+
+
+	@BeforeClass()
+	public void beforeClass() throws Exception {
+		fixture = TestRailStubFixture.builder().pageSize(2)
+				.project("apiTestProj").suite("suite1").section("section1").cases("case", 5).run("run1")
+				.build();
+		server = fixture.getServer();
+		projectId = fixture.getProjectId();
+		suiteId = fixture.getSuiteId();
+		sectionId = fixture.getSectionId();
+		runId = fixture.getRunId();
+
+		testRailServices = TestRailServices.builder(fixture.getUrl()).userName(fixture.getUserName()).passWord(fixture.getPassWord())
+				.retryCnt(3)
+				.build();
+	}
+
+	@BeforeMethod()
+	public void beforeMethod() {
+		server.resetCnts();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void afterClass() throws Exception {
+		testRailServices.close();
+		fixture.close();
+	}
+
+	@Test
+	public void pagedListTest() throws Exception {
+		assertEquals(testRailServices.getTestCases(projectId, suiteId, sectionId).size(), 5);
+		assertEquals(server.getRequestCnt("get_cases"), 3);
+	}
+
+	@Test
+	public void getIdByNameTest() throws Exception {
+		assertEquals(testRailServices.getProjectIdByName("apiTestProj", true), Integer.valueOf(projectId));
+		assertEquals(testRailServices.getRunIdByName(projectId, "run1", true), Integer.valueOf(runId));
+	}
+
+	@Test
+	public void throttledTest() throws Exception {
+		server.throttleNext(2);
+		assertEquals(testRailServices.getProjects().size(), 1);
+		assertEquals(server.getThrottledCnt(), 2);
+		assertEquals(server.getRequestCnt("get_projects"), 1);
+		assertEquals(testRailServices.getMetrics().endpoint("get_projects").getThrottledCnt(), 2);
+	}
+
+	@Test
+	public void publishTest() throws Exception {
+		List<Results> resultsList = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			resultsList.add(Results.builder(testRailServices, "apiTestProj")
+					.projectId(projectId).suiteId(suiteId).sectionId(sectionId).runId(runId)
+					.testCaseName("case" + i).testStatus(i == 5 ? TEST_STATUS.FAILED : TEST_STATUS.PASSED)
+					.build(true));
+		}
+		try (TestRailResultPublisher publisher = TestRailResultPublisher.builder(testRailServices).batchSize(2).build()) {
+			assertEquals(publisher.publish(runId, resultsList).isSuccessful(), true);
+		}
+		JsonObject run = testRailServices.getRun(runId, true);
+		assertEquals(run.get("passed_count").getAsInt(), 4);
+		assertEquals(run.get("failed_count").getAsInt(), 1);
+		assertEquals(server.getStore().count("result"), 5);
+	}
+
+	@Test
+	public void cacheInvalidationTest() throws Exception {
+		int cacheSectionId = server.getStore().addSection(projectId, suiteId, "cacheSection").get("id").getAsInt();
+		assertNull(testRailServices.getTestCaseIdByName(projectId, suiteId, cacheSectionId, "cached1", false));
+		assertEquals(server.getRequestCnt("get_cases"), 1);
+
+		//changes made behind our back are not seen until the scope is dropped
+		server.getStore().addCase(cacheSectionId, "unseen");
+		assertNull(testRailServices.getTestCaseIdByName(projectId, suiteId, cacheSectionId, "unseen", false));
+		assertEquals(server.getRequestCnt("get_cases"), 1);
+
+		//our own add_case drops the case scopes
+		JsonObject body = new JsonObject();
+		body.addProperty("title", "cached1");
+		int caseId = testRailServices.addTestCase(cacheSectionId, body.toString()).get("id").getAsInt();
+		assertEquals(testRailServices.getTestCaseIdByName(projectId, suiteId, cacheSectionId, "cached1", false), Integer.valueOf(caseId));
+		assertEquals(server.getRequestCnt("get_cases"), 2);
+		assertNotNull(testRailServices.getTestCaseIdByName(projectId, suiteId, cacheSectionId, "unseen", false));
+		assertEquals(server.getRequestCnt("get_cases"), 2);
+
+		//and so does delete_case
+		testRailServices.deleteTestCase(caseId, true);
+		assertNull(testRailServices.getTestCaseIdByName(projectId, suiteId, cacheSectionId, "cached1", false));
+		assertEquals(server.getRequestCnt("get_cases"), 3);
+
+		assertNull(testRailServices.getMileStoneIdByName(projectId, "cachedMileStone", false));
+		body = new JsonObject();
+		body.addProperty("name", "cachedMileStone");
+		int mileStoneId = testRailServices.addMileStone(projectId, body.toString()).get("id").getAsInt();
+		assertEquals(testRailServices.getMileStoneIdByName(projectId, "cachedMileStone", false), Integer.valueOf(mileStoneId));
+		testRailServices.deleteMileStone(mileStoneId, true);
+		assertNull(testRailServices.getMileStoneIdByName(projectId, "cachedMileStone", false));
+		assertEquals(server.getRequestCnt("get_milestones"), 3);
+	}
+
+	@Test
+	public void asyncTest() throws Exception {
+		testRailServices.getEntityCache().invalidateAll();
+		TestRailServicesAsync closedAsync = null;
+		try (TestRailServicesAsync async = TestRailServicesAsync.builder(testRailServices).threads(4).build()) {
+			closedAsync = async;
+			Map<String, CompletableFuture<Integer>> futures = new LinkedHashMap<>();
+			for (int i = 1; i <= 5; i++) {
+				futures.put("case" + i, async.getTestCaseIdByName(projectId, suiteId, sectionId, "case" + i, true));
+			}
+			CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+			for (Map.Entry<String, CompletableFuture<Integer>> future : futures.entrySet()) {
+				assertEquals(future.getValue().join(),
+						testRailServices.getTestCaseIdByName(projectId, suiteId, sectionId, future.getKey(), true));
+			}
+			//concurrent lookups in one scope share a single load, 5 cases are 3 pages
+			assertEquals(server.getRequestCnt("get_cases"), 3);
+
+			assertNull(async.getProject(99999, false).join());
+			try {
+				async.getProject(99999, true).join();
+				fail("400 not thrown");
+			} catch (CompletionException e) {
+				assertTrue(e.getCause() instanceof HttpResponseException, String.valueOf(e.getCause()));
+			}
+		}
+
+		//calls after close() fail fast instead of leaving the future pending
+		CompletableFuture<JsonObject> afterClose = closedAsync.getProject(projectId, true);
+		try {
+			afterClose.get(5, TimeUnit.SECONDS);
+			fail("call after close() completed normally");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException, String.valueOf(e.getCause()));
+		}
+	}
+}